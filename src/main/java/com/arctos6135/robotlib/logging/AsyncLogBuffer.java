@@ -0,0 +1,293 @@
+package com.arctos6135.robotlib.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+
+/**
+ * A preallocated, bounded, multi-producer single-consumer ring buffer of log
+ * records.
+ *
+ * <p>
+ * Records are stored as primitive fields in parallel arrays, so offering a
+ * record does not allocate anything. Producers claim a slot by incrementing the
+ * head sequence with a CAS, fill it in, and then publish it by writing the
+ * sequence number into the slot's entry in {@code published}. The single
+ * consumer only ever reads slots that have been published.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+final class AsyncLogBuffer {
+
+    private final int capacity;
+    private final int mask;
+    private final OverflowPolicy policy;
+
+    // Fill levels at which progressively more important records are shed
+    // Only used with OverflowPolicy.DROP_FINEST_FIRST
+    private final long shedFinest;
+    private final long shedFiner;
+    private final long shedFine;
+    private final long shedInfo;
+
+    private final int[] levels;
+    private final long[] fpgaTimes;
+    private final long[] wallTimes;
+    private final double[] matchTimes;
+    // Robot mode ordinals, or -1 if not recorded
+    private final byte[] modes;
+    // Channel names, or null for the root
+    private final String[] channels;
+    // Holds the message, or the template if argCounts is not 0
+    private final String[] messages;
+    private final int[] argCounts;
+    // RobotLogRecord flags
+    private final byte[] flags;
+    // RobotLogRecord.MAX_ARGS arguments per slot
+    private final double[] args;
+
+    // published[i] holds (sequence + 1) of the record last published in slot i
+    private final AtomicLongArray published;
+    // The sequence number of the next slot to be claimed by a producer
+    private final AtomicLong head = new AtomicLong();
+    // The sequence number of the next slot to be read by the consumer
+    // Only ever written by the consumer
+    private volatile long tail = 0;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Creates a new buffer.
+     *
+     * @param capacity The minimum capacity of the buffer; this is rounded up to
+     *                 the next power of 2
+     * @param policy   The overflow policy
+     */
+    AsyncLogBuffer(int capacity, OverflowPolicy policy) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Capacity must be at least 2");
+        }
+        this.capacity = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.policy = policy;
+
+        shedFinest = this.capacity / 2;
+        shedFiner = this.capacity * 5 / 8;
+        shedFine = this.capacity * 3 / 4;
+        shedInfo = this.capacity * 7 / 8;
+
+        levels = new int[this.capacity];
+        fpgaTimes = new long[this.capacity];
+        wallTimes = new long[this.capacity];
+        matchTimes = new double[this.capacity];
+        modes = new byte[this.capacity];
+        channels = new String[this.capacity];
+        messages = new String[this.capacity];
+        argCounts = new int[this.capacity];
+        flags = new byte[this.capacity];
+        args = new double[this.capacity * RobotLogRecord.MAX_ARGS];
+        published = new AtomicLongArray(this.capacity);
+    }
+
+    /**
+     * Gets the capacity of this buffer.
+     *
+     * @return The capacity
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns whether a record with the given level should be dropped when the
+     * buffer has the given number of slots in use.
+     */
+    private boolean shouldShed(int level, long used) {
+        if (used >= capacity) {
+            return true;
+        }
+        if (policy != OverflowPolicy.DROP_FINEST_FIRST) {
+            return false;
+        }
+        if (used >= shedInfo) {
+            return level < Level.WARNING.intValue();
+        } else if (used >= shedFine) {
+            return level < Level.INFO.intValue();
+        } else if (used >= shedFiner) {
+            return level < Level.FINE.intValue();
+        } else if (used >= shedFinest) {
+            return level < Level.FINER.intValue();
+        }
+        return false;
+    }
+
+    /**
+     * Offers a record to the buffer.
+     *
+     * <p>
+     * This method may be called from any thread. Depending on the overflow policy,
+     * it will either block or drop the record if the buffer is full.
+     * </p>
+     *
+     * @param level    The integer value of the level of the record
+     * @param fpgaTime The FPGA timestamp, in microseconds
+     * @param wallTime The wall-clock time, in milliseconds since the epoch
+     * @param message  The message
+     * @return Whether the record was accepted
+     */
+    boolean offer(int level, long fpgaTime, long wallTime, String message) {
+        return offer(level, fpgaTime, wallTime, Double.NaN, null, null, message, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Offers a copy of a record to the buffer. If the record has a message
+     * template, it is copied without being formatted.
+     *
+     * @param record The record
+     * @return Whether the record was accepted
+     */
+    boolean offer(RobotLogRecord record) {
+        return offer(record.getLevel().intValue(), record.getFpgaTime(), record.getMillis(), record.getMatchTime(),
+                record.getRobotMode(), record.getLoggerName(), record.getTemplate(), record.getArgCount(),
+                record.getArg(0), record.getArg(1), record.getArg(2), record.getFlags());
+    }
+
+    /**
+     * Offers a record with a message template to the buffer. The template is not
+     * formatted until the record is written out.
+     *
+     * <p>
+     * This method may be called from any thread. Depending on the overflow policy,
+     * it will either block or drop the record if the buffer is full.
+     * </p>
+     *
+     * @param level     The integer value of the level of the record
+     * @param fpgaTime  The FPGA timestamp, in microseconds
+     * @param wallTime  The wall-clock time, in milliseconds since the epoch
+     * @param matchTime The match time, or {@code NaN} if not recorded
+     * @param mode      The robot mode, or {@code null} if not recorded
+     * @param channel   The name of the channel, or {@code null} for the root
+     * @param template  The message template
+     * @param argCount  The number of arguments; if 0, the template is used as the
+     *                  message as-is
+     * @param arg0      The first argument
+     * @param arg1      The second argument
+     * @param arg2      The third argument
+     * @param flags     The flags of the record, as in
+     *                  {@link RobotLogRecord#getFlags()}
+     * @return Whether the record was accepted
+     */
+    boolean offer(int level, long fpgaTime, long wallTime, double matchTime, RobotMode mode, String channel,
+            String template, int argCount, double arg0, double arg1, double arg2, int flags) {
+        long seq;
+        while (true) {
+            seq = head.get();
+            long used = seq - tail;
+            if (shouldShed(level, used)) {
+                if (policy == OverflowPolicy.BLOCK) {
+                    // Wait for the consumer to make some room
+                    LockSupport.parkNanos(50_000);
+                    continue;
+                }
+                dropped.incrementAndGet();
+                return false;
+            }
+            if (head.compareAndSet(seq, seq + 1)) {
+                break;
+            }
+        }
+
+        int i = (int) (seq & mask);
+        levels[i] = level;
+        fpgaTimes[i] = fpgaTime;
+        wallTimes[i] = wallTime;
+        matchTimes[i] = matchTime;
+        modes[i] = (byte) (mode != null ? mode.ordinal() : -1);
+        channels[i] = channel;
+        messages[i] = template;
+        argCounts[i] = argCount;
+        this.flags[i] = (byte) flags;
+        int argIndex = i * RobotLogRecord.MAX_ARGS;
+        args[argIndex] = arg0;
+        args[argIndex + 1] = arg1;
+        args[argIndex + 2] = arg2;
+        // Publish the slot; the volatile write makes the fields above visible
+        published.set(i, seq + 1);
+        return true;
+    }
+
+    /**
+     * Removes the next record from the buffer and copies it into the given record
+     * object.
+     *
+     * <p>
+     * This method must only be called from the single consumer thread.
+     * </p>
+     *
+     * @param record The record to copy into
+     * @return Whether a record was available
+     */
+    boolean poll(RobotLogRecord record) {
+        long t = tail;
+        int i = (int) (t & mask);
+        if (published.get(i) != t + 1) {
+            return false;
+        }
+        record.setLevel(RobotLogRecord.levelOf(levels[i]));
+        record.setFpgaTime(fpgaTimes[i]);
+        record.setWallTime(wallTimes[i]);
+        record.setMatchTime(matchTimes[i]);
+        record.setRobotMode(RobotMode.fromOrdinal(modes[i]));
+        record.setLoggerName(channels[i]);
+        int argIndex = i * RobotLogRecord.MAX_ARGS;
+        record.setTemplate(messages[i], argCounts[i], args[argIndex], args[argIndex + 1], args[argIndex + 2]);
+        record.setFlags(flags[i]);
+        // Don't hold on to the message
+        messages[i] = null;
+        channels[i] = null;
+        // Release the slot to the producers
+        tail = t + 1;
+        return true;
+    }
+
+    /**
+     * Gets the sequence number of the next slot to be claimed. All records offered
+     * before this call have a sequence number less than the returned value.
+     *
+     * @return The head sequence number
+     */
+    long headSequence() {
+        return head.get();
+    }
+
+    /**
+     * Gets the sequence number of the next record to be read.
+     *
+     * @return The tail sequence number
+     */
+    long tailSequence() {
+        return tail;
+    }
+
+    /**
+     * Gets the number of records dropped since the last call to
+     * {@link #takeDroppedCount()}, without resetting the count.
+     *
+     * @return The number of records dropped
+     */
+    long peekDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Gets the number of records dropped since the last call to this method and
+     * resets the count.
+     *
+     * @return The number of records dropped
+     */
+    long takeDroppedCount() {
+        return dropped.getAndSet(0);
+    }
+}
@@ -0,0 +1,260 @@
+package com.arctos6135.robotlib.logging;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * The background writer for {@link RobotLogger}'s asynchronous mode.
+ *
+ * <p>
+ * A single low-priority daemon thread drains an {@link AsyncLogBuffer} in
+ * batches and publishes the records to a set of handlers, usually those of a
+ * {@link Logger}. The
+ * handlers are flushed once every time the buffer has been drained, so that
+ * file I/O happens once per batch instead of once per record.
+ * </p>
+ * <p>
+ * Every record is copied out of the buffer into one reused record, which is
+ * only valid until the handlers return from {@link Handler#publish}. The
+ * handlers of this package never hold on to a record and are marked as a
+ * {@link TransientRecordHandler}, so they get the reused one; any other
+ * handler, which may keep the record (e.g. a
+ * {@link java.util.logging.MemoryHandler}), gets a copy of its own instead.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+final class AsyncLogWriter implements Runnable {
+
+    // Max number of records to write before checking for drops and flushing
+    private static final int BATCH_SIZE = 256;
+    // How long to sleep when there is nothing to write
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final AsyncLogBuffer buffer;
+    private final Supplier<Handler[]> handlerSupplier;
+    private final Thread thread;
+    private volatile boolean stopped = false;
+
+    // The record that every entry in the buffer is copied into
+    // Only used by the writer thread
+    private final RobotLogRecord record = new RobotLogRecord(Level.INFO, null, 0);
+    // The handlers, and whether each of them can be given the reused record
+    private Handler[] handlers;
+    private boolean[] reusesRecord;
+
+    private final Object flushLock = new Object();
+    // All records with a sequence number less than this have been written and
+    // flushed
+    private volatile long flushedSequence = 0;
+    // Total number of records dropped and reported so far
+    private volatile long reportedDrops = 0;
+
+    /**
+     * Creates a new writer. The writer is not started until {@link #start()} is
+     * called.
+     *
+     * @param buffer The buffer to drain
+     * @param logger The logger whose handlers the records are published to
+     */
+    AsyncLogWriter(AsyncLogBuffer buffer, Logger logger) {
+        this(buffer, logger::getHandlers, "RobotLogger-Writer");
+    }
+
+    /**
+     * Creates a new writer. The writer is not started until {@link #start()} is
+     * called.
+     *
+     * @param buffer     The buffer to drain
+     * @param handlers   Gets the handlers the records are published to; called
+     *                   again every time the buffer has been drained
+     * @param threadName The name of the writer thread
+     */
+    AsyncLogWriter(AsyncLogBuffer buffer, Supplier<Handler[]> handlers, String threadName) {
+        this.buffer = buffer;
+        this.handlerSupplier = handlers;
+
+        thread = LogThreads.newThread(threadName, this);
+    }
+
+    /**
+     * Starts the writer thread.
+     */
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Wakes up the writer thread if it is waiting for records.
+     */
+    void wake() {
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Stops the writer thread once it has written out everything in the buffer.
+     */
+    void stop() {
+        stopped = true;
+        LockSupport.unpark(thread);
+    }
+
+    @Override
+    public void run() {
+        updateHandlers();
+        boolean dirty = false;
+
+        while (true) {
+            int count = 0;
+            while (count < BATCH_SIZE && buffer.poll(record)) {
+                publish();
+                count++;
+            }
+            if (count > 0) {
+                dirty = true;
+            }
+            if (reportDrops()) {
+                dirty = true;
+            }
+            // If there are possibly more records, keep going without flushing
+            if (count == BATCH_SIZE) {
+                continue;
+            }
+
+            if (dirty) {
+                for (Handler handler : handlers) {
+                    handler.flush();
+                }
+                dirty = false;
+            }
+            long tail = buffer.tailSequence();
+            if (tail != flushedSequence) {
+                flushedSequence = tail;
+                synchronized (flushLock) {
+                    flushLock.notifyAll();
+                }
+            }
+
+            if (stopped && buffer.tailSequence() == buffer.headSequence()) {
+                return;
+            }
+            LockSupport.parkNanos(this, IDLE_NANOS);
+            // Clear the interrupt flag, since otherwise parkNanos will stop blocking
+            Thread.interrupted();
+            // Pick up any handlers added in the meantime
+            updateHandlers();
+        }
+    }
+
+    /**
+     * Gets the handlers from the supplier, and checks which of them can be given
+     * the reused record.
+     */
+    private void updateHandlers() {
+        Handler[] newHandlers = handlerSupplier.get();
+        if (handlers != null && Arrays.equals(handlers, newHandlers)) {
+            return;
+        }
+        handlers = newHandlers;
+        reusesRecord = new boolean[newHandlers.length];
+        for (int i = 0; i < newHandlers.length; i++) {
+            reusesRecord[i] = newHandlers[i] instanceof TransientRecordHandler;
+        }
+    }
+
+    /**
+     * Publishes the reused record to the handlers.
+     */
+    private void publish() {
+        // Shared by all the handlers that need their own record, like a record published by a Logger
+        RobotLogRecord copy = null;
+        for (int i = 0; i < handlers.length; i++) {
+            Handler handler = handlers[i];
+            try {
+                if (reusesRecord[i]) {
+                    handler.publish(record);
+                } else {
+                    if (copy == null) {
+                        copy = record.copy();
+                    }
+                    handler.publish(copy);
+                }
+            } catch (RuntimeException e) {
+                // Never let a bad handler kill the writer thread
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Writes a warning if any records were dropped since the last check.
+     *
+     * @return Whether anything was written
+     */
+    private boolean reportDrops() {
+        long dropped = buffer.takeDroppedCount();
+        if (dropped == 0) {
+            return false;
+        }
+        reportedDrops += dropped;
+
+        record.setLevel(Level.WARNING);
+        record.setFpgaTime(RobotController.getFPGATime());
+        record.setWallTime(System.currentTimeMillis());
+        record.setLoggerName(null);
+        record.setFlags(0);
+        record.setMessage("RobotLogger: " + dropped + " log records were dropped because the buffer was full");
+        publish();
+        return true;
+    }
+
+    /**
+     * Waits until every record offered to the buffer before this call has been
+     * written out and the handlers have been flushed.
+     *
+     * @param timeoutMillis The maximum time to wait, in milliseconds
+     */
+    void flush(long timeoutMillis) {
+        // Calling this from the writer thread (e.g. from a handler) would deadlock
+        if (Thread.currentThread() == thread) {
+            return;
+        }
+        long target = buffer.headSequence();
+        if (flushedSequence >= target) {
+            return;
+        }
+        LockSupport.unpark(thread);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (flushLock) {
+            while (flushedSequence < target) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return;
+                }
+                try {
+                    flushLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the total number of records that were dropped.
+     *
+     * @return The total number of dropped records
+     */
+    long getDroppedCount() {
+        return reportedDrops + buffer.peekDroppedCount();
+    }
+}
@@ -0,0 +1,178 @@
+package com.arctos6135.robotlib.logging;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.logging.Level;
+
+/**
+ * Constants and encoding helpers for the binary log format written by
+ * {@link BinaryLogHandler} and read by {@link BinaryLogReader}.
+ *
+ * <p>
+ * A binary log starts with the 4 magic bytes {@code RLOG} and a version byte,
+ * followed by a sequence of entries. Every entry starts with a one byte tag:
+ * </p>
+ * <ul>
+ * <li>{@link #TAG_STRING}: defines a dictionary string. Followed by the string
+ * ID (varint), the length in bytes (varint), and the UTF-8 bytes.</li>
+ * <li>{@link #TAG_RECORD}: a record whose message is in the dictionary.
+ * Followed by the level byte, the wall-clock time delta in milliseconds (zigzag
+ * varint), the FPGA time delta in microseconds (zigzag varint), and the string
+ * ID of the message (varint).</li>
+ * <li>{@link #TAG_RECORD_LITERAL}: a record whose message is written inline.
+ * Same as {@link #TAG_RECORD}, except the string ID is replaced by the length
+ * in bytes (varint) and the UTF-8 bytes of the message.</li>
+ * <li>{@link #TAG_RECORD_TEMPLATE}: a record of a {@link RobotLogger} message
+ * template. Same as {@link #TAG_RECORD}, except the string ID is replaced by
+ * the channel (varint; 0 for none, otherwise its string ID plus 1), the string
+ * ID of the template (varint), the number of arguments (one byte, plus
+ * {@link #EVENT_FLAG} if the record is a {@link LogEvent}), and the arguments
+ * as 8 byte IEEE 754 doubles. The message is the template formatted
+ * with the arguments, preceded by {@code [<channel>] } if there is a channel.
+ * Since version 2.</li>
+ * </ul>
+ * <p>
+ * Time deltas are relative to the previous record in the file, or to 0 for the
+ * first record. Levels are stored as {@code Level.intValue() / 100}.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+final class BinaryLogFormat {
+
+    static final byte[] MAGIC = { 'R', 'L', 'O', 'G' };
+    static final int VERSION = 2;
+
+    static final int TAG_STRING = 0x01;
+    static final int TAG_RECORD = 0x02;
+    static final int TAG_RECORD_LITERAL = 0x03;
+    static final int TAG_RECORD_TEMPLATE = 0x04;
+
+    /**
+     * Added to the argument count of a template record that is a
+     * {@link LogEvent}.
+     */
+    static final int EVENT_FLAG = 0x80;
+
+    private BinaryLogFormat() {
+    }
+
+    /**
+     * Encodes a level as a single byte.
+     *
+     * @param level The level
+     * @return The encoded level
+     */
+    static int encodeLevel(Level level) {
+        return Math.max(0, Math.min(255, level.intValue() / 100));
+    }
+
+    /**
+     * Decodes a level encoded with {@link #encodeLevel(Level)}.
+     *
+     * @param b The encoded level
+     * @return The level
+     */
+    static Level decodeLevel(int b) {
+        return RobotLogRecord.levelOf(b * 100);
+    }
+
+    /**
+     * Writes an unsigned LEB128 varint.
+     *
+     * @param out   The stream to write to
+     * @param value The value, treated as unsigned
+     * @throws IOException If an I/O error occurs
+     */
+    static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Writes a signed value as a zigzag-encoded varint, so that small negative
+     * values are also encoded in few bytes.
+     *
+     * @param out   The stream to write to
+     * @param value The value
+     * @throws IOException If an I/O error occurs
+     */
+    static void writeSignedVarLong(OutputStream out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Writes a double as 8 big-endian bytes.
+     *
+     * @param out   The stream to write to
+     * @param value The value
+     * @throws IOException If an I/O error occurs
+     */
+    static void writeDouble(OutputStream out, double value) throws IOException {
+        long bits = Double.doubleToRawLongBits(value);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (bits >>> shift));
+        }
+    }
+
+    /**
+     * Reads a double written with {@link #writeDouble(OutputStream, double)}.
+     *
+     * @param in The stream to read from
+     * @return The value
+     * @throws EOFException If the end of the stream is reached
+     * @throws IOException  If an I/O error occurs
+     */
+    static double readDouble(InputStream in) throws IOException {
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            bits = bits << 8 | b;
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint.
+     *
+     * @param in The stream to read from
+     * @return The value
+     * @throws EOFException If the end of the stream is reached
+     * @throws IOException  If an I/O error occurs or the varint is malformed
+     */
+    static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Reads a zigzag-encoded signed varint.
+     *
+     * @param in The stream to read from
+     * @return The value
+     * @throws EOFException If the end of the stream is reached
+     * @throws IOException  If an I/O error occurs or the varint is malformed
+     */
+    static long readSignedVarLong(InputStream in) throws IOException {
+        long value = readVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,229 @@
+package com.arctos6135.robotlib.logging;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * A {@link Handler} that writes log records in a compact binary format.
+ *
+ * <p>
+ * Compared to the text logs, binary logs are much smaller and faster to write
+ * and to parse. Timestamps are stored as variable-length deltas, levels take up
+ * a single byte, and messages are interned in a string dictionary, so a message
+ * that is logged repeatedly is only written out in full the first time. For a
+ * {@link RobotLogRecord}, the message template and the channel are interned
+ * separately, and the arguments of the template are written as numbers, so a
+ * message like {@code "Speed {}"} takes up one dictionary entry no matter how
+ * many different values are logged. Up to a fixed number of distinct strings
+ * are interned; after that, new messages are written inline.
+ * </p>
+ * <p>
+ * Binary logs can be converted back into text or CSV with
+ * {@link BinaryLogReader}.
+ * </p>
+ * <p>
+ * To have {@link RobotLogger} write binary logs instead of text logs, use:
+ * </p>
+ *
+ * <pre>
+ * logger.setFileHandlerFactory(BinaryLogHandler.factory());
+ * </pre>
+ *
+ * @author Tyler Tian
+ */
+public class BinaryLogHandler extends Handler implements CatalogedHandler, TransientRecordHandler {
+
+    /**
+     * The file extension used for binary logs.
+     */
+    public static final String EXTENSION = ".rlog";
+
+    private static final int DEFAULT_MAX_STRINGS = 4096;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final OutputStream out;
+    private LogCatalog catalog;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final int maxStrings;
+
+    private long lastWallTime = 0;
+    private long lastFpgaTime = 0;
+
+    /**
+     * Creates a new binary log handler.
+     *
+     * <p>
+     * If the file already exists, it will be overwritten.
+     * </p>
+     *
+     * @param file The file to write to
+     * @throws IOException If the file could not be opened
+     */
+    public BinaryLogHandler(File file) throws IOException {
+        this(file, DEFAULT_MAX_STRINGS);
+    }
+
+    /**
+     * Creates a new binary log handler.
+     *
+     * <p>
+     * If the file already exists, it will be overwritten.
+     * </p>
+     *
+     * @param file       The file to write to
+     * @param maxStrings The maximum number of distinct strings to intern
+     * @throws IOException If the file could not be opened
+     */
+    public BinaryLogHandler(File file, int maxStrings) throws IOException {
+        this.file = file;
+        this.maxStrings = maxStrings;
+        out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+        out.write(BinaryLogFormat.MAGIC);
+        out.write(BinaryLogFormat.VERSION);
+    }
+
+    /**
+     * Gets a factory that creates binary log handlers, for use with
+     * {@link RobotLogger#setFileHandlerFactory(LogHandlerFactory)}.
+     *
+     * @return A factory for binary log handlers
+     */
+    public static LogHandlerFactory factory() {
+        return (logDir, baseName) -> new BinaryLogHandler(new File(logDir, baseName + EXTENSION));
+    }
+
+    @Override
+    public synchronized void setCatalog(LogCatalog catalog) {
+        this.catalog = catalog;
+        catalog.fileOpened(file);
+    }
+
+    @Override
+    public synchronized void publish(LogRecord record) {
+        if (!isLoggable(record)) {
+            return;
+        }
+
+        long wallTime = record.getMillis();
+        long fpgaTime = record instanceof RobotLogRecord ? ((RobotLogRecord) record).getFpgaTime() : 0;
+
+        try {
+            if (record instanceof RobotLogRecord && publishTemplate((RobotLogRecord) record, wallTime, fpgaTime)) {
+                return;
+            }
+
+            String message = record.getMessage();
+            if (message == null) {
+                message = "";
+            }
+            if (record instanceof RobotLogRecord && record.getLoggerName() != null) {
+                // Keep the channel of the record
+                message = "[" + record.getLoggerName() + "] " + message;
+            }
+            // Messages of RobotLogRecords only get here once the dictionary is full
+            Integer id = intern(message);
+            writeHeader(id != null ? BinaryLogFormat.TAG_RECORD : BinaryLogFormat.TAG_RECORD_LITERAL, record,
+                    wallTime, fpgaTime);
+            if (id != null) {
+                BinaryLogFormat.writeVarLong(out, id);
+            } else {
+                byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+                BinaryLogFormat.writeVarLong(out, bytes.length);
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    /**
+     * Writes a record as its template, channel and arguments, if the template
+     * and the channel are in the dictionary or can be added to it.
+     *
+     * @return Whether the record was written
+     */
+    private boolean publishTemplate(RobotLogRecord record, long wallTime, long fpgaTime) throws IOException {
+        String template = record.getTemplate();
+        Integer templateId = intern(template != null ? template : "");
+        String channel = record.getLoggerName();
+        Integer channelId = channel != null ? intern(channel) : null;
+        if (templateId == null || channel != null && channelId == null) {
+            return false;
+        }
+
+        writeHeader(BinaryLogFormat.TAG_RECORD_TEMPLATE, record, wallTime, fpgaTime);
+        BinaryLogFormat.writeVarLong(out, channelId != null ? channelId + 1 : 0);
+        BinaryLogFormat.writeVarLong(out, templateId);
+        int argCount = record.getArgCount();
+        out.write(record.isEvent() ? argCount | BinaryLogFormat.EVENT_FLAG : argCount);
+        for (int i = 0; i < argCount; i++) {
+            BinaryLogFormat.writeDouble(out, record.getArg(i));
+        }
+        return true;
+    }
+
+    /**
+     * Gets the ID of a string in the dictionary, adding it to the dictionary if
+     * it is not full.
+     *
+     * @return The ID, or {@code null} if the string is not in the dictionary and
+     *         the dictionary is full
+     */
+    private Integer intern(String string) throws IOException {
+        Integer id = dictionary.get(string);
+        if (id == null && dictionary.size() < maxStrings) {
+            // Define a new string
+            id = dictionary.size();
+            dictionary.put(string, id);
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.write(BinaryLogFormat.TAG_STRING);
+            BinaryLogFormat.writeVarLong(out, id);
+            BinaryLogFormat.writeVarLong(out, bytes.length);
+            out.write(bytes);
+        }
+        return id;
+    }
+
+    /**
+     * Writes the tag, level and timestamps of a record.
+     */
+    private void writeHeader(int tag, LogRecord record, long wallTime, long fpgaTime) throws IOException {
+        out.write(tag);
+        out.write(BinaryLogFormat.encodeLevel(record.getLevel()));
+        BinaryLogFormat.writeSignedVarLong(out, wallTime - lastWallTime);
+        BinaryLogFormat.writeSignedVarLong(out, fpgaTime - lastFpgaTime);
+        lastWallTime = wallTime;
+        lastFpgaTime = fpgaTime;
+    }
+
+    @Override
+    public synchronized void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.FLUSH_FAILURE);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.CLOSE_FAILURE);
+        }
+        if (catalog != null) {
+            catalog.fileClosed(file);
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.arctos6135.robotlib.logging;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+
+/**
+ * A streaming reader for binary logs written by {@link BinaryLogHandler}.
+ *
+ * <p>
+ * Records are read one at a time with {@link #next()}, so files of any size
+ * can be read without loading them into memory. Only the string dictionary is
+ * kept in memory. A log that was cut off in the middle of a record (e.g. by a
+ * power loss) is read up to the last complete record.
+ * </p>
+ * <p>
+ * This class can also be run from the command line to convert a binary log
+ * into text or CSV:
+ * </p>
+ *
+ * <pre>
+ * java -cp RobotLib.jar com.arctos6135.robotlib.logging.BinaryLogReader [--csv] &lt;input&gt; [output]
+ * </pre>
+ * <p>
+ * If no output file is given, the result is written to standard output.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+public class BinaryLogReader implements Closeable {
+
+    private static final DateTimeFormatter CSV_TIME_FORMAT = DateTimeFormatter
+            .ofPattern("yyyy/MM/dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private final InputStream in;
+    private final List<String> dictionary = new ArrayList<>();
+
+    private Level level;
+    private long wallTime = 0;
+    private long fpgaTime = 0;
+    private String message;
+    private String channel;
+    private String text;
+    private boolean event;
+
+    /**
+     * Creates a new reader.
+     *
+     * @param in The stream to read from
+     * @throws IOException If an I/O error occurs, or the stream is not a binary
+     *                     log
+     */
+    public BinaryLogReader(InputStream in) throws IOException {
+        this.in = in instanceof BufferedInputStream ? in : new BufferedInputStream(in);
+
+        byte[] header = new byte[BinaryLogFormat.MAGIC.length];
+        if (this.in.readNBytes(header, 0, header.length) != header.length
+                || !Arrays.equals(header, BinaryLogFormat.MAGIC)) {
+            throw new IOException("Not a binary log");
+        }
+        int version = this.in.read();
+        // Newer versions only add tags, so older logs can still be read
+        if (version < 1 || version > BinaryLogFormat.VERSION) {
+            throw new IOException("Unsupported binary log version: " + version);
+        }
+    }
+
+    /**
+     * Creates a new reader.
+     *
+     * @param file The file to read from
+     * @throws IOException If an I/O error occurs, or the file is not a binary log
+     */
+    public BinaryLogReader(File file) throws IOException {
+        this(new FileInputStream(file));
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * <p>
+     * After this method returns true, the record can be accessed with
+     * {@link #getLevel()}, {@link #getWallTime()}, {@link #getFpgaTime()},
+     * {@link #getMessage()}, {@link #getChannel()} and {@link #isEvent()}.
+     * </p>
+     *
+     * @return Whether a record was read; false if the end of the log was reached
+     * @throws IOException If an I/O error occurs, or the log is corrupted
+     */
+    public boolean next() throws IOException {
+        try {
+            while (true) {
+                int tag = in.read();
+                switch (tag) {
+                case -1:
+                    return false;
+                case BinaryLogFormat.TAG_STRING:
+                    int id = (int) BinaryLogFormat.readVarLong(in);
+                    if (id != dictionary.size()) {
+                        throw new IOException("Corrupted binary log: unexpected string ID " + id);
+                    }
+                    dictionary.add(readString());
+                    break;
+                case BinaryLogFormat.TAG_RECORD:
+                case BinaryLogFormat.TAG_RECORD_LITERAL:
+                case BinaryLogFormat.TAG_RECORD_TEMPLATE:
+                    int levelByte = in.read();
+                    if (levelByte < 0) {
+                        throw new EOFException();
+                    }
+                    long wallDelta = BinaryLogFormat.readSignedVarLong(in);
+                    long fpgaDelta = BinaryLogFormat.readSignedVarLong(in);
+                    if (tag == BinaryLogFormat.TAG_RECORD_TEMPLATE) {
+                        readTemplate();
+                    } else {
+                        text = tag == BinaryLogFormat.TAG_RECORD ? lookUp(BinaryLogFormat.readVarLong(in))
+                                : readString();
+                        message = text;
+                        channel = null;
+                        event = false;
+                    }
+                    level = BinaryLogFormat.decodeLevel(levelByte);
+                    wallTime += wallDelta;
+                    fpgaTime += fpgaDelta;
+                    return true;
+                default:
+                    throw new IOException("Corrupted binary log: unknown tag " + tag);
+                }
+            }
+        } catch (EOFException e) {
+            // Truncated last record
+            return false;
+        }
+    }
+
+    private String lookUp(long id) throws IOException {
+        if (id < 0 || id >= dictionary.size()) {
+            throw new IOException("Corrupted binary log: undefined string ID " + id);
+        }
+        return dictionary.get((int) id);
+    }
+
+    /**
+     * Reads the channel, template and arguments of a template record, and
+     * formats its message.
+     */
+    private void readTemplate() throws IOException {
+        long channelId = BinaryLogFormat.readVarLong(in);
+        String channel = channelId != 0 ? lookUp(channelId - 1) : null;
+        String template = lookUp(BinaryLogFormat.readVarLong(in));
+        int argCount = in.read();
+        if (argCount < 0) {
+            throw new EOFException();
+        }
+        boolean event = (argCount & BinaryLogFormat.EVENT_FLAG) != 0;
+        argCount &= ~BinaryLogFormat.EVENT_FLAG;
+        if (argCount > RobotLogRecord.MAX_ARGS) {
+            throw new IOException("Corrupted binary log: too many arguments " + argCount);
+        }
+        double[] args = new double[RobotLogRecord.MAX_ARGS];
+        for (int i = 0; i < argCount; i++) {
+            args[i] = BinaryLogFormat.readDouble(in);
+        }
+        this.channel = channel;
+        this.event = event;
+        text = RobotLogRecord.formatTemplate(template, argCount, args[0], args[1], args[2]);
+        message = channel != null ? "[" + channel + "] " + text : text;
+    }
+
+    private String readString() throws IOException {
+        int length = (int) BinaryLogFormat.readVarLong(in);
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException();
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the level of the current record.
+     *
+     * @return The level
+     */
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Gets the wall-clock time of the current record.
+     *
+     * @return The time, in milliseconds since the epoch
+     */
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    /**
+     * Gets the FPGA timestamp of the current record.
+     *
+     * @return The FPGA timestamp, in microseconds
+     */
+    public long getFpgaTime() {
+        return fpgaTime;
+    }
+
+    /**
+     * Gets the message of the current record. If the record has a channel, the
+     * message starts with its name in square brackets.
+     *
+     * @return The message
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Gets the channel of the current record.
+     *
+     * <p>
+     * Only records written from a {@link RobotLogRecord} have their channel
+     * stored separately, and then only while the string dictionary had room;
+     * otherwise the channel is only part of the message.
+     * </p>
+     *
+     * @return The name of the channel, or {@code null} if the record has none or
+     *         it is not stored separately
+     */
+    public String getChannel() {
+        return channel;
+    }
+
+    /**
+     * Gets the message of the current record without the channel added by
+     * {@link #getMessage()}.
+     *
+     * @return The message without the channel
+     */
+    public String getMessageWithoutChannel() {
+        return text;
+    }
+
+    /**
+     * Gets whether the current record is a structured event logged with
+     * {@link LogEvent}, whose message is a JSON object.
+     *
+     * @return Whether the record is an event
+     */
+    public boolean isEvent() {
+        return event;
+    }
+
+    /**
+     * Reads all remaining records and writes them out in the same text format as
+     * the regular {@link RobotLogger} log files.
+     *
+     * @param out The writer to write to
+     * @throws IOException If an I/O error occurs
+     */
+    public void writeText(Writer out) throws IOException {
+        Formatter formatter = new RobotLoggerFormatter();
+        RobotLogRecord record = new RobotLogRecord(Level.INFO, null, 0);
+        while (next()) {
+            record.setLevel(level);
+            record.setMessage(message);
+            record.setWallTime(wallTime);
+            record.setFpgaTime(fpgaTime);
+            out.write(formatter.format(record));
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads all remaining records and writes them out as CSV.
+     *
+     * <p>
+     * The columns are the wall-clock time, the FPGA timestamp in seconds, the
+     * level, and the message.
+     * </p>
+     *
+     * @param out The writer to write to
+     * @throws IOException If an I/O error occurs
+     */
+    public void writeCsv(Writer out) throws IOException {
+        out.write("time,fpga_time,level,message\n");
+        StringBuilder builder = new StringBuilder();
+        while (next()) {
+            builder.setLength(0);
+            CSV_TIME_FORMAT.formatTo(Instant.ofEpochMilli(wallTime), builder);
+            builder.append(',');
+            RobotLoggerFormatter.appendMicros(fpgaTime, builder);
+            builder.append(',').append(level.getName()).append(",\"");
+            // Escape quotes by doubling them
+            for (int i = 0; i < message.length(); i++) {
+                char c = message.charAt(i);
+                if (c == '"') {
+                    builder.append('"');
+                }
+                builder.append(c);
+            }
+            builder.append("\"\n");
+            out.append(builder);
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Converts a binary log into text or CSV.
+     *
+     * <p>
+     * Usage: {@code BinaryLogReader [--csv] <input> [output]}
+     * </p>
+     *
+     * @param args The command line arguments
+     */
+    public static void main(String[] args) {
+        boolean csv = false;
+        List<String> files = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--csv")) {
+                csv = true;
+            } else {
+                files.add(arg);
+            }
+        }
+        if (files.isEmpty() || files.size() > 2) {
+            System.err.println("Usage: BinaryLogReader [--csv] <input> [output]");
+            System.exit(1);
+        }
+
+        try (BinaryLogReader reader = new BinaryLogReader(new File(files.get(0)));
+                Writer out = new BufferedWriter(new OutputStreamWriter(
+                        files.size() == 2 ? new FileOutputStream(files.get(1)) : System.out,
+                        StandardCharsets.UTF_8))) {
+            if (csv) {
+                reader.writeCsv(out);
+            } else {
+                reader.writeText(out);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to convert log: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.arctos6135.robotlib.logging;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * A handler that writes to a file, but unlike
+ * {@link java.util.logging.FileHandler}, does not flush after every record.
+ *
+ * <p>
+ * This is used by the asynchronous mode of {@link RobotLogger}, where the
+ * writer thread flushes once per batch of records. If the formatter is a
+ * {@link RobotLoggerFormatter}, records are formatted into a reused buffer, so
+ * writing a record does not allocate anything.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+class BufferedFileHandler extends Handler implements CatalogedHandler, TransientRecordHandler {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final Writer writer;
+    private LogCatalog catalog;
+    private final RecordEncoder encoder = new RecordEncoder();
+
+    /**
+     * Creates a new handler that appends to the specified file.
+     *
+     * @param file The file to write to
+     * @throws IOException If the file cannot be opened
+     */
+    BufferedFileHandler(File file) throws IOException {
+        this.file = file;
+        writer = new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(file, true), BUFFER_SIZE),
+                StandardCharsets.UTF_8);
+        setFormatter(new RobotLoggerFormatter());
+    }
+
+    @Override
+    public synchronized void setCatalog(LogCatalog catalog) {
+        this.catalog = catalog;
+        catalog.fileOpened(file);
+    }
+
+    @Override
+    public synchronized void publish(LogRecord record) {
+        if (!isLoggable(record)) {
+            return;
+        }
+        if (!encoder.format(this, record)) {
+            return;
+        }
+
+        try {
+            encoder.writeTo(writer);
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.FLUSH_FAILURE);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.CLOSE_FAILURE);
+        }
+        if (catalog != null) {
+            catalog.fileClosed(file);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.arctos6135.robotlib.logging;
+
+/**
+ * A log handler that writes to files, and can report them to a
+ * {@link LogCatalog} as it opens and closes them.
+ *
+ * @author Tyler Tian
+ */
+interface CatalogedHandler {
+
+    /**
+     * Sets the catalog to report files to. The files that are currently open
+     * are reported immediately.
+     *
+     * @param catalog The catalog
+     */
+    void setCatalog(LogCatalog catalog);
+}
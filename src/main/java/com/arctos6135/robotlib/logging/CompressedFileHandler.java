@@ -0,0 +1,310 @@
+package com.arctos6135.robotlib.logging;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A {@link Handler} that writes a text log compressed on the fly, to save flash
+ * bandwidth and wear when logging a lot.
+ *
+ * <p>
+ * The log is written in the gzip format to {@code <base name>.log.gz}, so it can
+ * be read with {@code zcat} or any other gzip tool. Records are formatted and
+ * compressed on the thread that publishes them, which in the asynchronous mode
+ * of {@link RobotLogger} is the writer thread. Every flush ends the current
+ * deflate block with a sync flush, so everything up to the last flush can be
+ * read even if the file is cut off, e.g. by a power loss; gzip tools then only
+ * complain about the missing end of the file. At most once every
+ * {@code fullFlushMillis}, a full flush is done instead, which also resets the
+ * compression state, so that the data after it can be decoded without anything
+ * before it.
+ * </p>
+ * <p>
+ * The handler keeps track of the number of bytes before and after compression,
+ * and the CPU time spent compressing, which can be read at any time with
+ * {@link #getCompressionRatio()} and {@link #getCompressionCpuNanos()}. To have
+ * {@link RobotLogger} use it:
+ * </p>
+ *
+ * <pre>
+ * logger.setFileHandlerFactory(CompressedFileHandler.factory());
+ * </pre>
+ *
+ * @author Tyler Tian
+ */
+public class CompressedFileHandler extends Handler implements CatalogedHandler, TransientRecordHandler {
+
+    /**
+     * The extension of compressed logs.
+     */
+    public static final String EXTENSION = ".log" + RotatingFileHandler.COMPRESSED_EXTENSION;
+
+    // A gzip header without a name or time, and "unknown" as the OS
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long DEFAULT_FULL_FLUSH_MILLIS = 10000;
+
+    private final File file;
+    private final OutputStream out;
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final long fullFlushNanos;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final boolean cpuTimeSupported;
+    private LogCatalog catalog;
+
+    private final RecordEncoder encoder = new RecordEncoder();
+    // Uncompressed bytes waiting to be compressed
+    private final ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE);
+    private final byte[] output = new byte[BUFFER_SIZE];
+
+    // Whether anything was compressed since the last flush
+    private boolean dirty = false;
+    private long lastFullFlush = System.nanoTime();
+    private boolean closed = false;
+
+    // Written only by the thread holding the lock
+    private volatile long uncompressedBytes = 0;
+    private volatile long compressedBytes = 0;
+    private volatile long cpuNanos = 0;
+
+    /**
+     * Creates a new handler with the fastest compression level, and a full flush
+     * at most every 10 seconds.
+     *
+     * <p>
+     * If the file already exists, it will be overwritten.
+     * </p>
+     *
+     * @param file The file to write to
+     * @throws IOException If the file cannot be opened
+     */
+    public CompressedFileHandler(File file) throws IOException {
+        this(file, Deflater.BEST_SPEED, DEFAULT_FULL_FLUSH_MILLIS);
+    }
+
+    /**
+     * Creates a new handler.
+     *
+     * <p>
+     * If the file already exists, it will be overwritten.
+     * </p>
+     *
+     * @param file            The file to write to
+     * @param level           The compression level, from
+     *                        {@link Deflater#BEST_SPEED} to
+     *                        {@link Deflater#BEST_COMPRESSION}
+     * @param fullFlushMillis The min time between full flushes, in milliseconds,
+     *                        or 0 to always do a full flush
+     * @throws IOException If the file cannot be opened
+     */
+    public CompressedFileHandler(File file, int level, long fullFlushMillis) throws IOException {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        this.file = file;
+        this.fullFlushNanos = Math.max(0, fullFlushMillis) * 1000000;
+        deflater = new Deflater(level, true);
+        boolean supported;
+        try {
+            supported = threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled();
+        } catch (UnsupportedOperationException e) {
+            supported = false;
+        }
+        cpuTimeSupported = supported;
+
+        out = new FileOutputStream(file);
+        try {
+            out.write(GZIP_HEADER);
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+        compressedBytes = GZIP_HEADER.length;
+        setFormatter(new RobotLoggerFormatter());
+    }
+
+    /**
+     * Gets a factory that creates compressed log handlers with the default
+     * settings, for use with
+     * {@link RobotLogger#setFileHandlerFactory(LogHandlerFactory)}.
+     *
+     * @return A factory for compressed log handlers
+     */
+    public static LogHandlerFactory factory() {
+        return (logDir, baseName) -> new CompressedFileHandler(new File(logDir, baseName + EXTENSION));
+    }
+
+    /**
+     * Gets the number of bytes of text that have been compressed.
+     *
+     * @return The number of uncompressed bytes
+     */
+    public long getUncompressedBytes() {
+        return uncompressedBytes;
+    }
+
+    /**
+     * Gets the number of bytes written to the file so far.
+     *
+     * @return The number of compressed bytes
+     */
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    /**
+     * Gets the ratio of the size of the text to the size of the file, e.g. 8 if
+     * the file is an eighth of the size of the text.
+     *
+     * <p>
+     * Text that has not been compressed yet is not counted.
+     * </p>
+     *
+     * @return The compression ratio, or {@link Double#NaN} if nothing has been
+     *         written yet
+     */
+    public double getCompressionRatio() {
+        long uncompressed = uncompressedBytes;
+        return uncompressed > 0 ? (double) uncompressed / compressedBytes : Double.NaN;
+    }
+
+    /**
+     * Gets the total CPU time spent compressing.
+     *
+     * <p>
+     * If the JVM cannot measure the CPU time of a thread, the elapsed time is
+     * used instead, which also includes any time the thread was not running.
+     * </p>
+     *
+     * @return The CPU time, in nanoseconds
+     */
+    public long getCompressionCpuNanos() {
+        return cpuNanos;
+    }
+
+    @Override
+    public synchronized void setCatalog(LogCatalog catalog) {
+        this.catalog = catalog;
+        catalog.fileOpened(file);
+    }
+
+    @Override
+    public synchronized void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) {
+            return;
+        }
+        if (!encoder.format(this, record)) {
+            return;
+        }
+
+        try {
+            encoder.encodeTo(input, full -> {
+                // The input buffer is full
+                compress(Deflater.NO_FLUSH);
+                return input;
+            });
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    /**
+     * Compresses the contents of the input buffer and writes out the result.
+     *
+     * @param flush The flush mode of the {@link Deflater}
+     */
+    private void compress(int flush) throws IOException {
+        long start = cpuTimeSupported ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+        int length = input.position();
+        crc.update(input.array(), 0, length);
+        deflater.setInput(input.array(), 0, length);
+        long written = 0;
+        try {
+            while (true) {
+                int n = deflater.deflate(output, 0, output.length, flush);
+                out.write(output, 0, n);
+                written += n;
+                // When flushing, the output buffer being filled up means there may be more
+                if (flush == Deflater.NO_FLUSH ? deflater.needsInput() : n < output.length) {
+                    break;
+                }
+            }
+        } finally {
+            input.clear();
+            uncompressedBytes += length;
+            compressedBytes += written;
+            long end = cpuTimeSupported ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+            cpuNanos += end - start;
+        }
+        dirty = true;
+    }
+
+    /**
+     * Compresses and writes out everything published so far, ending the current
+     * deflate block so it can be decoded.
+     */
+    @Override
+    public synchronized void flush() {
+        if (closed || !dirty && input.position() == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        boolean full = now - lastFullFlush >= fullFlushNanos;
+        try {
+            compress(full ? Deflater.FULL_FLUSH : Deflater.SYNC_FLUSH);
+            out.flush();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.FLUSH_FAILURE);
+        }
+        if (full) {
+            lastFullFlush = now;
+        }
+        dirty = false;
+    }
+
+    /**
+     * Compresses everything published so far, and writes the end of the gzip
+     * file.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            deflater.finish();
+            compress(Deflater.NO_FLUSH);
+            while (!deflater.finished()) {
+                int n = deflater.deflate(output);
+                out.write(output, 0, n);
+                compressedBytes += n;
+            }
+            // The trailer: the CRC and size of the uncompressed data, little-endian
+            ByteBuffer trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            trailer.putInt((int) crc.getValue()).putInt((int) uncompressedBytes);
+            out.write(trailer.array());
+            compressedBytes += trailer.capacity();
+            out.close();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.CLOSE_FAILURE);
+        } finally {
+            deflater.end();
+        }
+        if (catalog != null) {
+            catalog.fileClosed(file);
+        }
+    }
+}
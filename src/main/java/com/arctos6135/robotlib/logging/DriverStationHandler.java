@@ -0,0 +1,76 @@
+package com.arctos6135.robotlib.logging;
+
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * A {@link Handler} that reports records to the Driver Station.
+ *
+ * <p>
+ * Only records at the {@code WARNING} level or above are reported, no matter
+ * what level the handler is set to. Records at the {@code SEVERE} level are
+ * reported as errors, and all others as warnings. By default, only the message
+ * is reported. If a formatter is set, it is used to format the message instead.
+ * </p>
+ * <p>
+ * Errors and warnings logged with {@link RobotLogger#logError(String)} and
+ * {@link RobotLogger#logWarning(String)} are already reported by
+ * {@link RobotLogger} itself, so they are skipped (see
+ * {@link RobotLogRecord#isReportedToDriverStation()}). This handler therefore
+ * only reports errors and warnings that were not, e.g. ones logged with
+ * {@link LogChannel#log(Level, String)} or as a {@link LogEvent}.
+ * </p>
+ * <p>
+ * Since reporting to the Driver Station is slow, this handler is meant to be
+ * used as a subscriber with
+ * {@link RobotLogger#subscribe(Handler, Level, int, OverflowPolicy)}, so that
+ * reports are sent from a background thread.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+public class DriverStationHandler extends Handler implements TransientRecordHandler {
+
+    /**
+     * Creates a new handler, with its level set to {@code WARNING}.
+     */
+    public DriverStationHandler() {
+        setLevel(Level.WARNING);
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (!isLoggable(record) || record.getLevel().intValue() < Level.WARNING.intValue()) {
+            return;
+        }
+        if (record instanceof RobotLogRecord && ((RobotLogRecord) record).isReportedToDriverStation()) {
+            return;
+        }
+        String message;
+        try {
+            Formatter formatter = getFormatter();
+            message = formatter != null ? formatter.format(record) : record.getMessage();
+        } catch (RuntimeException e) {
+            reportError(null, e, ErrorManager.FORMAT_FAILURE);
+            return;
+        }
+        if (record.getLevel().intValue() >= Level.SEVERE.intValue()) {
+            DriverStation.reportError(message, false);
+        } else {
+            DriverStation.reportWarning(message, false);
+        }
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
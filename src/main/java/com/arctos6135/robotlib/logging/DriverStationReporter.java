@@ -0,0 +1,206 @@
+package com.arctos6135.robotlib.logging;
+
+import java.util.concurrent.locks.LockSupport;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Reports errors and warnings to the Driver Station from a background thread.
+ *
+ * <p>
+ * Messages are put into a small bounded queue. If an identical message is
+ * already waiting to be sent, only its count is increased. A low-priority
+ * daemon thread sends everything in the queue at a fixed rate, with all
+ * pending errors in one report and all pending warnings in another, so that no
+ * matter how many messages are logged, at most two reports are sent per
+ * period. Messages that do not fit in the queue are dropped, and a warning with
+ * the number of dropped messages is sent with the next batch.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+final class DriverStationReporter implements Runnable {
+
+    /**
+     * Sends a report to the Driver Station.
+     */
+    @FunctionalInterface
+    interface Sender {
+        /**
+         * Sends a report.
+         *
+         * @param error   Whether the report is an error (otherwise a warning)
+         * @param message The message
+         */
+        void send(boolean error, String message);
+    }
+
+    private final Sender sender;
+    private final long periodNanos;
+    private final Thread thread;
+    private volatile boolean stopped = false;
+
+    // Guarded by this
+    private final boolean[] errors;
+    private final String[] messages;
+    private final int[] counts;
+    private int size = 0;
+    private long dropped = 0;
+
+    // Guarded by sendLock
+    private final Object sendLock = new Object();
+    private final boolean[] sendErrors;
+    private final String[] sendMessages;
+    private final int[] sendCounts;
+    private final StringBuilder errorBatch = new StringBuilder();
+    private final StringBuilder warningBatch = new StringBuilder();
+
+    /**
+     * Creates and starts a new reporter that sends to the Driver Station.
+     *
+     * @param batchesPerSecond The max number of batches sent per second
+     * @param capacity         The max number of distinct messages waiting to be
+     *                         sent
+     */
+    DriverStationReporter(double batchesPerSecond, int capacity) {
+        this(batchesPerSecond, capacity, (error, message) -> {
+            if (error) {
+                DriverStation.reportError(message, false);
+            } else {
+                DriverStation.reportWarning(message, false);
+            }
+        });
+    }
+
+    /**
+     * Creates and starts a new reporter.
+     *
+     * @param batchesPerSecond The max number of batches sent per second
+     * @param capacity         The max number of distinct messages waiting to be
+     *                         sent
+     * @param sender           Sends the reports
+     */
+    DriverStationReporter(double batchesPerSecond, int capacity, Sender sender) {
+        if (batchesPerSecond <= 0 || capacity < 1) {
+            throw new IllegalArgumentException("The rate and capacity must be positive");
+        }
+        this.sender = sender;
+        this.periodNanos = (long) (1e9 / batchesPerSecond);
+        errors = new boolean[capacity];
+        messages = new String[capacity];
+        counts = new int[capacity];
+        sendErrors = new boolean[capacity];
+        sendMessages = new String[capacity];
+        sendCounts = new int[capacity];
+
+        thread = LogThreads.newThread("RobotLogger-DSReporter", this);
+        thread.start();
+    }
+
+    /**
+     * Queues a message to be reported.
+     *
+     * <p>
+     * This takes time proportional to the number of messages waiting, which is at
+     * most the capacity.
+     * </p>
+     *
+     * @param error   Whether the message is an error (otherwise a warning)
+     * @param message The message
+     */
+    synchronized void report(boolean error, String message) {
+        for (int i = 0; i < size; i++) {
+            if (errors[i] == error && messages[i].equals(message)) {
+                counts[i]++;
+                return;
+            }
+        }
+        if (size == messages.length) {
+            dropped++;
+            return;
+        }
+        errors[size] = error;
+        messages[size] = message;
+        counts[size] = 1;
+        size++;
+    }
+
+    @Override
+    public void run() {
+        while (!stopped) {
+            LockSupport.parkNanos(this, periodNanos);
+            sendBatch();
+        }
+    }
+
+    /**
+     * Sends whatever is still waiting and stops the reporter thread.
+     */
+    void stop() {
+        stopped = true;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Sends everything that is waiting.
+     */
+    void sendBatch() {
+        synchronized (sendLock) {
+            sendBatchLocked();
+        }
+    }
+
+    private void sendBatchLocked() {
+        int n;
+        long droppedCount;
+        synchronized (this) {
+            n = size;
+            System.arraycopy(errors, 0, sendErrors, 0, n);
+            System.arraycopy(messages, 0, sendMessages, 0, n);
+            System.arraycopy(counts, 0, sendCounts, 0, n);
+            // Clear references so the messages can be collected
+            for (int i = 0; i < n; i++) {
+                messages[i] = null;
+            }
+            size = 0;
+            droppedCount = dropped;
+            dropped = 0;
+        }
+        if (n == 0 && droppedCount == 0) {
+            return;
+        }
+
+        errorBatch.setLength(0);
+        warningBatch.setLength(0);
+        for (int i = 0; i < n; i++) {
+            StringBuilder batch = sendErrors[i] ? errorBatch : warningBatch;
+            if (batch.length() > 0) {
+                batch.append('\n');
+            }
+            batch.append(sendMessages[i]);
+            if (sendCounts[i] > 1) {
+                batch.append(" (repeated ").append(sendCounts[i] - 1).append(" more times)");
+            }
+            sendMessages[i] = null;
+        }
+        if (droppedCount > 0) {
+            if (warningBatch.length() > 0) {
+                warningBatch.append('\n');
+            }
+            warningBatch.append("RobotLogger: ").append(droppedCount)
+                    .append(" Driver Station messages were dropped because too many were reported");
+        }
+
+        try {
+            if (errorBatch.length() > 0) {
+                sender.send(true, errorBatch.toString());
+            }
+            if (warningBatch.length() > 0) {
+                sender.send(false, warningBatch.toString());
+            }
+        } catch (RuntimeException e) {
+            // Never let a failed report kill the reporter thread
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.arctos6135.robotlib.logging;
+
+import java.util.logging.Level;
+
+/**
+ * Coalesces identical log records within a time window.
+ *
+ * <p>
+ * The first record with a given channel, level and message is let through.
+ * Identical records logged within the window after it are only counted. Once
+ * the window closes, the count is reported through a callback as a single
+ * summary record for the same channel.
+ * </p>
+ * <p>
+ * Records are tracked in a small fixed-size hash table, so every check is O(1)
+ * and does not allocate unless a summary is reported. If two different records
+ * land in the same slot, the older one is evicted and its count reported early.
+ * Expired slots are swept one per check, so that counts are reported even if
+ * the record is never logged again; {@link #flush()} reports all pending counts
+ * immediately. Summaries are taken out of the table while holding the lock of
+ * the filter, but reported only after it is released, so the callback can log
+ * (and even be checked by this filter again) without blocking other threads.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+final class DuplicateFilter {
+
+    private static final int SLOTS = 64;
+
+    /**
+     * Receives the summaries of suppressed records.
+     */
+    @FunctionalInterface
+    interface SummarySink {
+        /**
+         * Reports a summary.
+         *
+         * @param channel The channel of the suppressed records
+         * @param level   The level of the suppressed records
+         * @param message The summary message
+         */
+        void accept(LogChannel channel, Level level, String message);
+    }
+
+    private static final class Slot {
+        LogChannel channel;
+        Level level;
+        String template;
+        int argCount;
+        double arg0;
+        double arg1;
+        double arg2;
+        long windowStart;
+        int suppressed;
+
+        boolean matches(LogChannel channel, Level level, String template, int argCount, double arg0, double arg1,
+                double arg2) {
+            return this.channel == channel && this.level == level && this.argCount == argCount
+                    && this.template.equals(template) && Double.compare(this.arg0, arg0) == 0
+                    && Double.compare(this.arg1, arg1) == 0 && Double.compare(this.arg2, arg2) == 0;
+        }
+    }
+
+    /**
+     * The suppressed count of a slot, taken out of it to be reported.
+     */
+    private static final class Summary {
+        final LogChannel channel;
+        final Level level;
+        final String template;
+        final int argCount;
+        final double arg0;
+        final double arg1;
+        final double arg2;
+        final int count;
+
+        Summary(Slot slot) {
+            channel = slot.channel;
+            level = slot.level;
+            template = slot.template;
+            argCount = slot.argCount;
+            arg0 = slot.arg0;
+            arg1 = slot.arg1;
+            arg2 = slot.arg2;
+            count = slot.suppressed;
+        }
+    }
+
+    private final long windowNanos;
+    private final SummarySink summarySink;
+    private final Slot[] slots = new Slot[SLOTS];
+    private int sweepCursor = 0;
+
+    /**
+     * Creates a new filter.
+     *
+     * @param windowSeconds The length of the window, in seconds
+     * @param summarySink   Called with the channel, level and message of every
+     *                      summary
+     */
+    DuplicateFilter(double windowSeconds, SummarySink summarySink) {
+        this.windowNanos = (long) (windowSeconds * 1e9);
+        this.summarySink = summarySink;
+        for (int i = 0; i < SLOTS; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    /**
+     * Checks whether a record should be logged.
+     *
+     * @param channel  The channel of the record
+     * @param level    The level of the record
+     * @param template The message template, or the message if {@code argCount} is
+     *                 0
+     * @param argCount The number of arguments
+     * @param arg0     The first argument
+     * @param arg1     The second argument
+     * @param arg2     The third argument
+     * @return Whether the record should be logged; false if it is a duplicate
+     */
+    boolean admit(LogChannel channel, Level level, String template, int argCount, double arg0, double arg1,
+            double arg2) {
+        Summary swept;
+        Summary evicted;
+        boolean admitted;
+        synchronized (this) {
+            long now = System.nanoTime();
+            swept = sweep(now);
+
+            int hash = System.identityHashCode(channel);
+            hash = 31 * hash + template.hashCode();
+            hash = 31 * hash + level.intValue();
+            hash = 31 * hash + argCount;
+            hash = 31 * hash + Double.hashCode(arg0);
+            hash = 31 * hash + Double.hashCode(arg1);
+            hash = 31 * hash + Double.hashCode(arg2);
+            Slot slot = slots[(hash ^ (hash >>> 16)) & (SLOTS - 1)];
+
+            if (slot.template != null && slot.matches(channel, level, template, argCount, arg0, arg1, arg2)) {
+                if (now - slot.windowStart < windowNanos) {
+                    slot.suppressed++;
+                    evicted = null;
+                    admitted = false;
+                } else {
+                    // The window is over; this record starts a new one
+                    evicted = take(slot);
+                    slot.windowStart = now;
+                    admitted = true;
+                }
+            } else {
+                // Evict whatever was in the slot
+                evicted = take(slot);
+                slot.channel = channel;
+                slot.level = level;
+                slot.template = template;
+                slot.argCount = argCount;
+                slot.arg0 = arg0;
+                slot.arg1 = arg1;
+                slot.arg2 = arg2;
+                slot.windowStart = now;
+                admitted = true;
+            }
+        }
+        report(swept);
+        report(evicted);
+        return admitted;
+    }
+
+    /**
+     * Checks one slot for an expired window.
+     *
+     * @return The summary of the slot, if it expired and had a suppressed count
+     */
+    private Summary sweep(long now) {
+        Slot slot = slots[sweepCursor];
+        sweepCursor = (sweepCursor + 1) & (SLOTS - 1);
+        if (slot.template != null && now - slot.windowStart >= windowNanos) {
+            Summary summary = take(slot);
+            slot.template = null;
+            slot.channel = null;
+            return summary;
+        }
+        return null;
+    }
+
+    /**
+     * Takes the suppressed count out of a slot.
+     *
+     * @return The summary of the slot, or {@code null} if nothing was suppressed
+     */
+    private static Summary take(Slot slot) {
+        if (slot.suppressed == 0) {
+            return null;
+        }
+        Summary summary = new Summary(slot);
+        slot.suppressed = 0;
+        return summary;
+    }
+
+    /**
+     * Reports a summary, if there is one. Must not be called while holding the
+     * lock.
+     */
+    private void report(Summary summary) {
+        if (summary != null) {
+            String message = RobotLogRecord.formatTemplate(summary.template, summary.argCount, summary.arg0,
+                    summary.arg1, summary.arg2);
+            summarySink.accept(summary.channel, summary.level,
+                    message + " (repeated " + summary.count + " more times)");
+        }
+    }
+
+    /**
+     * Reports all pending suppressed counts.
+     */
+    void flush() {
+        Summary[] summaries = new Summary[SLOTS];
+        synchronized (this) {
+            for (int i = 0; i < SLOTS; i++) {
+                summaries[i] = take(slots[i]);
+            }
+        }
+        for (Summary summary : summaries) {
+            report(summary);
+        }
+    }
+}
@@ -0,0 +1,500 @@
+package com.arctos6135.robotlib.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link Handler} that writes text logs with a configurable durability
+ * policy, so that a log cut off by a power loss can be repaired.
+ *
+ * <p>
+ * Records are written in blocks. A block ends whenever the handler is flushed
+ * or synced, and its end offset and the CRC-32 of its bytes are then appended
+ * to a small checksum file next to the log, whose name is the name of the log
+ * followed by {@value #CHECKSUM_EXTENSION}. The text log itself is exactly the
+ * same as a regular one. When the handler is closed, an end marker is added to
+ * the checksum file.
+ * </p>
+ * <p>
+ * Both files are synced to disk with {@link FileChannel#force(boolean)} as soon
+ * as a record at or above the immediate level (by default {@code SEVERE}) is
+ * written, once a number of bytes have been written since the last sync, or
+ * once data has been waiting to be synced for some time, whichever comes first;
+ * the time limit is enforced by a low-priority background thread, so it holds
+ * even when no more records are written. Records below the immediate level
+ * therefore cost one {@code fsync} per batch instead of one each. The sync runs
+ * outside the lock of the handler, so records can still be published while it
+ * is in progress.
+ * </p>
+ * <p>
+ * {@link #recover(File)} cuts a log that was not closed properly back to the end
+ * of its last block whose checksum is valid, removing any torn data. A block
+ * that was flushed but not synced survives a crash of the robot program, since
+ * the operating system still writes it out; after a power loss, it is kept
+ * only if all of it made it to disk.
+ * The factory of this handler recovers the logs in the log directory before the
+ * new log is opened, so the logs of a previous run are repaired the next time
+ * {@link RobotLogger} is initialized:
+ * </p>
+ *
+ * <pre>
+ * // Sync at least every 500 ms or 16 KiB, and immediately for SEVERE records
+ * logger.setFileHandlerFactory(DurableFileHandler.factory(500, 16 * 1024));
+ * </pre>
+ *
+ * @author Tyler Tian
+ */
+public class DurableFileHandler extends Handler implements CatalogedHandler, TransientRecordHandler {
+
+    /**
+     * The extension added to the name of a log to get the name of its checksum
+     * file.
+     */
+    public static final String CHECKSUM_EXTENSION = ".crc";
+
+    /**
+     * The magic number at the start of every checksum file.
+     */
+    static final byte[] MAGIC = { 'R', 'C', 'R', 'C' };
+    /**
+     * The current checksum file format version.
+     */
+    static final int VERSION = 1;
+    /**
+     * The size of the header of a checksum file, in bytes.
+     */
+    static final int HEADER_SIZE = 8;
+    /**
+     * The size of a checksum entry, in bytes: the end offset of the block and
+     * its CRC-32.
+     */
+    static final int ENTRY_SIZE = 8 + 4;
+    /**
+     * The end offset of the entry added when the log is closed properly.
+     */
+    static final long END_MARKER = -1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final File checksumFile;
+    private final FileChannel channel;
+    private final FileChannel checksumChannel;
+    private final long syncMillis;
+    private final long syncBytes;
+    private final int immediateLevel;
+    private final ScheduledExecutorService syncer;
+    // Held while syncing, so syncs happen one at a time and never after the files are closed; taken before this
+    private final Object syncLock = new Object();
+    private LogCatalog catalog;
+
+    private final RecordEncoder encoder = new RecordEncoder();
+    // Bytes waiting to be written to the log
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+
+    // The current block
+    private final CRC32 crc = new CRC32();
+    private long position = 0;
+    private long blockStart = 0;
+    // Everything before this offset is on disk
+    private long syncedPosition = 0;
+    // When the oldest data that is not on disk was written
+    private long unsyncedSince;
+    private boolean closed = false;
+
+    /**
+     * Creates a new handler that syncs immediately for {@code SEVERE} records.
+     *
+     * <p>
+     * If the file already exists, it will be overwritten.
+     * </p>
+     *
+     * @param file       The file to write to
+     * @param syncMillis The max time data is kept unsynced, in milliseconds
+     * @param syncBytes  The max number of unsynced bytes
+     * @throws IOException If the log or its checksum file could not be opened
+     */
+    public DurableFileHandler(File file, long syncMillis, long syncBytes) throws IOException {
+        this(file, syncMillis, syncBytes, Level.SEVERE);
+    }
+
+    /**
+     * Creates a new handler.
+     *
+     * <p>
+     * If the file already exists, it will be overwritten.
+     * </p>
+     *
+     * @param file           The file to write to
+     * @param syncMillis     The max time data is kept unsynced, in milliseconds
+     * @param syncBytes      The max number of unsynced bytes
+     * @param immediateLevel Records at or above this level are synced
+     *                       immediately
+     * @throws IOException If the log or its checksum file could not be opened
+     */
+    public DurableFileHandler(File file, long syncMillis, long syncBytes, Level immediateLevel) throws IOException {
+        if (syncMillis < 1 || syncBytes < 1) {
+            throw new IllegalArgumentException("The sync interval and size must be positive");
+        }
+        this.file = file;
+        this.checksumFile = checksumFileOf(file);
+        this.syncMillis = syncMillis;
+        this.syncBytes = syncBytes;
+        this.immediateLevel = immediateLevel.intValue();
+
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            checksumChannel = FileChannel.open(checksumFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put(MAGIC).putInt(VERSION).flip();
+        writeFully(checksumChannel, header);
+        setFormatter(new RobotLoggerFormatter());
+
+        syncer = Executors.newSingleThreadScheduledExecutor(LogThreads.factory("RobotLogger-Syncer"));
+        syncer.scheduleWithFixedDelay(this::syncIfDue, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets a factory that creates durable text log handlers, for use with
+     * {@link RobotLogger#setFileHandlerFactory(LogHandlerFactory)}.
+     *
+     * <p>
+     * Before creating a handler, the factory calls {@link #recoverAll(File)} on
+     * the log directory.
+     * </p>
+     *
+     * @param syncMillis The max time data is kept unsynced, in milliseconds
+     * @param syncBytes  The max number of unsynced bytes
+     * @return A factory for durable log handlers
+     */
+    public static LogHandlerFactory factory(long syncMillis, long syncBytes) {
+        return (logDir, baseName) -> {
+            recoverAll(logDir);
+            return new DurableFileHandler(new File(logDir, baseName + ".log"), syncMillis, syncBytes);
+        };
+    }
+
+    /**
+     * Gets the checksum file of a log.
+     *
+     * @param file The log file
+     * @return The checksum file
+     */
+    static File checksumFileOf(File file) {
+        return new File(file.getPath() + CHECKSUM_EXTENSION);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+    @Override
+    public synchronized void setCatalog(LogCatalog catalog) {
+        this.catalog = catalog;
+        catalog.fileOpened(file);
+        catalog.fileOpened(checksumFile);
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        boolean due;
+        synchronized (this) {
+            if (closed || !isLoggable(record)) {
+                return;
+            }
+            if (!encoder.format(this, record)) {
+                return;
+            }
+
+            if (position + buffer.position() == syncedPosition) {
+                unsyncedSince = System.nanoTime();
+            }
+            try {
+                encoder.encodeTo(buffer, full -> {
+                    // The buffer is full
+                    writeBuffer();
+                    return buffer;
+                });
+            } catch (IOException e) {
+                reportError(null, e, ErrorManager.WRITE_FAILURE);
+                return;
+            }
+            due = record.getLevel().intValue() >= immediateLevel
+                    || position + buffer.position() - syncedPosition >= syncBytes;
+        }
+        if (due) {
+            sync(ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    /**
+     * Writes the buffer to the log, without syncing it.
+     */
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        crc.update(buffer.array(), 0, buffer.limit());
+        position += buffer.limit();
+        writeFully(channel, buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Writes the buffer to the log and ends the current block by adding its
+     * checksum, without syncing either file.
+     */
+    private void endBlock() throws IOException {
+        writeBuffer();
+        if (position == blockStart) {
+            return;
+        }
+        entry.clear();
+        entry.putLong(position).putInt((int) crc.getValue()).flip();
+        writeFully(checksumChannel, entry);
+        crc.reset();
+        blockStart = position;
+    }
+
+    /**
+     * Ends the current block and syncs the log and the checksum file. Only the
+     * writes are done while holding the lock of the handler.
+     *
+     * @param errorCode The error code to report failures with
+     */
+    private void sync(int errorCode) {
+        synchronized (syncLock) {
+            long end;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                try {
+                    endBlock();
+                } catch (IOException e) {
+                    reportError(null, e, errorCode);
+                    return;
+                }
+                end = position;
+                if (end == syncedPosition) {
+                    return;
+                }
+            }
+
+            long start = System.nanoTime();
+            try {
+                // A checksum that reached the disk before its data is caught by recovery
+                channel.force(false);
+                checksumChannel.force(false);
+            } catch (IOException e) {
+                reportError(null, e, errorCode);
+                return;
+            }
+            synchronized (this) {
+                syncedPosition = end;
+                if (position + buffer.position() > end) {
+                    // Written while syncing
+                    unsyncedSince = start;
+                }
+            }
+        }
+    }
+
+    /**
+     * Syncs if data has been waiting to be synced for longer than the sync
+     * interval. Called periodically by the background thread.
+     */
+    private void syncIfDue() {
+        synchronized (this) {
+            if (closed || position + buffer.position() == syncedPosition
+                    || System.nanoTime() - unsyncedSince < TimeUnit.MILLISECONDS.toNanos(syncMillis)) {
+                return;
+            }
+        }
+        sync(ErrorManager.FLUSH_FAILURE);
+    }
+
+    /**
+     * Writes everything to the log and ends the current block, without syncing
+     * anything.
+     *
+     * <p>
+     * This makes the records visible to other programs, and, since the block
+     * now has a checksum, keeps them through recovery if the robot program
+     * crashes. They are not safe from a power loss until they are synced.
+     * </p>
+     */
+    @Override
+    public synchronized void flush() {
+        if (closed) {
+            return;
+        }
+        try {
+            endBlock();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.FLUSH_FAILURE);
+        }
+    }
+
+    /**
+     * Ends the current block, adds the end marker to the checksum file, syncs
+     * and closes the log.
+     */
+    @Override
+    public void close() {
+        synchronized (syncLock) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                syncer.shutdown();
+                try {
+                    endBlock();
+                    entry.clear();
+                    entry.putLong(END_MARKER).putInt(0).flip();
+                    writeFully(checksumChannel, entry);
+                    channel.force(false);
+                    checksumChannel.force(false);
+                    channel.close();
+                    checksumChannel.close();
+                } catch (IOException e) {
+                    reportError(null, e, ErrorManager.CLOSE_FAILURE);
+                }
+                if (catalog != null) {
+                    catalog.fileClosed(file);
+                    catalog.fileClosed(checksumFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Cuts a log written by a {@code DurableFileHandler} that was not closed
+     * properly back to the end of its last valid block.
+     *
+     * <p>
+     * The blocks are checked from the last one backwards, so usually only the
+     * end of the log is read. Once recovered, the log is marked as closed, so
+     * recovering it again does nothing. A log without a checksum file is left
+     * alone.
+     * </p>
+     *
+     * @param file The log file
+     * @return The number of bytes removed from the log
+     * @throws IOException If an I/O error occurs, or the checksum file is not
+     *                     valid
+     */
+    public static long recover(File file) throws IOException {
+        File checksums = checksumFileOf(file);
+        if (!file.isFile() || !checksums.isFile()) {
+            return 0;
+        }
+        try (RandomAccessFile log = new RandomAccessFile(file, "rw");
+                RandomAccessFile index = new RandomAccessFile(checksums, "rw")) {
+            byte[] magic = new byte[MAGIC.length];
+            if (index.length() < HEADER_SIZE) {
+                throw new IOException("Not a valid checksum file: " + checksums);
+            }
+            index.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC) || index.readInt() != VERSION) {
+                throw new IOException("Not a valid checksum file: " + checksums);
+            }
+            // An entry that was cut off is ignored
+            int count = (int) ((index.length() - HEADER_SIZE) / ENTRY_SIZE);
+            if (count > 0 && entryEnd(index, count - 1) == END_MARKER) {
+                return 0;
+            }
+
+            long length = log.length();
+            int valid = count;
+            long end = 0;
+            byte[] block = new byte[BUFFER_SIZE];
+            CRC32 crc = new CRC32();
+            while (valid > 0) {
+                long blockEnd = entryEnd(index, valid - 1);
+                long blockStart = valid > 1 ? entryEnd(index, valid - 2) : 0;
+                if (blockEnd <= length && blockStart <= blockEnd) {
+                    crc.reset();
+                    log.seek(blockStart);
+                    for (long pos = blockStart; pos < blockEnd;) {
+                        int n = (int) Math.min(block.length, blockEnd - pos);
+                        log.readFully(block, 0, n);
+                        crc.update(block, 0, n);
+                        pos += n;
+                    }
+                    index.seek(HEADER_SIZE + (long) (valid - 1) * ENTRY_SIZE + 8);
+                    if ((int) crc.getValue() == index.readInt()) {
+                        end = blockEnd;
+                        break;
+                    }
+                }
+                valid--;
+            }
+
+            log.setLength(end);
+            log.getFD().sync();
+            index.setLength(HEADER_SIZE + (long) valid * ENTRY_SIZE);
+            index.seek(index.length());
+            index.writeLong(END_MARKER);
+            index.writeInt(0);
+            index.getFD().sync();
+            return length - end;
+        }
+    }
+
+    private static long entryEnd(RandomAccessFile index, int i) throws IOException {
+        index.seek(HEADER_SIZE + (long) i * ENTRY_SIZE);
+        return index.readLong();
+    }
+
+    /**
+     * Recovers every log in a directory that has a checksum file and was not
+     * closed properly, with {@link #recover(File)}.
+     *
+     * <p>
+     * Logs that cannot be recovered are skipped.
+     * </p>
+     *
+     * @param logDir The log directory
+     * @return The number of logs that had data removed
+     */
+    public static int recoverAll(File logDir) {
+        File[] files = logDir.listFiles((dir, name) -> name.endsWith(".log" + CHECKSUM_EXTENSION));
+        if (files == null) {
+            return 0;
+        }
+        int recovered = 0;
+        for (File checksums : files) {
+            String path = checksums.getPath();
+            try {
+                if (recover(new File(path.substring(0, path.length() - CHECKSUM_EXTENSION.length()))) > 0) {
+                    recovered++;
+                }
+            } catch (IOException e) {
+                // Leave it as it is
+            }
+        }
+        return recovered;
+    }
+}
@@ -0,0 +1,336 @@
+package com.arctos6135.robotlib.logging;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * An in-memory recorder of the most recent log records and telemetry samples,
+ * which can be dumped to a file when something goes wrong.
+ *
+ * <p>
+ * Entries are stored in a fixed-size ring buffer allocated outside the Java
+ * heap; once it is full, the oldest entries are overwritten. Recording an entry
+ * is a bounded copy into the buffer and does not allocate. Messages longer than
+ * {@value #MAX_MESSAGE_LENGTH} characters are truncated.
+ * </p>
+ * <p>
+ * A flight recorder is enabled with {@link RobotLogger#setFlightRecorder(int)},
+ * and then records every message logged by the {@link RobotLogger}, at every
+ * level, regardless of the level set with
+ * {@link RobotLogger#setLevel(Level)}. Telemetry can be added with
+ * {@link TelemetryRecorder#setFlightRecorder(FlightRecorder)}.
+ * </p>
+ * <p>
+ * The contents are dumped to a text file in the log directory by
+ * {@link #dump(String)}, which is called automatically by
+ * {@link RobotLogger#logError(String)} and for uncaught exceptions, and can be
+ * called for any other fault, e.g.
+ * </p>
+ *
+ * <pre>
+ * if (RobotController.isBrownedOut()) {
+ *     logger.getFlightRecorder().dump("brownout");
+ * }
+ * </pre>
+ * <p>
+ * Dumps are written by a low-priority background thread, which also copies
+ * the contents of the buffer into a snapshot allocated once up front, so that
+ * dumping only costs the caller a few field reads. Entries recorded before the
+ * dump are kept unless they are overwritten before the background thread gets
+ * to them. To avoid filling the disk when faults happen repeatedly, a dump is
+ * skipped if the last one was less than {@value #MIN_DUMP_INTERVAL}
+ * milliseconds ago.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+public class FlightRecorder {
+
+    /**
+     * The max number of characters of a message that are recorded.
+     */
+    public static final int MAX_MESSAGE_LENGTH = 1024;
+    /**
+     * The minimum time between two dumps, in milliseconds.
+     */
+    public static final long MIN_DUMP_INTERVAL = 5000;
+
+    private static final byte TYPE_RECORD = 0;
+    private static final byte TYPE_TELEMETRY = 1;
+    // Marks the unused space at the end of the buffer before wrapping around
+    private static final int WRAP = -1;
+    // length + type + fpga time + wall time
+    private static final int HEADER_SIZE = 4 + 1 + 8 + 8;
+
+    private final ByteBuffer buffer;
+    // Only used by the background thread
+    private final ByteBuffer snapshot;
+    private final int capacity;
+    private final File logDir;
+    private final String baseName;
+    private final ExecutorService background;
+
+    // Logical positions; the physical position is the remainder of the capacity
+    // Guarded by this
+    private long readPos = 0;
+    private long writePos = 0;
+    private final StringBuilder message = new StringBuilder(MAX_MESSAGE_LENGTH);
+    private final List<String[]> telemetrySources = new ArrayList<>();
+    private long lastDump = Long.MIN_VALUE;
+    private int dumpCount = 0;
+
+    /**
+     * Creates a new flight recorder.
+     *
+     * @param capacity The size of the ring buffer, in bytes
+     * @param logDir   The directory to dump to
+     * @param baseName The base name of the dump files
+     */
+    FlightRecorder(int capacity, File logDir, String baseName) {
+        // Every entry must fit at least twice
+        if (capacity < 4 * (HEADER_SIZE + 4 + 2 * MAX_MESSAGE_LENGTH)) {
+            throw new IllegalArgumentException("The flight recorder capacity must be at least "
+                    + 4 * (HEADER_SIZE + 4 + 2 * MAX_MESSAGE_LENGTH) + " bytes");
+        }
+        this.capacity = capacity;
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+        this.snapshot = ByteBuffer.allocate(capacity);
+        this.logDir = logDir;
+        this.baseName = baseName;
+        background = Executors.newSingleThreadExecutor(LogThreads.factory("RobotLogger-FlightRecorder"));
+    }
+
+    /**
+     * Records a log message.
+     *
+     * @param channel  The name of the channel of the message, or {@code null}
+     * @param level    The level of the message
+     * @param template The message template, or the message if {@code argCount} is
+     *                 0
+     * @param argCount The number of arguments
+     * @param arg0     The first argument
+     * @param arg1     The second argument
+     * @param arg2     The third argument
+     */
+    synchronized void record(String channel, Level level, String template, int argCount, double arg0,
+            double arg1, double arg2) {
+        message.setLength(0);
+        if (channel != null) {
+            message.append('[').append(channel).append("] ");
+        }
+        RobotLogRecord.appendTemplate(message, template, argCount, arg0, arg1, arg2);
+        int length = Math.min(message.length(), MAX_MESSAGE_LENGTH);
+
+        int pos = allocate(HEADER_SIZE + 4 + 2 * length);
+        buffer.put(pos + 4, TYPE_RECORD);
+        buffer.putLong(pos + 5, RobotController.getFPGATime());
+        buffer.putLong(pos + 13, System.currentTimeMillis());
+        buffer.putInt(pos + HEADER_SIZE, (length << 8) | BinaryLogFormat.encodeLevel(level));
+        pos += HEADER_SIZE + 4;
+        for (int i = 0; i < length; i++) {
+            buffer.putChar(pos + 2 * i, message.charAt(i));
+        }
+    }
+
+    /**
+     * Registers a source of telemetry.
+     *
+     * @param channelNames The names of the channels
+     * @return The ID of the source
+     */
+    synchronized int registerTelemetry(List<String> channelNames) {
+        telemetrySources.add(channelNames.toArray(new String[0]));
+        return telemetrySources.size() - 1;
+    }
+
+    /**
+     * Records a telemetry sample.
+     *
+     * @param source   The ID of the source
+     * @param fpgaTime The FPGA timestamp of the sample, in microseconds
+     * @param values   The values of the channels
+     */
+    synchronized void recordTelemetry(int source, long fpgaTime, double[] values) {
+        int pos = allocate(HEADER_SIZE + 4 + 8 * values.length);
+        buffer.put(pos + 4, TYPE_TELEMETRY);
+        buffer.putLong(pos + 5, fpgaTime);
+        buffer.putLong(pos + 13, System.currentTimeMillis());
+        buffer.putInt(pos + HEADER_SIZE, source);
+        pos += HEADER_SIZE + 4;
+        for (int i = 0; i < values.length; i++) {
+            buffer.putDouble(pos + 8 * i, values[i]);
+        }
+    }
+
+    /**
+     * Reserves space for an entry, overwriting the oldest entries if needed.
+     *
+     * @param size The size of the entry, in bytes
+     * @return The physical position of the entry
+     */
+    private int allocate(int size) {
+        long start = writePos;
+        int phys = (int) (start % capacity);
+        if (phys + size > capacity) {
+            // Entries never wrap around; skip to the start of the buffer
+            start += capacity - phys;
+        }
+        while (start + size - readPos > capacity) {
+            readPos = nextEntry(buffer, readPos);
+        }
+        if (start != writePos && capacity - phys >= 4) {
+            buffer.putInt(phys, WRAP);
+        }
+        int pos = (int) (start % capacity);
+        buffer.putInt(pos, size);
+        writePos = start + size;
+        return pos;
+    }
+
+    /**
+     * Dumps the contents of the recorder to a new file in the log directory.
+     *
+     * <p>
+     * The dump contains the entries recorded before this call. They are copied
+     * and written to the file by a background thread; any of them that are
+     * overwritten by newer entries before they are copied are left out. The dump
+     * is skipped if the last one was less than {@value #MIN_DUMP_INTERVAL}
+     * milliseconds ago.
+     * </p>
+     *
+     * @param reason The reason for the dump, written at the top of the file
+     * @return A future that gives the file that was written, or {@code null} if
+     *         the dump was skipped
+     */
+    public Future<File> dump(String reason) {
+        long end;
+        File file;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (lastDump != Long.MIN_VALUE && now - lastDump < MIN_DUMP_INTERVAL) {
+                return CompletableFuture.completedFuture(null);
+            }
+            lastDump = now;
+            dumpCount++;
+            file = new File(logDir, baseName + ".flight" + dumpCount + ".log");
+            end = writePos;
+        }
+        return background.submit(() -> {
+            long start = copy();
+            String[][] sources;
+            synchronized (this) {
+                sources = telemetrySources.toArray(new String[0][]);
+            }
+            write(file, reason, snapshot, start, end, sources);
+            return file;
+        });
+    }
+
+    /**
+     * Copies the buffer into the snapshot without holding the lock. Called on
+     * the background thread.
+     *
+     * @return The position of the oldest entry that was not being overwritten
+     *         while it was copied
+     */
+    private long copy() {
+        ByteBuffer view = buffer.duplicate();
+        view.clear();
+        snapshot.clear();
+        snapshot.put(view);
+        snapshot.clear();
+        // Everything the writer touched during the copy is before the oldest entry it kept
+        synchronized (this) {
+            return readPos;
+        }
+    }
+
+    /**
+     * Dumps the contents of the recorder and waits for the file to be written.
+     *
+     * @param reason        The reason for the dump
+     * @param timeoutMillis The max time to wait, in milliseconds
+     */
+    void dumpAndWait(String reason, long timeoutMillis) {
+        try {
+            dump(reason).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(File file, String reason, ByteBuffer data, long start, long end, String[][] sources)
+            throws IOException {
+        RobotLoggerFormatter formatter = new RobotLoggerFormatter(RobotLoggerFormatter.Column.FPGA_TIME);
+        RobotLogRecord record = new RobotLogRecord(Level.INFO, null, 0);
+        StringBuilder builder = new StringBuilder(256);
+
+        try (Writer out = new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(file)),
+                StandardCharsets.UTF_8)) {
+            out.write("Flight recorder dump: " + reason + "\n");
+            for (long pos = start; pos < end; pos = nextEntry(data, pos)) {
+                int phys = (int) (pos % capacity);
+                if (capacity - phys < 4 || data.getInt(phys) == WRAP) {
+                    continue;
+                }
+                byte type = data.get(phys + 4);
+                record.setFpgaTime(data.getLong(phys + 5));
+                record.setWallTime(data.getLong(phys + 13));
+                int info = data.getInt(phys + HEADER_SIZE);
+                int body = phys + HEADER_SIZE + 4;
+
+                builder.setLength(0);
+                if (type == TYPE_RECORD) {
+                    record.setLevel(BinaryLogFormat.decodeLevel(info & 0xFF));
+                    int length = info >>> 8;
+                    for (int i = 0; i < length; i++) {
+                        builder.append(data.getChar(body + 2 * i));
+                    }
+                } else {
+                    record.setLevel(Level.FINEST);
+                    builder.append("[telemetry]");
+                    String[] names = sources[info];
+                    for (int i = 0; i < names.length; i++) {
+                        builder.append(' ').append(names[i]).append('=').append(data.getDouble(body + 8 * i));
+                    }
+                }
+                record.setMessage(builder.toString());
+                builder.setLength(0);
+                formatter.formatTo(record, builder);
+                out.append(builder);
+            }
+        }
+    }
+
+    /**
+     * Gets the position of the entry after the one at the given position.
+     */
+    private long nextEntry(ByteBuffer data, long pos) {
+        int phys = (int) (pos % capacity);
+        if (capacity - phys < 4) {
+            return pos + capacity - phys;
+        }
+        int size = data.getInt(phys);
+        return size == WRAP ? pos + capacity - phys : pos + size;
+    }
+}
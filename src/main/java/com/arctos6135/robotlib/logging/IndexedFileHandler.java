@@ -0,0 +1,260 @@
+package com.arctos6135.robotlib.logging;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * A {@link Handler} that writes text logs together with a sparse index, so that
+ * the records in a time range can be found without reading the whole log.
+ *
+ * <p>
+ * The records are split into blocks of at most a fixed number of records or a
+ * fixed span of time, whichever comes first. For every block, an entry with the
+ * byte range of the block in the log, the times of its first and last records
+ * and the set of levels in it is appended to an index file next to the log,
+ * whose name is the name of the log followed by {@value #INDEX_EXTENSION}. The
+ * text log itself is exactly the same as an unindexed one.
+ * </p>
+ * <p>
+ * Logs written by this handler can be searched with {@link IndexedLogReader}.
+ * To have {@link RobotLogger} write an indexed log, use:
+ * </p>
+ *
+ * <pre>
+ * logger.setFileHandlerFactory(IndexedFileHandler.factory());
+ * </pre>
+ *
+ * @author Tyler Tian
+ */
+public class IndexedFileHandler extends Handler implements CatalogedHandler, TransientRecordHandler {
+
+    /**
+     * The extension added to the name of a log to get the name of its index.
+     */
+    public static final String INDEX_EXTENSION = ".idx";
+
+    /**
+     * The magic number at the start of every index file.
+     */
+    static final byte[] MAGIC = { 'R', 'I', 'D', 'X' };
+    /**
+     * The current index format version.
+     */
+    static final int VERSION = 1;
+    /**
+     * The size of the header of an index file, in bytes.
+     */
+    static final int HEADER_SIZE = 8;
+    /**
+     * The size of an index entry, in bytes: the start and end offsets, the times
+     * of the first and last records, the level mask and the number of records.
+     */
+    static final int ENTRY_SIZE = 8 + 8 + 8 + 8 + 4 + 4;
+
+    private static final int DEFAULT_BLOCK_RECORDS = 256;
+    private static final long DEFAULT_BLOCK_MILLIS = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final File indexFile;
+    private final OutputStream out;
+    private final DataOutputStream indexOut;
+    private final int blockRecords;
+    private final long blockMillis;
+    private LogCatalog catalog;
+
+    private final RecordEncoder encoder = new RecordEncoder();
+    private final ByteBuffer bytes = ByteBuffer.allocate(1024);
+
+    // The number of bytes written to the log
+    private long position = 0;
+    // The current block
+    private long blockStart = 0;
+    private long blockFirstTime;
+    private long blockLastTime;
+    private int blockLevels = 0;
+    private int blockCount = 0;
+
+    /**
+     * Creates a new handler that starts a new block every 256 records or every
+     * second.
+     *
+     * <p>
+     * If the file already exists, it will be overwritten.
+     * </p>
+     *
+     * @param file The file to write to
+     * @throws IOException If the log or its index could not be opened
+     */
+    public IndexedFileHandler(File file) throws IOException {
+        this(file, DEFAULT_BLOCK_RECORDS, DEFAULT_BLOCK_MILLIS);
+    }
+
+    /**
+     * Creates a new handler.
+     *
+     * <p>
+     * If the file already exists, it will be overwritten.
+     * </p>
+     *
+     * @param file         The file to write to
+     * @param blockRecords The max number of records in a block
+     * @param blockMillis  The max time between the first and last record of a
+     *                     block, in milliseconds
+     * @throws IOException If the log or its index could not be opened
+     */
+    public IndexedFileHandler(File file, int blockRecords, long blockMillis) throws IOException {
+        if (blockRecords < 1 || blockMillis < 1) {
+            throw new IllegalArgumentException("The block size must be positive");
+        }
+        this.file = file;
+        this.indexFile = indexFileOf(file);
+        this.blockRecords = blockRecords;
+        this.blockMillis = blockMillis;
+        out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+        indexOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+        indexOut.write(MAGIC);
+        indexOut.writeInt(VERSION);
+
+        setFormatter(new RobotLoggerFormatter());
+    }
+
+    /**
+     * Gets a factory that creates indexed text log handlers, for use with
+     * {@link RobotLogger#setFileHandlerFactory(LogHandlerFactory)}.
+     *
+     * @return A factory for indexed log handlers
+     */
+    public static LogHandlerFactory factory() {
+        return (logDir, baseName) -> new IndexedFileHandler(new File(logDir, baseName + ".log"));
+    }
+
+    /**
+     * Gets the index file of a log.
+     *
+     * @param file The log file
+     * @return The index file
+     */
+    static File indexFileOf(File file) {
+        return new File(file.getPath() + INDEX_EXTENSION);
+    }
+
+    /**
+     * Gets the bit that represents a level in the level mask of an index entry.
+     *
+     * @param level The level
+     * @return The bit number, from 0 to 31
+     */
+    static int levelBit(Level level) {
+        return Math.min(31, BinaryLogFormat.encodeLevel(level));
+    }
+
+    @Override
+    public synchronized void setCatalog(LogCatalog catalog) {
+        this.catalog = catalog;
+        catalog.fileOpened(file);
+        catalog.fileOpened(indexFile);
+    }
+
+    @Override
+    public synchronized void publish(LogRecord record) {
+        if (!isLoggable(record)) {
+            return;
+        }
+        if (!encoder.format(this, record)) {
+            return;
+        }
+
+        long time = record.getMillis();
+        try {
+            if (blockCount > 0 && (blockCount >= blockRecords || time - blockFirstTime >= blockMillis
+                    || time < blockFirstTime)) {
+                endBlock();
+            }
+            if (blockCount == 0) {
+                blockStart = position;
+                blockFirstTime = time;
+            }
+            write();
+            blockLastTime = time;
+            blockLevels |= 1 << levelBit(record.getLevel());
+            blockCount++;
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    /**
+     * Encodes the formatted record and writes it to the log.
+     */
+    private void write() throws IOException {
+        encoder.encodeTo(bytes, this::writeBytes);
+        writeBytes(bytes);
+    }
+
+    private ByteBuffer writeBytes(ByteBuffer bytes) throws IOException {
+        out.write(bytes.array(), 0, bytes.position());
+        position += bytes.position();
+        bytes.clear();
+        return bytes;
+    }
+
+    /**
+     * Writes the index entry of the current block and starts a new one.
+     */
+    private void endBlock() throws IOException {
+        indexOut.writeLong(blockStart);
+        indexOut.writeLong(position);
+        indexOut.writeLong(blockFirstTime);
+        indexOut.writeLong(blockLastTime);
+        indexOut.writeInt(blockLevels);
+        indexOut.writeInt(blockCount);
+        blockLevels = 0;
+        blockCount = 0;
+    }
+
+    /**
+     * Flushes the log and its index.
+     *
+     * <p>
+     * The current block is only added to the index once it is complete, but
+     * {@link IndexedLogReader} still finds the records in it.
+     * </p>
+     */
+    @Override
+    public synchronized void flush() {
+        try {
+            // The log first, so the index never points past the end of it
+            out.flush();
+            indexOut.flush();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.FLUSH_FAILURE);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            if (blockCount > 0) {
+                endBlock();
+            }
+            out.close();
+            indexOut.close();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.CLOSE_FAILURE);
+        }
+        if (catalog != null) {
+            catalog.fileClosed(file);
+            catalog.fileClosed(indexFile);
+        }
+    }
+}
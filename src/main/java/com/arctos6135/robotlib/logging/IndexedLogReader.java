@@ -0,0 +1,417 @@
+package com.arctos6135.robotlib.logging;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * A reader that uses the index written by {@link IndexedFileHandler} to quickly
+ * find the records of a text log in a time range.
+ *
+ * <p>
+ * The index is memory-mapped and binary searched for the first block in the
+ * range, and only the blocks in the range that contain records at or above the
+ * requested level are read, so the time taken depends on the size of the
+ * result instead of the size of the log. Records written after the last
+ * complete block (e.g. because the log is still being written) are not in the
+ * index, and are found by reading the end of the log. A log without an index is
+ * read in full. The log is read line by line through a fixed-size buffer, so
+ * memory use does not depend on the size of the log either.
+ * </p>
+ * <p>
+ * Since the text log only has the time of each record to the second, the time
+ * range is rounded outward to whole seconds. The search assumes that the system
+ * time never goes backwards while the log is written, which is true as long as
+ * the logger is initialized after the Driver Station is connected (see
+ * {@link RobotLogger}).
+ * </p>
+ * <p>
+ * This class can also be run from the command line:
+ * </p>
+ *
+ * <pre>
+ * java -cp RobotLib.jar com.arctos6135.robotlib.logging.IndexedLogReader [--from time] [--to time] [--level level] &lt;log&gt;
+ * </pre>
+ * <p>
+ * where times are in the same format as the log, e.g.
+ * {@code "2020/03/07 14:05:00"}. The records found are written to standard
+ * output.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+public class IndexedLogReader implements Closeable {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
+    // The length of "(yyyy/MM/dd HH:mm:ss)"
+    private static final int TIME_LENGTH = 21;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel log;
+    private final ByteBuffer index;
+    private final int entryCount;
+    // The end of the last indexed block
+    private final long indexedEnd;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    // Reused buffers for reading the log line by line
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private byte[] line = new byte[256];
+    private int lineLength = 0;
+    private CharBuffer lineChars = CharBuffer.allocate(256);
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+    // The record being collected
+    private final StringBuilder record = new StringBuilder(256);
+
+    /**
+     * Creates a new reader.
+     *
+     * @param file The log file; its index is found automatically
+     * @throws IOException If an I/O error occurs, or the index is not valid
+     */
+    public IndexedLogReader(File file) throws IOException {
+        log = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        File indexFile = IndexedFileHandler.indexFileOf(file);
+        if (!indexFile.isFile()) {
+            index = null;
+            entryCount = 0;
+            indexedEnd = 0;
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            log.close();
+            throw e;
+        }
+        byte[] magic = new byte[IndexedFileHandler.MAGIC.length];
+        if (index.limit() >= IndexedFileHandler.HEADER_SIZE) {
+            index.get(magic);
+        }
+        if (!Arrays.equals(magic, IndexedFileHandler.MAGIC)
+                || index.getInt(magic.length) != IndexedFileHandler.VERSION) {
+            log.close();
+            throw new IOException("Not a valid log index: " + indexFile);
+        }
+        // An entry that was cut off is ignored
+        entryCount = (index.limit() - IndexedFileHandler.HEADER_SIZE) / IndexedFileHandler.ENTRY_SIZE;
+        indexedEnd = entryCount > 0 ? end(entryCount - 1) : 0;
+    }
+
+    private int entry(int i) {
+        return IndexedFileHandler.HEADER_SIZE + i * IndexedFileHandler.ENTRY_SIZE;
+    }
+
+    private long start(int i) {
+        return index.getLong(entry(i));
+    }
+
+    private long end(int i) {
+        return index.getLong(entry(i) + 8);
+    }
+
+    private long firstTime(int i) {
+        return index.getLong(entry(i) + 16);
+    }
+
+    private long lastTime(int i) {
+        return index.getLong(entry(i) + 24);
+    }
+
+    private int levels(int i) {
+        return index.getInt(entry(i) + 32);
+    }
+
+    /**
+     * Gets the number of blocks in the index.
+     *
+     * @return The number of blocks
+     */
+    public int getBlockCount() {
+        return entryCount;
+    }
+
+    /**
+     * Finds the records in a time range with at least the specified level.
+     *
+     * @param fromMillis The start of the range, in milliseconds since the epoch
+     * @param toMillis   The end of the range (inclusive), in milliseconds since
+     *                   the epoch
+     * @param minLevel   The minimum level
+     * @return The records, in the order they were written, without the trailing
+     *         newline
+     * @throws IOException If an I/O error occurs
+     */
+    public List<String> read(long fromMillis, long toMillis, Level minLevel) throws IOException {
+        List<String> records = new ArrayList<>();
+        read(fromMillis, toMillis, minLevel, records::add);
+        return records;
+    }
+
+    /**
+     * Finds the records in a time range with at least the specified level.
+     *
+     * @param fromMillis The start of the range, in milliseconds since the epoch
+     * @param toMillis   The end of the range (inclusive), in milliseconds since
+     *                   the epoch
+     * @param minLevel   The minimum level
+     * @param action     Called with every record found, in the order they were
+     *                   written, without the trailing newline
+     * @throws IOException If an I/O error occurs
+     */
+    public synchronized void read(long fromMillis, long toMillis, Level minLevel, Consumer<String> action)
+            throws IOException {
+        // Round outward to whole seconds
+        long from = Math.floorDiv(fromMillis, 1000) * 1000;
+        long to = Math.floorDiv(toMillis, 1000) * 1000 + 999;
+        int minBit = IndexedFileHandler.levelBit(minLevel);
+
+        // Find the first block that ends at or after the start of the range
+        int lo = 0;
+        int hi = entryCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (lastTime(mid) < from) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        for (int i = lo; i < entryCount; i++) {
+            if (firstTime(i) > to) {
+                // The rest of the log is after the range
+                return;
+            }
+            if ((levels(i) >>> minBit) != 0) {
+                boolean checkTime = firstTime(i) < from || lastTime(i) > to;
+                readRange(start(i), end(i), from, to, checkTime, minLevel, action);
+            }
+        }
+        long size = log.size();
+        if (indexedEnd < size) {
+            readRange(indexedEnd, size, from, to, true, minLevel, action);
+        }
+    }
+
+    /**
+     * Reads the records in a range of the log that pass the filters.
+     *
+     * <p>
+     * The range is read in chunks into a fixed-size buffer and split into lines,
+     * so only the current line and the record being collected are held in
+     * memory, no matter how big the range is.
+     * </p>
+     */
+    private void readRange(long start, long end, long from, long to, boolean checkTime, Level minLevel,
+            Consumer<String> action) throws IOException {
+        record.setLength(0);
+        lineLength = 0;
+        boolean wanted = false;
+        long pos = start;
+        while (pos < end) {
+            readBuffer.clear();
+            readBuffer.limit((int) Math.min(readBuffer.capacity(), end - pos));
+            int n = log.read(readBuffer, pos);
+            if (n < 0) {
+                break;
+            }
+            pos += n;
+            byte[] array = readBuffer.array();
+            int lineStart = 0;
+            for (int i = 0; i < n; i++) {
+                if (array[i] == '\n') {
+                    appendLine(array, lineStart, i);
+                    wanted = endLine(wanted, from, to, checkTime, minLevel, action);
+                    lineStart = i + 1;
+                }
+            }
+            // Keep the start of the line that continues in the next chunk
+            appendLine(array, lineStart, n);
+        }
+        if (lineLength > 0) {
+            wanted = endLine(wanted, from, to, checkTime, minLevel, action);
+        }
+        if (wanted) {
+            action.accept(record.toString());
+        }
+    }
+
+    /**
+     * Appends bytes to the current line.
+     */
+    private void appendLine(byte[] bytes, int start, int end) {
+        int length = end - start;
+        if (lineLength + length > line.length) {
+            line = Arrays.copyOf(line, Math.max(lineLength + length, line.length * 2));
+        }
+        System.arraycopy(bytes, start, line, lineLength, length);
+        lineLength += length;
+    }
+
+    /**
+     * Decodes the current line and adds it to the record being collected, or
+     * starts a new record with it.
+     *
+     * @return Whether the current record is wanted
+     */
+    private boolean endLine(boolean wanted, long from, long to, boolean checkTime, Level minLevel,
+            Consumer<String> action) {
+        if (lineChars.capacity() < lineLength) {
+            // A UTF-8 line never has more chars than bytes
+            lineChars = CharBuffer.allocate(Math.max(lineLength, lineChars.capacity() * 2));
+        }
+        lineChars.clear();
+        decoder.reset();
+        decoder.decode(ByteBuffer.wrap(line, 0, lineLength), lineChars, true);
+        decoder.flush(lineChars);
+        lineChars.flip();
+        lineLength = 0;
+
+        int length = lineChars.length();
+        Level level = parseLevel(lineChars, 0, length);
+        // Lines without a level are continuations of the previous record
+        if (level != null) {
+            if (wanted) {
+                action.accept(record.toString());
+            }
+            record.setLength(0);
+            wanted = level.intValue() >= minLevel.intValue()
+                    && (!checkTime || isInRange(lineChars, 0, length, from, to));
+            if (wanted) {
+                record.append(lineChars);
+            }
+        } else if (wanted) {
+            record.append('\n').append(lineChars);
+        }
+        return wanted;
+    }
+
+    /**
+     * Gets the level of a line, or null if the line is not the first line of a
+     * record.
+     */
+    private static Level parseLevel(CharSequence text, int start, int end) {
+        if (start >= end || text.charAt(start) != '(') {
+            return null;
+        }
+        for (int i = start + 1; i + 2 < end; i++) {
+            if (text.charAt(i) == ']' && text.charAt(i + 1) == ':' && text.charAt(i + 2) == ' ') {
+                int open = i - 1;
+                while (open > start && text.charAt(open) != '[') {
+                    open--;
+                }
+                try {
+                    return Level.parse(text.subSequence(open + 1, i).toString());
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether the time of a line is in the range. Lines whose time
+     * cannot be parsed are always in the range.
+     */
+    private boolean isInRange(CharSequence text, int start, int end, long from, long to) {
+        if (end - start < TIME_LENGTH) {
+            return true;
+        }
+        try {
+            long time = LocalDateTime.parse(text.subSequence(start + 1, start + TIME_LENGTH - 1), TIME_FORMAT)
+                    .atZone(zone).toInstant().toEpochMilli();
+            return time >= from && time <= to;
+        } catch (DateTimeParseException e) {
+            return true;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    /**
+     * Prints the records of a log in a time range.
+     *
+     * <p>
+     * Usage:
+     * {@code IndexedLogReader [--from time] [--to time] [--level level] <log>}
+     * </p>
+     *
+     * @param args The command line arguments
+     */
+    public static void main(String[] args) {
+        long from = Long.MIN_VALUE / 2;
+        long to = Long.MAX_VALUE / 2;
+        Level level = Level.ALL;
+        File file = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                case "--from":
+                    from = LocalDateTime.parse(args[++i], TIME_FORMAT).atZone(ZoneId.systemDefault()).toInstant()
+                            .toEpochMilli();
+                    break;
+                case "--to":
+                    to = LocalDateTime.parse(args[++i], TIME_FORMAT).atZone(ZoneId.systemDefault()).toInstant()
+                            .toEpochMilli();
+                    break;
+                case "--level":
+                    level = Level.parse(args[++i]);
+                    break;
+                default:
+                    if (file != null) {
+                        throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+                    }
+                    file = new File(args[i]);
+                }
+            }
+            if (file == null) {
+                throw new IllegalArgumentException("No log file given");
+            }
+        } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Usage: IndexedLogReader [--from time] [--to time] [--level level] <log>");
+            System.exit(1);
+        }
+
+        try (IndexedLogReader reader = new IndexedLogReader(file);
+                Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+            reader.read(from, to, level, record -> {
+                try {
+                    out.write(record);
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Failed to read log: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.arctos6135.robotlib.logging;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * A {@link Handler} that writes records as JSON Lines, one JSON object per
+ * line, so that logs can be analyzed without parsing text.
+ *
+ * <p>
+ * Every object has the wall-clock time in milliseconds since the epoch
+ * ({@code "time"}), the level ({@code "level"}), and if known, the FPGA time in
+ * microseconds ({@code "fpga"}) and the channel ({@code "logger"}). For events
+ * logged with {@link LogEvent}, whose records are marked with
+ * {@link RobotLogRecord#isEvent()}, the name of the event is written as
+ * {@code "event"}, and its fields in an object of their own, so they can have
+ * any names without clashing with the fields of the record, e.g.
+ * </p>
+ *
+ * <pre>
+ * {"time":1583604300000,"level":"WARNING","fpga":12345678,"event":"trip","fields":{"channel":4,"amps":61.2}}
+ * </pre>
+ * <p>
+ * The message of any other record is written as {@code "message"}.
+ * Records are written into a reused buffer, so writing a record does not
+ * allocate anything. Like {@link BufferedFileHandler}, this handler does not
+ * flush after every record.
+ * </p>
+ * <p>
+ * It can be added next to the regular log with
+ * {@link RobotLogger#addHandler(Handler)}, or used as the log itself:
+ * </p>
+ *
+ * <pre>
+ * logger.setFileHandlerFactory(JsonLinesHandler.factory());
+ * </pre>
+ *
+ * @author Tyler Tian
+ */
+public class JsonLinesHandler extends Handler implements CatalogedHandler, TransientRecordHandler {
+
+    /**
+     * The extension of JSON Lines logs.
+     */
+    public static final String EXTENSION = ".jsonl";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final Writer writer;
+    private LogCatalog catalog;
+    private final StringBuilder message = new StringBuilder(256);
+    private final RecordEncoder encoder = new RecordEncoder();
+
+    /**
+     * Creates a new handler that writes to the specified file, replacing it if
+     * it exists.
+     *
+     * @param file The file to write to
+     * @throws IOException If the file cannot be opened
+     */
+    public JsonLinesHandler(File file) throws IOException {
+        this.file = file;
+        writer = new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE),
+                StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets a factory that creates JSON Lines handlers, for use with
+     * {@link RobotLogger#setFileHandlerFactory(LogHandlerFactory)}.
+     *
+     * @return A factory for JSON Lines handlers
+     */
+    public static LogHandlerFactory factory() {
+        return (logDir, baseName) -> new JsonLinesHandler(new File(logDir, baseName + EXTENSION));
+    }
+
+    @Override
+    public synchronized void setCatalog(LogCatalog catalog) {
+        this.catalog = catalog;
+        catalog.fileOpened(file);
+    }
+
+    @Override
+    public synchronized void publish(LogRecord record) {
+        if (!isLoggable(record)) {
+            return;
+        }
+        message.setLength(0);
+        StringBuilder builder = encoder.text();
+        builder.setLength(0);
+        try {
+            RobotLogRecord robotRecord = record instanceof RobotLogRecord ? (RobotLogRecord) record : null;
+            if (robotRecord != null) {
+                robotRecord.appendMessage(message);
+            } else if (record.getMessage() != null) {
+                message.append(record.getMessage());
+            }
+
+            builder.append("{\"time\":").append(record.getMillis());
+            builder.append(",\"level\":");
+            LogEvent.appendString(builder, record.getLevel().getName());
+            if (robotRecord != null) {
+                builder.append(",\"fpga\":").append(robotRecord.getFpgaTime());
+            }
+            if (record.getLoggerName() != null) {
+                builder.append(",\"logger\":");
+                LogEvent.appendString(builder, record.getLoggerName());
+            }
+            if (robotRecord != null && robotRecord.isEvent()) {
+                appendEvent(builder);
+            } else {
+                builder.append(",\"message\":");
+                LogEvent.appendString(builder, message);
+            }
+            builder.append("}\n");
+        } catch (RuntimeException e) {
+            reportError(null, e, ErrorManager.FORMAT_FAILURE);
+            return;
+        }
+
+        try {
+            encoder.writeTo(writer);
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    /**
+     * Appends the name and fields of the event in the message.
+     */
+    private void appendEvent(StringBuilder builder) {
+        // The message starts with the name of the event, a JSON string; find its closing quote
+        int end = LogEvent.PREFIX.length() + 1;
+        while (message.charAt(end) != '"') {
+            end += message.charAt(end) == '\\' ? 2 : 1;
+        }
+        end++;
+        // "event":"<name>"
+        builder.append(',').append(message, 1, end);
+        builder.append(",\"fields\":{");
+        if (message.charAt(end) == ',') {
+            // The rest of the fields, including the closing brace
+            builder.append(message, end + 1, message.length());
+        } else {
+            builder.append('}');
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.FLUSH_FAILURE);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.CLOSE_FAILURE);
+        }
+        if (catalog != null) {
+            catalog.fileClosed(file);
+        }
+    }
+}
@@ -0,0 +1,596 @@
+package com.arctos6135.robotlib.logging;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Analyzes many log files in parallel, e.g. all the logs of a season.
+ *
+ * <p>
+ * The logs in a directory and its subdirectories are split among the threads
+ * of a {@link ForkJoinPool}, and every file is read as a stream of
+ * {@link LogEntry}s without loading it into memory. The entries are fed to a
+ * {@link Collector}: a new result container is created for every file, the
+ * entries of the file are accumulated into it in order, and the containers are
+ * then combined. Only one container per file being read and the combined
+ * results are in memory at any time, so the memory used depends on the size of
+ * the results and not the size of the logs.
+ * </p>
+ * <p>
+ * Text logs written with {@link RobotLoggerFormatter} (with any columns), text
+ * logs compressed with gzip (e.g. by {@link RotatingFileHandler} or
+ * {@link CompressedFileHandler}) and binary logs written by
+ * {@link BinaryLogHandler} are supported. Any collector can be used, e.g. to
+ * count the errors in every file:
+ * </p>
+ *
+ * <pre>
+ * Map&lt;String, Long&gt; errors = new LogAnalyzer().analyze(dir,
+ *         Collectors.filtering(e -&gt; e.getLevel() == Level.SEVERE,
+ *                 Collectors.groupingBy(e -&gt; e.getFile().getName(), Collectors.counting())));
+ * </pre>
+ * <p>
+ * However, the entries passed to the collector are reused for the following
+ * records of the file, so the collector must not keep them. A collector that
+ * keeps entries, such as {@link Collectors#toList()}, would end up with many
+ * references to the same few entries, holding whatever records were read last.
+ * To keep entries, keep a {@link LogEntry#copy()} of each, or only the values
+ * that are needed:
+ * </p>
+ *
+ * <pre>
+ * List&lt;LogEntry&gt; errors = new LogAnalyzer().analyze(dir,
+ *         Collectors.filtering(e -&gt; e.getLevel() == Level.SEVERE,
+ *                 Collectors.mapping(LogEntry::copy, Collectors.toList())));
+ * </pre>
+ * <p>
+ * A few common analyses are provided as well, such as
+ * {@link #firstSeen(Level)} and {@link #timeBelow(Pattern, double)}. Files that
+ * cannot be read are skipped, and can be found with {@link #getFailedFiles()}.
+ * This class can also be run from the command line:
+ * </p>
+ *
+ * <pre>
+ * java -cp RobotLib.jar com.arctos6135.robotlib.logging.LogAnalyzer [--level level] &lt;dir&gt;
+ * </pre>
+ * <p>
+ * which prints the number of records at or above the level (by default
+ * {@code WARNING}) in every file, and when every distinct message at that level
+ * was first seen.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+public class LogAnalyzer {
+
+    // The length of "(yyyy/MM/dd HH:mm:ss)"
+    private static final int TIME_LENGTH = 21;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ForkJoinPool pool;
+    private final ConcurrentLinkedQueue<File> failedFiles = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Creates a new analyzer that uses the common fork-join pool, which has a
+     * thread for every core.
+     */
+    public LogAnalyzer() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new analyzer.
+     *
+     * @param pool The pool to run in
+     */
+    public LogAnalyzer(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Returns whether a file is a log that can be read.
+     *
+     * @param name The name of the file
+     * @return Whether it is a supported log
+     */
+    static boolean isSupported(String name) {
+        return name.endsWith(".log") || name.endsWith(".log" + RotatingFileHandler.COMPRESSED_EXTENSION)
+                || name.endsWith(BinaryLogHandler.EXTENSION);
+    }
+
+    /**
+     * Finds all the logs that can be read in a directory and its
+     * subdirectories.
+     *
+     * @param dir The directory
+     * @return The logs, sorted by path
+     * @throws IOException If an I/O error occurs
+     */
+    public static List<File> findLogs(File dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            List<File> files = new ArrayList<>();
+            paths.filter(p -> Files.isRegularFile(p) && isSupported(p.getFileName().toString()))
+                    .forEach(p -> files.add(p.toFile()));
+            Collections.sort(files);
+            return files;
+        }
+    }
+
+    /**
+     * Analyzes all the logs in a directory and its subdirectories.
+     *
+     * @param <A>       The type of the result containers
+     * @param <R>       The type of the result
+     * @param dir       The directory
+     * @param collector The collector to feed the entries to
+     * @return The result
+     * @throws IOException If the directory cannot be read
+     */
+    public <A, R> R analyze(File dir, Collector<? super LogEntry, A, R> collector) throws IOException {
+        return analyze(findLogs(dir), collector);
+    }
+
+    /**
+     * Analyzes a list of logs.
+     *
+     * @param <A>       The type of the result containers
+     * @param <R>       The type of the result
+     * @param files     The logs
+     * @param collector The collector to feed the entries to
+     * @return The result
+     */
+    public <A, R> R analyze(List<File> files, Collector<? super LogEntry, A, R> collector) {
+        failedFiles.clear();
+        A result = files.isEmpty() ? collector.supplier().get()
+                : pool.invoke(new AnalyzeTask<>(files, 0, files.size(), collector));
+        return collector.finisher().apply(result);
+    }
+
+    /**
+     * Gets the files that could not be read during the last analysis.
+     *
+     * @return The files
+     */
+    public List<File> getFailedFiles() {
+        return new ArrayList<>(failedFiles);
+    }
+
+    /**
+     * Analyzes a range of files, splitting it in half until there is only one
+     * file left.
+     */
+    private final class AnalyzeTask<A> extends RecursiveTask<A> {
+
+        private static final long serialVersionUID = 2771650617390458447L;
+
+        private final List<File> files;
+        private final int from;
+        private final int to;
+        private final transient Collector<? super LogEntry, A, ?> collector;
+
+        AnalyzeTask(List<File> files, int from, int to, Collector<? super LogEntry, A, ?> collector) {
+            this.files = files;
+            this.from = from;
+            this.to = to;
+            this.collector = collector;
+        }
+
+        @Override
+        protected A compute() {
+            if (to - from == 1) {
+                A container = collector.supplier().get();
+                BiConsumer<A, ? super LogEntry> accumulator = collector.accumulator();
+                try {
+                    read(files.get(from), entry -> accumulator.accept(container, entry));
+                } catch (IOException e) {
+                    failedFiles.add(files.get(from));
+                }
+                return container;
+            }
+            int mid = (from + to) >>> 1;
+            AnalyzeTask<A> left = new AnalyzeTask<>(files, from, mid, collector);
+            left.fork();
+            A right = new AnalyzeTask<>(files, mid, to, collector).compute();
+            // The left half comes first, so results stay in the order of the files
+            return collector.combiner().apply(left.join(), right);
+        }
+    }
+
+    /**
+     * Reads all the records of a log, in order.
+     *
+     * @param file   The log
+     * @param action Called with every record; the entry is reused
+     * @throws IOException If an I/O error occurs, or the log is not supported
+     */
+    public static void read(File file, Consumer<? super LogEntry> action) throws IOException {
+        String name = file.getName();
+        LogEntry entry = new LogEntry(file);
+        if (name.endsWith(BinaryLogHandler.EXTENSION)) {
+            try (BinaryLogReader reader = new BinaryLogReader(file)) {
+                while (reader.next()) {
+                    entry.wallTime = reader.getWallTime();
+                    entry.fpgaTime = reader.getFpgaTime();
+                    entry.level = reader.getLevel();
+                    setMessage(entry, reader.getMessage());
+                    action.accept(entry);
+                }
+            }
+        } else if (isSupported(name)) {
+            InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+            if (name.endsWith(RotatingFileHandler.COMPRESSED_EXTENSION)) {
+                try {
+                    in = new GZIPInputStream(in, BUFFER_SIZE);
+                } catch (IOException e) {
+                    in.close();
+                    throw e;
+                }
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                readText(reader, entry, action);
+            }
+        } else {
+            throw new IOException("Not a supported log: " + file);
+        }
+    }
+
+    /**
+     * Reads the records of a text log.
+     *
+     * <p>
+     * Since a record only ends when the next one starts, the first line of every
+     * record is parsed into a second entry, and the two are swapped.
+     * </p>
+     */
+    private static void readText(BufferedReader reader, LogEntry entry, Consumer<? super LogEntry> action)
+            throws IOException {
+        ZoneId zone = ZoneId.systemDefault();
+        String cachedTime = null;
+        long cachedMillis = 0;
+        LogEntry current = entry;
+        LogEntry next = new LogEntry(entry.getFile());
+        boolean pending = false;
+        StringBuilder message = new StringBuilder();
+
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty() && line.charAt(0) == '\0') {
+                    // The unused end of a log written by MappedFileHandler
+                    continue;
+                }
+                int messageStart = line.length() >= TIME_LENGTH && line.charAt(0) == '(' ? parseHeader(line, next)
+                        : -1;
+                if (messageStart < 0) {
+                    // A continuation of the previous record
+                    if (pending) {
+                        message.append('\n').append(line);
+                    }
+                    continue;
+                }
+
+                if (pending) {
+                    current.message = message.toString();
+                    action.accept(current);
+                }
+                LogEntry swap = current;
+                current = next;
+                next = swap;
+
+                String time = line.substring(1, TIME_LENGTH - 1);
+                if (!time.equals(cachedTime)) {
+                    cachedMillis = parseTime(time, zone);
+                    cachedTime = time;
+                }
+                current.wallTime = cachedMillis;
+                message.setLength(0);
+                message.append(line, parseChannel(line, messageStart, current), line.length());
+                pending = true;
+            }
+        } catch (EOFException e) {
+            // A compressed log that was cut off; keep what was read
+        }
+        if (pending) {
+            current.message = message.toString();
+            action.accept(current);
+        }
+    }
+
+    /**
+     * Parses the columns and level of the first line of a record.
+     *
+     * @return The index of the message, or -1 if the line is not the first line
+     *         of a record
+     */
+    private static int parseHeader(String line, LogEntry entry) {
+        if (line.charAt(TIME_LENGTH - 1) != ')') {
+            return -1;
+        }
+        entry.reset();
+        int pos = TIME_LENGTH;
+        while (pos + 2 < line.length() && line.charAt(pos) == ' ' && line.charAt(pos + 1) == '[') {
+            int close = line.indexOf(']', pos + 2);
+            if (close < 0) {
+                return -1;
+            }
+            String column = line.substring(pos + 2, close);
+            if (line.startsWith(": ", close + 1)) {
+                Level level = parseLevel(column);
+                if (level == null) {
+                    return -1;
+                }
+                entry.level = level;
+                return close + 3;
+            }
+            try {
+                if (column.startsWith("fpga ")) {
+                    entry.fpgaTime = Math.round(Double.parseDouble(column.substring(5)) * 1e6);
+                } else if (column.startsWith("match ")) {
+                    String time = column.substring(6);
+                    entry.matchTime = time.equals("-") ? Double.NaN : Double.parseDouble(time);
+                } else if (!column.equals("-")) {
+                    entry.robotMode = RobotMode.valueOf(column);
+                }
+            } catch (IllegalArgumentException e) {
+                return -1;
+            }
+            pos = close + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Parses the name of a level, without creating a new level for the standard
+     * ones.
+     */
+    private static Level parseLevel(String name) {
+        switch (name) {
+        case "SEVERE":
+            return Level.SEVERE;
+        case "WARNING":
+            return Level.WARNING;
+        case "INFO":
+            return Level.INFO;
+        case "CONFIG":
+            return Level.CONFIG;
+        case "FINE":
+            return Level.FINE;
+        case "FINER":
+            return Level.FINER;
+        case "FINEST":
+            return Level.FINEST;
+        default:
+            try {
+                return Level.parse(name);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Parses a time in the format {@code yyyy/MM/dd HH:mm:ss}.
+     */
+    private static long parseTime(String time, ZoneId zone) {
+        try {
+            LocalDateTime dateTime = LocalDateTime.of(Integer.parseInt(time.substring(0, 4)),
+                    Integer.parseInt(time.substring(5, 7)), Integer.parseInt(time.substring(8, 10)),
+                    Integer.parseInt(time.substring(11, 13)), Integer.parseInt(time.substring(14, 16)),
+                    Integer.parseInt(time.substring(17, 19)));
+            return dateTime.atZone(zone).toInstant().toEpochMilli();
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Sets the channel of an entry if the message starts with one.
+     *
+     * @return The index of the message without the channel
+     */
+    private static int parseChannel(String message, int start, LogEntry entry) {
+        entry.channel = null;
+        if (start < message.length() && message.charAt(start) == '[') {
+            int close = message.indexOf("] ", start + 1);
+            if (close > start + 1 && message.indexOf(' ', start + 1) > close) {
+                entry.channel = message.substring(start + 1, close);
+                return close + 2;
+            }
+        }
+        return start;
+    }
+
+    private static void setMessage(LogEntry entry, String message) {
+        int messageStart = parseChannel(message, 0, entry);
+        entry.message = messageStart == 0 ? message : message.substring(messageStart);
+    }
+
+    /**
+     * Gets a collector that finds the time every distinct message at or above a
+     * level was first seen, e.g. to find the warnings that started after a
+     * deploy.
+     *
+     * <p>
+     * Runs of digits in the messages are replaced by {@code #}, so that messages
+     * that only differ in numbers are treated as the same message.
+     * </p>
+     *
+     * @param minLevel The minimum level
+     * @return A collector that maps messages to the wall-clock time they were
+     *         first seen, in milliseconds since the epoch
+     */
+    public static Collector<LogEntry, ?, SortedMap<String, Long>> firstSeen(Level minLevel) {
+        int min = minLevel.intValue();
+        return Collector.of(HashMap<String, Long>::new, (map, entry) -> {
+            if (entry.getLevel().intValue() >= min) {
+                map.merge(normalize(entry), entry.getWallTime(), Math::min);
+            }
+        }, (a, b) -> {
+            b.forEach((k, v) -> a.merge(k, v, Math::min));
+            return a;
+        }, TreeMap<String, Long>::new);
+    }
+
+    private static String normalize(LogEntry entry) {
+        String message = entry.getMessage();
+        StringBuilder builder = new StringBuilder(message.length() + 16);
+        if (entry.getChannel() != null) {
+            builder.append('[').append(entry.getChannel()).append("] ");
+        }
+        boolean digits = false;
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (!digits) {
+                    builder.append('#');
+                    digits = true;
+                }
+            } else {
+                builder.append(c);
+                digits = false;
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * The result container of {@link LogAnalyzer#timeBelow(Pattern, double)}.
+     */
+    private static final class TimeBelow {
+        double total = 0;
+        double lastTime = Double.NaN;
+        boolean below = false;
+    }
+
+    /**
+     * Gets a collector that adds up how long a value logged in messages was below
+     * a threshold, e.g. the time spent under 7 V with
+     * {@code timeBelow(Pattern.compile("Battery: ([0-9.]+)"), 7)}.
+     *
+     * <p>
+     * The value is taken from the first group of the first match of the pattern
+     * in every message. Within a file, the time between a value below the
+     * threshold and the next value is counted, using the FPGA timestamps if they
+     * are in the log.
+     * </p>
+     *
+     * @param pattern   The pattern whose first group is the value
+     * @param threshold The threshold
+     * @return A collector for the total time below the threshold, in seconds
+     */
+    public static Collector<LogEntry, ?, Double> timeBelow(Pattern pattern, double threshold) {
+        return Collector.of(TimeBelow::new, (state, entry) -> {
+            Matcher matcher = pattern.matcher(entry.getMessage());
+            if (!matcher.find()) {
+                return;
+            }
+            double value;
+            try {
+                value = Double.parseDouble(matcher.group(1));
+            } catch (NumberFormatException e) {
+                return;
+            }
+            double time = entry.getSeconds();
+            if (state.below && time > state.lastTime) {
+                state.total += time - state.lastTime;
+            }
+            state.lastTime = time;
+            state.below = value < threshold;
+        }, (a, b) -> {
+            // Different files; the time between them is not counted
+            a.total += b.total;
+            a.lastTime = b.lastTime;
+            a.below = b.below;
+            return a;
+        }, state -> state.total);
+    }
+
+    /**
+     * Prints the number of records at or above a level in every log in a
+     * directory, and when every distinct message at that level was first seen.
+     *
+     * <p>
+     * Usage: {@code LogAnalyzer [--level level] <dir>}
+     * </p>
+     *
+     * @param args The command line arguments
+     */
+    public static void main(String[] args) {
+        Level level = Level.WARNING;
+        File dir = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--level")) {
+                    level = Level.parse(args[++i]);
+                } else if (dir == null) {
+                    dir = new File(args[i]);
+                } else {
+                    throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+                }
+            }
+            if (dir == null) {
+                throw new IllegalArgumentException("No directory given");
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Usage: LogAnalyzer [--level level] <dir>");
+            System.exit(1);
+        }
+
+        int min = level.intValue();
+        LogAnalyzer analyzer = new LogAnalyzer();
+        try {
+            List<File> files = findLogs(dir);
+            Map<String, Long> counts = analyzer.analyze(files,
+                    Collectors.filtering(e -> e.getLevel().intValue() >= min,
+                            Collectors.groupingBy(e -> e.getFile().getPath(), TreeMap::new, Collectors.counting())));
+            SortedMap<String, Long> firstSeen = analyzer.analyze(files, firstSeen(level));
+
+            System.out.println("Records at or above " + level.getName() + " per file:");
+            counts.forEach((file, count) -> System.out.println(count + "\t" + file));
+            System.out.println();
+            System.out.println("First seen:");
+            List<Map.Entry<String, Long>> entries = new ArrayList<>(firstSeen.entrySet());
+            entries.sort(Map.Entry.comparingByValue());
+            for (Map.Entry<String, Long> entry : entries) {
+                System.out.println(Instant.ofEpochMilli(entry.getValue()) + "\t" + entry.getKey());
+            }
+            for (File file : analyzer.getFailedFiles()) {
+                System.err.println("Failed to read " + file);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to read logs: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.arctos6135.robotlib.logging;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * An index of the log files in a log directory, used to enforce a retention
+ * policy without scanning the directory.
+ *
+ * <p>
+ * The catalog keeps the name, size and time range of every log file, oldest
+ * first, and saves them in a small manifest file ({@value #FILE_NAME}) in the
+ * log directory. It is kept up to date by the log handlers as they open and
+ * close files. The directory is only scanned once, the first time a catalog is
+ * created for it.
+ * </p>
+ * <p>
+ * All work, including loading and saving the manifest and deleting files, is
+ * done on a low-priority background thread. The public methods only queue the
+ * work and return immediately.
+ * </p>
+ * <p>
+ * Files that are still open are never deleted. Since {@link RobotLogger} never
+ * closes its log, the files of the previous run are only marked as closed when
+ * the catalog is loaded again.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+public class LogCatalog {
+
+    /**
+     * The name of the manifest file.
+     */
+    public static final String FILE_NAME = "logs.catalog";
+
+    // Max time to wait for the manifest to be saved when closing
+    private static final long CLOSE_TIMEOUT = 10000;
+
+    private static final class Entry {
+        String name;
+        long size;
+        long start;
+        // Negative while the file is open
+        long end = -1;
+
+        Entry(String name, long size, long start) {
+            this.name = name;
+            this.size = size;
+            this.start = start;
+        }
+
+        boolean isOpen() {
+            return end < 0;
+        }
+    }
+
+    private final File logDir;
+    private final File manifest;
+    private final ExecutorService background;
+
+    // Only accessed on the background thread
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    private final Map<String, Entry> byName = new HashMap<>();
+    private final List<Entry> open = new ArrayList<>();
+    private long totalBytes = 0;
+    private boolean saveQueued = false;
+
+    // Copies of the state for other threads
+    private volatile long publishedTotalBytes = 0;
+    private volatile int publishedFileCount = 0;
+
+    /**
+     * Creates a catalog for a log directory, and starts loading it in the
+     * background.
+     *
+     * @param logDir The log directory
+     */
+    public LogCatalog(File logDir) {
+        this.logDir = logDir;
+        this.manifest = new File(logDir, FILE_NAME);
+        background = Executors.newSingleThreadExecutor(LogThreads.factory("RobotLogger-Catalog"));
+        background.execute(this::load);
+    }
+
+    /**
+     * Records that a log file was opened.
+     *
+     * @param file The log file
+     */
+    public void fileOpened(File file) {
+        long now = System.currentTimeMillis();
+        String name = file.getName();
+        background.execute(() -> {
+            Entry entry = byName.get(name);
+            if (entry == null) {
+                entry = new Entry(name, file.length(), now);
+                add(entry);
+            } else if (!entry.isOpen()) {
+                entry.end = -1;
+                open.add(entry);
+            }
+            queueSave();
+        });
+    }
+
+    /**
+     * Records that a log file was closed.
+     *
+     * @param file The log file
+     */
+    public void fileClosed(File file) {
+        long now = System.currentTimeMillis();
+        String name = file.getName();
+        background.execute(() -> {
+            Entry entry = byName.get(name);
+            if (entry == null) {
+                entry = new Entry(name, 0, now);
+                add(entry);
+            }
+            close(entry, file.length(), now);
+            queueSave();
+        });
+    }
+
+    /**
+     * Records that a closed log file was replaced by another one, e.g. a
+     * compressed copy. The new file keeps the old one's place in the catalog.
+     *
+     * @param oldFile The original file
+     * @param newFile The file that replaced it
+     */
+    public void fileReplaced(File oldFile, File newFile) {
+        long now = System.currentTimeMillis();
+        String oldName = oldFile.getName();
+        String newName = newFile.getName();
+        background.execute(() -> {
+            Entry entry = byName.remove(oldName);
+            if (entry == null) {
+                entry = new Entry(newName, 0, now);
+                add(entry);
+            } else {
+                entry.name = newName;
+                byName.put(newName, entry);
+            }
+            close(entry, newFile.length(), entry.isOpen() ? now : entry.end);
+            queueSave();
+        });
+    }
+
+    /**
+     * Deletes the oldest closed log files until the total size of all files is
+     * at most {@code maxTotalBytes}, and no closed file is older than
+     * {@code maxAgeHours}.
+     *
+     * <p>
+     * This is done in the background. Only the files that are deleted are
+     * touched, so the cost does not depend on how many files are kept.
+     * </p>
+     *
+     * @param maxTotalBytes The max total size of the log files, in bytes
+     * @param maxAgeHours   The max age of a log file, in hours, since it was last
+     *                      written to
+     * @return A future that gives the number of files deleted
+     */
+    public Future<Integer> enforce(long maxTotalBytes, double maxAgeHours) {
+        return background.submit(() -> {
+            long now = System.currentTimeMillis();
+            long cutoff = now - (long) (maxAgeHours * 3600000);
+            // Open files keep growing, so refresh their sizes first
+            for (Entry entry : open) {
+                setSize(entry, new File(logDir, entry.name).length());
+            }
+
+            int deleted = 0;
+            while (!entries.isEmpty()) {
+                Entry oldest = entries.peekFirst();
+                if (oldest.isOpen() || (totalBytes <= maxTotalBytes && oldest.end >= cutoff)) {
+                    break;
+                }
+                File file = new File(logDir, oldest.name);
+                if (file.delete()) {
+                    deleted++;
+                } else if (file.exists()) {
+                    // Leave it in the catalog so that it is tried again
+                    break;
+                }
+                entries.removeFirst();
+                byName.remove(oldest.name);
+                totalBytes -= oldest.size;
+            }
+            if (deleted > 0) {
+                queueSave();
+            }
+            publish();
+            return deleted;
+        });
+    }
+
+    /**
+     * Gets the total size of the log files in the catalog, as of the last update.
+     *
+     * @return The total size, in bytes
+     */
+    public long getTotalBytes() {
+        return publishedTotalBytes;
+    }
+
+    /**
+     * Gets the number of log files in the catalog, as of the last update.
+     *
+     * @return The number of files
+     */
+    public int getFileCount() {
+        return publishedFileCount;
+    }
+
+    /**
+     * Waits for all queued work, including saving the manifest, to be done.
+     *
+     * @param timeoutMillis The max time to wait, in milliseconds
+     */
+    public void flush(long timeoutMillis) {
+        try {
+            background.submit(() -> {
+            }).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // Nothing to do
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void add(Entry entry) {
+        entries.addLast(entry);
+        byName.put(entry.name, entry);
+        totalBytes += entry.size;
+        if (entry.isOpen()) {
+            open.add(entry);
+        }
+        publish();
+    }
+
+    private void close(Entry entry, long size, long end) {
+        setSize(entry, size);
+        if (entry.isOpen()) {
+            open.remove(entry);
+        }
+        entry.end = end;
+        publish();
+    }
+
+    private void setSize(Entry entry, long size) {
+        totalBytes += size - entry.size;
+        entry.size = size;
+    }
+
+    private void publish() {
+        publishedTotalBytes = totalBytes;
+        publishedFileCount = entries.size();
+    }
+
+    /**
+     * Saves the manifest once all work queued so far is done.
+     */
+    private void queueSave() {
+        if (!saveQueued) {
+            saveQueued = true;
+            background.execute(this::save);
+        }
+    }
+
+    /**
+     * Loads the manifest, or builds it by scanning the directory if it does not
+     * exist.
+     */
+    private void load() {
+        if (manifest.isFile()) {
+            try (BufferedReader reader = Files.newBufferedReader(manifest.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // size start end name
+                    String[] parts = line.split(" ", 4);
+                    if (parts.length != 4 || byName.containsKey(parts[3])) {
+                        continue;
+                    }
+                    Entry entry = new Entry(parts[3], Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+                    entry.end = Long.parseLong(parts[2]);
+                    if (entry.isOpen()) {
+                        // Left open by the previous run
+                        File file = new File(logDir, entry.name);
+                        if (!file.exists()) {
+                            continue;
+                        }
+                        entry.size = file.length();
+                        entry.end = file.lastModified();
+                    }
+                    add(entry);
+                }
+                queueSave();
+                return;
+            } catch (IOException | NumberFormatException e) {
+                // Corrupted manifest; rebuild it from scratch
+                entries.clear();
+                byName.clear();
+                open.clear();
+                totalBytes = 0;
+            }
+        }
+
+        File[] files = logDir.listFiles(file -> file.isFile() && RobotLogger.isLogFileName(file.getName()));
+        if (files != null) {
+            List<Entry> scanned = new ArrayList<>(files.length);
+            for (File file : files) {
+                long modified = file.lastModified();
+                Entry entry = new Entry(file.getName(), file.length(), modified);
+                entry.end = modified;
+                scanned.add(entry);
+            }
+            scanned.sort(Comparator.comparingLong(entry -> entry.end));
+            for (Entry entry : scanned) {
+                add(entry);
+            }
+        }
+        queueSave();
+    }
+
+    /**
+     * Writes the manifest to a temporary file, then replaces the old one with it.
+     */
+    private void save() {
+        saveQueued = false;
+        // The directory may have been deleted while the program is exiting
+        if (!logDir.isDirectory()) {
+            return;
+        }
+        File temp = new File(logDir, FILE_NAME + ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+                for (Entry entry : entries) {
+                    writer.append(Long.toString(entry.size)).append(' ').append(Long.toString(entry.start))
+                            .append(' ').append(Long.toString(entry.end)).append(' ').append(entry.name)
+                            .append('\n');
+                }
+            }
+            Files.move(temp.toPath(), manifest.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Saves the manifest and stops the background thread, waiting for the
+     * manifest to be saved.
+     */
+    public void close() {
+        background.execute(this::save);
+        background.shutdown();
+        try {
+            background.awaitTermination(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.arctos6135.robotlib.logging;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * A named channel of a {@link RobotLogger}, with its own logging level.
+ *
+ * <p>
+ * Channels are obtained with {@link RobotLogger#channel(String)}, and form a
+ * hierarchy through their names: {@code "drive.left"} is a child of
+ * {@code "drive"}, which is a child of the logger itself. A channel without a
+ * level of its own uses the level of its parent, so e.g.
+ * </p>
+ *
+ * <pre>
+ * logger.setLevel(Level.INFO);
+ * logger.channel("shooter").setLevel(Level.FINEST);
+ * </pre>
+ * <p>
+ * turns on everything for {@code "shooter"} and its children without affecting
+ * any other channel. Levels can be changed at any time.
+ * </p>
+ * <p>
+ * Every channel keeps the lowest level that it currently needs to do anything
+ * with in a single field, which is updated whenever a level, a subscription, the
+ * log handler or the flight recorder changes. Checking whether a message is
+ * needed is therefore a single {@code int} comparison, so disabled calls can be
+ * left in hot code at no real cost. Records from a channel have the name of the
+ * channel as their logger name, which {@link RobotLoggerFormatter} writes before
+ * the message.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+public final class LogChannel {
+
+    private final RobotLogger logger;
+    private final String name;
+    private final LogChannel parent;
+    private final List<LogChannel> children = new CopyOnWriteArrayList<>();
+
+    // The level set on this channel, or null to use the parent's
+    // Guarded by the root channel
+    private Level level;
+    // The integer value of the effective level
+    private volatile int threshold = Level.INFO.intValue();
+    // The lowest level that anything needs messages from this channel at
+    private volatile int gate = Level.INFO.intValue();
+
+    /**
+     * Creates a new channel.
+     *
+     * @param logger The logger
+     * @param name   The full name of the channel, or {@code null} for the root
+     * @param parent The parent channel, or {@code null} for the root
+     */
+    LogChannel(RobotLogger logger, String name, LogChannel parent) {
+        this.logger = logger;
+        this.name = name;
+        this.parent = parent;
+        if (parent != null) {
+            synchronized (root()) {
+                parent.children.add(this);
+                update(logger.getCaptureLevel());
+            }
+        }
+    }
+
+    private LogChannel root() {
+        return parent != null ? parent.root() : this;
+    }
+
+    /**
+     * Gets the full name of this channel.
+     *
+     * @return The name, or {@code null} for the logger itself
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the parent of this channel.
+     *
+     * @return The parent, or {@code null} for the logger itself
+     */
+    public LogChannel getParent() {
+        return parent;
+    }
+
+    /**
+     * Sets the level of this channel, which is also used by all children that do
+     * not have a level of their own.
+     *
+     * <p>
+     * Note that this only affects the logs that are written to file; the errors and
+     * warnings reported to the Driver Station, log handler calls and subscribers
+     * are not affected.
+     * </p>
+     *
+     * @param level The level, or {@code null} to use the level of the parent
+     */
+    public void setLevel(Level level) {
+        synchronized (root()) {
+            this.level = level;
+            update(logger.getCaptureLevel());
+        }
+    }
+
+    /**
+     * Gets the level set on this channel.
+     *
+     * @return The level, or {@code null} if the level of the parent is used
+     */
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Gets the level this channel actually uses, which is either its own or
+     * inherited from its parent.
+     *
+     * @return The effective level
+     */
+    public Level getEffectiveLevel() {
+        for (LogChannel channel = this; channel != null; channel = channel.parent) {
+            Level l = channel.level;
+            if (l != null) {
+                return l;
+            }
+        }
+        return Level.INFO;
+    }
+
+    /**
+     * Recomputes the cached levels of this channel and all its children.
+     *
+     * <p>
+     * Must be called while holding the lock on the root channel.
+     * </p>
+     *
+     * @param captureLevel The lowest level that the logger needs regardless of
+     *                     the level of a channel
+     */
+    void update(int captureLevel) {
+        if (level != null) {
+            threshold = level.intValue();
+        } else {
+            threshold = parent != null ? parent.threshold : Level.INFO.intValue();
+        }
+        gate = Math.min(threshold, captureLevel);
+        for (LogChannel child : children) {
+            child.update(captureLevel);
+        }
+    }
+
+    /**
+     * Returns whether messages with the specified level are written to the log
+     * file by this channel.
+     *
+     * @param level The level
+     * @return Whether the level is enabled
+     */
+    public boolean isLoggable(Level level) {
+        return level.intValue() >= threshold;
+    }
+
+    /**
+     * Returns whether a message with the specified level is needed by anything.
+     *
+     * @param level The level
+     * @return Whether the message is needed
+     */
+    boolean isNeeded(Level level) {
+        return level.intValue() >= gate;
+    }
+
+    /**
+     * Logs a message.
+     *
+     * @param level   The level of the message
+     * @param message The message
+     */
+    public void log(Level level, String message) {
+        if (isNeeded(level)) {
+            logger.log(this, level, message, 0, 0, 0, 0);
+        }
+    }
+
+    /**
+     * Logs a message template with one argument.
+     *
+     * <p>
+     * The template is formatted as described in
+     * {@link RobotLogger#logInfo(String, double)}.
+     * </p>
+     *
+     * @param level    The level of the message
+     * @param template The message template
+     * @param arg      The argument
+     */
+    public void log(Level level, String template, double arg) {
+        if (isNeeded(level)) {
+            logger.log(this, level, template, 1, arg, 0, 0);
+        }
+    }
+
+    /**
+     * Logs a message template with two arguments.
+     *
+     * <p>
+     * The template is formatted as described in
+     * {@link RobotLogger#logInfo(String, double, double)}.
+     * </p>
+     *
+     * @param level    The level of the message
+     * @param template The message template
+     * @param arg0     The first argument
+     * @param arg1     The second argument
+     */
+    public void log(Level level, String template, double arg0, double arg1) {
+        if (isNeeded(level)) {
+            logger.log(this, level, template, 2, arg0, arg1, 0);
+        }
+    }
+
+    /**
+     * Logs a message template with three arguments.
+     *
+     * <p>
+     * The template is formatted as described in
+     * {@link RobotLogger#logInfo(String, double, double, double)}.
+     * </p>
+     *
+     * @param level    The level of the message
+     * @param template The message template
+     * @param arg0     The first argument
+     * @param arg1     The second argument
+     * @param arg2     The third argument
+     */
+    public void log(Level level, String template, double arg0, double arg1, double arg2) {
+        if (isNeeded(level)) {
+            logger.log(this, level, template, 3, arg0, arg1, arg2);
+        }
+    }
+
+    /**
+     * Logs a lazily computed message. The supplier is only called if the message
+     * is needed.
+     *
+     * @param level    The level of the message
+     * @param supplier The supplier of the message
+     */
+    public void log(Level level, Supplier<String> supplier) {
+        if (isNeeded(level)) {
+            logger.log(this, level, supplier.get(), 0, 0, 0, 0);
+        }
+    }
+
+    /**
+     * Starts a structured event, which is logged to this channel once its fields
+     * have been added.
+     *
+     * @param level The level of the event
+     * @param name  The name of the event
+     * @return The event
+     * @see LogEvent
+     */
+    public LogEvent event(Level level, String name) {
+        return isNeeded(level) ? logger.startEvent(this, level, name) : LogEvent.DISABLED;
+    }
+
+    /**
+     * Logs an error and reports it to the Driver Station, like
+     * {@link RobotLogger#logError(String)}.
+     *
+     * @param error The error message
+     */
+    public void logError(String error) {
+        logger.logError(this, error);
+    }
+
+    /**
+     * Logs a warning and reports it to the Driver Station, like
+     * {@link RobotLogger#logWarning(String)}.
+     *
+     * @param warning The warning message
+     */
+    public void logWarning(String warning) {
+        logger.logWarning(this, warning);
+    }
+
+    /**
+     * Logs regular info with the {@code INFO} level.
+     *
+     * @param info The info message
+     */
+    public void logInfo(String info) {
+        log(Level.INFO, info);
+    }
+
+    /**
+     * Logs fine info with the {@code FINE} level.
+     *
+     * @param infoFine The info message
+     */
+    public void logInfoFine(String infoFine) {
+        log(Level.FINE, infoFine);
+    }
+
+    /**
+     * Logs finer info with the {@code FINER} level.
+     *
+     * @param infoFiner The info message
+     */
+    public void logInfoFiner(String infoFiner) {
+        log(Level.FINER, infoFiner);
+    }
+
+    /**
+     * Logs the finest info with the {@code FINEST} level.
+     *
+     * @param infoFinest The info message
+     */
+    public void logInfoFinest(String infoFinest) {
+        log(Level.FINEST, infoFinest);
+    }
+
+    @Override
+    public String toString() {
+        return name != null ? name : "<root>";
+    }
+}
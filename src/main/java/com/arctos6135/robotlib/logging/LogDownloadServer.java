@@ -0,0 +1,491 @@
+package com.arctos6135.robotlib.logging;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A small HTTP server for downloading logs from the robot, e.g. between
+ * matches, without copying whole files over SFTP.
+ *
+ * <p>
+ * {@code GET /} lists the files in the log directory. {@code GET /<name>}
+ * downloads a file, and supports single byte ranges (e.g.
+ * {@code Range: bytes=1000-}), so a download that was cut off can be resumed,
+ * or the end of a log that is still being written can be fetched. If the
+ * client accepts gzip and no range is requested, files that are not already
+ * compressed are compressed on the fly. A text log can also be sliced by time
+ * with {@code GET /<name>?from=<time>&to=<time>}, optionally with
+ * {@code &level=<level>}, where times are either in milliseconds since the
+ * epoch, or in the same format as the log, e.g. {@code 2020/03/07 14:05:00}.
+ * Slices are found with {@link IndexedLogReader}, so they are fast if the log
+ * was written by an {@link IndexedFileHandler}. Other logs are scanned from the
+ * start, line by line through a fixed-size buffer, and the records found are
+ * streamed to the client as they are found, so slicing a large log takes time
+ * but never needs memory in proportion to its size.
+ * </p>
+ * <p>
+ * Requests are handled one at a time on a single low-priority daemon thread,
+ * and the bytes sent are limited to a fixed rate across all requests, so that a
+ * download never disturbs the robot loop. Only files directly in the log
+ * directory can be downloaded.
+ * </p>
+ *
+ * <pre>
+ * LogDownloadServer server = new LogDownloadServer(logDir, 5806);
+ * </pre>
+ * <p>
+ * after which the logs can be downloaded with e.g.
+ * {@code curl --compressed -O http://roborio-6135-frc.local:5806/<name>}.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+public class LogDownloadServer implements AutoCloseable {
+
+    /**
+     * The default max rate, in bytes per second.
+     */
+    public static final long DEFAULT_RATE = 1024 * 1024;
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
+    // The rate limit is applied to chunks of this size
+    private static final int CHUNK_SIZE = 4096;
+
+    private final File logDir;
+    private final long bytesPerSecond;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    // Only used by the request thread
+    private long nextSend = System.nanoTime();
+
+    /**
+     * Creates and starts a new server that listens on all interfaces, with the
+     * default rate limit.
+     *
+     * @param logDir The log directory
+     * @param port   The port, or 0 to pick any free port
+     * @throws IOException If the server cannot be started
+     */
+    public LogDownloadServer(File logDir, int port) throws IOException {
+        this(logDir, new InetSocketAddress(port), DEFAULT_RATE);
+    }
+
+    /**
+     * Creates and starts a new server.
+     *
+     * @param logDir         The log directory
+     * @param address        The address to listen on
+     * @param bytesPerSecond The max rate data is sent at, across all requests
+     * @throws IOException If the server cannot be started
+     */
+    public LogDownloadServer(File logDir, InetSocketAddress address, long bytesPerSecond) throws IOException {
+        if (bytesPerSecond <= 0) {
+            throw new IllegalArgumentException("The rate must be positive");
+        }
+        this.logDir = logDir;
+        this.bytesPerSecond = bytesPerSecond;
+        server = HttpServer.create(address, 0);
+        executor = Executors.newSingleThreadExecutor(LogThreads.factory("RobotLogger-Download"));
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+
+        // The thread that accepts connections inherits its priority and daemon status from the thread
+        // that starts the server, so start it from a low-priority daemon thread
+        Thread starter = LogThreads.newThread("RobotLogger-Download", server::start);
+        starter.start();
+        try {
+            starter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the port the server is listening on.
+     *
+     * @return The port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Handles a request.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+            String name = exchange.getRequestURI().getPath().substring(1);
+            if (name.isEmpty()) {
+                sendListing(exchange);
+                return;
+            }
+            File file = new File(logDir, name);
+            if (name.indexOf('/') >= 0 || name.indexOf('\\') >= 0 || name.startsWith(".") || !file.isFile()) {
+                sendError(exchange, 404, "Not found");
+                return;
+            }
+            String query = exchange.getRequestURI().getRawQuery();
+            if (query != null && !query.isEmpty()) {
+                sendSlice(exchange, file, query);
+            } else {
+                sendFile(exchange, file);
+            }
+        } catch (InterruptedIOException e) {
+            // The server is closing
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void sendError(HttpExchange exchange, int code, String message) throws IOException {
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(code, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    /**
+     * Sends an HTML list of the files in the log directory.
+     */
+    private void sendListing(HttpExchange exchange) throws IOException {
+        File[] files = logDir.listFiles(f -> f.isFile() && !f.getName().startsWith("."));
+        if (files == null) {
+            files = new File[0];
+        }
+        Arrays.sort(files);
+        StringBuilder builder = new StringBuilder("<!DOCTYPE html>\n<html><head><title>Logs</title></head><body>\n"
+                + "<table>\n<tr><th>Name</th><th>Size</th><th>Modified</th></tr>\n");
+        for (File f : files) {
+            // URLEncoder encodes for forms, where spaces are +, but in a path + is itself
+            String href = URLEncoder.encode(f.getName(), "UTF-8").replace("+", "%20");
+            String name = escapeHtml(f.getName());
+            builder.append("<tr><td><a href=\"").append(href).append("\">").append(name).append("</a></td><td>")
+                    .append(f.length()).append("</td><td>").append(new Date(f.lastModified()))
+                    .append("</td></tr>\n");
+        }
+        builder.append("</table>\n</body></html>\n");
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+        sendBody(exchange, builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String escapeHtml(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private void sendBody(HttpExchange exchange, byte[] body) throws IOException {
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        boolean gzip = acceptsGzip(exchange);
+        if (gzip) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, gzip ? 0 : body.length);
+        try (OutputStream out = openBody(exchange, gzip)) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Sends a file, or a range of it.
+     */
+    private void sendFile(HttpExchange exchange, File file) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", contentType(file.getName()));
+        headers.set("Accept-Ranges", "bytes");
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // The size is fixed here, so a log that is still being written is sent as it is now
+            long size = channel.size();
+            long start = 0;
+            long end = size;
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            long[] parsed = range != null ? parseRange(range, size) : null;
+            int code = 200;
+            if (parsed != null) {
+                if (parsed.length == 0) {
+                    headers.set("Content-Range", "bytes */" + size);
+                    sendError(exchange, 416, "Range not satisfiable");
+                    return;
+                }
+                start = parsed[0];
+                end = parsed[1];
+                code = 206;
+                headers.set("Content-Range", "bytes " + start + "-" + (end - 1) + "/" + size);
+            }
+
+            boolean gzip = parsed == null && acceptsGzip(exchange) && !isCompressed(file.getName());
+            if (gzip) {
+                headers.set("Content-Encoding", "gzip");
+            }
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                if (!gzip) {
+                    headers.set("Content-Length", Long.toString(end - start));
+                }
+                exchange.sendResponseHeaders(code, -1);
+                return;
+            }
+            // A length of 0 means the length is not known and the response is chunked
+            exchange.sendResponseHeaders(code, gzip ? 0 : end - start);
+
+            try (OutputStream out = openBody(exchange, gzip)) {
+                ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE * 4);
+                long position = start;
+                while (position < end) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                    int n = channel.read(buffer, position);
+                    if (n < 0) {
+                        break;
+                    }
+                    out.write(buffer.array(), 0, n);
+                    position += n;
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses a byte range.
+     *
+     * @return The start and end (exclusive) of the range, an empty array if the
+     *         range cannot be satisfied, or null if the range is not a single
+     *         byte range, in which case the whole file is sent
+     */
+    static long[] parseRange(String range, long size) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return null;
+        }
+        int dash = range.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        String first = range.substring(6, dash).trim();
+        String last = range.substring(dash + 1).trim();
+        long start;
+        long end;
+        try {
+            if (first.isEmpty()) {
+                // The last n bytes
+                long n = Long.parseLong(last);
+                if (n <= 0) {
+                    return new long[0];
+                }
+                start = Math.max(0, size - n);
+                end = size;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? size : Math.min(size, Long.parseLong(last) + 1);
+                if (end <= start) {
+                    return start >= size ? new long[0] : null;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (start >= size) {
+            return new long[0];
+        }
+        return new long[] { start, end };
+    }
+
+    /**
+     * Sends the records of a text log in a time range.
+     */
+    private void sendSlice(HttpExchange exchange, File file, String query) throws IOException {
+        long from = Long.MIN_VALUE / 2;
+        long to = Long.MAX_VALUE / 2;
+        Level level = Level.ALL;
+        try {
+            for (String param : query.split("&")) {
+                int eq = param.indexOf('=');
+                String key = eq >= 0 ? param.substring(0, eq) : param;
+                String value = eq >= 0 ? URLDecoder.decode(param.substring(eq + 1), "UTF-8") : "";
+                switch (key) {
+                case "from":
+                    from = parseTime(value);
+                    break;
+                case "to":
+                    to = parseTime(value);
+                    break;
+                case "level":
+                    level = Level.parse(value);
+                    break;
+                default:
+                    sendError(exchange, 400, "Unknown parameter: " + key);
+                    return;
+                }
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            sendError(exchange, 400, "Invalid parameter: " + e.getMessage());
+            return;
+        }
+        if (!file.getName().endsWith(".log")) {
+            sendError(exchange, 400, "Only text logs can be sliced");
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        boolean gzip = acceptsGzip(exchange);
+        if (gzip) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, 0);
+        try (IndexedLogReader reader = new IndexedLogReader(file);
+                Writer writer = new OutputStreamWriter(openBody(exchange, gzip), StandardCharsets.UTF_8)) {
+            IOException[] error = new IOException[1];
+            reader.read(from, to, level, record -> {
+                if (error[0] != null) {
+                    return;
+                }
+                try {
+                    writer.write(record);
+                    writer.write('\n');
+                } catch (IOException e) {
+                    error[0] = e;
+                }
+            });
+            if (error[0] != null) {
+                throw error[0];
+            }
+        }
+    }
+
+    /**
+     * Parses a time in milliseconds since the epoch, or in the format of the
+     * log.
+     */
+    private long parseTime(String value) {
+        if (!value.isEmpty() && value.chars().allMatch(Character::isDigit)) {
+            return Long.parseLong(value);
+        }
+        return LocalDateTime.parse(value, TIME_FORMAT).atZone(zone).toInstant().toEpochMilli();
+    }
+
+    private static boolean acceptsGzip(HttpExchange exchange) {
+        String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        return accept != null && accept.contains("gzip");
+    }
+
+    private static boolean isCompressed(String name) {
+        return name.endsWith(RotatingFileHandler.COMPRESSED_EXTENSION);
+    }
+
+    private static String contentType(String name) {
+        if (isCompressed(name)) {
+            return "application/gzip";
+        }
+        if (name.endsWith(".log") || name.endsWith(JsonLinesHandler.EXTENSION) || name.endsWith(".csv")) {
+            return "text/plain; charset=utf-8";
+        }
+        return "application/octet-stream";
+    }
+
+    /**
+     * Opens the rate-limited body of a response.
+     */
+    private OutputStream openBody(HttpExchange exchange, boolean gzip) throws IOException {
+        OutputStream out = new ThrottledOutputStream(exchange.getResponseBody());
+        return gzip ? new GZIPOutputStream(out, CHUNK_SIZE) : out;
+    }
+
+    /**
+     * Waits until the specified number of bytes can be sent without going over
+     * the rate limit.
+     */
+    private void throttle(int bytes) throws InterruptedIOException {
+        long now = System.nanoTime();
+        if (nextSend - now < 0) {
+            nextSend = now;
+        }
+        long wait = nextSend - now;
+        nextSend += bytes * 1_000_000_000L / bytesPerSecond;
+        if (wait > 0) {
+            LockSupport.parkNanos(wait);
+            if (Thread.interrupted()) {
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    /**
+     * An output stream that writes in chunks at the rate limit.
+     */
+    private final class ThrottledOutputStream extends FilterOutputStream {
+
+        ThrottledOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            throttle(1);
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(len, CHUNK_SIZE);
+                throttle(n);
+                out.write(b, off, n);
+                off += n;
+                len -= n;
+            }
+        }
+    }
+
+    /**
+     * Stops the server, aborting any request in progress.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
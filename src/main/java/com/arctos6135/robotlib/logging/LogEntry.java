@@ -0,0 +1,151 @@
+package com.arctos6135.robotlib.logging;
+
+import java.io.File;
+import java.util.logging.Level;
+
+/**
+ * A record read from a log file by {@link LogAnalyzer}.
+ *
+ * <p>
+ * To avoid creating an object per record, the same entry is reused for every
+ * record of a file, so an entry must not be kept after the call it was passed
+ * to returns. To keep one, keep a {@link #copy()} of it instead. Which fields
+ * are known depends on the format of the log and the columns of its formatter.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+public final class LogEntry {
+
+    private final File file;
+    long wallTime;
+    long fpgaTime = -1;
+    double matchTime = Double.NaN;
+    RobotMode robotMode;
+    Level level;
+    String channel;
+    String message;
+
+    /**
+     * Creates a new entry for the records of a file.
+     *
+     * @param file The file
+     */
+    LogEntry(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Copies this entry into a new one that is not reused, so it can be kept.
+     *
+     * @return The copy
+     */
+    public LogEntry copy() {
+        LogEntry copy = new LogEntry(file);
+        copy.wallTime = wallTime;
+        copy.fpgaTime = fpgaTime;
+        copy.matchTime = matchTime;
+        copy.robotMode = robotMode;
+        copy.level = level;
+        copy.channel = channel;
+        copy.message = message;
+        return copy;
+    }
+
+    /**
+     * Clears the optional fields before the next record is read.
+     */
+    void reset() {
+        fpgaTime = -1;
+        matchTime = Double.NaN;
+        robotMode = null;
+        channel = null;
+    }
+
+    /**
+     * Gets the file the record was read from.
+     *
+     * @return The file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Gets the wall-clock time of the record. Times read from text logs only
+     * have a precision of one second.
+     *
+     * @return The time, in milliseconds since the epoch
+     */
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    /**
+     * Gets the FPGA timestamp of the record.
+     *
+     * @return The timestamp, in microseconds, or -1 if it is not known
+     */
+    public long getFpgaTime() {
+        return fpgaTime;
+    }
+
+    /**
+     * Gets the match time of the record.
+     *
+     * @return The match time, in seconds, or {@link Double#NaN} if it is not
+     *         known
+     */
+    public double getMatchTime() {
+        return matchTime;
+    }
+
+    /**
+     * Gets the mode the robot was in.
+     *
+     * @return The mode, or {@code null} if it is not known
+     */
+    public RobotMode getRobotMode() {
+        return robotMode;
+    }
+
+    /**
+     * Gets the level of the record.
+     *
+     * @return The level
+     */
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Gets the channel the record was logged to.
+     *
+     * @return The name of the channel, or {@code null} if it was logged to the
+     *         logger itself or the channel is not known
+     */
+    public String getChannel() {
+        return channel;
+    }
+
+    /**
+     * Gets the message of the record, without the channel. Messages with more
+     * than one line are joined with {@code '\n'}.
+     *
+     * @return The message
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Gets the time of the record with the best precision available, for
+     * measuring durations within a file.
+     *
+     * @return The FPGA timestamp if it is known, or else the wall-clock time, in
+     *         seconds
+     */
+    public double getSeconds() {
+        return fpgaTime >= 0 ? fpgaTime / 1e6 : wallTime / 1e3;
+    }
+}
@@ -0,0 +1,217 @@
+package com.arctos6135.robotlib.logging;
+
+import java.util.logging.Level;
+
+/**
+ * A structured event being logged, obtained with
+ * {@link RobotLogger#event(Level, String)} or
+ * {@link LogChannel#event(Level, String)}.
+ *
+ * <p>
+ * Fields are added with the {@code put} methods, and the event is logged with
+ * {@link #log()}, e.g.
+ * </p>
+ *
+ * <pre>
+ * logger.event(Level.WARNING, "trip").put("channel", 4).put("amps", 61.2).log();
+ * </pre>
+ * <p>
+ * which logs the message {@code {"event":"trip","channel":4,"amps":61.2}}. The
+ * fields are written as JSON straight into a buffer that is reused for every
+ * event on the same thread, without reflection, maps or any allocation per
+ * field; the only allocation is the message itself, when the event is logged.
+ * In the text log, the message appears as it is. The record is marked as an
+ * event (see {@link RobotLogRecord#isEvent()}), so {@link JsonLinesHandler}
+ * writes the name and fields of the event into its JSON object for the
+ * record.
+ * </p>
+ * <p>
+ * If the event is not needed at its level, a shared event that ignores all
+ * fields is returned, so a disabled event costs no more than a disabled
+ * message. An event must be logged before another one is started on the same
+ * thread, and must not be used after it has been logged.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+public final class LogEvent {
+
+    /**
+     * The start of the message of every event.
+     */
+    public static final String PREFIX = "{\"event\":";
+
+    /**
+     * The event returned when the event is not needed.
+     */
+    static final LogEvent DISABLED = new LogEvent(null);
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final RobotLogger logger;
+    private final StringBuilder builder = new StringBuilder(128);
+    private LogChannel channel;
+    private Level level;
+
+    /**
+     * Creates a new event.
+     *
+     * @param logger The logger, or {@code null} for the disabled event
+     */
+    LogEvent(RobotLogger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Starts a new event, discarding anything in the buffer.
+     *
+     * @param channel The channel the event is logged to
+     * @param level   The level of the event
+     * @param name    The name of the event
+     * @return This event
+     */
+    LogEvent start(LogChannel channel, Level level, String name) {
+        this.channel = channel;
+        this.level = level;
+        builder.setLength(0);
+        builder.append(PREFIX);
+        appendString(builder, name);
+        return this;
+    }
+
+    private void appendKey(String key) {
+        builder.append(',');
+        appendString(builder, key);
+        builder.append(':');
+    }
+
+    /**
+     * Adds an integer field.
+     *
+     * @param key   The name of the field
+     * @param value The value
+     * @return This event
+     */
+    public LogEvent put(String key, long value) {
+        if (logger != null) {
+            appendKey(key);
+            builder.append(value);
+        }
+        return this;
+    }
+
+    /**
+     * Adds a number field. Since JSON has no representation for them, NaN and
+     * infinite values are written as {@code null}.
+     *
+     * @param key   The name of the field
+     * @param value The value
+     * @return This event
+     */
+    public LogEvent put(String key, double value) {
+        if (logger != null) {
+            appendKey(key);
+            if (Double.isFinite(value)) {
+                builder.append(value);
+            } else {
+                builder.append("null");
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Adds a boolean field.
+     *
+     * @param key   The name of the field
+     * @param value The value
+     * @return This event
+     */
+    public LogEvent put(String key, boolean value) {
+        if (logger != null) {
+            appendKey(key);
+            builder.append(value);
+        }
+        return this;
+    }
+
+    /**
+     * Adds a string field.
+     *
+     * @param key   The name of the field
+     * @param value The value, or {@code null}
+     * @return This event
+     */
+    public LogEvent put(String key, CharSequence value) {
+        if (logger != null) {
+            appendKey(key);
+            if (value != null) {
+                appendString(builder, value);
+            } else {
+                builder.append("null");
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Logs this event.
+     */
+    public void log() {
+        if (logger != null) {
+            builder.append('}');
+            logger.logEvent(channel, level, builder.toString());
+            builder.setLength(0);
+        }
+    }
+
+    /**
+     * Appends a string as a quoted and escaped JSON string.
+     *
+     * @param builder The buffer to append to
+     * @param s       The string
+     */
+    static void appendString(StringBuilder builder, CharSequence s) {
+        builder.append('"');
+        appendEscaped(builder, s, 0, s.length());
+        builder.append('"');
+    }
+
+    /**
+     * Appends part of a string with the characters that are not allowed in a
+     * JSON string escaped.
+     *
+     * @param builder The buffer to append to
+     * @param s       The string
+     * @param start   The index of the first character
+     * @param end     The index after the last character
+     */
+    static void appendEscaped(StringBuilder builder, CharSequence s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+            case '"':
+                builder.append("\\\"");
+                break;
+            case '\\':
+                builder.append("\\\\");
+                break;
+            case '\n':
+                builder.append("\\n");
+                break;
+            case '\r':
+                builder.append("\\r");
+                break;
+            case '\t':
+                builder.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    builder.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                } else {
+                    builder.append(c);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.arctos6135.robotlib.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Handler;
+
+/**
+ * Creates the handler that {@link RobotLogger} writes its log file with.
+ *
+ * <p>
+ * By default, {@link RobotLogger} writes plain text log files. A different
+ * factory can be set with
+ * {@link RobotLogger#setFileHandlerFactory(LogHandlerFactory)} to use a
+ * different kind of log file instead.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+@FunctionalInterface
+public interface LogHandlerFactory {
+    /**
+     * Creates a handler for a new log file.
+     *
+     * <p>
+     * The handler should create its file (or files) in the log directory, with
+     * names that start with {@code baseName} followed by an extension. Files named
+     * this way are recognized as belonging to the current log by
+     * {@link RobotLogger#cleanLogs(double)}.
+     * </p>
+     *
+     * @param logDir   The log directory
+     * @param baseName The name of the log file, without an extension
+     * @return The handler
+     * @throws IOException If the log file could not be created
+     */
+    public Handler createHandler(File logDir, String baseName) throws IOException;
+}
@@ -0,0 +1,105 @@
+package com.arctos6135.robotlib.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket that limits how often a single log call site can log.
+ *
+ * <p>
+ * Rate limiters are created with
+ * {@link RobotLogger#createRateLimiter(String, double, int)}, and are meant to
+ * be kept in a field next to the code that logs, e.g.
+ * </p>
+ *
+ * <pre>
+ * private final LogRateLimiter encoderWarnings = logger.createRateLimiter("encoder", 1, 5);
+ *
+ * ...
+ *
+ * if (encoderWarnings.tryAcquire()) {
+ *     logger.logWarning("Encoder unplugged");
+ * }
+ * </pre>
+ * <p>
+ * Up to {@code burst} messages can be logged at once, after which messages are
+ * let through at {@code maxPerSecond}. The number of suppressed messages is
+ * logged the next time a message is let through, and when the logger is
+ * flushed.
+ * </p>
+ * <p>
+ * {@link #tryAcquire()} is lock-free and does not allocate.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+public final class LogRateLimiter {
+
+    private final RobotLogger logger;
+    private final String name;
+    private final long intervalNanos;
+    private final long burstNanos;
+
+    // The time at which the bucket will be full again (GCRA)
+    private final AtomicLong fullAt;
+    private final AtomicLong suppressed = new AtomicLong();
+
+    /**
+     * Creates a new rate limiter.
+     *
+     * @param logger       The logger to report suppressed counts to
+     * @param name         The name used in reports
+     * @param maxPerSecond The max sustained number of messages per second
+     * @param burst        The max number of messages that can be logged at once
+     */
+    LogRateLimiter(RobotLogger logger, String name, double maxPerSecond, int burst) {
+        if (maxPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("The rate and burst must be positive");
+        }
+        this.logger = logger;
+        this.name = name;
+        this.intervalNanos = (long) (1e9 / maxPerSecond);
+        this.burstNanos = intervalNanos * (burst - 1);
+        fullAt = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Takes a token from the bucket if one is available.
+     *
+     * @return Whether the message should be logged
+     */
+    public boolean tryAcquire() {
+        long now = System.nanoTime();
+        while (true) {
+            long current = fullAt.get();
+            if (now - (current - burstNanos) < 0) {
+                suppressed.incrementAndGet();
+                return false;
+            }
+            long next = (now - current > 0 ? now : current) + intervalNanos;
+            if (fullAt.compareAndSet(current, next)) {
+                break;
+            }
+        }
+        report();
+        return true;
+    }
+
+    /**
+     * Gets the name of this rate limiter.
+     *
+     * @return The name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Logs the number of messages suppressed since the last report, if any.
+     */
+    void report() {
+        long count = suppressed.getAndSet(0);
+        if (count > 0) {
+            logger.logSuppressed(name, count);
+        }
+    }
+}
@@ -0,0 +1,394 @@
+package com.arctos6135.robotlib.logging;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * A {@link Handler} that streams records to clients connected over TCP, e.g. a
+ * dashboard, or {@code nc roborio-6135-frc.local 5805}.
+ *
+ * <p>
+ * Records are formatted once (by default with a {@link RobotLoggerFormatter})
+ * and copied into a bounded buffer for every client. A single low-priority
+ * thread accepts connections and writes the buffers out with non-blocking I/O,
+ * so a slow or stalled client only ever fills up its own buffer. When a
+ * client's buffer is full, records for it are dropped, and a line with the
+ * number of dropped records is sent once there is room again.
+ * </p>
+ * <p>
+ * Every client has its own level, which starts out as the default level of the
+ * server. A client can change it by sending the name of a level followed by a
+ * newline, e.g. {@code FINE}.
+ * </p>
+ * <p>
+ * This handler is meant to be used as a subscriber with
+ * {@link RobotLogger#subscribe(Handler, Level, int, OverflowPolicy)}, so that
+ * records are formatted on a background thread:
+ * </p>
+ *
+ * <pre>
+ * logger.subscribe(new LogStreamServer(5805), Level.ALL, 1024, OverflowPolicy.DROP_AND_COUNT);
+ * </pre>
+ *
+ * @author Tyler Tian
+ */
+public class LogStreamServer extends Handler implements TransientRecordHandler {
+
+    private static final int DEFAULT_CLIENT_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_COMMAND_LENGTH = 64;
+    // How long to stop accepting connections after accepting one failed, in milliseconds
+    private static final long ACCEPT_RETRY_INTERVAL = 1000;
+
+    /**
+     * A connected client and the data waiting to be sent to it.
+     */
+    private static final class Client {
+        final SocketChannel channel;
+        volatile int level;
+
+        // A ring buffer of bytes; head and tail are the total numbers of bytes
+        // written to and read from it
+        // Guarded by this
+        final byte[] ring;
+        long head = 0;
+        long tail = 0;
+        long dropped = 0;
+
+        // Only used by the server thread
+        final ByteBuffer view;
+        final ByteBuffer command = ByteBuffer.allocate(MAX_COMMAND_LENGTH);
+
+        Client(SocketChannel channel, int level, int bufferSize) {
+            this.channel = channel;
+            this.level = level;
+            ring = new byte[bufferSize];
+            view = ByteBuffer.wrap(ring);
+        }
+
+        /**
+         * Copies bytes into the buffer, or counts them as dropped if they don't
+         * fit. A notice of earlier drops is added first if possible.
+         */
+        synchronized void enqueue(byte[] data) {
+            if (dropped > 0) {
+                byte[] notice = ("RobotLogger: " + dropped + " records were dropped for this client\n")
+                        .getBytes(StandardCharsets.UTF_8);
+                if (ring.length - (head - tail) >= notice.length + data.length) {
+                    copyIn(notice);
+                    dropped = 0;
+                }
+            }
+            if (dropped == 0 && ring.length - (head - tail) >= data.length) {
+                copyIn(data);
+            } else {
+                dropped++;
+            }
+        }
+
+        private void copyIn(byte[] data) {
+            int pos = (int) (head % ring.length);
+            int first = Math.min(data.length, ring.length - pos);
+            System.arraycopy(data, 0, ring, pos, first);
+            System.arraycopy(data, first, ring, 0, data.length - first);
+            head += data.length;
+        }
+
+        /**
+         * Writes as much as possible without blocking.
+         *
+         * @return Whether everything was written
+         */
+        boolean write() throws IOException {
+            while (true) {
+                long start;
+                long end;
+                synchronized (this) {
+                    start = tail;
+                    end = head;
+                }
+                if (start == end) {
+                    return true;
+                }
+                // Only the contiguous part up to the end of the ring
+                int pos = (int) (start % ring.length);
+                int length = (int) Math.min(end - start, ring.length - pos);
+                view.limit(pos + length).position(pos);
+                int written = channel.write(view);
+                synchronized (this) {
+                    tail += written;
+                }
+                if (written < length) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final SelectionKey serverKey;
+    private final int clientBufferSize;
+    private final int defaultLevel;
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    private final Thread thread;
+    private volatile boolean closed = false;
+    // Whether any client got data since the last wakeup
+    private volatile boolean pending = false;
+
+    /**
+     * Creates a new server that listens on the specified port on all interfaces,
+     * and sends records of all levels to new clients.
+     *
+     * @param port The port, or 0 to use any free port
+     * @throws IOException If the server could not be started
+     */
+    public LogStreamServer(int port) throws IOException {
+        this(new InetSocketAddress(port), DEFAULT_CLIENT_BUFFER_SIZE, Level.ALL);
+    }
+
+    /**
+     * Creates a new server.
+     *
+     * @param address          The address to listen on
+     * @param clientBufferSize The size of the buffer of each client, in bytes
+     * @param defaultLevel     The level new clients start with
+     * @throws IOException If the server could not be started
+     */
+    public LogStreamServer(InetSocketAddress address, int clientBufferSize, Level defaultLevel) throws IOException {
+        if (clientBufferSize < 1) {
+            throw new IllegalArgumentException("The client buffer size must be positive");
+        }
+        this.clientBufferSize = clientBufferSize;
+        this.defaultLevel = defaultLevel.intValue();
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        try {
+            server.bind(address);
+            server.configureBlocking(false);
+            serverKey = server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            server.close();
+            selector.close();
+            throw e;
+        }
+        setFormatter(new RobotLoggerFormatter());
+
+        thread = LogThreads.newThread("RobotLogger-StreamServer", this::run);
+        thread.start();
+    }
+
+    /**
+     * Gets the port the server is listening on.
+     *
+     * @return The port
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Gets the number of connected clients.
+     *
+     * @return The number of clients
+     */
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || clients.isEmpty() || !isLoggable(record)) {
+            return;
+        }
+        int level = record.getLevel().intValue();
+        byte[] data = null;
+        for (Client client : clients) {
+            if (level < client.level) {
+                continue;
+            }
+            if (data == null) {
+                try {
+                    Formatter formatter = getFormatter();
+                    String message = formatter != null ? formatter.format(record) : record.getMessage() + "\n";
+                    data = message.getBytes(StandardCharsets.UTF_8);
+                } catch (RuntimeException e) {
+                    reportError(null, e, ErrorManager.FORMAT_FAILURE);
+                    return;
+                }
+            }
+            client.enqueue(data);
+            pending = true;
+        }
+    }
+
+    /**
+     * Wakes up the server thread to send the records published since the last
+     * flush. This does not wait for them to be sent.
+     */
+    @Override
+    public void flush() {
+        if (pending) {
+            pending = false;
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Disconnects all clients and stops the server.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        // When to start accepting connections again after a failure, or 0 if accepting
+        long acceptPausedUntil = 0;
+        try {
+            while (!closed) {
+                if (acceptPausedUntil != 0) {
+                    long wait = acceptPausedUntil - System.currentTimeMillis();
+                    if (wait > 0) {
+                        selector.select(wait);
+                    } else {
+                        acceptPausedUntil = 0;
+                        serverKey.interestOps(SelectionKey.OP_ACCEPT);
+                        selector.selectNow();
+                    }
+                } else {
+                    selector.select();
+                }
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        try {
+                            accept();
+                        } catch (IOException e) {
+                            // Keep serving the connected clients, and stop accepting for a while so that e.g.
+                            // running out of file descriptors does not make this loop spin
+                            reportError("Failed to accept a connection", e, ErrorManager.OPEN_FAILURE);
+                            key.interestOps(0);
+                            acceptPausedUntil = System.currentTimeMillis() + ACCEPT_RETRY_INTERVAL;
+                        }
+                        continue;
+                    }
+                    Client client = (Client) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            read(client);
+                        }
+                    } catch (IOException e) {
+                        disconnect(key, client);
+                    }
+                }
+                selector.selectedKeys().clear();
+                // Write to every client with data, not just the ones that were selected
+                for (SelectionKey key : selector.keys()) {
+                    if (key.isValid() && key.attachment() != null) {
+                        Client client = (Client) key.attachment();
+                        try {
+                            // Only wait for the client to be writable if it is behind
+                            int ops = client.write() ? SelectionKey.OP_READ
+                                    : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+                            key.interestOps(ops);
+                        } catch (IOException e) {
+                            disconnect(key, client);
+                        }
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            reportError(null, e, ErrorManager.GENERIC_FAILURE);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException e) {
+                    // Ignore; everything is being closed anyway
+                }
+            }
+            clients.clear();
+            try {
+                selector.close();
+            } catch (IOException e) {
+                reportError(null, e, ErrorManager.CLOSE_FAILURE);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        Client client = new Client(channel, defaultLevel, clientBufferSize);
+        try {
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, client);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        clients.add(client);
+    }
+
+    /**
+     * Reads level commands sent by a client.
+     */
+    private void read(Client client) throws IOException {
+        ByteBuffer command = client.command;
+        if (client.channel.read(command) < 0) {
+            throw new IOException("Client disconnected");
+        }
+        for (int i = 0; i < command.position(); i++) {
+            if (command.get(i) == '\n') {
+                String name = new String(command.array(), 0, i, StandardCharsets.UTF_8).trim();
+                try {
+                    client.level = Level.parse(name).intValue();
+                } catch (IllegalArgumentException e) {
+                    // Ignore unknown levels
+                }
+                // Remove the command
+                command.flip().position(i + 1);
+                command.compact();
+                i = -1;
+            }
+        }
+        if (!command.hasRemaining()) {
+            // Too long to be a level
+            command.clear();
+        }
+    }
+
+    private void disconnect(SelectionKey key, Client client) {
+        key.cancel();
+        clients.remove(client);
+        try {
+            client.channel.close();
+        } catch (IOException e) {
+            // Ignore; the client is gone anyway
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.arctos6135.robotlib.logging;
+
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * A handler subscribed to a {@link RobotLogger} with
+ * {@link RobotLogger#subscribe(Handler, Level, int, OverflowPolicy)}.
+ *
+ * <p>
+ * Every subscription has its own bounded queue and its own low-priority writer
+ * thread, which publishes the records to the handler and flushes it whenever
+ * the queue has been drained. When records are dropped because the queue is
+ * full, a warning with the number of dropped records is published to the
+ * handler.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+public final class LogSubscription {
+
+    private final RobotLogger logger;
+    private final Handler handler;
+    private final Level level;
+    private final AsyncLogBuffer buffer;
+    private final AsyncLogWriter writer;
+    private final Handler enqueuer;
+
+    /**
+     * Creates and starts a new subscription.
+     *
+     * @param logger   The logger
+     * @param handler  The handler records are published to
+     * @param level    The minimum level of records
+     * @param capacity The capacity of the queue
+     * @param policy   What to do when the queue is full
+     */
+    LogSubscription(RobotLogger logger, Handler handler, Level level, int capacity, OverflowPolicy policy) {
+        this.logger = logger;
+        this.handler = handler;
+        this.level = level;
+        buffer = new AsyncLogBuffer(capacity, policy);
+        Handler[] handlers = { handler };
+        writer = new AsyncLogWriter(buffer, () -> handlers, "RobotLogger-Subscriber");
+        enqueuer = new Enqueuer();
+        enqueuer.setLevel(level);
+        writer.start();
+    }
+
+    /**
+     * Copies records from the dispatcher into the queue of this subscription.
+     */
+    private final class Enqueuer extends Handler implements TransientRecordHandler {
+        @Override
+        public void publish(LogRecord record) {
+            if (isLoggable(record)) {
+                buffer.offer((RobotLogRecord) record);
+            }
+        }
+
+        @Override
+        public void flush() {
+            // Don't wait for the handler; only make sure it sees the new records soon
+            writer.wake();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Gets the handler of the dispatcher that feeds this subscription.
+     *
+     * @return The handler
+     */
+    Handler getEnqueuer() {
+        return enqueuer;
+    }
+
+    /**
+     * Gets the subscribed handler.
+     *
+     * @return The handler
+     */
+    public Handler getHandler() {
+        return handler;
+    }
+
+    /**
+     * Gets the minimum level of records published to the handler.
+     *
+     * @return The level
+     */
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Gets the number of records dropped because the queue was full.
+     *
+     * @return The number of dropped records
+     */
+    public long getDroppedCount() {
+        return writer.getDroppedCount();
+    }
+
+    /**
+     * Waits until all records queued for this subscription have been published
+     * and the handler has been flushed.
+     *
+     * @param timeoutMillis The max time to wait, in milliseconds
+     */
+    void flush(long timeoutMillis) {
+        writer.flush(timeoutMillis);
+    }
+
+    /**
+     * Unsubscribes the handler. Records that are already queued are still
+     * published. The handler is not closed.
+     */
+    public void cancel() {
+        logger.unsubscribe(this);
+        writer.stop();
+    }
+}
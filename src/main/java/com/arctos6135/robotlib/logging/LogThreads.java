@@ -0,0 +1,43 @@
+package com.arctos6135.robotlib.logging;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the background threads used by the logging package.
+ *
+ * <p>
+ * All of them are low-priority daemon threads, so that they never compete with
+ * the robot loop and never keep the VM alive.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+final class LogThreads {
+
+    private LogThreads() {
+    }
+
+    /**
+     * Creates a new low-priority daemon thread.
+     *
+     * @param name     The name of the thread
+     * @param runnable The code to run
+     * @return The thread, not yet started
+     */
+    static Thread newThread(String name, Runnable runnable) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    }
+
+    /**
+     * Gets a thread factory that creates low-priority daemon threads.
+     *
+     * @param name The name of the threads
+     * @return The thread factory
+     */
+    static ThreadFactory factory(String name) {
+        return runnable -> newThread(name, runnable);
+    }
+}
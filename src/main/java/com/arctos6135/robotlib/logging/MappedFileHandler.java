@@ -0,0 +1,238 @@
+package com.arctos6135.robotlib.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * A {@link Handler} that writes text logs through a memory-mapped file.
+ *
+ * <p>
+ * A large region of the file is preallocated and mapped into memory. Records
+ * are encoded directly into the mapped region, so writing a record costs a
+ * bounded memory copy instead of a system call. Since the data is in the OS
+ * page cache as soon as it is written, it survives the robot program crashing.
+ * To also survive a sudden power loss, the mapped region is periodically forced
+ * to disk by a background thread, so only the records written since the last
+ * force can be lost, even if {@link #flush()} is never called.
+ * </p>
+ * <p>
+ * Because the file is preallocated, a log that was not closed properly (e.g.
+ * because of a power loss) will end with a number of zero bytes after the last
+ * record. {@link #recover(File)} can be used to remove them.
+ * </p>
+ * <p>
+ * To have {@link RobotLogger} write its log through a memory-mapped file, use:
+ * </p>
+ *
+ * <pre>
+ * logger.setFileHandlerFactory(MappedFileHandler.factory());
+ * </pre>
+ *
+ * @author Tyler Tian
+ */
+public class MappedFileHandler extends Handler implements CatalogedHandler, TransientRecordHandler {
+
+    private static final int DEFAULT_REGION_SIZE = 4 * 1024 * 1024;
+    private static final long DEFAULT_FORCE_INTERVAL = 500;
+
+    private final File file;
+    private final FileChannel channel;
+    private final int regionSize;
+    private final ScheduledExecutorService forcer;
+
+    // The currently mapped region and the position in the file where it starts
+    private volatile MappedByteBuffer region;
+    private long regionStart = 0;
+    // Whether anything was written since the last force
+    private volatile boolean dirty = false;
+
+    private final RecordEncoder encoder = new RecordEncoder();
+
+    private volatile boolean closed = false;
+    private LogCatalog catalog;
+
+    /**
+     * Creates a new handler with a region size of 4 MiB that is forced to disk
+     * every 500 milliseconds.
+     *
+     * <p>
+     * If the file already exists, it will be overwritten.
+     * </p>
+     *
+     * @param file The file to write to
+     * @throws IOException If the file could not be opened or mapped
+     */
+    public MappedFileHandler(File file) throws IOException {
+        this(file, DEFAULT_REGION_SIZE, DEFAULT_FORCE_INTERVAL);
+    }
+
+    /**
+     * Creates a new handler.
+     *
+     * <p>
+     * If the file already exists, it will be overwritten.
+     * </p>
+     *
+     * @param file          The file to write to
+     * @param regionSize    The size of each mapped region, in bytes; the file
+     *                      grows by this amount at a time (at least 16)
+     * @param forceInterval How often the mapped region is forced to disk, in
+     *                      milliseconds
+     * @throws IOException If the file could not be opened or mapped
+     */
+    public MappedFileHandler(File file, int regionSize, long forceInterval) throws IOException {
+        // Must be big enough to hold at least one encoded character
+        if (regionSize < 16) {
+            throw new IllegalArgumentException("Region size must be at least 16 bytes");
+        }
+        this.regionSize = regionSize;
+        this.file = file;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        region = channel.map(FileChannel.MapMode.READ_WRITE, 0, regionSize);
+
+        setFormatter(new RobotLoggerFormatter());
+
+        forcer = Executors.newSingleThreadScheduledExecutor(LogThreads.factory("RobotLogger-MappedFileForcer"));
+        forcer.scheduleWithFixedDelay(this::force, forceInterval, forceInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets a factory that creates memory-mapped text log handlers, for use with
+     * {@link RobotLogger#setFileHandlerFactory(LogHandlerFactory)}.
+     *
+     * @return A factory for memory-mapped log handlers
+     */
+    public static LogHandlerFactory factory() {
+        return (logDir, baseName) -> new MappedFileHandler(new File(logDir, baseName + ".log"));
+    }
+
+    @Override
+    public synchronized void setCatalog(LogCatalog catalog) {
+        this.catalog = catalog;
+        catalog.fileOpened(file);
+    }
+
+    @Override
+    public synchronized void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) {
+            return;
+        }
+        if (!encoder.format(this, record)) {
+            return;
+        }
+
+        // Encode straight into the mapped region
+        try {
+            encoder.encodeTo(region, full -> {
+                // Out of space in the current region
+                nextRegion();
+                return region;
+            });
+            dirty = true;
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    /**
+     * Forces the current region to disk and maps the next one.
+     */
+    private void nextRegion() throws IOException {
+        MappedByteBuffer old = region;
+        long start = regionStart + old.position();
+        old.force();
+        region = channel.map(FileChannel.MapMode.READ_WRITE, start, regionSize);
+        regionStart = start;
+    }
+
+    /**
+     * Forces the current region to disk if anything was written since the last
+     * time.
+     */
+    private void force() {
+        if (dirty && !closed) {
+            dirty = false;
+            region.force();
+        }
+    }
+
+    /**
+     * Forces everything written so far to disk.
+     *
+     * <p>
+     * This is done periodically in the background anyway, so it is usually not
+     * necessary to call this method.
+     * </p>
+     */
+    @Override
+    public void flush() {
+        force();
+    }
+
+    /**
+     * Forces everything to disk, truncates the file to the length of the data
+     * written and closes it.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        forcer.shutdown();
+        try {
+            region.force();
+            channel.truncate(regionStart + region.position());
+            channel.close();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.CLOSE_FAILURE);
+        }
+        if (catalog != null) {
+            catalog.fileClosed(file);
+        }
+    }
+
+    /**
+     * Removes the zero bytes left at the end of a log that was written by a
+     * {@code MappedFileHandler} but not closed properly.
+     *
+     * @param file The log file
+     * @throws IOException If an I/O error occurs
+     */
+    public static void recover(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long length = raf.length();
+            // Find the last non-zero byte by scanning backwards in blocks
+            byte[] block = new byte[8192];
+            long end = length;
+            while (end > 0) {
+                int size = (int) Math.min(block.length, end);
+                raf.seek(end - size);
+                raf.readFully(block, 0, size);
+                int i = size - 1;
+                while (i >= 0 && block[i] == 0) {
+                    i--;
+                }
+                if (i >= 0) {
+                    end = end - size + i + 1;
+                    break;
+                }
+                end -= size;
+            }
+            if (end != length) {
+                raf.setLength(end);
+            }
+        }
+    }
+}
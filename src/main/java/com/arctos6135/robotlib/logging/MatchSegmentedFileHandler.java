@@ -0,0 +1,355 @@
+package com.arctos6135.robotlib.logging;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * A {@link Handler} that writes text logs into a new file every time the robot
+ * changes modes, so that every phase of a match (disabled, autonomous, teleop
+ * and test) ends up in its own segment.
+ *
+ * <p>
+ * The first segment is named {@code <base name>.log}, and the following ones
+ * {@code <base name>.1.log}, {@code <base name>.2.log} and so on. Every phase
+ * starts with an {@code INFO} line with its mode and, if the robot is connected
+ * to the FMS or a match type is set in the Driver Station, the event and match.
+ * The mode of a record is the one recorded with it by {@link RobotLogger}, or
+ * the current mode if there is none.
+ * </p>
+ * <p>
+ * When a phase ends, a line is appended to an index for the day it started in,
+ * named {@code matches-yyyy-MM-dd.csv} and kept in the same directory. Each line
+ * has the start and end time of the phase, the event, match type, match and
+ * replay number, the mode, and the segment and byte range the phase was written
+ * to. Segments are not compressed, so the byte ranges stay valid, and the index
+ * is not removed by the retention policy of the logger.
+ * </p>
+ * <p>
+ * Like {@link RotatingFileHandler}, the next segment is opened ahead of time on
+ * a low-priority background thread, where closed segments are also closed and
+ * the index is written. Switching segments is only a swap of the output. If the
+ * next segment is not open yet when the mode changes, the new phase is written
+ * to the current segment instead, which the byte range in the index accounts
+ * for. To have {@link RobotLogger} use it:
+ * </p>
+ *
+ * <pre>
+ * logger.setFileHandlerFactory(MatchSegmentedFileHandler.factory());
+ * </pre>
+ *
+ * @author Tyler Tian
+ */
+public class MatchSegmentedFileHandler extends Handler implements CatalogedHandler, TransientRecordHandler {
+
+    /**
+     * The prefix of the names of match index files.
+     */
+    public static final String INDEX_PREFIX = "matches-";
+    /**
+     * The extension of match index files.
+     */
+    public static final String INDEX_EXTENSION = ".csv";
+    /**
+     * The first line of every match index file.
+     */
+    public static final String INDEX_HEADER = "start,end,event,match_type,match,replay,mode,segment,start_byte,"
+            + "end_byte";
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File logDir;
+    private final String baseName;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    // Opens the next segment, and closes old ones and writes the index
+    private final SegmentOpener<OutputStream> segments;
+
+    private final RecordEncoder encoder = new RecordEncoder();
+    private final ByteBuffer bytes = ByteBuffer.allocate(1024);
+
+    private OutputStream out;
+    private File file;
+    // The number of bytes written to the current segment
+    private long position = 0;
+
+    // The current phase; the mode is null before the first record
+    private RobotMode mode = null;
+    // The event, match type, match and replay number, or null if unknown
+    private String match;
+    private long phaseStart;
+    private long phaseStartTime;
+
+    private boolean closed = false;
+    // Set once; read by the background thread
+    private volatile LogCatalog catalog;
+
+    /**
+     * Creates a new handler.
+     *
+     * @param logDir   The directory to write to
+     * @param baseName The base name of the segments
+     * @throws IOException If the first segment cannot be opened
+     */
+    public MatchSegmentedFileHandler(File logDir, String baseName) throws IOException {
+        this.logDir = logDir;
+        this.baseName = baseName;
+
+        file = segmentFile(0);
+        out = open(file);
+
+        segments = new SegmentOpener<>(this, "RobotLogger-Segmenter", this::segmentFile,
+                MatchSegmentedFileHandler::open);
+        setFormatter(new RobotLoggerFormatter());
+    }
+
+    /**
+     * Gets a factory that creates a {@link MatchSegmentedFileHandler} for a
+     * {@link RobotLogger}.
+     *
+     * @return The factory
+     * @see RobotLogger#setFileHandlerFactory(LogHandlerFactory)
+     */
+    public static LogHandlerFactory factory() {
+        return MatchSegmentedFileHandler::new;
+    }
+
+    /**
+     * Gets the match index file for a day.
+     *
+     * @param logDir The log directory
+     * @param millis Any time in the day, in milliseconds since the epoch
+     * @return The index file
+     */
+    public static File indexFileOf(File logDir, long millis) {
+        return new File(logDir, INDEX_PREFIX + DAY_FORMAT.format(Instant.ofEpochMilli(millis)
+                .atZone(ZoneId.systemDefault())) + INDEX_EXTENSION);
+    }
+
+    private File segmentFile(int n) {
+        return new File(logDir, n == 0 ? baseName + ".log" : baseName + "." + n + ".log");
+    }
+
+    private static OutputStream open(File file) throws IOException {
+        return new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+    }
+
+    @Override
+    public synchronized void setCatalog(LogCatalog catalog) {
+        this.catalog = catalog;
+        catalog.fileOpened(file);
+    }
+
+    /**
+     * Gets the segment that is currently being written to.
+     *
+     * @return The current segment
+     */
+    public synchronized File getCurrentFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) {
+            return;
+        }
+        RobotMode recordMode = record instanceof RobotLogRecord ? ((RobotLogRecord) record).getRobotMode() : null;
+        if (recordMode == null) {
+            recordMode = RobotMode.get();
+        }
+        if (recordMode != mode) {
+            startPhase(recordMode, record.getMillis());
+        }
+
+        if (encoder.format(this, record)) {
+            write();
+        }
+    }
+
+    /**
+     * Ends the current phase and starts a new one, in a new segment if it has
+     * been opened.
+     *
+     * @param newMode The mode of the new phase
+     * @param millis  The time the new phase starts, in milliseconds since the
+     *                epoch
+     */
+    private void startPhase(RobotMode newMode, long millis) {
+        if (mode != null) {
+            endPhase(millis);
+        }
+        if (position > 0) {
+            swap();
+        }
+
+        DriverStation ds = DriverStation.getInstance();
+        DriverStation.MatchType type = ds.getMatchType();
+        if (ds.isFMSAttached() || type != DriverStation.MatchType.None) {
+            match = clean(ds.getEventName()) + "," + type.name() + "," + ds.getMatchNumber() + ","
+                    + ds.getReplayNumber();
+        } else {
+            match = null;
+        }
+        mode = newMode;
+        phaseStart = position;
+        phaseStartTime = millis;
+
+        // Tag the start of the phase in the segment itself
+        RobotLogRecord tag = new RobotLogRecord(Level.INFO, null, 0);
+        tag.setWallTime(millis);
+        tag.setRobotMode(newMode);
+        String message = "Segment " + segments.getSegment() + ": " + newMode.name();
+        if (match != null) {
+            message += " (" + match.replace(',', ' ') + ")";
+        }
+        tag.setTemplate(message, 0, 0, 0, 0);
+        if (encoder.format(this, tag)) {
+            write();
+        }
+    }
+
+    /**
+     * Hands the index line of the current phase to the background thread.
+     *
+     * @param millis The time the phase ended, in milliseconds since the epoch
+     */
+    private void endPhase(long millis) {
+        String line = TIME_FORMAT.format(Instant.ofEpochMilli(phaseStartTime).atZone(zone)) + ","
+                + TIME_FORMAT.format(Instant.ofEpochMilli(millis).atZone(zone)) + ","
+                + (match != null ? match : ",,,") + "," + mode.name() + "," + file.getName() + "," + phaseStart + ","
+                + position;
+        File indexFile = indexFileOf(logDir, phaseStartTime);
+        segments.execute(() -> appendIndex(indexFile, line));
+    }
+
+    /**
+     * Switches to the next segment if it has been opened, and hands the current
+     * one to the background thread to be closed.
+     */
+    private void swap() {
+        OutputStream nextOut = segments.next();
+        if (nextOut == null) {
+            // Keep writing to the current segment for now
+            return;
+        }
+
+        OutputStream oldOut = out;
+        File oldFile = file;
+        out = nextOut;
+        file = segments.getFile();
+        position = 0;
+
+        segments.execute(() -> closeSegment(oldOut, oldFile));
+        if (catalog != null) {
+            catalog.fileOpened(file);
+        }
+    }
+
+    private void closeSegment(OutputStream oldOut, File oldFile) {
+        try {
+            oldOut.close();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.CLOSE_FAILURE);
+            return;
+        }
+        LogCatalog catalog = this.catalog;
+        if (catalog != null) {
+            catalog.fileClosed(oldFile);
+        }
+    }
+
+    private void appendIndex(File indexFile, String line) {
+        boolean exists = indexFile.exists();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(indexFile, true), StandardCharsets.UTF_8)) {
+            if (!exists) {
+                writer.write(INDEX_HEADER);
+                writer.write('\n');
+            }
+            writer.write(line);
+            writer.write('\n');
+        } catch (IOException e) {
+            reportError("Failed to write to " + indexFile.getName(), e, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    /**
+     * Removes the characters that would break a line of the index.
+     */
+    private static String clean(String s) {
+        return s == null ? "" : s.replace(',', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /**
+     * Encodes the formatted record and writes it to the current segment.
+     */
+    private void write() {
+        try {
+            encoder.encodeTo(bytes, this::writeBytes);
+            writeBytes(bytes);
+        } catch (IOException e) {
+            bytes.clear();
+            reportError(null, e, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    private ByteBuffer writeBytes(ByteBuffer bytes) throws IOException {
+        out.write(bytes.array(), 0, bytes.position());
+        position += bytes.position();
+        bytes.clear();
+        return bytes;
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (closed) {
+            return;
+        }
+        try {
+            out.flush();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.FLUSH_FAILURE);
+        }
+    }
+
+    /**
+     * Ends the current phase, closes the current segment, and waits for the
+     * index to be written.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (mode != null) {
+            endPhase(System.currentTimeMillis());
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.CLOSE_FAILURE);
+        }
+        if (catalog != null) {
+            catalog.fileClosed(file);
+        }
+        segments.close();
+    }
+}
@@ -0,0 +1,98 @@
+package com.arctos6135.robotlib.logging;
+
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import edu.wpi.first.networktables.NetworkTableEntry;
+
+/**
+ * A {@link Handler} that publishes the most recent records to NetworkTables,
+ * e.g. for a dashboard.
+ *
+ * <p>
+ * The last {@code historySize} formatted records are kept, and published as a
+ * string array, oldest first, to a {@link NetworkTableEntry} every time the
+ * handler is flushed. By default, records are formatted with a
+ * {@link RobotLoggerFormatter}.
+ * </p>
+ * <p>
+ * This handler is meant to be used as a subscriber with
+ * {@link RobotLogger#subscribe(Handler, Level, int, OverflowPolicy)}, which
+ * flushes it every time it has published all the records waiting for it. This
+ * way, NetworkTables is only updated once per batch of records.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+public class NetworkTablesHandler extends Handler implements TransientRecordHandler {
+
+    private final NetworkTableEntry entry;
+    private final String[] history;
+    // Index of the oldest record
+    private int start = 0;
+    private int size = 0;
+    private boolean dirty = false;
+
+    /**
+     * Creates a new handler.
+     *
+     * @param entry       The entry to publish to
+     * @param historySize The number of records to publish
+     */
+    public NetworkTablesHandler(NetworkTableEntry entry, int historySize) {
+        if (historySize < 1) {
+            throw new IllegalArgumentException("The history size must be at least 1");
+        }
+        this.entry = entry;
+        this.history = new String[historySize];
+        setFormatter(new RobotLoggerFormatter());
+    }
+
+    @Override
+    public synchronized void publish(LogRecord record) {
+        if (!isLoggable(record)) {
+            return;
+        }
+        String message;
+        try {
+            Formatter formatter = getFormatter();
+            message = formatter != null ? formatter.format(record) : record.getMessage();
+        } catch (RuntimeException e) {
+            reportError(null, e, ErrorManager.FORMAT_FAILURE);
+            return;
+        }
+        // Remove the trailing newline
+        if (message.endsWith("\n")) {
+            message = message.substring(0, message.length() - 1);
+        }
+        if (size < history.length) {
+            history[(start + size) % history.length] = message;
+            size++;
+        } else {
+            history[start] = message;
+            start = (start + 1) % history.length;
+        }
+        dirty = true;
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (!dirty) {
+            return;
+        }
+        String[] lines = new String[size];
+        for (int i = 0; i < size; i++) {
+            lines[i] = history[(start + i) % history.length];
+        }
+        entry.setStringArray(lines);
+        dirty = false;
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+}
@@ -0,0 +1,41 @@
+package com.arctos6135.robotlib.logging;
+
+/**
+ * Determines what happens when a log record is submitted to a full (or almost
+ * full) asynchronous log buffer.
+ *
+ * <p>
+ * No matter which policy is used, every record that is dropped is counted, and
+ * a warning with the number of dropped records is written out once the buffer
+ * has room again.
+ * </p>
+ *
+ * @author Tyler Tian
+ * @see RobotLogger#setAsyncMode(int, OverflowPolicy)
+ */
+public enum OverflowPolicy {
+    /**
+     * Progressively drop the least important records as the buffer fills up.
+     *
+     * <p>
+     * Once the buffer is half full, {@code FINEST} records are dropped. After
+     * that, {@code FINER}, {@code FINE} and {@code CONFIG}, and finally
+     * {@code INFO} records are dropped as the buffer gets fuller. Warnings and
+     * errors are only dropped when the buffer is completely full.
+     * </p>
+     */
+    DROP_FINEST_FIRST,
+    /**
+     * Block the logging thread until there is room in the buffer.
+     *
+     * <p>
+     * This guarantees that no records are lost, at the cost of possibly stalling
+     * the robot loop if the writer cannot keep up.
+     * </p>
+     */
+    BLOCK,
+    /**
+     * Drop any record submitted while the buffer is full and count it.
+     */
+    DROP_AND_COUNT;
+}
@@ -0,0 +1,148 @@
+package com.arctos6135.robotlib.logging;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * Formats records into a reused buffer and writes them out as UTF-8 text,
+ * without allocating anything per record once the buffers are big enough.
+ *
+ * <p>
+ * This is shared by the text handlers of this package. A record is formatted
+ * with {@link #format(Handler, LogRecord)}, and its text is then either written
+ * to a {@link Writer} with {@link #writeTo(Writer)}, or encoded straight into a
+ * {@link ByteBuffer} with {@link #encodeTo(ByteBuffer, Overflow)}. Characters
+ * that cannot be encoded are replaced. An encoder is not thread-safe, and is
+ * meant to be used while holding the lock of its handler.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+final class RecordEncoder {
+
+    /**
+     * Called when the buffer being encoded into is full.
+     */
+    @FunctionalInterface
+    interface Overflow {
+        /**
+         * Makes room for more bytes, e.g. by writing out the buffer.
+         *
+         * @param full The full buffer
+         * @return The buffer to continue encoding into, which may be the same
+         *         buffer after it has been emptied
+         * @throws IOException If an I/O error occurs
+         */
+        ByteBuffer drain(ByteBuffer full) throws IOException;
+    }
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+    // The record is formatted into the builder, and copied into the char array to be written or encoded
+    private final StringBuilder builder = new StringBuilder(256);
+    private char[] chars = new char[256];
+    private CharBuffer charBuffer = CharBuffer.wrap(chars);
+
+    /**
+     * Gets the buffer the text is in, so more text can be added to it, or text
+     * can be put in it without a record.
+     *
+     * @return The buffer
+     */
+    StringBuilder text() {
+        return builder;
+    }
+
+    /**
+     * Gets the length of the text, in chars.
+     *
+     * @return The length
+     */
+    int length() {
+        return builder.length();
+    }
+
+    /**
+     * Formats a record with the formatter of a handler, replacing the text.
+     * Records are formatted without allocating with a
+     * {@link RobotLoggerFormatter}, and through {@link Formatter#format(LogRecord)}
+     * with any other formatter.
+     *
+     * @param handler The handler; formatting errors are reported to its error
+     *                manager
+     * @param record  The record
+     * @return Whether the record was formatted
+     */
+    boolean format(Handler handler, LogRecord record) {
+        builder.setLength(0);
+        try {
+            Formatter formatter = handler.getFormatter();
+            if (formatter instanceof RobotLoggerFormatter) {
+                ((RobotLoggerFormatter) formatter).formatTo(record, builder);
+            } else {
+                builder.append(formatter.format(record));
+            }
+            return true;
+        } catch (RuntimeException e) {
+            handler.getErrorManager().error(null, e, ErrorManager.FORMAT_FAILURE);
+            return false;
+        }
+    }
+
+    /**
+     * Copies the text into the reused char array.
+     */
+    private int copy() {
+        int length = builder.length();
+        if (length > chars.length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+            charBuffer = CharBuffer.wrap(chars);
+        }
+        builder.getChars(0, length, chars, 0);
+        return length;
+    }
+
+    /**
+     * Writes the text to a writer.
+     *
+     * @param writer The writer
+     * @throws IOException If an I/O error occurs
+     */
+    void writeTo(Writer writer) throws IOException {
+        writer.write(chars, 0, copy());
+    }
+
+    /**
+     * Encodes the text into a buffer. When the buffer is full, the overflow
+     * handler is called to make room, and encoding continues in the buffer it
+     * returns. The encoded bytes that fit are left in the buffer.
+     *
+     * @param bytes    The buffer to encode into
+     * @param overflow Called when the buffer is full
+     * @throws IOException If the overflow handler throws
+     */
+    void encodeTo(ByteBuffer bytes, Overflow overflow) throws IOException {
+        charBuffer.clear().limit(copy());
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(charBuffer, bytes, true);
+            if (result.isUnderflow()) {
+                result = encoder.flush(bytes);
+            }
+            if (result.isUnderflow()) {
+                return;
+            }
+            bytes = overflow.drain(bytes);
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package com.arctos6135.robotlib.logging;
+
+import java.time.Instant;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * A {@link LogRecord} produced by {@link RobotLogger}.
+ *
+ * <p>
+ * In addition to the regular log record information, this class also stores
+ * the FPGA timestamp at the time the record was logged. The wall-clock time is
+ * also captured when the record is logged, not when it is formatted or written
+ * out.
+ * </p>
+ * <p>
+ * Optionally, the match time and the mode of the robot at the time the record
+ * was logged can also be stored.
+ * </p>
+ * <p>
+ * Handlers that are aware of this class can check if a record is an instance of
+ * it to obtain the extra information.
+ * </p>
+ * <p>
+ * The message of a record can also be a template with {@code {}} placeholders
+ * and a number of {@code double} arguments. In that case, the message is only
+ * formatted when it is needed, either as a {@code String} through
+ * {@link #getMessage()}, or into an existing buffer through
+ * {@link #appendMessage(StringBuilder)}.
+ * </p>
+ * <p>
+ * A record can also be marked as a structured event logged with
+ * {@link LogEvent}, in which case its message is a JSON object, and as already
+ * reported to the Driver Station by {@link RobotLogger}.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+public class RobotLogRecord extends LogRecord {
+
+    private static final long serialVersionUID = 6537826574627154339L;
+
+    // FPGA timestamp in microseconds
+    private long fpgaTime;
+    // Wall-clock time in milliseconds since the epoch
+    // Stored separately from the Instant in LogRecord so that reusing a record does
+    // not require allocating a new Instant every time
+    private long wallTime;
+
+    // NaN if not recorded
+    private double matchTime = Double.NaN;
+    // null if not recorded
+    private RobotMode robotMode;
+    // EVENT and REPORTED
+    private int flags;
+
+    /**
+     * The maximum number of arguments a message template can have.
+     */
+    static final int MAX_ARGS = 3;
+
+    /**
+     * Flag set on a record that is a structured event logged with
+     * {@link LogEvent}.
+     */
+    static final int EVENT = 1;
+
+    /**
+     * Flag set on a record that {@link RobotLogger} has already reported to the
+     * Driver Station.
+     */
+    static final int REPORTED = 2;
+
+    // If not null, the message is this template with the arguments; it is only formatted, and kept in the
+    // superclass, once it is needed
+    private String template;
+    private final double[] args = new double[MAX_ARGS];
+    private int argCount;
+
+    /**
+     * Creates a new log record.
+     *
+     * @param level    The level of the record
+     * @param message  The message
+     * @param fpgaTime The FPGA timestamp of the record, in microseconds
+     */
+    public RobotLogRecord(Level level, String message, long fpgaTime) {
+        super(level, message);
+        this.fpgaTime = fpgaTime;
+        this.wallTime = super.getMillis();
+    }
+
+    /**
+     * Gets the FPGA timestamp at the time this record was logged.
+     *
+     * @return The FPGA timestamp, in microseconds
+     */
+    public long getFpgaTime() {
+        return fpgaTime;
+    }
+
+    /**
+     * Sets the FPGA timestamp of this record.
+     *
+     * @param fpgaTime The FPGA timestamp, in microseconds
+     */
+    public void setFpgaTime(long fpgaTime) {
+        this.fpgaTime = fpgaTime;
+    }
+
+    /**
+     * Gets the match time at the time this record was logged.
+     *
+     * @return The match time in seconds, or {@code NaN} if it was not recorded
+     */
+    public double getMatchTime() {
+        return matchTime;
+    }
+
+    /**
+     * Sets the match time of this record.
+     *
+     * @param matchTime The match time in seconds, or {@code NaN} if it is not
+     *                  known
+     */
+    public void setMatchTime(double matchTime) {
+        this.matchTime = matchTime;
+    }
+
+    /**
+     * Gets the mode the robot was in at the time this record was logged.
+     *
+     * @return The robot mode, or {@code null} if it was not recorded
+     */
+    public RobotMode getRobotMode() {
+        return robotMode;
+    }
+
+    /**
+     * Sets the robot mode of this record.
+     *
+     * @param robotMode The robot mode, or {@code null} if it is not known
+     */
+    public void setRobotMode(RobotMode robotMode) {
+        this.robotMode = robotMode;
+    }
+
+    /**
+     * Gets whether this record is a structured event logged with
+     * {@link LogEvent}. If so, its message is a JSON object.
+     *
+     * @return Whether this record is an event
+     */
+    public boolean isEvent() {
+        return (flags & EVENT) != 0;
+    }
+
+    /**
+     * Gets whether {@link RobotLogger} has already reported this record to the
+     * Driver Station, e.g. because it was logged with
+     * {@link RobotLogger#logError(String)} or
+     * {@link RobotLogger#logWarning(String)}.
+     *
+     * @return Whether this record has been reported to the Driver Station
+     */
+    public boolean isReportedToDriverStation() {
+        return (flags & REPORTED) != 0;
+    }
+
+    /**
+     * Gets the flags of this record.
+     *
+     * @return {@link #EVENT} and {@link #REPORTED}, if set
+     */
+    int getFlags() {
+        return flags;
+    }
+
+    /**
+     * Sets the flags of this record.
+     *
+     * @param flags {@link #EVENT} and {@link #REPORTED}, if set
+     */
+    void setFlags(int flags) {
+        this.flags = flags;
+    }
+
+    /**
+     * Sets the wall-clock time of this record without allocating a new
+     * {@link Instant}.
+     *
+     * @param wallTime The time in milliseconds since the epoch
+     */
+    void setWallTime(long wallTime) {
+        this.wallTime = wallTime;
+    }
+
+    /**
+     * Sets the message of this record to a template that will be formatted
+     * lazily.
+     *
+     * <p>
+     * If {@code argCount} is 0, the template is used as the message as-is.
+     * </p>
+     *
+     * @param template The message template
+     * @param argCount The number of arguments
+     * @param arg0     The first argument
+     * @param arg1     The second argument
+     * @param arg2     The third argument
+     */
+    void setTemplate(String template, int argCount, double arg0, double arg1, double arg2) {
+        if (argCount == 0) {
+            setMessage(template);
+            return;
+        }
+        super.setMessage(null);
+        this.template = template;
+        this.argCount = argCount;
+        args[0] = arg0;
+        args[1] = arg1;
+        args[2] = arg2;
+    }
+
+    /**
+     * Gets the unformatted template of this record, or the message if it has no
+     * template. The template is kept even after the message has been formatted.
+     *
+     * @return The template
+     */
+    String getTemplate() {
+        return template != null ? template : super.getMessage();
+    }
+
+    /**
+     * Gets the number of template arguments of this record.
+     *
+     * @return The number of arguments, or 0 if it has no template
+     */
+    int getArgCount() {
+        return template != null ? argCount : 0;
+    }
+
+    /**
+     * Gets a template argument of this record.
+     *
+     * @param index The index of the argument
+     * @return The argument
+     */
+    double getArg(int index) {
+        return args[index];
+    }
+
+    /**
+     * Creates a copy of this record that does not change when this record is
+     * reused.
+     *
+     * <p>
+     * The message template and its arguments are copied as they are, so the
+     * message of the copy is still formatted lazily.
+     * </p>
+     *
+     * @return The copy
+     */
+    RobotLogRecord copy() {
+        RobotLogRecord copy = new RobotLogRecord(getLevel(), null, fpgaTime);
+        copy.wallTime = wallTime;
+        copy.matchTime = matchTime;
+        copy.robotMode = robotMode;
+        copy.flags = flags;
+        copy.setLoggerName(getLoggerName());
+        if (template != null) {
+            copy.setTemplate(template, argCount, args[0], args[1], args[2]);
+        } else {
+            copy.setMessage(super.getMessage());
+        }
+        copy.setThrown(getThrown());
+        copy.setParameters(getParameters());
+        return copy;
+    }
+
+    /**
+     * Gets the message of this record, formatting it first if necessary.
+     *
+     * @return The message
+     */
+    @Override
+    public String getMessage() {
+        if (template != null && super.getMessage() == null) {
+            super.setMessage(formatTemplate(template, argCount, args[0], args[1], args[2]));
+        }
+        return super.getMessage();
+    }
+
+    @Override
+    public void setMessage(String message) {
+        template = null;
+        super.setMessage(message);
+    }
+
+    /**
+     * Appends the message of this record to a buffer.
+     *
+     * <p>
+     * If the message of this record is a template that has not been formatted yet,
+     * it is formatted straight into the buffer without creating a {@code String}.
+     * </p>
+     *
+     * @param builder The buffer to append to
+     */
+    public void appendMessage(StringBuilder builder) {
+        if (template != null) {
+            appendTemplate(builder, template, argCount, args[0], args[1], args[2]);
+        } else {
+            builder.append(super.getMessage());
+        }
+    }
+
+    /**
+     * Formats a message template into a buffer.
+     *
+     * <p>
+     * Every {@code {}} in the template is replaced by the next argument.
+     * Placeholders without a matching argument are left as is, and extra
+     * arguments are ignored. Arguments that are whole numbers are formatted
+     * without a decimal point.
+     * </p>
+     *
+     * @param builder  The buffer to append to
+     * @param template The template
+     * @param argCount The number of arguments
+     * @param arg0     The first argument
+     * @param arg1     The second argument
+     * @param arg2     The third argument
+     */
+    static void appendTemplate(StringBuilder builder, String template, int argCount, double arg0, double arg1,
+            double arg2) {
+        int arg = 0;
+        int start = 0;
+        int length = template.length();
+        for (int i = 0; i < length - 1; i++) {
+            if (arg < argCount && template.charAt(i) == '{' && template.charAt(i + 1) == '}') {
+                builder.append(template, start, i);
+                appendNumber(builder, arg == 0 ? arg0 : arg == 1 ? arg1 : arg2);
+                arg++;
+                i++;
+                start = i + 1;
+            }
+        }
+        builder.append(template, start, length);
+    }
+
+    /**
+     * Formats a message template into a new {@code String}.
+     *
+     * @param template The template
+     * @param argCount The number of arguments
+     * @param arg0     The first argument
+     * @param arg1     The second argument
+     * @param arg2     The third argument
+     * @return The formatted message
+     */
+    static String formatTemplate(String template, int argCount, double arg0, double arg1, double arg2) {
+        if (argCount == 0) {
+            return template;
+        }
+        StringBuilder builder = new StringBuilder(template.length() + 16 * argCount);
+        appendTemplate(builder, template, argCount, arg0, arg1, arg2);
+        return builder.toString();
+    }
+
+    private static void appendNumber(StringBuilder builder, double value) {
+        // Whole numbers are formatted as integers (e.g. "3" instead of "3.0")
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            builder.append((long) value);
+        } else {
+            builder.append(value);
+        }
+    }
+
+    @Override
+    public long getMillis() {
+        return wallTime;
+    }
+
+    @Override
+    public Instant getInstant() {
+        return Instant.ofEpochMilli(wallTime);
+    }
+
+    @Override
+    public void setInstant(Instant instant) {
+        super.setInstant(instant);
+        wallTime = instant.toEpochMilli();
+    }
+
+    /**
+     * Gets the standard {@link Level} with the specified integer value.
+     *
+     * <p>
+     * Levels are stored as integers in places where records are preallocated or
+     * serialized. Values that do not correspond to a standard level are mapped to
+     * the closest standard level below them.
+     * </p>
+     *
+     * @param value The integer value of the level
+     * @return The level
+     */
+    static Level levelOf(int value) {
+        if (value >= Level.SEVERE.intValue()) {
+            return Level.SEVERE;
+        } else if (value >= Level.WARNING.intValue()) {
+            return Level.WARNING;
+        } else if (value >= Level.INFO.intValue()) {
+            return Level.INFO;
+        } else if (value >= Level.CONFIG.intValue()) {
+            return Level.CONFIG;
+        } else if (value >= Level.FINE.intValue()) {
+            return Level.FINE;
+        } else if (value >= Level.FINER.intValue()) {
+            return Level.FINER;
+        } else {
+            return Level.FINEST;
+        }
+    }
+}
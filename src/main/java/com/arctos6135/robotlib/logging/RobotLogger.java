@@ -6,15 +6,22 @@ import java.io.UncheckedIOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
 import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 import java.util.logging.FileHandler;
 import java.util.logging.Formatter;
 import java.util.logging.Handler;
 import java.util.logging.Level;
-import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
 
 /**
  * A class with static methods for logging to files or other places on the
@@ -28,7 +35,16 @@ import edu.wpi.first.wpilibj.DriverStation;
  * that {@link #flush()} be called in the
  * {@link edu.wpi.first.wpilibj.IterativeRobotBase#disabledInit()
  * disabledInit()} method of the robot to flush the logs every time the robot is
- * disabled.
+ * disabled. Alternatively, the log can be written with a
+ * {@link MappedFileHandler} (see {@link #setFileHandlerFactory(LogHandlerFactory)}),
+ * which periodically forces the log to disk on its own.
+ * </p>
+ * <p>
+ * To keep a single log from growing without bound, it can be split into
+ * compressed segments with a {@link RotatingFileHandler}. To be able to quickly
+ * pull out the records around a time of interest from a large log, write it
+ * with an {@link IndexedFileHandler} and read it with an
+ * {@link IndexedLogReader}.
  * </p>
  * <p>
  * Note: Since the roboRIO has no external battery to power the RTC, its system
@@ -37,12 +53,40 @@ import edu.wpi.first.wpilibj.DriverStation;
  * should wait until {@link DriverStation#isDSAttached()} returns true before
  * calling {@link #init(Class)} or any of its overloads, since they depend on
  * the system time to be correct in order to create a log file with the correct
- * name.
+ * name. Messages logged before that are kept in memory and written out with
+ * corrected times once the logger is initialized (see
+ * {@link #setPreInitBufferSize(int)}). Alternatively,
+ * {@link #initWhenDSAttached(Class, File)} writes them to a provisional file
+ * right away, and initializes the logger as soon as the Driver Station is
+ * connected.
  * </p>
  * <p>
  * Because log files can contain a lot of data and accumulates over time, it is
- * recommended that the {@link #cleanLogs(File, double)} method or one of its
- * overloads be used to automatically delete old log files.
+ * recommended that {@link #enforceRetention(long, double)} be used to
+ * automatically delete old log files. It uses the {@link LogCatalog} of the log
+ * directory, so unlike {@link #cleanLogs(File, double)} and its overloads, it
+ * does not need to scan the directory and does all its work in the background.
+ * </p>
+ * <p>
+ * By default, every log call formats the record and writes it to the file on
+ * the calling thread. To keep file I/O off the robot loop, the logger can be
+ * put into asynchronous mode with {@link #setAsyncMode(int, OverflowPolicy)}
+ * before it is initialized.
+ * </p>
+ * <p>
+ * Other consumers of the log, such as the console, the Driver Station, a
+ * dashboard or clients of a {@link LogStreamServer}, can be attached with
+ * {@link #subscribe(Handler, Level, int, OverflowPolicy)}, so that each runs on
+ * its own background thread.
+ * </p>
+ * <p>
+ * Different parts of the robot can log to their own named channels, which have
+ * their own levels (see {@link #channel(String)}).
+ * </p>
+ * <p>
+ * To keep the details of what led up to a fault without writing every message
+ * to the file, enable the {@link FlightRecorder} with
+ * {@link #setFlightRecorder(int)}.
  * </p>
  * 
  * @author Tyler Tian
@@ -54,10 +98,71 @@ public class RobotLogger {
 
     private File logDir;
     private File logFile;
+    // The name of the current log file(s) without an extension
+    private String logBaseName;
 
-    private boolean isInitialized = false;
+    private LogHandlerFactory fileHandlerFactory;
+
+    private volatile boolean isInitialized = false;
 
     private BiConsumer<Level, String> logHandler;
+    private LogCatalog catalog;
+    private volatile DuplicateFilter duplicateFilter;
+    private volatile DriverStationReporter dsReporter;
+    private final List<LogRateLimiter> rateLimiters = new CopyOnWriteArrayList<>();
+    // The event each thread writes its structured events into
+    private final ThreadLocal<LogEvent> events = ThreadLocal.withInitial(() -> new LogEvent(this));
+
+    // Whether the match time and robot mode are recorded with each record
+    private boolean captureRobotState = false;
+    // Whether the file handler needs the robot mode of each record
+    private boolean handlerUsesRobotState = false;
+
+    // Async mode; capacity is 0 if async mode is off
+    private int asyncCapacity = 0;
+    private OverflowPolicy overflowPolicy;
+    private AsyncLogBuffer asyncBuffer;
+    private AsyncLogWriter asyncWriter;
+
+    // Flight recorder; capacity is 0 if it is off
+    private int flightRecorderCapacity = 0;
+    private FlightRecorder flightRecorder;
+    // The max time to wait for a flight recorder dump on an uncaught exception
+    private static final long FLIGHT_RECORDER_DUMP_TIMEOUT = 2000;
+
+    // Subscriptions, and the dispatcher that feeds them
+    private final List<LogSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile Handler[] subscriptionHandlers = new Handler[0];
+    // The lowest level any subscription wants, or MAX_VALUE if there are none
+    private volatile int minSubscriptionLevel = Integer.MAX_VALUE;
+    private AsyncLogBuffer dispatchBuffer;
+    private volatile AsyncLogWriter dispatcher;
+    private static final int DISPATCH_CAPACITY = 1024;
+
+    // The logger itself is the root of the channel hierarchy, and its lock guards
+    // the levels of all channels
+    private final LogChannel rootChannel = new LogChannel(this, null, null);
+    // Guarded by rootChannel
+    private final Map<String, LogChannel> channels = new HashMap<>();
+
+    // Records logged before init, kept either in memory or in a provisional file
+    private final Object preInitLock = new Object();
+    // Guarded by preInitLock
+    private int preInitCapacity = DEFAULT_PRE_INIT_CAPACITY;
+    private AsyncLogBuffer preInitBuffer;
+    private BinaryLogHandler provisionalHandler;
+    private File provisionalFile;
+    private static final int DEFAULT_PRE_INIT_CAPACITY = 256;
+    private static final String PROVISIONAL_NAME = "provisional";
+    // How often to check if the Driver Station is connected, in milliseconds
+    private static final long DS_POLL_INTERVAL = 100;
+    // The time to wait before trying to initialize again after a failure, in milliseconds; doubled after
+    // every failure up to the max
+    private static final long INIT_RETRY_INTERVAL = 1000;
+    private static final long MAX_INIT_RETRY_INTERVAL = 60000;
+
+    // The max time flush() will wait for the async writer
+    private static final long ASYNC_FLUSH_TIMEOUT = 1000;
 
     /**
      * Constructs a new logger instance.
@@ -78,22 +183,316 @@ public class RobotLogger {
     }
 
     /**
-     * Formatter for the logger.
+     * Enables asynchronous mode.
+     * 
+     * <p>
+     * In asynchronous mode, a log call only captures the level, timestamps and
+     * message of the record into a preallocated ring buffer. A single low-priority
+     * writer thread then formats the records and writes them to the file in
+     * batches. This keeps formatting and file I/O off the calling thread, so a
+     * stall in the file system can not cause the robot loop to overrun.
+     * </p>
+     * <p>
+     * {@link #flush()} and the shutdown hook still work as usual; they wait for the
+     * writer thread to write out everything that was logged before the call, up to
+     * a timeout of 1 second.
+     * </p>
+     * <p>
+     * This method must be called before the logger is initialized.
+     * </p>
+     * 
+     * @param capacity The capacity of the buffer, in records; this will be rounded
+     *                 up to the next power of 2
+     * @param policy   What to do when the buffer is full
+     * @throws IllegalStateException    If the logger is already initialized
+     * @throws IllegalArgumentException If the capacity is less than 2
+     */
+    public void setAsyncMode(int capacity, OverflowPolicy policy) {
+        if (isInitialized) {
+            throw new IllegalStateException("Async mode must be set before the logger is initialized");
+        }
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Capacity must be at least 2");
+        }
+        asyncCapacity = capacity;
+        overflowPolicy = policy;
+    }
+
+    /**
+     * Sets the number of records logged before the logger is initialized that are
+     * kept in memory.
+     * 
+     * <p>
+     * Since the system time is not correct until the Driver Station is connected,
+     * records logged before the logger is initialized are stamped with only the
+     * FPGA time and kept in a bounded buffer. When the logger is initialized, they
+     * are written to the log first, with their wall-clock times computed from the
+     * FPGA times and the now correct system time. If more records are logged than
+     * the buffer can hold, the extra ones are dropped, and a warning with the
+     * number of dropped records is written after the others.
+     * </p>
+     * <p>
+     * The buffer is only allocated once something is logged before
+     * initialization. By default, it holds 256 records. Records are only kept if
+     * their level is enabled (see {@link #setLevel(Level)}).
+     * </p>
+     * 
+     * @param capacity The capacity of the buffer, in records; this will be rounded
+     *                 up to the next power of 2, or 0 to drop everything logged
+     *                 before initialization
+     * @throws IllegalStateException If the logger is already initialized
+     */
+    public void setPreInitBufferSize(int capacity) {
+        synchronized (preInitLock) {
+            if (isInitialized || preInitBuffer != null) {
+                throw new IllegalStateException(
+                        "The pre-init buffer size must be set before the logger is initialized or used");
+            }
+            preInitCapacity = capacity > 0 ? Math.max(2, capacity) : 0;
+        }
+    }
+
+    /**
+     * Starts logging to a provisional file right away, and initializes the logger
+     * once the Driver Station is connected.
+     * 
+     * <p>
+     * Until the logger is initialized, every record is written to a binary log in
+     * {@code logDir} named {@code provisional-N.rlog} and flushed, so nothing is
+     * lost if the robot program crashes or loses power before the Driver Station
+     * connects. A low-priority background thread checks every 100 milliseconds
+     * whether the Driver Station is connected, and if so, calls
+     * {@link #init(Class, File)}. Initializing the logger converts the provisional
+     * file: its records are written to the new log with corrected wall-clock times
+     * and the provisional file is deleted. If the log is itself a binary log, the
+     * times are the only difference between the two.
+     * </p>
+     * <p>
+     * If initializing fails, e.g. because the log file could not be created, the
+     * error is reported to the Driver Station and initializing is tried again
+     * later, with a longer wait after every failure. Records keep going to the
+     * provisional file in the meantime.
+     * </p>
+     * <p>
+     * {@link #init(Class, File)} or one of its overloads can still be called
+     * directly, e.g. with a different date format, in which case the background
+     * thread stops.
+     * </p>
+     * 
+     * @param robotClass The robot's class
+     * @param logDir     The directory to store the logs in
+     * @throws IOException If the provisional file could not be created
+     */
+    public void initWhenDSAttached(Class<?> robotClass, File logDir) throws IOException {
+        synchronized (preInitLock) {
+            if (isInitialized || provisionalHandler != null) {
+                return;
+            }
+            if (!logDir.isDirectory() && !logDir.mkdirs()) {
+                throw new IOException("Failed to create log directory!");
+            }
+            // Provisional files left over by earlier runs can't be corrected anymore,
+            // since the FPGA time restarts on every boot
+            int n = 0;
+            do {
+                provisionalFile = new File(logDir, PROVISIONAL_NAME + "-" + n + BinaryLogHandler.EXTENSION);
+                n++;
+            } while (provisionalFile.exists());
+            provisionalHandler = new BinaryLogHandler(provisionalFile);
+        }
+
+        LogThreads.newThread("RobotLogger-DSWatcher", () -> {
+            long retryInterval = INIT_RETRY_INTERVAL;
+            try {
+                while (!isInitialized) {
+                    if (DriverStation.getInstance().isDSAttached()) {
+                        try {
+                            init(robotClass, logDir);
+                            return;
+                        } catch (IOException e) {
+                            // Still logging to the provisional file, so nothing is lost by trying again
+                            DriverStation.reportError("RobotLogger: Failed to initialize, retrying in "
+                                    + retryInterval / 1000 + "s: " + e, false);
+                            Thread.sleep(retryInterval);
+                            retryInterval = Math.min(retryInterval * 2, MAX_INIT_RETRY_INTERVAL);
+                            continue;
+                        }
+                    }
+                    Thread.sleep(DS_POLL_INTERVAL);
+                }
+            } catch (InterruptedException e) {
+                // Stop waiting
+            }
+        }).start();
+    }
+
+    /**
+     * Returns whether the logger is initialized.
+     * 
+     * @return Whether the logger is initialized
+     */
+    public boolean isInitialized() {
+        return isInitialized;
+    }
+
+    /**
+     * Enables the flight recorder.
+     * 
+     * <p>
+     * The flight recorder keeps the most recent messages logged, at every level,
+     * in memory, regardless of the level set with {@link #setLevel(Level)}. Its
+     * contents are dumped to a file in the log directory by
+     * {@link #logError(String)}, when an uncaught exception occurs in any thread,
+     * or with {@link FlightRecorder#dump(String)}. This makes it possible to
+     * only write the important messages to the log file, but still have all the
+     * details of what led up to a fault.
+     * </p>
+     * <p>
+     * Note that when the flight recorder is enabled, the message suppliers passed
+     * to the log methods are always called.
+     * </p>
+     * <p>
+     * This method must be called before the logger is initialized.
+     * </p>
+     * 
+     * @param capacity The size of the flight recorder's buffer, in bytes
+     * @throws IllegalStateException If the logger is already initialized
+     * @see FlightRecorder
+     */
+    public void setFlightRecorder(int capacity) {
+        if (isInitialized) {
+            throw new IllegalStateException("The flight recorder must be set before the logger is initialized");
+        }
+        flightRecorderCapacity = capacity;
+    }
+
+    /**
+     * Gets the flight recorder.
+     * 
+     * @return The flight recorder, or {@code null} if it is not enabled or the
+     *         logger is not initialized
+     * @see #setFlightRecorder(int)
+     */
+    public FlightRecorder getFlightRecorder() {
+        return flightRecorder;
+    }
+
+    /**
+     * Returns whether the logger is in asynchronous mode.
+     * 
+     * @return Whether asynchronous mode is enabled
+     * @see #setAsyncMode(int, OverflowPolicy)
+     */
+    public boolean isAsync() {
+        return asyncCapacity != 0;
+    }
+
+    /**
+     * Gets the total number of records that were dropped because the asynchronous
+     * buffer was full.
+     * 
+     * <p>
+     * This is always 0 if the logger is not in asynchronous mode.
+     * </p>
+     * 
+     * @return The number of dropped records
+     */
+    public long getDroppedRecordCount() {
+        return asyncWriter != null ? asyncWriter.getDroppedCount() : 0;
+    }
+
+    /**
+     * Sets the factory used to create the handler that writes the log file.
+     * 
+     * <p>
+     * By default, the log is written as plain text. Setting a different factory
+     * allows the log to be written in a different way instead, e.g. with
+     * {@link BinaryLogHandler#factory()}, compressed with
+     * {@link CompressedFileHandler#factory()}, split into one file per match
+     * phase with {@link MatchSegmentedFileHandler#factory()}, or spooled in RAM
+     * with {@link SpooledFileHandler#factory(File, double)}. Setting the factory
+     * to {@code null} restores the default.
+     * </p>
+     * <p>
+     * This method must be called before the logger is initialized.
+     * </p>
+     * 
+     * @param factory The factory
+     * @throws IllegalStateException If the logger is already initialized
+     */
+    public void setFileHandlerFactory(LogHandlerFactory factory) {
+        if (isInitialized) {
+            throw new IllegalStateException("The file handler factory must be set before the logger is initialized");
+        }
+        fileHandlerFactory = factory;
+    }
+
+    /**
+     * Sets the formatter used for the log file.
      * 
      * <p>
-     * Messages are formatted in the format: (yyyy/MM/dd HH:mm:ss) [LEVEL] Message
+     * By default, a {@link RobotLoggerFormatter} without any optional columns is
+     * used. If the formatter is a {@link RobotLoggerFormatter} that outputs the
+     * match time or robot mode, those will be recorded with every record when it
+     * is logged. This can be called before or after the logger is initialized.
+     * </p>
+     * <p>
+     * Note that not every file handler uses a formatter; e.g.
+     * {@link BinaryLogHandler} does not.
      * </p>
+     * 
+     * @param formatter The formatter
      */
-    private static class RobotLoggerFormatter extends Formatter {
+    public void setFormatter(Formatter formatter) {
+        this.formatter = formatter;
+        captureRobotState = handlerUsesRobotState || formatter instanceof RobotLoggerFormatter
+                && ((RobotLoggerFormatter) formatter).usesRobotState();
+        if (isInitialized) {
+            fileHandler.setFormatter(formatter);
+        }
+    }
 
-        private static DateFormat format = new SimpleDateFormat("(yyyy/MM/dd HH:mm:ss)");
+    /**
+     * Adds a handler that will receive all records written to the log file.
+     * 
+     * <p>
+     * This can be used to write the log to additional places, such as a
+     * {@link BinaryLogHandler} alongside the regular text log. The handler will
+     * only receive records at or above the level set with
+     * {@link #setLevel(Level)}. In asynchronous mode, the handler is called from
+     * the writer thread.
+     * </p>
+     * <p>
+     * A handler that keeps the records it is given, instead of writing them out
+     * in {@link Handler#publish(java.util.logging.LogRecord)}, gets records of
+     * its own. The handlers of this library reuse one record in asynchronous
+     * mode, so a subclass of one of them must not keep a record after
+     * {@code publish} returns.
+     * </p>
+     * <p>
+     * If the logger is not initialized, this will have no effect.
+     * </p>
+     * 
+     * @param handler The handler to add
+     */
+    public void addHandler(Handler handler) {
+        if (isInitialized) {
+            logger.addHandler(handler);
+        }
+    }
 
-        @Override
-        public String format(LogRecord record) {
-            StringBuilder builder = new StringBuilder(format.format(new Date()));
-            builder.append(" [").append(record.getLevel().toString()).append("]: ").append(record.getMessage())
-                    .append("\n");
-            return builder.toString();
+    /**
+     * Removes a handler previously added with {@link #addHandler(Handler)}.
+     * 
+     * <p>
+     * The handler is not closed.
+     * </p>
+     * 
+     * @param handler The handler to remove
+     */
+    public void removeHandler(Handler handler) {
+        if (isInitialized) {
+            logger.removeHandler(handler);
         }
     }
 
@@ -102,7 +501,8 @@ public class RobotLogger {
      * 
      * <p>
      * If the logger is already initialized, this method will have no effect.
-     * Attempting to log without first initializing the logger will have no effect.
+     * Messages logged before the logger is initialized are kept in memory and
+     * written to the log when it is (see {@link #setPreInitBufferSize(int)}).
      * </p>
      * <p>
      * The log files are stored in "/home/lvuser/frc-robot-logs". If this directory
@@ -137,7 +537,8 @@ public class RobotLogger {
      * </p>
      * <p>
      * If the logger is already initialized, this method will have no effect.
-     * Attempting to log without first initializing the logger will have no effect.
+     * Messages logged before the logger is initialized are kept in memory and
+     * written to the log when it is (see {@link #setPreInitBufferSize(int)}).
      * </p>
      * <p>
      * The dates are formatted with the string "yyyy_MM_dd-HH_mm_ss".
@@ -171,7 +572,8 @@ public class RobotLogger {
      * </p>
      * <p>
      * If the logger is already initialized, this method will have no effect.
-     * Attempting to log without first initializing the logger will have no effect.
+     * Messages logged before the logger is initialized are kept in memory and
+     * written to the log when it is (see {@link #setPreInitBufferSize(int)}).
      * </p>
      * <p>
      * Note: Since the roboRIO has no external battery to power the RTC, its system
@@ -190,7 +592,7 @@ public class RobotLogger {
      * @throws IllegalArgumentException If {@code logDir} exists, but is not a
      *                                  directory
      */
-    public void init(Class<?> robotClass, File logDir, DateFormat dateFormat) throws IOException {
+    public synchronized void init(Class<?> robotClass, File logDir, DateFormat dateFormat) throws IOException {
         if (isInitialized) {
             return;
         }
@@ -201,6 +603,8 @@ public class RobotLogger {
         // Get logger for robot class
         logger = Logger.getLogger(robotClass.getName());
         logger.setUseParentHandlers(false);
+        // Levels are checked by the channels before records get to the logger
+        logger.setLevel(Level.ALL);
 
         this.logDir = logDir;
 
@@ -219,167 +623,1121 @@ public class RobotLogger {
         }
 
         // Create handler and formatter
-        String logFilePath = logDir.getAbsolutePath() + File.separator + dateFormat.format(date) + ".log";
-        this.fileHandler = new FileHandler(logFilePath);
+        this.logBaseName = dateFormat.format(date);
+        String logFilePath = logDir.getAbsolutePath() + File.separator + logBaseName + ".log";
         this.logFile = new File(logFilePath);
-        this.formatter = new RobotLoggerFormatter();
+        if (fileHandlerFactory != null) {
+            this.fileHandler = fileHandlerFactory.createHandler(logDir, logBaseName);
+        } else {
+            // In async mode, the writer thread takes care of flushing
+            this.fileHandler = isAsync() ? new BufferedFileHandler(logFile) : new FileHandler(logFilePath);
+        }
+        if (fileHandler instanceof MatchSegmentedFileHandler) {
+            // The mode has to be recorded when the record is logged, not when it is written
+            handlerUsesRobotState = true;
+            captureRobotState = true;
+        }
+        if (formatter == null) {
+            formatter = new RobotLoggerFormatter();
+        }
         fileHandler.setFormatter(formatter);
         logger.addHandler(fileHandler);
 
-        isInitialized = true;
-    }
+        catalog = new LogCatalog(logDir);
+        if (fileHandler instanceof CatalogedHandler) {
+            ((CatalogedHandler) fileHandler).setCatalog(catalog);
+        } else if (fileHandlerFactory == null) {
+            catalog.fileOpened(logFile);
+        }
 
-    /**
-     * Sets the logging level.
-     * 
-     * <p>
-     * Note that this only affects the logs that are written to file; the errors and
-     * warnings reported to the Driver Station and log handler calls are not
-     * affected.
-     * </p>
-     * 
-     * @param level The logging level
-     */
-    public void setLevel(Level level) {
-        logger.setLevel(level);
+        if (isAsync()) {
+            asyncBuffer = new AsyncLogBuffer(asyncCapacity, overflowPolicy);
+            asyncWriter = new AsyncLogWriter(asyncBuffer, logger);
+            asyncWriter.start();
+        }
+
+        if (flightRecorderCapacity > 0) {
+            flightRecorder = new FlightRecorder(flightRecorderCapacity, logDir, logBaseName);
+            installUncaughtExceptionHandler();
+            updateChannels();
+        }
+
+        synchronized (preInitLock) {
+            writeRecordsBeforeInit();
+            isInitialized = true;
+        }
     }
 
     /**
-     * Sets a log handler that will be called every time info is logged.
+     * Logs a message before the logger is initialized, if it still isn't.
      * 
-     * @param handler A {@code BiConsumer<T, U>} accepting a log level and log
-     *                message string.
+     * @return Whether the message was handled; false if the logger has been
+     *         initialized since the caller checked
      */
-    public void setLogHandler(BiConsumer<Level, String> handler) {
-        logHandler = handler;
+    private boolean logBeforeInit(LogChannel channel, Level level, String template, int argCount, double arg0,
+            double arg1, double arg2, int flags) {
+        synchronized (preInitLock) {
+            if (isInitialized) {
+                return false;
+            }
+            if (!channel.isLoggable(level)) {
+                return true;
+            }
+            long fpgaTime = RobotController.getFPGATime();
+            if (provisionalHandler != null) {
+                RobotLogRecord record = new RobotLogRecord(level, null, fpgaTime);
+                record.setLoggerName(channel.getName());
+                record.setTemplate(template, argCount, arg0, arg1, arg2);
+                record.setFlags(flags);
+                provisionalHandler.publish(record);
+                provisionalHandler.flush();
+            } else if (preInitCapacity > 0) {
+                if (preInitBuffer == null) {
+                    preInitBuffer = new AsyncLogBuffer(preInitCapacity, OverflowPolicy.DROP_AND_COUNT);
+                }
+                preInitBuffer.offer(level.intValue(), fpgaTime, System.currentTimeMillis(), Double.NaN, null,
+                        channel.getName(), template, argCount, arg0, arg1, arg2, flags);
+            }
+            return true;
+        }
     }
 
     /**
-     * Logs an error and reports it to the Driver Station.
+     * Writes the records logged before initialization to the handlers, with
+     * wall-clock times computed from their FPGA times.
      * 
      * <p>
-     * The error will be logged with the {@code SEVERE} level and will also be
-     * reported to the DS. If the logger is not initialized, this will have no
-     * effect.
+     * Must be called while holding the lock on {@code preInitLock}.
      * </p>
-     * 
-     * @param error The error message
      */
-    public void logError(String error) {
-        if (isInitialized) {
-            DriverStation.reportError(error, false);
-            logger.severe(error);
-
-            if (logHandler != null) {
-                logHandler.accept(Level.SEVERE, error);
+    private void writeRecordsBeforeInit() {
+        // The system time is correct now, so it can be used to convert FPGA times
+        long offsetMicros = System.currentTimeMillis() * 1000 - RobotController.getFPGATime();
+        RobotLogRecord record = new RobotLogRecord(Level.INFO, null, 0);
+        if (provisionalHandler != null) {
+            provisionalHandler.close();
+            provisionalHandler = null;
+            try (BinaryLogReader reader = new BinaryLogReader(provisionalFile)) {
+                while (reader.next()) {
+                    record.setLevel(reader.getLevel());
+                    record.setFpgaTime(reader.getFpgaTime());
+                    record.setWallTime(Math.floorDiv(reader.getFpgaTime() + offsetMicros, 1000));
+                    record.setLoggerName(reader.getChannel());
+                    record.setMessage(reader.getMessageWithoutChannel());
+                    record.setFlags(reader.isEvent() ? RobotLogRecord.EVENT : 0);
+                    publishBeforeInit(record);
+                }
+            } catch (IOException e) {
+                // Keep the provisional file, since some of it could not be read
+                record.setLevel(Level.WARNING);
+                record.setFpgaTime(RobotController.getFPGATime());
+                record.setWallTime(System.currentTimeMillis());
+                record.setLoggerName(null);
+                record.setFlags(0);
+                record.setMessage("RobotLogger: Failed to read the provisional log " + provisionalFile.getName()
+                        + ": " + e.getMessage());
+                publishBeforeInit(record);
+                provisionalFile = null;
             }
+            if (provisionalFile != null && !provisionalFile.delete()) {
+                provisionalFile.deleteOnExit();
+            }
+        } else if (preInitBuffer != null) {
+            while (preInitBuffer.poll(record)) {
+                record.setWallTime(Math.floorDiv(record.getFpgaTime() + offsetMicros, 1000));
+                publishBeforeInit(record);
+            }
+            long dropped = preInitBuffer.takeDroppedCount();
+            if (dropped > 0) {
+                record.setLevel(Level.WARNING);
+                record.setFpgaTime(RobotController.getFPGATime());
+                record.setWallTime(System.currentTimeMillis());
+                record.setLoggerName(null);
+                record.setFlags(0);
+                record.setMessage("RobotLogger: " + dropped
+                        + " records logged before the logger was initialized were dropped");
+                publishBeforeInit(record);
+            }
+            preInitBuffer = null;
+        }
+        for (Handler handler : logger.getHandlers()) {
+            handler.flush();
         }
     }
 
     /**
-     * Logs a warning and reports it to the Driver Station.
-     * 
-     * <p>
-     * The warning will be logged with the {@code WARNING} level and will also be
-     * reported to the DS. If the logger is not initialized, this will have no
-     * effect.
-     * </p>
-     * 
-     * @param warning The warning message
+     * Publishes a record logged before initialization to the handlers and the
+     * subscribers.
      */
-    public void logWarning(String warning) {
-        if (isInitialized) {
-            DriverStation.reportWarning(warning, false);
-            logger.warning(warning);
+    private void publishBeforeInit(RobotLogRecord record) {
+        for (Handler handler : logger.getHandlers()) {
+            handler.publish(record);
+        }
+        if (dispatchBuffer != null && record.getLevel().intValue() >= minSubscriptionLevel) {
+            dispatchBuffer.offer(record);
+        }
+    }
 
-            if (logHandler != null) {
-                logHandler.accept(Level.WARNING, warning);
+    /**
+     * Installs a default uncaught exception handler that dumps the flight
+     * recorder, then passes the exception on to the previous handler.
+     */
+    private void installUncaughtExceptionHandler() {
+        Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> {
+            flightRecorder.record(null, Level.SEVERE, "Uncaught exception in thread " + thread.getName() + ": " + e,
+                    0, 0, 0, 0);
+            // The VM may be about to exit, so wait for the dump
+            flightRecorder.dumpAndWait("uncaught exception: " + e, FLIGHT_RECORDER_DUMP_TIMEOUT);
+            if (previous != null) {
+                previous.uncaughtException(thread, e);
+            } else {
+                System.err.print("Exception in thread \"" + thread.getName() + "\" ");
+                e.printStackTrace();
             }
-        }
+        });
     }
 
     /**
-     * Logs regular info.
+     * Sets the logging level.
      * 
      * <p>
-     * The info will be logged with the {@code INFO} level. If the logger is not
-     * initialized, this will have no effect.
+     * Note that this only affects the logs that are written to file; the errors and
+     * warnings reported to the Driver Station and log handler calls are not
+     * affected.
      * </p>
      * 
-     * @param info The info message
+     * <p>
+     * This is also the level of every channel that does not have a level of its
+     * own (see {@link #channel(String)}). Unlike before the logger had channels,
+     * this can be called before the logger is initialized.
+     * </p>
+     * 
+     * @param level The logging level
      */
-    public void logInfo(String info) {
-        if (isInitialized) {
-            logger.info(info);
-
-            if (logHandler != null) {
-                logHandler.accept(Level.INFO, info);
-            }
-        }
+    public void setLevel(Level level) {
+        rootChannel.setLevel(level);
     }
 
     /**
-     * Logs fine info.
+     * Gets a named channel of this logger, creating it and its parents if needed.
      * 
      * <p>
-     * The info will be logged with the {@code FINE} level. If the logger is not
-     * initialized, this will have no effect.
+     * Names are split into levels of the hierarchy by dots, so
+     * {@code "drive.left"} is a child of {@code "drive"}. Getting the same name
+     * twice returns the same channel. Channels can be obtained before or after the
+     * logger is initialized. Messages logged to them before it is initialized are
+     * kept like any other, in memory (see {@link #setPreInitBufferSize(int)}) or
+     * in the provisional file of {@link #initWhenDSAttached(Class, File)}, and
+     * written to the log once it is.
      * </p>
      * 
-     * @param infoFine The info message
+     * @param name The name of the channel
+     * @return The channel
+     * @see LogChannel
      */
-    public void logInfoFine(String infoFine) {
-        if (isInitialized) {
-            logger.fine(infoFine);
-
-            if (logHandler != null) {
-                logHandler.accept(Level.FINE, infoFine);
+    public LogChannel channel(String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("The channel name must not be empty");
+        }
+        synchronized (rootChannel) {
+            LogChannel channel = channels.get(name);
+            if (channel == null) {
+                int dot = name.lastIndexOf('.');
+                LogChannel parent = dot > 0 ? channel(name.substring(0, dot)) : rootChannel;
+                channel = new LogChannel(this, name, parent);
+                channels.put(name, channel);
             }
+            return channel;
         }
     }
 
     /**
-     * Logs finer info.
-     * 
-     * <p>
-     * The info will be logged with the {@code FINER} level. If the logger is not
-     * initialized, this will have no effect.
-     * </p>
+     * Gets the lowest level that is needed from every channel regardless of its
+     * level, because of the log handler, the flight recorder or a subscriber.
      * 
-     * @param infoFiner The info message
+     * @return The integer value of the level
      */
-    public void logInfoFiner(String infoFiner) {
-        if (isInitialized) {
-            logger.finer(infoFiner);
+    int getCaptureLevel() {
+        return logHandler != null || flightRecorder != null ? Integer.MIN_VALUE : minSubscriptionLevel;
+    }
 
-            if (logHandler != null) {
-                logHandler.accept(Level.FINER, infoFiner);
-            }
+    /**
+     * Updates the cached levels of all channels.
+     */
+    private void updateChannels() {
+        synchronized (rootChannel) {
+            rootChannel.update(getCaptureLevel());
         }
     }
 
     /**
-     * Logs finest info.
+     * Sets a log handler that will be called every time info is logged.
      * 
      * <p>
-     * The info will be logged with the {@code FINEST} level. If the logger is not
-     * initialized, this will have no effect.
+     * The log handler is called synchronously by every log call, so a slow log
+     * handler slows down the caller. To consume the log from a background thread
+     * instead, use {@link #subscribe(Handler, Level, int, OverflowPolicy)}.
      * </p>
      * 
-     * @param infoFinest The info message
+     * @param handler A {@code BiConsumer<T, U>} accepting a log level and log
+     *                message string.
      */
-    public void logInfoFinest(String infoFinest) {
-        if (isInitialized) {
-            logger.finest(infoFinest);
-
-            if (logHandler != null) {
-                logHandler.accept(Level.FINEST, infoFinest);
-            }
-        }
+    public void setLogHandler(BiConsumer<Level, String> handler) {
+        logHandler = handler;
+        updateChannels();
     }
 
     /**
-     * Writes the logs out to a file.
+     * Subscribes a handler to the records logged by this logger.
+     * 
+     * <p>
+     * Log calls only copy each record into the queue of a dispatcher thread, which
+     * in turn copies it into the bounded queue of every subscription whose level
+     * it meets. Every subscription has its own low-priority thread that publishes
+     * the records to its handler, so a slow handler never slows down the caller or
+     * the other subscribers. The only exception is a subscription with the
+     * {@link OverflowPolicy#BLOCK} policy, which makes the dispatcher wait for it
+     * when its queue is full.
+     * </p>
+     * <p>
+     * Any {@link Handler} can be subscribed, e.g. a
+     * {@link java.util.logging.ConsoleHandler} with a {@link RobotLoggerFormatter},
+     * a {@link DriverStationHandler}, a {@link NetworkTablesHandler}, or a file
+     * handler. Subscribed handlers always receive {@link RobotLogRecord}s, and may
+     * keep them; only the handlers of this library are given one reused record,
+     * which is valid until {@code publish} returns. Subscribers are not affected
+     * by {@link #setLevel(Level)}.
+     * </p>
+     * <p>
+     * This can be called before or after the logger is initialized.
+     * </p>
+     * 
+     * @param handler  The handler to subscribe
+     * @param level    The minimum level of the records the handler receives
+     * @param capacity The capacity of the subscription's queue, in records
+     * @param policy   What to do when the subscription's queue is full
+     * @return The subscription, which can be used to unsubscribe
+     */
+    public synchronized LogSubscription subscribe(Handler handler, Level level, int capacity,
+            OverflowPolicy policy) {
+        if (dispatcher == null) {
+            dispatchBuffer = new AsyncLogBuffer(DISPATCH_CAPACITY, OverflowPolicy.DROP_FINEST_FIRST);
+            dispatcher = new AsyncLogWriter(dispatchBuffer, () -> subscriptionHandlers, "RobotLogger-Dispatcher");
+            dispatcher.start();
+        }
+        LogSubscription subscription = new LogSubscription(this, handler, level, capacity, policy);
+        subscriptions.add(subscription);
+        updateSubscriptions();
+        return subscription;
+    }
+
+    /**
+     * Removes a subscription.
+     * 
+     * @param subscription The subscription
+     */
+    synchronized void unsubscribe(LogSubscription subscription) {
+        subscriptions.remove(subscription);
+        updateSubscriptions();
+    }
+
+    private void updateSubscriptions() {
+        Handler[] handlers = new Handler[subscriptions.size()];
+        int minLevel = Integer.MAX_VALUE;
+        for (int i = 0; i < handlers.length; i++) {
+            LogSubscription subscription = subscriptions.get(i);
+            handlers[i] = subscription.getEnqueuer();
+            minLevel = Math.min(minLevel, subscription.getLevel().intValue());
+        }
+        subscriptionHandlers = handlers;
+        minSubscriptionLevel = minLevel;
+        updateChannels();
+    }
+
+    /**
+     * Enables or disables batched reporting to the Driver Station.
+     * 
+     * <p>
+     * By default, {@link #logError(String)} and {@link #logWarning(String)}
+     * report to the Driver Station immediately, on the calling thread. In
+     * batched mode, the messages are queued instead, and sent by a low-priority
+     * background thread at most {@code batchesPerSecond} times a second. All
+     * queued errors are sent as one report, and all queued warnings as another.
+     * Identical messages that are queued at the same time are only sent once,
+     * with the number of times they were repeated. If more than {@code capacity}
+     * distinct messages are queued, the extra ones are dropped, and the number of
+     * dropped messages is reported instead.
+     * </p>
+     * <p>
+     * This only affects what is sent to the Driver Station. Every error and
+     * warning is still written to the log. This can be called before or after
+     * the logger is initialized.
+     * </p>
+     * 
+     * @param batchesPerSecond The max number of batches sent per second, or 0 to
+     *                         report synchronously again
+     * @param capacity         The max number of distinct messages that can be
+     *                         queued
+     */
+    public void setBatchedDriverStationReporting(double batchesPerSecond, int capacity) {
+        DriverStationReporter old = dsReporter;
+        dsReporter = batchesPerSecond > 0 ? new DriverStationReporter(batchesPerSecond, capacity) : null;
+        if (old != null) {
+            old.stop();
+        }
+    }
+
+    /**
+     * Reports an error or warning to the Driver Station, either directly or
+     * through the batched reporter.
+     */
+    private void reportToDriverStation(boolean error, String message) {
+        DriverStationReporter reporter = dsReporter;
+        if (reporter != null) {
+            reporter.report(error, message);
+        } else if (error) {
+            DriverStation.reportError(message, false);
+        } else {
+            DriverStation.reportWarning(message, false);
+        }
+    }
+
+    /**
+     * Enables or disables the coalescing of duplicate messages.
+     * 
+     * <p>
+     * When enabled, a message with the same channel, level and text (or template
+     * and arguments) as one logged less than {@code windowSeconds} ago is not
+     * logged or reported to the Driver Station. Instead, once the window closes, a
+     * single record saying how many times it was repeated is logged to the same
+     * channel. Pending counts are also logged by {@link #flush()}.
+     * </p>
+     * <p>
+     * Checking for duplicates takes constant time and does not allocate. This
+     * can be called before or after the logger is initialized.
+     * </p>
+     * 
+     * @param windowSeconds The length of the window, in seconds, or 0 to disable
+     */
+    public void setDuplicateSuppression(double windowSeconds) {
+        DuplicateFilter old = duplicateFilter;
+        duplicateFilter = windowSeconds > 0 ? new DuplicateFilter(windowSeconds, this::logSummary) : null;
+        if (old != null) {
+            old.flush();
+        }
+    }
+
+    /**
+     * Creates a rate limiter for a single log call site.
+     * 
+     * <p>
+     * The number of messages suppressed by the rate limiter is logged the next
+     * time it lets a message through, and by {@link #flush()}.
+     * </p>
+     * 
+     * @param name         The name of the call site, used when reporting
+     *                     suppressed messages
+     * @param maxPerSecond The max sustained number of messages per second
+     * @param burst        The max number of messages that can be logged at once
+     * @return The rate limiter
+     * @see LogRateLimiter
+     */
+    public LogRateLimiter createRateLimiter(String name, double maxPerSecond, int burst) {
+        LogRateLimiter limiter = new LogRateLimiter(this, name, maxPerSecond, burst);
+        rateLimiters.add(limiter);
+        return limiter;
+    }
+
+    /**
+     * Logs the number of messages suppressed by a rate limiter.
+     * 
+     * @param name  The name of the rate limiter
+     * @param count The number of suppressed messages
+     */
+    void logSuppressed(String name, long count) {
+        if (isInitialized) {
+            write(rootChannel, Level.INFO,
+                    "RobotLogger: {} messages from " + name + " were suppressed by rate limiting", 1, count, 0, 0,
+                    0);
+        }
+    }
+
+    /**
+     * Logs a summary of duplicate messages to the channel they were logged to.
+     * Errors and warnings are also reported to the Driver Station.
+     */
+    private void logSummary(LogChannel channel, Level level, String message) {
+        if (!isInitialized) {
+            return;
+        }
+        int flags = 0;
+        if (level == Level.SEVERE || level == Level.WARNING) {
+            reportToDriverStation(level == Level.SEVERE, withChannel(channel, message));
+            flags = RobotLogRecord.REPORTED;
+        }
+        write(channel, level, message, 0, 0, 0, 0, flags);
+    }
+
+    /**
+     * Returns whether a message passes the duplicate filter, if there is one.
+     */
+    private boolean admit(LogChannel channel, Level level, String template, int argCount, double arg0, double arg1,
+            double arg2) {
+        DuplicateFilter filter = duplicateFilter;
+        return filter == null || filter.admit(channel, level, template, argCount, arg0, arg1, arg2);
+    }
+
+    /**
+     * Logs a message to the file (or the async buffer) and calls the log handler.
+     * 
+     * @param level   The level of the message
+     * @param message The message
+     */
+    private void log(Level level, String message) {
+        log(rootChannel, level, message, 0, 0, 0, 0);
+    }
+
+    /**
+     * Logs a message template to the file (or the async buffer) and calls the log
+     * handler, unless it is a duplicate.
+     * 
+     * @param channel  The channel the message is logged to
+     * @param level    The level of the message
+     * @param template The message template, or the message if {@code argCount} is
+     *                 0
+     * @param argCount The number of arguments
+     * @param arg0     The first argument
+     * @param arg1     The second argument
+     * @param arg2     The third argument
+     */
+    void log(LogChannel channel, Level level, String template, int argCount, double arg0, double arg1,
+            double arg2) {
+        log(channel, level, template, argCount, arg0, arg1, arg2, 0);
+    }
+
+    /**
+     * Logs a structured event built by {@link LogEvent}, marking its record as an
+     * event.
+     * 
+     * @param channel The channel the event is logged to
+     * @param level   The level of the event
+     * @param message The event, as a JSON object
+     */
+    void logEvent(LogChannel channel, Level level, String message) {
+        log(channel, level, message, 0, 0, 0, 0, RobotLogRecord.EVENT);
+    }
+
+    private void log(LogChannel channel, Level level, String template, int argCount, double arg0, double arg1,
+            double arg2, int flags) {
+        if (!isInitialized && logBeforeInit(channel, level, template, argCount, arg0, arg1, arg2, flags)) {
+            return;
+        }
+        if (flightRecorder != null) {
+            flightRecorder.record(channel.getName(), level, template, argCount, arg0, arg1, arg2);
+        }
+        if (isWanted(channel, level) && admit(channel, level, template, argCount, arg0, arg1, arg2)) {
+            write(channel, level, template, argCount, arg0, arg1, arg2, flags);
+        }
+    }
+
+    /**
+     * Writes a message template to the file (or the async buffer) and calls the
+     * log handler.
+     * 
+     * <p>
+     * The level is checked before anything else is done. The template is only
+     * formatted when the record is written out, or if there is a log handler.
+     * </p>
+     * 
+     * @param channel  The channel the message is logged to
+     * @param level    The level of the message
+     * @param template The message template, or the message if {@code argCount} is
+     *                 0
+     * @param argCount The number of arguments
+     * @param arg0     The first argument
+     * @param arg1     The second argument
+     * @param arg2     The third argument
+     * @param flags    The flags of the record, as in
+     *                 {@link RobotLogRecord#getFlags()}
+     */
+    private void write(LogChannel channel, Level level, String template, int argCount, double arg0, double arg1,
+            double arg2, int flags) {
+        boolean toFile = channel.isLoggable(level);
+        boolean toSubscribers = level.intValue() >= minSubscriptionLevel;
+        if (toFile || toSubscribers) {
+            double matchTime = Double.NaN;
+            RobotMode mode = null;
+            if (captureRobotState) {
+                matchTime = DriverStation.getInstance().getMatchTime();
+                mode = RobotMode.get();
+            }
+            long fpgaTime = RobotController.getFPGATime();
+            long wallTime = System.currentTimeMillis();
+
+            if (toFile) {
+                if (asyncBuffer != null) {
+                    asyncBuffer.offer(level.intValue(), fpgaTime, wallTime, matchTime, mode, channel.getName(),
+                            template, argCount, arg0, arg1, arg2, flags);
+                } else {
+                    RobotLogRecord record = new RobotLogRecord(level, null, fpgaTime);
+                    record.setWallTime(wallTime);
+                    record.setMatchTime(matchTime);
+                    record.setRobotMode(mode);
+                    record.setLoggerName(channel.getName());
+                    record.setTemplate(template, argCount, arg0, arg1, arg2);
+                    record.setFlags(flags);
+                    logger.log(record);
+                }
+            }
+            if (toSubscribers) {
+                dispatchBuffer.offer(level.intValue(), fpgaTime, wallTime, matchTime, mode, channel.getName(),
+                        template, argCount, arg0, arg1, arg2, flags);
+            }
+        }
+
+        if (logHandler != null) {
+            logHandler.accept(level, RobotLogRecord.formatTemplate(template, argCount, arg0, arg1, arg2));
+        }
+    }
+
+    /**
+     * Returns whether a message with the given level from the given channel would
+     * be written to the log, passed to the log handler, or passed to a subscriber.
+     */
+    private boolean isWanted(LogChannel channel, Level level) {
+        return logHandler != null || channel.isLoggable(level) || level.intValue() >= minSubscriptionLevel;
+    }
+
+    /**
+     * Returns whether a message with the given level would be used at all, either
+     * by being written to the log, passed to the log handler or a subscriber, or
+     * recorded by the flight recorder. This is a single comparison with the
+     * cached level of the root channel.
+     * 
+     * @param level The level
+     * @return Whether the message is needed
+     */
+    private boolean isNeeded(Level level) {
+        return rootChannel.isNeeded(level);
+    }
+
+    /**
+     * Logs an error and reports it to the Driver Station.
+     * 
+     * <p>
+     * The error will be logged with the {@code SEVERE} level and will also be
+     * reported to the DS. If the logger is not initialized yet, it is only
+     * written once it is.
+     * </p>
+     * <p>
+     * The report is sent immediately, unless batched reporting is enabled (see
+     * {@link #setBatchedDriverStationReporting(double, int)}).
+     * </p>
+     * 
+     * @param error The error message
+     */
+    public void logError(String error) {
+        logError(rootChannel, error);
+    }
+
+    /**
+     * Logs an error to a channel and reports it to the Driver Station. The report
+     * starts with the name of the channel.
+     * 
+     * @param channel The channel
+     * @param error   The error message
+     */
+    void logError(LogChannel channel, String error) {
+        if (!isInitialized && logBeforeInit(channel, Level.SEVERE, error, 0, 0, 0, 0, 0)) {
+            return;
+        }
+        if (flightRecorder != null) {
+            flightRecorder.record(channel.getName(), Level.SEVERE, error, 0, 0, 0, 0);
+        }
+        if (admit(channel, Level.SEVERE, error, 0, 0, 0, 0)) {
+            reportToDriverStation(true, withChannel(channel, error));
+            write(channel, Level.SEVERE, error, 0, 0, 0, 0, RobotLogRecord.REPORTED);
+            if (flightRecorder != null) {
+                flightRecorder.dump(withChannel(channel, error));
+            }
+        }
+    }
+
+    /**
+     * Logs a warning and reports it to the Driver Station.
+     * 
+     * <p>
+     * The warning will be logged with the {@code WARNING} level and will also be
+     * reported to the DS. If the logger is not initialized yet, it is only
+     * written once it is.
+     * </p>
+     * <p>
+     * The report is sent immediately, unless batched reporting is enabled (see
+     * {@link #setBatchedDriverStationReporting(double, int)}).
+     * </p>
+     * 
+     * @param warning The warning message
+     */
+    public void logWarning(String warning) {
+        logWarning(rootChannel, warning);
+    }
+
+    /**
+     * Logs a warning to a channel and reports it to the Driver Station. The
+     * report starts with the name of the channel.
+     * 
+     * @param channel The channel
+     * @param warning The warning message
+     */
+    void logWarning(LogChannel channel, String warning) {
+        if (!isInitialized && logBeforeInit(channel, Level.WARNING, warning, 0, 0, 0, 0, 0)) {
+            return;
+        }
+        if (flightRecorder != null) {
+            flightRecorder.record(channel.getName(), Level.WARNING, warning, 0, 0, 0, 0);
+        }
+        if (admit(channel, Level.WARNING, warning, 0, 0, 0, 0)) {
+            reportToDriverStation(false, withChannel(channel, warning));
+            write(channel, Level.WARNING, warning, 0, 0, 0, 0, RobotLogRecord.REPORTED);
+        }
+    }
+
+    /**
+     * Prefixes a message with the name of a channel, if it is not the root.
+     */
+    private static String withChannel(LogChannel channel, String message) {
+        return channel.getName() != null ? "[" + channel.getName() + "] " + message : message;
+    }
+
+    /**
+     * Logs regular info.
+     * 
+     * <p>
+     * The info will be logged with the {@code INFO} level. If the logger is not
+     * initialized yet, it is written once it is.
+     * </p>
+     * 
+     * @param info The info message
+     */
+    public void logInfo(String info) {
+        log(Level.INFO, info);
+    }
+
+    /**
+     * Logs regular info with a message template and one argument.
+     * 
+     * <p>
+     * The first {@code {}} in the template is replaced by the argument. The
+     * message is only formatted if it will actually be logged, and in
+     * asynchronous mode it is formatted on the writer thread. This avoids
+     * allocating anything when the {@code INFO} level is disabled, unless a log
+     * handler is set.
+     * </p>
+     * 
+     * @param template The message template
+     * @param arg      The argument
+     * @see #logInfo(String)
+     */
+    public void logInfo(String template, double arg) {
+        if (isNeeded(Level.INFO)) {
+            log(rootChannel, Level.INFO, template, 1, arg, 0, 0);
+        }
+    }
+
+    /**
+     * Logs regular info with a message template and two arguments.
+     * 
+     * <p>
+     * Each {@code {}} in the template is replaced by the next argument. The
+     * message is only formatted if it will actually be logged, and in
+     * asynchronous mode it is formatted on the writer thread. This avoids
+     * allocating anything when the {@code INFO} level is disabled, unless a log
+     * handler is set.
+     * </p>
+     * 
+     * @param template The message template
+     * @param arg0     The first argument
+     * @param arg1     The second argument
+     * @see #logInfo(String)
+     */
+    public void logInfo(String template, double arg0, double arg1) {
+        if (isNeeded(Level.INFO)) {
+            log(rootChannel, Level.INFO, template, 2, arg0, arg1, 0);
+        }
+    }
+
+    /**
+     * Logs regular info with a message template and three arguments.
+     * 
+     * <p>
+     * Each {@code {}} in the template is replaced by the next argument. The
+     * message is only formatted if it will actually be logged, and in
+     * asynchronous mode it is formatted on the writer thread. This avoids
+     * allocating anything when the {@code INFO} level is disabled, unless a log
+     * handler is set.
+     * </p>
+     * 
+     * @param template The message template
+     * @param arg0     The first argument
+     * @param arg1     The second argument
+     * @param arg2     The third argument
+     * @see #logInfo(String)
+     */
+    public void logInfo(String template, double arg0, double arg1, double arg2) {
+        if (isNeeded(Level.INFO)) {
+            log(rootChannel, Level.INFO, template, 3, arg0, arg1, arg2);
+        }
+    }
+
+    /**
+     * Logs regular info with a lazily computed message.
+     * 
+     * <p>
+     * The supplier is only called (on the calling thread) if the message will
+     * actually be logged, so the cost of building the message is avoided when the
+     * {@code INFO} level is disabled.
+     * </p>
+     * 
+     * @param supplier The supplier of the message
+     * @see #logInfo(String)
+     */
+    public void logInfo(Supplier<String> supplier) {
+        if (isNeeded(Level.INFO)) {
+            log(Level.INFO, supplier.get());
+        }
+    }
+
+    /**
+     * Starts a structured event, e.g.
+     * 
+     * <pre>
+     * logger.event(Level.WARNING, "trip").put("channel", 4).put("amps", 61.2).log();
+     * </pre>
+     * <p>
+     * The event is logged once {@link LogEvent#log()} is called, with its fields
+     * written as JSON. If the event is not needed at its level, the fields are
+     * ignored.
+     * </p>
+     * 
+     * @param level The level of the event
+     * @param name  The name of the event
+     * @return The event
+     * @see LogEvent
+     * @see JsonLinesHandler
+     */
+    public LogEvent event(Level level, String name) {
+        return rootChannel.event(level, name);
+    }
+
+    /**
+     * Starts an event on the reused event of the current thread.
+     * 
+     * @param channel The channel the event is logged to
+     * @param level   The level of the event
+     * @param name    The name of the event
+     * @return The event
+     */
+    LogEvent startEvent(LogChannel channel, Level level, String name) {
+        return events.get().start(channel, level, name);
+    }
+
+    /**
+     * Logs fine info.
+     * 
+     * <p>
+     * The info will be logged with the {@code FINE} level. If the logger is not
+     * initialized yet, it is written once it is.
+     * </p>
+     * 
+     * @param infoFine The info message
+     */
+    public void logInfoFine(String infoFine) {
+        log(Level.FINE, infoFine);
+    }
+
+    /**
+     * Logs fine info with a message template and one argument.
+     * 
+     * <p>
+     * The first {@code {}} in the template is replaced by the argument. The
+     * message is only formatted if it will actually be logged, and in
+     * asynchronous mode it is formatted on the writer thread. This avoids
+     * allocating anything when the {@code FINE} level is disabled, unless a log
+     * handler is set.
+     * </p>
+     * 
+     * @param template The message template
+     * @param arg      The argument
+     * @see #logInfoFine(String)
+     */
+    public void logInfoFine(String template, double arg) {
+        if (isNeeded(Level.FINE)) {
+            log(rootChannel, Level.FINE, template, 1, arg, 0, 0);
+        }
+    }
+
+    /**
+     * Logs fine info with a message template and two arguments.
+     * 
+     * <p>
+     * Each {@code {}} in the template is replaced by the next argument. The
+     * message is only formatted if it will actually be logged, and in
+     * asynchronous mode it is formatted on the writer thread. This avoids
+     * allocating anything when the {@code FINE} level is disabled, unless a log
+     * handler is set.
+     * </p>
+     * 
+     * @param template The message template
+     * @param arg0     The first argument
+     * @param arg1     The second argument
+     * @see #logInfoFine(String)
+     */
+    public void logInfoFine(String template, double arg0, double arg1) {
+        if (isNeeded(Level.FINE)) {
+            log(rootChannel, Level.FINE, template, 2, arg0, arg1, 0);
+        }
+    }
+
+    /**
+     * Logs fine info with a message template and three arguments.
+     * 
+     * <p>
+     * Each {@code {}} in the template is replaced by the next argument. The
+     * message is only formatted if it will actually be logged, and in
+     * asynchronous mode it is formatted on the writer thread. This avoids
+     * allocating anything when the {@code FINE} level is disabled, unless a log
+     * handler is set.
+     * </p>
+     * 
+     * @param template The message template
+     * @param arg0     The first argument
+     * @param arg1     The second argument
+     * @param arg2     The third argument
+     * @see #logInfoFine(String)
+     */
+    public void logInfoFine(String template, double arg0, double arg1, double arg2) {
+        if (isNeeded(Level.FINE)) {
+            log(rootChannel, Level.FINE, template, 3, arg0, arg1, arg2);
+        }
+    }
+
+    /**
+     * Logs fine info with a lazily computed message.
+     * 
+     * <p>
+     * The supplier is only called (on the calling thread) if the message will
+     * actually be logged, so the cost of building the message is avoided when the
+     * {@code FINE} level is disabled.
+     * </p>
+     * 
+     * @param supplier The supplier of the message
+     * @see #logInfoFine(String)
+     */
+    public void logInfoFine(Supplier<String> supplier) {
+        if (isNeeded(Level.FINE)) {
+            log(Level.FINE, supplier.get());
+        }
+    }
+
+    /**
+     * Logs finer info.
+     * 
+     * <p>
+     * The info will be logged with the {@code FINER} level. If the logger is not
+     * initialized yet, it is written once it is.
+     * </p>
+     * 
+     * @param infoFiner The info message
+     */
+    public void logInfoFiner(String infoFiner) {
+        log(Level.FINER, infoFiner);
+    }
+
+    /**
+     * Logs finer info with a message template and one argument.
+     * 
+     * <p>
+     * The first {@code {}} in the template is replaced by the argument. The
+     * message is only formatted if it will actually be logged, and in
+     * asynchronous mode it is formatted on the writer thread. This avoids
+     * allocating anything when the {@code FINER} level is disabled, unless a log
+     * handler is set.
+     * </p>
+     * 
+     * @param template The message template
+     * @param arg      The argument
+     * @see #logInfoFiner(String)
+     */
+    public void logInfoFiner(String template, double arg) {
+        if (isNeeded(Level.FINER)) {
+            log(rootChannel, Level.FINER, template, 1, arg, 0, 0);
+        }
+    }
+
+    /**
+     * Logs finer info with a message template and two arguments.
+     * 
+     * <p>
+     * Each {@code {}} in the template is replaced by the next argument. The
+     * message is only formatted if it will actually be logged, and in
+     * asynchronous mode it is formatted on the writer thread. This avoids
+     * allocating anything when the {@code FINER} level is disabled, unless a log
+     * handler is set.
+     * </p>
+     * 
+     * @param template The message template
+     * @param arg0     The first argument
+     * @param arg1     The second argument
+     * @see #logInfoFiner(String)
+     */
+    public void logInfoFiner(String template, double arg0, double arg1) {
+        if (isNeeded(Level.FINER)) {
+            log(rootChannel, Level.FINER, template, 2, arg0, arg1, 0);
+        }
+    }
+
+    /**
+     * Logs finer info with a message template and three arguments.
+     * 
+     * <p>
+     * Each {@code {}} in the template is replaced by the next argument. The
+     * message is only formatted if it will actually be logged, and in
+     * asynchronous mode it is formatted on the writer thread. This avoids
+     * allocating anything when the {@code FINER} level is disabled, unless a log
+     * handler is set.
+     * </p>
+     * 
+     * @param template The message template
+     * @param arg0     The first argument
+     * @param arg1     The second argument
+     * @param arg2     The third argument
+     * @see #logInfoFiner(String)
+     */
+    public void logInfoFiner(String template, double arg0, double arg1, double arg2) {
+        if (isNeeded(Level.FINER)) {
+            log(rootChannel, Level.FINER, template, 3, arg0, arg1, arg2);
+        }
+    }
+
+    /**
+     * Logs finer info with a lazily computed message.
+     * 
+     * <p>
+     * The supplier is only called (on the calling thread) if the message will
+     * actually be logged, so the cost of building the message is avoided when the
+     * {@code FINER} level is disabled.
+     * </p>
+     * 
+     * @param supplier The supplier of the message
+     * @see #logInfoFiner(String)
+     */
+    public void logInfoFiner(Supplier<String> supplier) {
+        if (isNeeded(Level.FINER)) {
+            log(Level.FINER, supplier.get());
+        }
+    }
+
+    /**
+     * Logs finest info.
+     * 
+     * <p>
+     * The info will be logged with the {@code FINEST} level. If the logger is not
+     * initialized yet, it is written once it is.
+     * </p>
+     * 
+     * @param infoFinest The info message
+     */
+    public void logInfoFinest(String infoFinest) {
+        log(Level.FINEST, infoFinest);
+    }
+
+    /**
+     * Logs finest info with a message template and one argument.
+     * 
+     * <p>
+     * The first {@code {}} in the template is replaced by the argument. The
+     * message is only formatted if it will actually be logged, and in
+     * asynchronous mode it is formatted on the writer thread. This avoids
+     * allocating anything when the {@code FINEST} level is disabled, unless a log
+     * handler is set.
+     * </p>
+     * 
+     * @param template The message template
+     * @param arg      The argument
+     * @see #logInfoFinest(String)
+     */
+    public void logInfoFinest(String template, double arg) {
+        if (isNeeded(Level.FINEST)) {
+            log(rootChannel, Level.FINEST, template, 1, arg, 0, 0);
+        }
+    }
+
+    /**
+     * Logs finest info with a message template and two arguments.
+     * 
+     * <p>
+     * Each {@code {}} in the template is replaced by the next argument. The
+     * message is only formatted if it will actually be logged, and in
+     * asynchronous mode it is formatted on the writer thread. This avoids
+     * allocating anything when the {@code FINEST} level is disabled, unless a log
+     * handler is set.
+     * </p>
+     * 
+     * @param template The message template
+     * @param arg0     The first argument
+     * @param arg1     The second argument
+     * @see #logInfoFinest(String)
+     */
+    public void logInfoFinest(String template, double arg0, double arg1) {
+        if (isNeeded(Level.FINEST)) {
+            log(rootChannel, Level.FINEST, template, 2, arg0, arg1, 0);
+        }
+    }
+
+    /**
+     * Logs finest info with a message template and three arguments.
+     * 
+     * <p>
+     * Each {@code {}} in the template is replaced by the next argument. The
+     * message is only formatted if it will actually be logged, and in
+     * asynchronous mode it is formatted on the writer thread. This avoids
+     * allocating anything when the {@code FINEST} level is disabled, unless a log
+     * handler is set.
+     * </p>
+     * 
+     * @param template The message template
+     * @param arg0     The first argument
+     * @param arg1     The second argument
+     * @param arg2     The third argument
+     * @see #logInfoFinest(String)
+     */
+    public void logInfoFinest(String template, double arg0, double arg1, double arg2) {
+        if (isNeeded(Level.FINEST)) {
+            log(rootChannel, Level.FINEST, template, 3, arg0, arg1, arg2);
+        }
+    }
+
+    /**
+     * Logs finest info with a lazily computed message.
+     * 
+     * <p>
+     * The supplier is only called (on the calling thread) if the message will
+     * actually be logged, so the cost of building the message is avoided when the
+     * {@code FINEST} level is disabled.
+     * </p>
+     * 
+     * @param supplier The supplier of the message
+     * @see #logInfoFinest(String)
+     */
+    public void logInfoFinest(Supplier<String> supplier) {
+        if (isNeeded(Level.FINEST)) {
+            log(Level.FINEST, supplier.get());
+        }
+    }
+
+    /**
+     * Writes the logs out to a file.
      * 
      * <p>
      * This is automatically done via a shutdown hook when the VM exits. However, as
@@ -388,19 +1746,84 @@ public class RobotLogger {
      * called in the {@link edu.wpi.first.wpilibj.IterativeRobotBase#disabledInit()
      * disabledInit()} method to flush the logs every time the robot is disabled.
      * </p>
+     * <p>
+     * Any pending counts of suppressed duplicate or rate-limited messages are
+     * logged first.
+     * </p>
      */
     public void flush() {
         if (isInitialized) {
+            DuplicateFilter filter = duplicateFilter;
+            if (filter != null) {
+                filter.flush();
+            }
+            for (LogRateLimiter limiter : rateLimiters) {
+                limiter.report();
+            }
+            if (asyncWriter != null) {
+                asyncWriter.flush(ASYNC_FLUSH_TIMEOUT);
+            }
             fileHandler.flush();
+            if (dispatcher != null) {
+                dispatcher.flush(ASYNC_FLUSH_TIMEOUT);
+                for (LogSubscription subscription : subscriptions) {
+                    subscription.flush(ASYNC_FLUSH_TIMEOUT);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the handler that writes the log file, e.g. to read the statistics of
+     * a {@link CompressedFileHandler}.
+     * 
+     * @return The handler, or {@code null} if the logger is not initialized
+     */
+    public Handler getFileHandler() {
+        return fileHandler;
+    }
+
+    /**
+     * Gets the catalog of the log directory.
+     * 
+     * @return The catalog, or {@code null} if the logger is not initialized
+     */
+    public LogCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Deletes the oldest logs in the log directory until their total size is at
+     * most {@code maxTotalBytes}, and none is more than {@code maxAgeHours} old.
+     * 
+     * <p>
+     * This is done in the background using the {@link LogCatalog} of the log
+     * directory, so the cost only depends on the number of files deleted. The
+     * log currently being written to is never deleted. Log files that were not
+     * written by this class are not in the catalog, except for those that were
+     * already in the directory the first time the catalog was created.
+     * </p>
+     * <p>
+     * This method will have no effect if the logger is not initialized.
+     * </p>
+     * 
+     * @param maxTotalBytes The max total size, in bytes, of all logs
+     * @param maxAgeHours   The max age, in hours, of a log before it gets deleted
+     * @return A future that gives the number of files deleted
+     */
+    public Future<Integer> enforceRetention(long maxTotalBytes, double maxAgeHours) {
+        if (!isInitialized) {
+            return CompletableFuture.completedFuture(0);
         }
+        return catalog.enforce(maxTotalBytes, maxAgeHours);
     }
 
     /**
      * Deletes all the logs that are more than a certain number of hours old.
      * 
      * <p>
-     * This method will only delete files that have an extension of .log, or
-     * .log.lck.
+     * This method will only delete files that have an extension of .log,
+     * .log.lck, .log.gz, .log.idx, .log.crc, .jsonl or .rlog.
      * </p>
      * <p>
      * Note that unlike {@link #cleanLogs(File, double)}, this method will have no
@@ -421,8 +1844,10 @@ public class RobotLogger {
      * Deletes all the logs that are more than a certain number of hours old.
      * 
      * <p>
-     * This method will only delete files that have an extension of .log, or
-     * .log.lck.
+     * This method will only delete files that have an extension of .log,
+     * .log.lck, .log.gz, .log.idx, .log.crc, .jsonl or .rlog. The log currently
+     * being written to is never deleted, but compressed segments of it written by a
+     * {@link RotatingFileHandler} are.
      * </p>
      * <p>
      * Unlike {@link #cleanLogs(double)}, this method still works even if the logger
@@ -442,28 +1867,56 @@ public class RobotLogger {
                 return;
             }
         }
+        // Only the directory needs to be compared to find the current log
+        // since the file names of the current log all start with the base name
+        boolean isCurrentDir;
+        try {
+            isCurrentDir = isInitialized && logDir.getCanonicalPath().equals(this.logDir.getCanonicalPath());
+        } catch (IOException e) {
+            // WTF
+            e.printStackTrace();
+            throw new UncheckedIOException("Something bad just happened that never should", e);
+        }
         // Cache the current date and time
         Date now = new Date();
         // Go through all files in the dir
         for (File f : logDir.listFiles()) {
-            // Check only files that end in .log
-            // Also make sure that it's not the file currently used
-            try {
-                if (f.isFile()
-                        && (f.getName().endsWith(".log") && !f.getCanonicalPath().equals(logFile.getCanonicalPath()))
-                        || (f.getName().endsWith(".log.lck")
-                                && !f.getCanonicalPath().equals(logFile.getCanonicalPath() + ".lck"))) {
-                    // Calculate time after last modified
-                    double diffHours = (now.getTime() - f.lastModified()) / 3600000.0;
-                    if (diffHours >= maxAgeHours) {
-                        f.delete();
-                    }
+            String name = f.getName();
+            // Check only log files, and make sure that it's not the file currently used
+            if (f.isFile() && isLogFileName(name) && !(isCurrentDir && isCurrentLogFileName(name))) {
+                // Calculate time after last modified
+                double diffHours = (now.getTime() - f.lastModified()) / 3600000.0;
+                if (diffHours >= maxAgeHours) {
+                    f.delete();
                 }
-            } catch (IOException e) {
-                // WTF
-                e.printStackTrace();
-                throw new UncheckedIOException("Something bad just happened that never should", e);
             }
         }
     }
+
+    /**
+     * Returns whether a file name has one of the extensions of log files.
+     * 
+     * @param name The file name
+     * @return Whether it is the name of a log file
+     */
+    static boolean isLogFileName(String name) {
+        return name.endsWith(".log") || name.endsWith(".log.lck") || name.endsWith(BinaryLogHandler.EXTENSION)
+                || name.endsWith(".log" + RotatingFileHandler.COMPRESSED_EXTENSION)
+                || name.endsWith(".log" + IndexedFileHandler.INDEX_EXTENSION)
+                || name.endsWith(".log" + DurableFileHandler.CHECKSUM_EXTENSION)
+                || name.endsWith(JsonLinesHandler.EXTENSION);
+    }
+
+    /**
+     * Returns whether a file in the log directory may still be written to by this
+     * logger. Compressed segments are already closed, so they are not, unlike a
+     * log written by {@link CompressedFileHandler}.
+     * 
+     * @param name The file name
+     * @return Whether it belongs to the current log
+     */
+    private boolean isCurrentLogFileName(String name) {
+        return name.startsWith(logBaseName) && (!name.endsWith(RotatingFileHandler.COMPRESSED_EXTENSION)
+                || name.equals(logBaseName + CompressedFileHandler.EXTENSION));
+    }
 }
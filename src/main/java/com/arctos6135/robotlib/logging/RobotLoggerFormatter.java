@@ -0,0 +1,210 @@
+package com.arctos6135.robotlib.logging;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumSet;
+import java.util.logging.Formatter;
+import java.util.logging.LogRecord;
+
+/**
+ * The formatter used for {@link RobotLogger}'s text logs.
+ *
+ * <p>
+ * By default, messages are formatted as:
+ * </p>
+ *
+ * <pre>
+ * (yyyy/MM/dd HH:mm:ss) [LEVEL]: Message
+ * </pre>
+ * <p>
+ * Additional columns can be added between the time and the level:
+ * </p>
+ * <ul>
+ * <li>{@link Column#FPGA_TIME}: the FPGA timestamp in seconds, e.g.
+ * {@code [fpga 123.456789]}</li>
+ * <li>{@link Column#MATCH_TIME}: the match time in seconds, e.g.
+ * {@code [match 135.0]}, or {@code [match -]} if it is not available</li>
+ * <li>{@link Column#ROBOT_MODE}: the mode the robot was in, e.g.
+ * {@code [TELEOP]}</li>
+ * </ul>
+ * <p>
+ * Messages logged to a {@link LogChannel} start with the name of the channel,
+ * e.g. {@code [INFO]: [drive] Message}.
+ * </p>
+ * <p>
+ * All times are the times at which the record was logged, not the time it was
+ * formatted. The match time and robot mode are only available for records
+ * logged by a {@link RobotLogger} that uses a formatter with those columns
+ * (see {@link RobotLogger#setFormatter(Formatter)}).
+ * </p>
+ * <p>
+ * This formatter is thread-safe without any locking. Each thread formats into
+ * its own reused buffer, and caches the formatted date and time for the current
+ * second. {@link #formatTo(LogRecord, StringBuilder)} can be used to format a
+ * record into an existing buffer without creating a {@code String} at all.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+public class RobotLoggerFormatter extends Formatter {
+
+    /**
+     * The optional columns a {@link RobotLoggerFormatter} can output.
+     */
+    public enum Column {
+        /**
+         * The FPGA timestamp, in seconds.
+         */
+        FPGA_TIME,
+        /**
+         * The match time, in seconds.
+         */
+        MATCH_TIME,
+        /**
+         * The mode the robot was in.
+         */
+        ROBOT_MODE;
+    }
+
+    private static final String DATE_PATTERN = "(yyyy/MM/dd HH:mm:ss)";
+
+    /**
+     * Per-thread formatting state.
+     */
+    private static final class State {
+        final StringBuilder builder = new StringBuilder(256);
+        // The epoch second the cached date is for
+        long cachedSecond = Long.MIN_VALUE;
+        final StringBuilder cachedDate = new StringBuilder(DATE_PATTERN.length());
+    }
+
+    private final DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern(DATE_PATTERN)
+            .withZone(ZoneId.systemDefault());
+    private final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
+
+    private final boolean fpgaTime;
+    private final boolean matchTime;
+    private final boolean robotMode;
+
+    /**
+     * Creates a new formatter with the specified optional columns.
+     *
+     * @param columns The optional columns to include
+     */
+    public RobotLoggerFormatter(Column... columns) {
+        EnumSet<Column> set = EnumSet.noneOf(Column.class);
+        for (Column column : columns) {
+            set.add(column);
+        }
+        fpgaTime = set.contains(Column.FPGA_TIME);
+        matchTime = set.contains(Column.MATCH_TIME);
+        robotMode = set.contains(Column.ROBOT_MODE);
+    }
+
+    /**
+     * Returns whether this formatter needs the match time or robot mode to be
+     * recorded with each record.
+     *
+     * @return Whether the robot state is needed
+     */
+    public boolean usesRobotState() {
+        return matchTime || robotMode;
+    }
+
+    @Override
+    public String format(LogRecord record) {
+        StringBuilder builder = state.get().builder;
+        builder.setLength(0);
+        formatTo(record, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Formats a record, appending it to the specified buffer.
+     *
+     * <p>
+     * This does not allocate any memory other than what is needed to grow the
+     * buffer, so reusing the same buffer for every record is allocation-free.
+     * </p>
+     *
+     * @param record  The record to format
+     * @param builder The buffer to append to
+     */
+    public void formatTo(LogRecord record, StringBuilder builder) {
+        appendDate(record.getMillis(), builder);
+
+        RobotLogRecord robotRecord = record instanceof RobotLogRecord ? (RobotLogRecord) record : null;
+        if (fpgaTime) {
+            builder.append(" [fpga ");
+            if (robotRecord != null) {
+                appendMicros(robotRecord.getFpgaTime(), builder);
+            } else {
+                builder.append('-');
+            }
+            builder.append(']');
+        }
+        if (matchTime) {
+            builder.append(" [match ");
+            double time = robotRecord != null ? robotRecord.getMatchTime() : Double.NaN;
+            if (time >= 0) {
+                // One decimal place
+                long tenths = Math.round(time * 10);
+                builder.append(tenths / 10).append('.').append(tenths % 10);
+            } else {
+                builder.append('-');
+            }
+            builder.append(']');
+        }
+        if (robotMode) {
+            RobotMode mode = robotRecord != null ? robotRecord.getRobotMode() : null;
+            builder.append(" [").append(mode != null ? mode.name() : "-").append(']');
+        }
+
+        builder.append(" [").append(record.getLevel().getName()).append("]: ");
+        if (robotRecord != null) {
+            if (robotRecord.getLoggerName() != null) {
+                builder.append('[').append(robotRecord.getLoggerName()).append("] ");
+            }
+            robotRecord.appendMessage(builder);
+        } else {
+            builder.append(record.getMessage());
+        }
+        builder.append('\n');
+    }
+
+    /**
+     * Appends the formatted date for the given time, using the cached value if it
+     * is in the same second as the last call on this thread.
+     */
+    private void appendDate(long millis, StringBuilder builder) {
+        State s = state.get();
+        long second = Math.floorDiv(millis, 1000);
+        if (second != s.cachedSecond) {
+            s.cachedDate.setLength(0);
+            dateFormat.formatTo(Instant.ofEpochSecond(second), s.cachedDate);
+            s.cachedSecond = second;
+        }
+        builder.append(s.cachedDate);
+    }
+
+    /**
+     * Appends a time in microseconds as seconds with 6 decimal places.
+     *
+     * @param micros  The time in microseconds
+     * @param builder The buffer to append to
+     */
+    static void appendMicros(long micros, StringBuilder builder) {
+        if (micros < 0) {
+            builder.append('-');
+            micros = -micros;
+        }
+        builder.append(micros / 1000000).append('.');
+        long fraction = micros % 1000000;
+        // Pad to 6 digits
+        for (long i = 100000; i > fraction && i > 1; i /= 10) {
+            builder.append('0');
+        }
+        builder.append(fraction);
+    }
+}
@@ -0,0 +1,58 @@
+package com.arctos6135.robotlib.logging;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * The modes a robot can be in.
+ *
+ * @author Tyler Tian
+ */
+public enum RobotMode {
+    /**
+     * The robot is disabled.
+     */
+    DISABLED,
+    /**
+     * The robot is enabled in autonomous mode.
+     */
+    AUTONOMOUS,
+    /**
+     * The robot is enabled in teleop mode.
+     */
+    TELEOP,
+    /**
+     * The robot is enabled in test mode.
+     */
+    TEST;
+
+    // Cached since values() creates a new array every time
+    private static final RobotMode[] VALUES = values();
+
+    /**
+     * Gets the mode the robot is currently in, according to the Driver Station.
+     *
+     * @return The current mode
+     */
+    public static RobotMode get() {
+        DriverStation ds = DriverStation.getInstance();
+        if (ds.isDisabled()) {
+            return DISABLED;
+        } else if (ds.isAutonomous()) {
+            return AUTONOMOUS;
+        } else if (ds.isTest()) {
+            return TEST;
+        } else {
+            return TELEOP;
+        }
+    }
+
+    /**
+     * Gets the mode with the specified ordinal.
+     *
+     * @param ordinal The ordinal, or a negative number
+     * @return The mode, or {@code null} if the ordinal is negative
+     */
+    static RobotMode fromOrdinal(int ordinal) {
+        return ordinal < 0 ? null : VALUES[ordinal];
+    }
+}
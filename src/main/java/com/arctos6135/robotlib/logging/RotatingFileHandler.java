@@ -0,0 +1,269 @@
+package com.arctos6135.robotlib.logging;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A {@link Handler} that writes text logs into a series of files, starting a
+ * new one when the current one gets too large or too old.
+ *
+ * <p>
+ * The first segment is named {@code <base name>.log}, and the following ones
+ * {@code <base name>.1.log}, {@code <base name>.2.log} and so on. Once a
+ * segment is closed, it is compressed into {@code <segment name>.gz} and the
+ * uncompressed file is deleted. The segment currently being written to is never
+ * compressed.
+ * </p>
+ * <p>
+ * All the slow work is done on a low-priority background thread: the next
+ * segment is opened ahead of time, and closed segments are flushed, closed and
+ * compressed there. Switching to the next segment is only a swap of the writer.
+ * If the next segment happens to not be open yet, records keep going into the
+ * current segment until it is, so no record is ever lost or blocked because of
+ * a rotation.
+ * </p>
+ * <p>
+ * Like {@link BufferedFileHandler}, this handler does not flush after every
+ * record. To have {@link RobotLogger} use it, e.g. with 1 MiB or 10 minute
+ * segments:
+ * </p>
+ *
+ * <pre>
+ * logger.setFileHandlerFactory(RotatingFileHandler.factory(1024 * 1024, 600));
+ * </pre>
+ *
+ * @author Tyler Tian
+ */
+public class RotatingFileHandler extends Handler implements CatalogedHandler, TransientRecordHandler {
+
+    /**
+     * The extension added to compressed segments.
+     */
+    public static final String COMPRESSED_EXTENSION = ".gz";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File logDir;
+    private final String baseName;
+    private final long maxBytes;
+    private final long maxNanos;
+
+    // Opens the next segment, and closes and compresses old ones
+    private final SegmentOpener<Writer> segments;
+
+    private final RecordEncoder encoder = new RecordEncoder();
+
+    private Writer writer;
+    private File file;
+    // Number of chars written to the current segment
+    private long written = 0;
+    private long segmentStart;
+
+    private boolean closed = false;
+    // Set once; read by the background thread
+    private volatile LogCatalog catalog;
+
+    /**
+     * Creates a new handler.
+     *
+     * <p>
+     * A limit that is zero or negative is not used. If both limits are unused,
+     * the handler never rotates.
+     * </p>
+     *
+     * @param logDir     The directory to write to
+     * @param baseName   The base name of the segments
+     * @param maxBytes   The approximate max size of a segment, in bytes
+     * @param maxSeconds The max time a segment is written to, in seconds
+     * @throws IOException If the first segment cannot be opened
+     */
+    public RotatingFileHandler(File logDir, String baseName, long maxBytes, double maxSeconds) throws IOException {
+        this.logDir = logDir;
+        this.baseName = baseName;
+        this.maxBytes = maxBytes > 0 ? maxBytes : Long.MAX_VALUE;
+        this.maxNanos = maxSeconds > 0 ? (long) (maxSeconds * 1e9) : Long.MAX_VALUE;
+
+        file = segmentFile(0);
+        writer = open(file);
+        segmentStart = System.nanoTime();
+
+        segments = new SegmentOpener<>(this, "RobotLogger-Rotator", this::segmentFile, RotatingFileHandler::open);
+        setFormatter(new RobotLoggerFormatter());
+    }
+
+    /**
+     * Gets a factory that creates a {@link RotatingFileHandler} for a
+     * {@link RobotLogger}.
+     *
+     * @param maxBytes   The approximate max size of a segment, in bytes, or 0 for
+     *                   no limit
+     * @param maxSeconds The max time a segment is written to, in seconds, or 0 for
+     *                   no limit
+     * @return The factory
+     * @see RobotLogger#setFileHandlerFactory(LogHandlerFactory)
+     */
+    public static LogHandlerFactory factory(long maxBytes, double maxSeconds) {
+        return (logDir, baseName) -> new RotatingFileHandler(logDir, baseName, maxBytes, maxSeconds);
+    }
+
+    private File segmentFile(int n) {
+        return new File(logDir, n == 0 ? baseName + ".log" : baseName + "." + n + ".log");
+    }
+
+    private static Writer open(File file) throws IOException {
+        return new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(file, true), BUFFER_SIZE),
+                StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public synchronized void setCatalog(LogCatalog catalog) {
+        this.catalog = catalog;
+        catalog.fileOpened(file);
+    }
+
+    @Override
+    public synchronized void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) {
+            return;
+        }
+        if (!encoder.format(this, record)) {
+            return;
+        }
+
+        int length = encoder.length();
+        if (written > 0 && (written + length > maxBytes || System.nanoTime() - segmentStart >= maxNanos)) {
+            rotate();
+        }
+
+        try {
+            encoder.writeTo(writer);
+            written += length;
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    /**
+     * Switches to the next segment if it has been opened, and hands the current
+     * one to the background thread to be closed and compressed.
+     */
+    private void rotate() {
+        Writer nextWriter = segments.next();
+        if (nextWriter == null) {
+            // Keep writing to the current segment for now
+            return;
+        }
+
+        Writer oldWriter = writer;
+        File oldFile = file;
+        writer = nextWriter;
+        file = segments.getFile();
+        written = 0;
+        segmentStart = System.nanoTime();
+
+        segments.execute(() -> closeAndCompress(oldWriter, oldFile));
+        if (catalog != null) {
+            catalog.fileOpened(file);
+        }
+    }
+
+    private void closeAndCompress(Writer oldWriter, File oldFile) {
+        try {
+            oldWriter.close();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.CLOSE_FAILURE);
+            return;
+        }
+        LogCatalog catalog = this.catalog;
+        if (catalog != null) {
+            catalog.fileClosed(oldFile);
+        }
+        try {
+            File compressed = compress(oldFile);
+            if (catalog != null) {
+                catalog.fileReplaced(oldFile, compressed);
+            }
+        } catch (IOException e) {
+            // The uncompressed segment is left in place
+            reportError("Failed to compress " + oldFile.getName(), e, ErrorManager.GENERIC_FAILURE);
+        }
+    }
+
+    /**
+     * Compresses a file into {@code <name>.gz}, and deletes the original.
+     *
+     * <p>
+     * The compressed data is first written to a temporary file, so an incomplete
+     * {@code .gz} file is never left behind.
+     * </p>
+     *
+     * @param file The file to compress
+     * @return The compressed file
+     * @throws IOException If an I/O error occurs
+     */
+    static File compress(File file) throws IOException {
+        File target = new File(file.getPath() + COMPRESSED_EXTENSION);
+        File temp = new File(target.getPath() + ".tmp");
+        try (InputStream in = new FileInputStream(file);
+                OutputStream out = new GZIPOutputStream(new FileOutputStream(temp), BUFFER_SIZE)) {
+            byte[] buf = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.delete(file.toPath());
+        return target;
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (closed) {
+            return;
+        }
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.FLUSH_FAILURE);
+        }
+    }
+
+    /**
+     * Closes the current segment, and waits for all closed segments to be
+     * compressed.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writer.close();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.CLOSE_FAILURE);
+        }
+        if (catalog != null) {
+            catalog.fileClosed(file);
+        }
+        segments.close();
+    }
+}
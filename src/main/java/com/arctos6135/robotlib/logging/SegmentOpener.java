@@ -0,0 +1,170 @@
+package com.arctos6135.robotlib.logging;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+
+/**
+ * Opens the next segment of a segmented log ahead of time on a low-priority
+ * background thread, so that switching segments is only a swap of the output.
+ *
+ * <p>
+ * This is shared by the handlers of this package that write a series of
+ * segments. The segment after the current one is always being opened, or open
+ * and waiting. {@link #next()} hands it over once it is open, and starts
+ * opening the one after it. The background thread also runs other slow work for
+ * the handler, such as closing old segments, with {@link #execute(Runnable)}.
+ * An opener is not thread-safe, and is meant to be used while holding the lock
+ * of its handler.
+ * </p>
+ *
+ * @param <T> The type of the output of a segment
+ * @author Tyler Tian
+ */
+final class SegmentOpener<T extends Closeable> {
+
+    /**
+     * Opens the output of a segment.
+     *
+     * @param <T> The type of the output
+     */
+    @FunctionalInterface
+    interface Opener<T> {
+        /**
+         * Opens the output of a segment.
+         *
+         * @param file The file of the segment
+         * @return The output
+         * @throws IOException If the segment cannot be opened
+         */
+        T open(File file) throws IOException;
+    }
+
+    // Max time to wait for the background thread to finish when closing
+    private static final long CLOSE_TIMEOUT = 10000;
+
+    private final Handler handler;
+    private final IntFunction<File> files;
+    private final Opener<T> opener;
+    private final ExecutorService background;
+
+    // The number of the current segment
+    private int segment = 0;
+    // The next segment, opened in the background
+    private Future<T> next;
+
+    /**
+     * Creates a new opener, and starts opening segment 1. Segment 0 is opened
+     * by the handler itself.
+     *
+     * @param handler    The handler; errors are reported to its error manager
+     * @param threadName The name of the background thread
+     * @param files      Gets the file of a segment from its number
+     * @param opener     Opens the output of a segment
+     */
+    SegmentOpener(Handler handler, String threadName, IntFunction<File> files, Opener<T> opener) {
+        this.handler = handler;
+        this.files = files;
+        this.opener = opener;
+        background = Executors.newSingleThreadExecutor(LogThreads.factory(threadName));
+        openNext();
+    }
+
+    /**
+     * Starts opening the segment after the current one in the background.
+     */
+    private void openNext() {
+        File nextFile = files.apply(segment + 1);
+        next = background.submit(() -> opener.open(nextFile));
+    }
+
+    /**
+     * Gets the number of the current segment.
+     *
+     * @return The number of the current segment
+     */
+    int getSegment() {
+        return segment;
+    }
+
+    /**
+     * Gets the file of the current segment.
+     *
+     * @return The file of the current segment
+     */
+    File getFile() {
+        return files.apply(segment);
+    }
+
+    /**
+     * Switches to the next segment if it has been opened, and starts opening
+     * the one after it. If opening the next segment failed, the failure is
+     * reported and it is opened again.
+     *
+     * @return The output of the next segment, which is now the current one, or
+     *         {@code null} to keep writing to the current segment for now
+     */
+    T next() {
+        if (!next.isDone()) {
+            return null;
+        }
+        T output;
+        try {
+            output = next.get();
+        } catch (ExecutionException e) {
+            // The cause can be an Error, which the error manager does not take
+            Throwable cause = e.getCause();
+            handler.getErrorManager().error("Failed to open the next log segment",
+                    cause instanceof Exception ? (Exception) cause : e, ErrorManager.OPEN_FAILURE);
+            openNext();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        segment++;
+        openNext();
+        return output;
+    }
+
+    /**
+     * Runs a task on the background thread, after the tasks before it.
+     *
+     * @param task The task
+     */
+    void execute(Runnable task) {
+        background.execute(task);
+    }
+
+    /**
+     * Closes and deletes the next segment, which was never used, and waits for
+     * the background thread to finish all its tasks.
+     */
+    void close() {
+        // Tasks run in order, so the next segment has been opened by the time this runs
+        Future<T> unused = next;
+        File unusedFile = files.apply(segment + 1);
+        background.execute(() -> {
+            try {
+                unused.get().close();
+                unusedFile.delete();
+            } catch (ExecutionException | InterruptedException | IOException e) {
+                // Nothing to clean up
+            }
+        });
+        background.shutdown();
+        try {
+            background.awaitTermination(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package com.arctos6135.robotlib.logging;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * A {@link Handler} that writes text logs to a spool directory in RAM, and moves
+ * them to the log directory in large batches.
+ *
+ * <p>
+ * On the roboRIO, {@code /tmp} is a tmpfs, so writing to it costs no flash I/O
+ * at all. Records are written to a spool file there, named
+ * {@code <base name>.<n>.spool}. A low-priority background thread starts a new
+ * spool file and appends the old one to the log in the log directory, which can
+ * be on the internal flash or a USB stick, in one sequential copy followed by a
+ * sync. This is done once the oldest record in the spool is older than the max
+ * age, when the robot is disabled (e.g. at the end of a match), and when the
+ * handler is closed. The log in the log directory is a regular text log, which
+ * is therefore always behind by at most the max age.
+ * </p>
+ * <p>
+ * How much can be lost depends on what goes wrong:
+ * </p>
+ * <ul>
+ * <li>If the robot program crashes or is restarted, nothing that was flushed is
+ * lost, since the spool survives in RAM. The factory of this handler moves any
+ * spool files left behind into their logs before the new log is opened, so they
+ * are recovered the next time {@link RobotLogger} is initialized.</li>
+ * <li>If the roboRIO loses power or reboots, the spool is gone, so up to the max
+ * age of records (plus the time taken by a move in progress) are lost.</li>
+ * </ul>
+ * <p>
+ * To have {@link RobotLogger} spool to {@code /tmp} and move every 30 seconds:
+ * </p>
+ *
+ * <pre>
+ * logger.setFileHandlerFactory(SpooledFileHandler.factory(new File("/tmp/robotlogger-spool"), 30));
+ * </pre>
+ *
+ * @author Tyler Tian
+ */
+public class SpooledFileHandler extends Handler implements CatalogedHandler, TransientRecordHandler {
+
+    /**
+     * The extension of spool files.
+     */
+    public static final String EXTENSION = ".spool";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // How often the background thread checks the age of the spool and the robot mode
+    private static final long MAX_CHECK_INTERVAL = 100;
+    // Max time to wait for the background thread to finish when closing
+    private static final long CLOSE_TIMEOUT = 10000;
+
+    private final File spoolDir;
+    private final File file;
+    private final String baseName;
+    private final long maxAgeNanos;
+    private final ScheduledExecutorService mover;
+    private LogCatalog catalog;
+
+    private final RecordEncoder encoder = new RecordEncoder();
+
+    // Guarded by this
+    private Writer writer;
+    private File spoolFile;
+    // When the first record in the current spool file was written, or -1 if it is
+    // empty
+    private long oldest = -1;
+    private boolean closed = false;
+
+    // Only used by the background thread
+    private int segment = 0;
+    private Writer nextWriter;
+    private boolean wasDisabled = false;
+
+    /**
+     * Creates a new handler.
+     *
+     * @param spoolDir      The spool directory, which should be in RAM
+     * @param logDir        The log directory
+     * @param baseName      The base name of the log
+     * @param maxAgeSeconds The max time a record is kept in the spool, in
+     *                      seconds
+     * @throws IOException If the spool or the log could not be opened
+     */
+    public SpooledFileHandler(File spoolDir, File logDir, String baseName, double maxAgeSeconds)
+            throws IOException {
+        if (maxAgeSeconds <= 0) {
+            throw new IllegalArgumentException("The max age must be positive");
+        }
+        if (!spoolDir.isDirectory() && !spoolDir.mkdirs()) {
+            throw new IOException("Failed to create spool directory " + spoolDir);
+        }
+        this.spoolDir = spoolDir;
+        this.baseName = baseName;
+        this.file = new File(logDir, baseName + ".log");
+        this.maxAgeNanos = (long) (maxAgeSeconds * 1e9);
+
+        // Create the log right away, so it can be found even before the first move
+        Files.newOutputStream(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.APPEND).close();
+        spoolFile = spoolFile(0);
+        writer = open(spoolFile);
+        nextWriter = open(spoolFile(1));
+        setFormatter(new RobotLoggerFormatter());
+
+        long interval = Math.max(1, Math.min(MAX_CHECK_INTERVAL, TimeUnit.NANOSECONDS.toMillis(maxAgeNanos) / 2));
+        mover = Executors.newSingleThreadScheduledExecutor(LogThreads.factory("RobotLogger-Spooler"));
+        mover.scheduleWithFixedDelay(this::check, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets a factory that creates spooled log handlers, for use with
+     * {@link RobotLogger#setFileHandlerFactory(LogHandlerFactory)}.
+     *
+     * <p>
+     * Before creating a handler, the factory calls
+     * {@link #recover(File, File)} to move any spool files left behind by a
+     * previous run into their logs.
+     * </p>
+     *
+     * @param spoolDir      The spool directory, which should be in RAM
+     * @param maxAgeSeconds The max time a record is kept in the spool, in
+     *                      seconds
+     * @return A factory for spooled log handlers
+     */
+    public static LogHandlerFactory factory(File spoolDir, double maxAgeSeconds) {
+        return (logDir, baseName) -> {
+            recover(spoolDir, logDir);
+            return new SpooledFileHandler(spoolDir, logDir, baseName, maxAgeSeconds);
+        };
+    }
+
+    private File spoolFile(int n) {
+        return new File(spoolDir, baseName + "." + n + EXTENSION);
+    }
+
+    private static Writer open(File file) throws IOException {
+        return new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE),
+                StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public synchronized void setCatalog(LogCatalog catalog) {
+        this.catalog = catalog;
+        catalog.fileOpened(file);
+    }
+
+    @Override
+    public synchronized void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) {
+            return;
+        }
+        if (!encoder.format(this, record)) {
+            return;
+        }
+
+        try {
+            encoder.writeTo(writer);
+            if (oldest < 0) {
+                oldest = System.nanoTime();
+            }
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    /**
+     * Moves the spool if it is too old or the robot was just disabled. Called
+     * periodically by the background thread.
+     */
+    private void check() {
+        boolean disabled = RobotMode.get() == RobotMode.DISABLED;
+        boolean justDisabled = disabled && !wasDisabled;
+        wasDisabled = disabled;
+        long start;
+        synchronized (this) {
+            start = oldest;
+        }
+        if (start >= 0 && (justDisabled || System.nanoTime() - start >= maxAgeNanos)) {
+            move();
+        }
+    }
+
+    /**
+     * Starts a new spool file, and appends the old one to the log. Only called
+     * on the background thread, or once it has stopped.
+     *
+     * @return Whether a new spool file was started; if not, the records are
+     *         still in the current one
+     */
+    private boolean move() {
+        if (nextWriter == null) {
+            try {
+                nextWriter = open(spoolFile(segment + 1));
+            } catch (IOException e) {
+                reportError("Failed to open the next spool file", e, ErrorManager.OPEN_FAILURE);
+                return false;
+            }
+        }
+        Writer oldWriter;
+        File oldFile;
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            oldWriter = writer;
+            oldFile = spoolFile;
+            writer = nextWriter;
+            spoolFile = spoolFile(segment + 1);
+            oldest = -1;
+        }
+        segment++;
+        nextWriter = null;
+
+        try {
+            oldWriter.close();
+            append(oldFile, file);
+        } catch (IOException e) {
+            // The spool file is left in place, to be recovered later
+            reportError("Failed to move " + oldFile.getName(), e, ErrorManager.WRITE_FAILURE);
+        }
+        // Get the next one ready while there is nothing else to do
+        try {
+            nextWriter = open(spoolFile(segment + 1));
+        } catch (IOException e) {
+            // Try again at the next move
+        }
+        return true;
+    }
+
+    /**
+     * Appends a spool file to a log in one sequential copy, syncs the log and
+     * deletes the spool file.
+     *
+     * @param spool The spool file
+     * @param log   The log
+     * @throws IOException If an I/O error occurs
+     */
+    static void append(File spool, File log) throws IOException {
+        try (FileChannel in = FileChannel.open(spool.toPath(), StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(log.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+            out.force(false);
+        }
+        Files.delete(spool.toPath());
+    }
+
+    /**
+     * Moves spool files left behind by handlers that were not closed into their
+     * logs, in the order they were written.
+     *
+     * @param spoolDir The spool directory
+     * @param logDir   The log directory
+     * @return The number of spool files moved
+     */
+    public static int recover(File spoolDir, File logDir) {
+        File[] files = spoolDir.listFiles((dir, name) -> name.endsWith(EXTENSION));
+        if (files == null) {
+            return 0;
+        }
+        Arrays.sort(files, Comparator.comparing(SpooledFileHandler::logName)
+                .thenComparingInt(SpooledFileHandler::number));
+        int moved = 0;
+        for (File spool : files) {
+            if (spool.length() == 0) {
+                // An unused spool file that was opened ahead of time
+                spool.delete();
+                continue;
+            }
+            try {
+                append(spool, new File(logDir, logName(spool)));
+                moved++;
+            } catch (IOException e) {
+                // Leave it for next time
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Gets the name of the log a spool file belongs to.
+     */
+    private static String logName(File spool) {
+        String name = spool.getName();
+        String base = name.substring(0, name.length() - EXTENSION.length());
+        int dot = base.lastIndexOf('.');
+        return (dot >= 0 ? base.substring(0, dot) : base) + ".log";
+    }
+
+    /**
+     * Gets the number of a spool file.
+     */
+    private static int number(File spool) {
+        String name = spool.getName();
+        String base = name.substring(0, name.length() - EXTENSION.length());
+        try {
+            return Integer.parseInt(base.substring(base.lastIndexOf('.') + 1));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Flushes the spool file. This does not move anything to the log.
+     */
+    @Override
+    public synchronized void flush() {
+        if (closed) {
+            return;
+        }
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.FLUSH_FAILURE);
+        }
+    }
+
+    /**
+     * Moves everything in the spool to the log and closes the handler.
+     *
+     * <p>
+     * If the spool could not be moved, it is left in the spool directory, to be
+     * moved by {@link #recover(File, File)} the next time.
+     * </p>
+     */
+    @Override
+    public void close() {
+        mover.shutdown();
+        try {
+            mover.awaitTermination(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            // The background thread has stopped, so it is safe to move from here
+            boolean moved = move();
+            closed = true;
+            try {
+                writer.close();
+            } catch (IOException e) {
+                reportError(null, e, ErrorManager.CLOSE_FAILURE);
+            }
+            if (moved) {
+                // Only holds records written since the move, of which there are none
+                spoolFile.delete();
+            } else {
+                // There was no next spool file to switch to, so append this one directly
+                try {
+                    append(spoolFile, file);
+                } catch (IOException e) {
+                    // The spool file is left in place, to be recovered later
+                    reportError("Failed to move " + spoolFile.getName(), e, ErrorManager.WRITE_FAILURE);
+                }
+            }
+            if (nextWriter != null) {
+                try {
+                    nextWriter.close();
+                } catch (IOException e) {
+                    // Deleted anyway
+                }
+                spoolFile(segment + 1).delete();
+            }
+            if (catalog != null) {
+                catalog.fileClosed(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.arctos6135.robotlib.logging;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A streaming reader for binary telemetry written by {@link TelemetryRecorder}.
+ *
+ * <p>
+ * Samples are read one at a time with {@link #next()}; only one block is kept
+ * in memory. Telemetry that was cut off in the middle of a block is read up to
+ * the last complete block.
+ * </p>
+ * <p>
+ * This class can also be run from the command line to convert binary telemetry
+ * into CSV:
+ * </p>
+ *
+ * <pre>
+ * java -cp RobotLib.jar com.arctos6135.robotlib.logging.TelemetryReader &lt;input&gt; [output]
+ * </pre>
+ *
+ * @author Tyler Tian
+ */
+public class TelemetryReader implements Closeable {
+
+    private final DataInputStream in;
+    private final List<String> names;
+
+    private long[] times = new long[0];
+    // values[channel * rows + row]
+    private double[] values = new double[0];
+    private int rows = 0;
+    private int row = -1;
+    private long lastTime = 0;
+
+    /**
+     * Creates a new reader.
+     *
+     * @param in The stream to read from
+     * @throws IOException If an I/O error occurs, or the stream is not binary
+     *                     telemetry
+     */
+    public TelemetryReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(in instanceof BufferedInputStream ? in : new BufferedInputStream(in));
+
+        byte[] header = new byte[TelemetryRecorder.MAGIC.length];
+        if (this.in.readNBytes(header, 0, header.length) != header.length
+                || !Arrays.equals(header, TelemetryRecorder.MAGIC)) {
+            throw new IOException("Not binary telemetry");
+        }
+        int version = this.in.read();
+        if (version != TelemetryRecorder.VERSION) {
+            throw new IOException("Unsupported telemetry version: " + version);
+        }
+        int count = (int) BinaryLogFormat.readVarLong(this.in);
+        List<String> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = (int) BinaryLogFormat.readVarLong(this.in);
+            byte[] bytes = this.in.readNBytes(length);
+            if (bytes.length != length) {
+                throw new EOFException();
+            }
+            list.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        names = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Creates a new reader.
+     *
+     * @param file The file to read from
+     * @throws IOException If an I/O error occurs, or the file is not binary
+     *                     telemetry
+     */
+    public TelemetryReader(File file) throws IOException {
+        this(new FileInputStream(file));
+    }
+
+    /**
+     * Gets the names of the channels.
+     *
+     * @return The names of the channels
+     */
+    public List<String> getChannelNames() {
+        return names;
+    }
+
+    /**
+     * Reads the next sample.
+     *
+     * @return Whether a sample was read; false if the end was reached
+     * @throws IOException If an I/O error occurs
+     */
+    public boolean next() throws IOException {
+        row++;
+        if (row < rows) {
+            return true;
+        }
+        return readBlock();
+    }
+
+    private boolean readBlock() throws IOException {
+        try {
+            int n = (int) BinaryLogFormat.readVarLong(in);
+            long[] newTimes = times.length >= n ? times : new long[n];
+            double[] newValues = values.length >= n * names.size() ? values : new double[n * names.size()];
+            long time = lastTime;
+            for (int i = 0; i < n; i++) {
+                time += BinaryLogFormat.readSignedVarLong(in);
+                newTimes[i] = time;
+            }
+            for (int i = 0; i < n * names.size(); i++) {
+                newValues[i] = in.readDouble();
+            }
+            // Only commit once the whole block has been read
+            times = newTimes;
+            values = newValues;
+            lastTime = time;
+            rows = n;
+            row = 0;
+            return n > 0 || readBlock();
+        } catch (EOFException e) {
+            rows = 0;
+            row = -1;
+            return false;
+        }
+    }
+
+    /**
+     * Gets the FPGA timestamp of the current sample.
+     *
+     * @return The FPGA timestamp, in microseconds
+     */
+    public long getTime() {
+        return times[row];
+    }
+
+    /**
+     * Gets the value of a channel in the current sample.
+     *
+     * @param channel The index of the channel
+     * @return The value
+     */
+    public double getValue(int channel) {
+        return values[channel * rows + row];
+    }
+
+    /**
+     * Reads all remaining samples and writes them out as CSV, in the same format
+     * as {@link TelemetryRecorder.Format#CSV}.
+     *
+     * @param out The writer to write to
+     * @throws IOException If an I/O error occurs
+     */
+    public void writeCsv(Writer out) throws IOException {
+        StringBuilder builder = new StringBuilder("fpga_time");
+        for (String name : names) {
+            builder.append(',').append(name);
+        }
+        builder.append('\n');
+        out.append(builder);
+        while (next()) {
+            builder.setLength(0);
+            RobotLoggerFormatter.appendMicros(getTime(), builder);
+            for (int i = 0; i < names.size(); i++) {
+                builder.append(',').append(getValue(i));
+            }
+            builder.append('\n');
+            out.append(builder);
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Converts binary telemetry into CSV.
+     *
+     * <p>
+     * Usage: {@code TelemetryReader <input> [output]}
+     * </p>
+     *
+     * @param args The command line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: TelemetryReader <input> [output]");
+            System.exit(1);
+        }
+
+        try (TelemetryReader reader = new TelemetryReader(new File(args[0]));
+                Writer out = new BufferedWriter(new OutputStreamWriter(
+                        args.length == 2 ? new FileOutputStream(args[1]) : System.out, StandardCharsets.UTF_8))) {
+            reader.writeCsv(out);
+        } catch (IOException e) {
+            System.err.println("Failed to convert telemetry: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,444 @@
+package com.arctos6135.robotlib.logging;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Records numeric telemetry in columns.
+ *
+ * <p>
+ * Channels are registered once with {@link #addChannel(String, DoubleSupplier)}.
+ * After {@link #start()}, every call to {@link #sample()} (usually once per
+ * loop) reads every channel and stores the values, along with the FPGA
+ * timestamp, in a block of primitive arrays, one column per channel. Full
+ * blocks are written out by a low-priority background thread, and then reused.
+ * Sampling does not box anything or allocate any memory.
+ * </p>
+ * <p>
+ * If the writer falls behind and there are no free blocks, the samples are
+ * dropped and counted (see {@link #getDroppedSampleCount()}).
+ * </p>
+ * <p>
+ * Telemetry can be written in one of two formats:
+ * </p>
+ * <ul>
+ * <li>{@link Format#BINARY}: a compact binary format that contains the
+ * channel names, and stores every block column by column. It can be read with
+ * {@link TelemetryReader}.</li>
+ * <li>{@link Format#CSV}: one row per sample, with the FPGA timestamp in
+ * seconds in the first column and one column per channel.</li>
+ * </ul>
+ * <p>
+ * {@link #sample()} must always be called from the same thread.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+public class TelemetryRecorder implements Closeable {
+
+    /**
+     * The file extension used for binary telemetry.
+     */
+    public static final String EXTENSION = ".rtlm";
+
+    static final byte[] MAGIC = { 'R', 'T', 'L', 'M' };
+    static final int VERSION = 1;
+
+    private static final int DEFAULT_BLOCK_SIZE = 256;
+    private static final int DEFAULT_BLOCK_COUNT = 8;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The formats telemetry can be written in.
+     */
+    public enum Format {
+        /**
+         * A compact binary format, readable with {@link TelemetryReader}.
+         */
+        BINARY,
+        /**
+         * Comma-separated values.
+         */
+        CSV;
+    }
+
+    /**
+     * A block of samples, stored column by column.
+     */
+    private static final class Block {
+        final long[] times;
+        // values[channel * blockSize + row]
+        final double[] values;
+        int rows = 0;
+
+        Block(int blockSize, int channels) {
+            times = new long[blockSize];
+            values = new double[blockSize * channels];
+        }
+    }
+
+    private final File file;
+    private final Format format;
+    private final int blockSize;
+    private final int blockCount;
+
+    private final List<String> names = new ArrayList<>();
+    private final List<DoubleSupplier> channelList = new ArrayList<>();
+
+    private DoubleSupplier[] channels;
+    private BlockingQueue<Block> free;
+    private BlockingQueue<Block> full;
+    private Block current;
+    private Thread writerThread;
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final Object writtenLock = new Object();
+    // Number of blocks written so far
+    private long written = 0;
+    // Number of blocks queued so far
+    private long queued = 0;
+
+    private volatile boolean closed = false;
+
+    // The flight recorder that samples are also recorded to, and the sample buffer
+    private FlightRecorder flightRecorder;
+    private int flightRecorderSource;
+    private double[] flightRecorderSample;
+
+    // Only used by the writer thread
+    private DataOutputStream binaryOut;
+    private Writer csvOut;
+    private long lastTime = 0;
+    private final StringBuilder csvBuilder = new StringBuilder(256);
+
+    /**
+     * Creates a new recorder that writes binary telemetry.
+     *
+     * @param file The file to write to
+     */
+    public TelemetryRecorder(File file) {
+        this(file, Format.BINARY, DEFAULT_BLOCK_SIZE, DEFAULT_BLOCK_COUNT);
+    }
+
+    /**
+     * Creates a new recorder.
+     *
+     * @param file       The file to write to; it will be overwritten
+     * @param format     The format to write in
+     * @param blockSize  The number of samples in a block
+     * @param blockCount The number of blocks; this limits how far the writer
+     *                   can fall behind
+     */
+    public TelemetryRecorder(File file, Format format, int blockSize, int blockCount) {
+        if (blockSize < 1 || blockCount < 2) {
+            throw new IllegalArgumentException("There must be at least 2 blocks of at least 1 sample");
+        }
+        this.file = file;
+        this.format = format;
+        this.blockSize = blockSize;
+        this.blockCount = blockCount;
+    }
+
+    /**
+     * Adds a channel.
+     *
+     * @param name     The name of the channel
+     * @param supplier The supplier of the channel's value
+     * @throws IllegalStateException If the recorder has already been started
+     */
+    public void addChannel(String name, DoubleSupplier supplier) {
+        if (channels != null) {
+            throw new IllegalStateException("Channels must be added before the recorder is started");
+        }
+        names.add(name);
+        channelList.add(supplier);
+    }
+
+    /**
+     * Also records every sample to a flight recorder, so that it is included in
+     * the recorder's dumps.
+     *
+     * @param recorder The flight recorder, e.g. from
+     *                 {@link RobotLogger#getFlightRecorder()}
+     * @throws IllegalStateException If the recorder has already been started
+     */
+    public void setFlightRecorder(FlightRecorder recorder) {
+        if (channels != null) {
+            throw new IllegalStateException("The flight recorder must be set before the recorder is started");
+        }
+        flightRecorder = recorder;
+    }
+
+    /**
+     * Gets the names of the channels.
+     *
+     * @return The names of the channels, in the order they were added
+     */
+    public List<String> getChannelNames() {
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Opens the file, writes the header, and starts the writer thread.
+     *
+     * @throws IOException           If the file cannot be opened
+     * @throws IllegalStateException If the recorder has already been started
+     */
+    public void start() throws IOException {
+        if (channels != null) {
+            throw new IllegalStateException("The recorder has already been started");
+        }
+        channels = channelList.toArray(new DoubleSupplier[0]);
+
+        BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+        if (format == Format.BINARY) {
+            binaryOut = new DataOutputStream(out);
+            binaryOut.write(MAGIC);
+            binaryOut.write(VERSION);
+            BinaryLogFormat.writeVarLong(binaryOut, channels.length);
+            for (String name : names) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                BinaryLogFormat.writeVarLong(binaryOut, bytes.length);
+                binaryOut.write(bytes);
+            }
+        } else {
+            csvOut = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            csvOut.write("fpga_time");
+            for (String name : names) {
+                csvOut.write(',');
+                csvOut.write(name);
+            }
+            csvOut.write('\n');
+        }
+
+        free = new ArrayBlockingQueue<>(blockCount);
+        full = new ArrayBlockingQueue<>(blockCount);
+        for (int i = 1; i < blockCount; i++) {
+            free.add(new Block(blockSize, channels.length));
+        }
+        current = new Block(blockSize, channels.length);
+        if (flightRecorder != null) {
+            flightRecorderSource = flightRecorder.registerTelemetry(names);
+            flightRecorderSample = new double[channels.length];
+        }
+
+        writerThread = LogThreads.newThread("TelemetryRecorder-Writer", this::runWriter);
+        writerThread.start();
+    }
+
+    /**
+     * Reads every channel and records the values.
+     *
+     * <p>
+     * This has no effect if the recorder is not started, or closed.
+     * </p>
+     */
+    public void sample() {
+        Block block = current;
+        if (block == null || closed) {
+            return;
+        }
+        if (block.rows == blockSize) {
+            block = nextBlock();
+            if (block == null) {
+                dropped.incrementAndGet();
+                return;
+            }
+        }
+        int row = block.rows;
+        block.times[row] = RobotController.getFPGATime();
+        double[] values = block.values;
+        for (int i = 0; i < channels.length; i++) {
+            values[i * blockSize + row] = channels[i].getAsDouble();
+        }
+        block.rows = row + 1;
+
+        if (flightRecorder != null) {
+            for (int i = 0; i < channels.length; i++) {
+                flightRecorderSample[i] = values[i * blockSize + row];
+            }
+            flightRecorder.recordTelemetry(flightRecorderSource, block.times[row], flightRecorderSample);
+        }
+    }
+
+    /**
+     * Queues the current block to be written and switches to a free one.
+     *
+     * @return The new current block, or {@code null} if there are no free blocks
+     */
+    private Block nextBlock() {
+        Block next = free.poll();
+        if (next == null) {
+            return null;
+        }
+        queue(current);
+        next.rows = 0;
+        current = next;
+        return next;
+    }
+
+    private void queue(Block block) {
+        synchronized (writtenLock) {
+            queued++;
+        }
+        // Never fails since there are only blockCount blocks
+        full.add(block);
+    }
+
+    /**
+     * Gets the number of samples that were dropped because the writer fell
+     * behind.
+     *
+     * @return The number of dropped samples
+     */
+    public long getDroppedSampleCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Writes out every sample taken so far, and waits for it to be written.
+     *
+     * <p>
+     * Must be called from the same thread as {@link #sample()}.
+     * </p>
+     *
+     * @param timeoutMillis The max time to wait, in milliseconds
+     */
+    public void flush(long timeoutMillis) {
+        if (current == null || closed) {
+            return;
+        }
+        if (current.rows > 0) {
+            // Write the partial block, waiting for a free block to replace it
+            Block next;
+            try {
+                next = free.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (next == null) {
+                return;
+            }
+            queue(current);
+            next.rows = 0;
+            current = next;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (writtenLock) {
+            while (written < queued) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return;
+                }
+                try {
+                    writtenLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes out every sample taken so far, stops the writer thread, and closes
+     * the file.
+     *
+     * <p>
+     * Must be called from the same thread as {@link #sample()}.
+     * </p>
+     */
+    @Override
+    public void close() {
+        if (current == null || closed) {
+            return;
+        }
+        flush(1000);
+        closed = true;
+        writerThread.interrupt();
+        try {
+            writerThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWriter() {
+        try {
+            while (true) {
+                Block block;
+                try {
+                    block = full.take();
+                } catch (InterruptedException e) {
+                    if (closed) {
+                        break;
+                    }
+                    continue;
+                }
+                write(block);
+                // Flush when caught up, so that the file is as current as possible
+                if (full.isEmpty()) {
+                    (binaryOut != null ? binaryOut : csvOut).flush();
+                }
+                free.add(block);
+                synchronized (writtenLock) {
+                    written++;
+                    writtenLock.notifyAll();
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            try {
+                (binaryOut != null ? binaryOut : csvOut).close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void write(Block block) throws IOException {
+        int rows = block.rows;
+        if (binaryOut != null) {
+            // Times are delta-encoded, values are written column by column
+            BinaryLogFormat.writeVarLong(binaryOut, rows);
+            for (int row = 0; row < rows; row++) {
+                BinaryLogFormat.writeSignedVarLong(binaryOut, block.times[row] - lastTime);
+                lastTime = block.times[row];
+            }
+            for (int i = 0; i < channels.length; i++) {
+                int start = i * blockSize;
+                for (int row = 0; row < rows; row++) {
+                    binaryOut.writeDouble(block.values[start + row]);
+                }
+            }
+        } else {
+            for (int row = 0; row < rows; row++) {
+                csvBuilder.setLength(0);
+                RobotLoggerFormatter.appendMicros(block.times[row], csvBuilder);
+                for (int i = 0; i < channels.length; i++) {
+                    csvBuilder.append(',').append(block.values[i * blockSize + row]);
+                }
+                csvBuilder.append('\n');
+                csvOut.append(csvBuilder);
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.arctos6135.robotlib.logging;
+
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * A log handler that is done with a record once
+ * {@link Handler#publish(LogRecord)} returns, and never keeps it.
+ *
+ * <p>
+ * {@link AsyncLogWriter} gives these handlers one reused record, while other
+ * handlers get a copy of every record.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+interface TransientRecordHandler {
+}
@@ -1,8 +1,13 @@
 package com.arctos6135.robotlib.motors;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.arctos6135.robotlib.power.OvercurrentProtectionLoop;
 import com.arctos6135.robotlib.triggers.CurrentMonitoringTrigger;
 
 import edu.wpi.first.wpilibj.PowerDistributionPanel;
+import edu.wpi.first.wpilibj.buttons.Trigger;
+import edu.wpi.first.wpilibj.command.InstantCommand;
 
 /**
  * A motor with software overcurrent protection. The {@code ProtectedMotor} acts
@@ -14,6 +19,12 @@ import edu.wpi.first.wpilibj.PowerDistributionPanel;
  * a motor stays blacklisted unless it is overridden with
  * {@link #clearBlacklist()}.
  * </p>
+ * <p>
+ * By default, the current is checked by a current monitoring trigger when the
+ * command scheduler runs. For a faster reaction, a protected motor can instead
+ * be monitored by an {@link OvercurrentProtectionLoop}, which sets the motor to
+ * 0 on its own thread as soon as it trips.
+ * </p>
  * 
  * @author Tyler Tian
  */
@@ -25,11 +36,12 @@ public class ProtectedMotor {
     // time
     // After it is blacklisted, it will be set to 0 and will not respond to setting
     // Blacklist status will stick around forever unless cleared
-    private boolean blacklisted = false;
+    // Volatile, since it may be set by the protection loop thread
+    private volatile boolean blacklisted = false;
 
     // Whether the protection system is enabled
     // If protection is not enabled, the motor will ignore overcurrent permanently
-    private boolean enabled = true;
+    private volatile boolean enabled = true;
 
     /**
      * Creates a new protected motor object.
@@ -75,6 +87,70 @@ public class ProtectedMotor {
         this(pdp, channel, motor, currentLimit, overcurrentTime, null);
     }
 
+    /**
+     * Creates a new protected motor object monitored by an
+     * {@link OvercurrentProtectionLoop}.
+     * 
+     * <p>
+     * When the motor is blacklisted, it is set to 0 right away on the protection
+     * loop thread. The callback is run on the scheduler thread afterwards.
+     * </p>
+     * 
+     * @param protection      The protection loop to monitor current with
+     * @param channel         The PDP channel to get current readings from
+     * @param motor           The internal {@link Motor} object controlled
+     * @param currentLimit    The current limit in amps
+     * @param overcurrentTime The time allowed to exceed the current limit before
+     *                        the motor is blacklisted
+     * @param callback        A callback function to be run when the motor is
+     *                        blacklisted
+     */
+    public ProtectedMotor(OvercurrentProtectionLoop protection, int channel, Motor motor, double currentLimit,
+            double overcurrentTime, Runnable callback) {
+        this.motor = motor;
+
+        // Set by the protection loop thread and cleared by the scheduler thread
+        AtomicBoolean tripped = new AtomicBoolean(false);
+        protection.addChannel(channel, currentLimit, overcurrentTime, () -> {
+            if (enabled) {
+                blacklisted = true;
+                motor.set(0);
+                tripped.set(true);
+            }
+        });
+
+        if (callback != null) {
+            // Use a trigger to run the callback on the scheduler thread
+            new Trigger() {
+                @Override
+                public boolean get() {
+                    return tripped.getAndSet(false);
+                }
+            }.whenActive(new InstantCommand() {
+                @Override
+                public void initialize() {
+                    callback.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * Creates a new protected motor object monitored by an
+     * {@link OvercurrentProtectionLoop}.
+     * 
+     * @param protection      The protection loop to monitor current with
+     * @param channel         The PDP channel to get current readings from
+     * @param motor           The internal {@link Motor} object controlled
+     * @param currentLimit    The current limit in amps
+     * @param overcurrentTime The time allowed to exceed the current limit before
+     *                        the motor is blacklisted
+     */
+    public ProtectedMotor(OvercurrentProtectionLoop protection, int channel, Motor motor, double currentLimit,
+            double overcurrentTime) {
+        this(protection, channel, motor, currentLimit, overcurrentTime, null);
+    }
+
     /**
      * Sets the motor. If the motor is blacklisted, this method will set it to 0
      * instead.
@@ -84,6 +160,10 @@ public class ProtectedMotor {
     public void set(double value) {
         if (!blacklisted || !enabled) {
             motor.set(value);
+            // The protection loop may have blacklisted the motor in the meantime
+            if (blacklisted && enabled) {
+                motor.set(0);
+            }
         } else {
             motor.set(0);
         }
@@ -1,6 +1,7 @@
 package com.arctos6135.robotlib.newcommands.triggers;
 
-import edu.wpi.first.wpilibj.RobotController;
+import com.arctos6135.robotlib.power.PowerSnapshot;
+
 import edu.wpi.first.wpilibj2.command.button.Trigger;
 
 /**
@@ -14,6 +15,8 @@ public class VoltageMonitoringTrigger extends Trigger {
     private final double threshold;
     private final double buffer;
 
+    private final PowerSnapshot power = PowerSnapshot.battery();
+
     private boolean activated = false;
 
     /**
@@ -54,7 +57,8 @@ public class VoltageMonitoringTrigger extends Trigger {
     public boolean get() {
         // A buffer to prevent the trigger from getting rapidly activated and
         // un-activated due to noise
-        double voltage = RobotController.getBatteryVoltage();
+        // The voltage is read once per loop for all triggers
+        double voltage = power.getBatteryVoltage();
         // If not yet activated, return whether the voltage is lower than the threshold
         if (!activated) {
             if (voltage < threshold) {
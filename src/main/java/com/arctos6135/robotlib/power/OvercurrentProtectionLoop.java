@@ -0,0 +1,213 @@
+package com.arctos6135.robotlib.power;
+
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.LongSupplier;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.PowerDistributionPanel;
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * A background loop that monitors current on PDP channels at a high rate, and
+ * trips as soon as the maximum current has been exceeded for a period of time.
+ *
+ * <p>
+ * Current monitoring triggers are only checked when the command scheduler runs,
+ * so the reaction to an overcurrent takes at least one or two robot loops on
+ * top of the overcurrent time. This loop instead runs on its own
+ * {@link Notifier} thread at a configurable rate (200Hz by default), and calls
+ * the trip action of a channel on that thread as soon as it trips. Since the
+ * loop needs values newer than one robot loop, it reads the PDP directly
+ * instead of through a {@link PowerSnapshot}.
+ * </p>
+ * <p>
+ * Trip actions run on the protection thread, so they must be short and must
+ * not block; a {@link com.arctos6135.robotlib.motors.ProtectedMotor} created
+ * with a protection loop only sets its motor to 0 and publishes its blacklisted
+ * status there, and runs its callback on the scheduler thread afterwards.
+ * After a channel trips, it trips again only once the current has been over
+ * the limit for another full overcurrent time.
+ * </p>
+ *
+ * <pre>
+ * OvercurrentProtectionLoop protection = new OvercurrentProtectionLoop(pdp);
+ * ProtectedMotor motor = new ProtectedMotor(protection, 4, talon::set, 40, 0.5, callback);
+ * protection.start();
+ * </pre>
+ *
+ * @author Tyler Tian
+ */
+public class OvercurrentProtectionLoop implements AutoCloseable {
+
+    /**
+     * The default rate of the loop, in Hz.
+     */
+    public static final double DEFAULT_RATE = 200;
+
+    /**
+     * A monitored channel. Only used by the protection thread after it is added.
+     */
+    private static final class Channel {
+        final int channel;
+        final double currentLimit;
+        final long overcurrentMicros;
+        final Runnable onTrip;
+        // -1 represents the current limit is not exceeded
+        long exceededAt = -1;
+
+        Channel(int channel, double currentLimit, double overcurrentTime, Runnable onTrip) {
+            this.channel = channel;
+            this.currentLimit = currentLimit;
+            this.overcurrentMicros = (long) (overcurrentTime * 1e6);
+            this.onTrip = onTrip;
+        }
+    }
+
+    private final PowerDistributionPanel pdp;
+    // Reads the current of a channel, and the FPGA time in microseconds
+    private final IntToDoubleFunction current;
+    private final LongSupplier time;
+    private final double period;
+    private final Notifier notifier;
+    // Replaced as a whole when a channel is added, so the protection thread never needs a lock
+    private volatile Channel[] channels = new Channel[0];
+    private boolean running = false;
+
+    /**
+     * Creates a new protection loop running at the default rate. The loop must
+     * be started with {@link #start()}.
+     *
+     * @param pdp The PDP to monitor current on
+     */
+    public OvercurrentProtectionLoop(PowerDistributionPanel pdp) {
+        this(pdp, DEFAULT_RATE);
+    }
+
+    /**
+     * Creates a new protection loop. The loop must be started with
+     * {@link #start()}.
+     *
+     * @param pdp  The PDP to monitor current on
+     * @param rate The rate of the loop, in Hz
+     */
+    public OvercurrentProtectionLoop(PowerDistributionPanel pdp, double rate) {
+        this(pdp, rate, pdp::getCurrent, RobotController::getFPGATime);
+    }
+
+    /**
+     * Creates a new protection loop that reads the current and time from the
+     * given sources. The loop must be started with {@link #start()}.
+     *
+     * @param pdp     The PDP returned by {@link #getPDP()}
+     * @param rate    The rate of the loop, in Hz
+     * @param current Reads the current of a PDP channel, in amps
+     * @param time    Reads the time, in microseconds
+     */
+    OvercurrentProtectionLoop(PowerDistributionPanel pdp, double rate, IntToDoubleFunction current,
+            LongSupplier time) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("The rate must be positive");
+        }
+        this.pdp = pdp;
+        this.current = current;
+        this.time = time;
+        this.period = 1 / rate;
+        notifier = new Notifier(this::run);
+    }
+
+    /**
+     * Gets the PDP monitored by this loop.
+     *
+     * @return The PDP
+     */
+    public PowerDistributionPanel getPDP() {
+        return pdp;
+    }
+
+    /**
+     * Adds a channel to monitor. Channels can be added while the loop is
+     * running.
+     *
+     * @param channel         The PDP channel to monitor current from
+     * @param currentLimit    The maximum current limit, in amps
+     * @param overcurrentTime The number of seconds of overcurrent allowed before
+     *                        the channel trips
+     * @param onTrip          The action to run on the protection thread when the
+     *                        channel trips
+     */
+    public synchronized void addChannel(int channel, double currentLimit, double overcurrentTime, Runnable onTrip) {
+        if (channel < 0 || channel >= PowerSnapshot.CHANNELS) {
+            throw new IndexOutOfBoundsException("Invalid PDP channel: " + channel);
+        }
+        Channel[] newChannels = Arrays.copyOf(channels, channels.length + 1);
+        newChannels[channels.length] = new Channel(channel, currentLimit, overcurrentTime, onTrip);
+        channels = newChannels;
+    }
+
+    /**
+     * Starts the loop.
+     */
+    public synchronized void start() {
+        if (!running) {
+            running = true;
+            notifier.startPeriodic(period);
+        }
+    }
+
+    /**
+     * Stops the loop.
+     */
+    public synchronized void stop() {
+        if (running) {
+            running = false;
+            notifier.stop();
+        }
+    }
+
+    /**
+     * Gets whether the loop is running.
+     *
+     * @return Whether the loop is running
+     */
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Samples the current of every channel once. Called periodically on the
+     * protection thread.
+     */
+    void run() {
+        long now = time.getAsLong();
+        for (Channel c : channels) {
+            if (current.applyAsDouble(c.channel) >= c.currentLimit) {
+                if (c.exceededAt < 0) {
+                    c.exceededAt = now;
+                } else if (now - c.exceededAt >= c.overcurrentMicros) {
+                    // Start timing again, so the channel only trips again after another full overcurrent time
+                    c.exceededAt = -1;
+                    try {
+                        c.onTrip.run();
+                    } catch (RuntimeException e) {
+                        // Keep protecting the other channels
+                        DriverStation.reportError("Overcurrent trip action for PDP channel " + c.channel
+                                + " failed: " + e, true);
+                    }
+                }
+            } else {
+                c.exceededAt = -1;
+            }
+        }
+    }
+
+    /**
+     * Stops the loop and frees its resources.
+     */
+    @Override
+    public void close() {
+        stop();
+        notifier.close();
+    }
+}
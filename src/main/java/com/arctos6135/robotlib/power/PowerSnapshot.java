@@ -0,0 +1,240 @@
+package com.arctos6135.robotlib.power;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntToDoubleFunction;
+
+import edu.wpi.first.wpilibj.PowerDistributionPanel;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * A snapshot of the PDP currents and battery voltage that is read at most once
+ * per robot loop, and shared by everything that monitors power.
+ *
+ * <p>
+ * Every read of a PDP channel or the battery voltage is a separate HAL call, so
+ * with a {@link com.arctos6135.robotlib.motors.ProtectedMotor} on every motor,
+ * reading them separately adds up quickly. Instead, the triggers in RobotLib
+ * read from a snapshot, which refreshes all the values it has been asked for at
+ * once when the values are older than the max age (by default 10ms, half of a
+ * robot loop), and otherwise returns them from an array. Channels that have
+ * never been asked for are not read.
+ * </p>
+ * <p>
+ * There is one snapshot per PDP, obtained with {@link #of(PowerDistributionPanel)},
+ * and one for the battery voltage alone, obtained with {@link #battery()}. The
+ * PDP snapshots get the battery voltage from the battery snapshot, so it is
+ * only read once per loop no matter how many snapshots there are.
+ * </p>
+ * <p>
+ * Snapshots are not thread-safe, and are meant to be used from the robot loop
+ * only.
+ * </p>
+ *
+ * @author Tyler Tian
+ */
+public final class PowerSnapshot {
+
+    /**
+     * The number of channels on the PDP.
+     */
+    public static final int CHANNELS = 16;
+
+    // Indices in the array after the channel currents
+    private static final int TOTAL_CURRENT = CHANNELS;
+    private static final int BATTERY_VOLTAGE = CHANNELS + 1;
+
+    private static final Map<PowerDistributionPanel, PowerSnapshot> snapshots = new IdentityHashMap<>();
+    private static PowerSnapshot battery;
+
+    private final PowerDistributionPanel pdp;
+    // Where the values are read from; the current sources are null for the battery voltage snapshot
+    private final IntToDoubleFunction currentSource;
+    private final DoubleSupplier totalCurrentSource;
+    private final DoubleSupplier voltageSource;
+    private final DoubleSupplier clock;
+    // The channel currents, the total current and the battery voltage
+    private final double[] values = new double[CHANNELS + 2];
+    // A bit for every channel that has been asked for
+    private int channels = 0;
+    private boolean totalCurrent = false;
+
+    private double maxAge = 0.01;
+    // NaN represents the values were never read
+    private double timestamp = Double.NaN;
+
+    private PowerSnapshot(PowerDistributionPanel pdp) {
+        // A PDP snapshot gets the battery voltage from the battery snapshot
+        this(pdp, pdp != null ? pdp::getCurrent : null, pdp != null ? pdp::getTotalCurrent : null,
+                pdp != null ? battery()::getBatteryVoltage : RobotController::getBatteryVoltage,
+                Timer::getFPGATimestamp);
+    }
+
+    /**
+     * Creates a new snapshot that reads its values from the given sources.
+     *
+     * @param pdp                The PDP returned by {@link #getPDP()}
+     * @param currentSource      Reads the current of a PDP channel, or
+     *                           {@code null} for a battery voltage snapshot
+     * @param totalCurrentSource Reads the total current, or {@code null} for a
+     *                           battery voltage snapshot
+     * @param voltageSource      Reads the battery voltage
+     * @param clock              Reads the time, in seconds
+     */
+    PowerSnapshot(PowerDistributionPanel pdp, IntToDoubleFunction currentSource, DoubleSupplier totalCurrentSource,
+            DoubleSupplier voltageSource, DoubleSupplier clock) {
+        this.pdp = pdp;
+        this.currentSource = currentSource;
+        this.totalCurrentSource = totalCurrentSource;
+        this.voltageSource = voltageSource;
+        this.clock = clock;
+    }
+
+    /**
+     * Gets the snapshot for a PDP, creating it if it does not exist.
+     *
+     * @param pdp The PDP
+     * @return The snapshot for the PDP
+     */
+    public static synchronized PowerSnapshot of(PowerDistributionPanel pdp) {
+        return snapshots.computeIfAbsent(pdp, PowerSnapshot::new);
+    }
+
+    /**
+     * Gets the snapshot used for the battery voltage alone.
+     *
+     * @return The battery voltage snapshot
+     */
+    public static synchronized PowerSnapshot battery() {
+        if (battery == null) {
+            battery = new PowerSnapshot(null);
+        }
+        return battery;
+    }
+
+    /**
+     * Gets the PDP of this snapshot.
+     *
+     * @return The PDP, or {@code null} for the battery voltage snapshot
+     */
+    public PowerDistributionPanel getPDP() {
+        return pdp;
+    }
+
+    /**
+     * Sets the max age of the values before they are read again.
+     *
+     * @param maxAge The max age, in seconds
+     */
+    public void setMaxAge(double maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Gets the max age of the values before they are read again.
+     *
+     * @return The max age, in seconds
+     */
+    public double getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Reads all the values that have been asked for now, regardless of their
+     * age.
+     *
+     * <p>
+     * This can be called at the start of every loop, e.g. in
+     * {@code robotPeriodic()}, so that all the values used in a loop are from
+     * the same moment.
+     * </p>
+     */
+    public void update() {
+        timestamp = clock.getAsDouble();
+        if (currentSource != null) {
+            for (int bits = channels; bits != 0; bits &= bits - 1) {
+                int channel = Integer.numberOfTrailingZeros(bits);
+                values[channel] = currentSource.applyAsDouble(channel);
+            }
+            if (totalCurrent) {
+                values[TOTAL_CURRENT] = totalCurrentSource.getAsDouble();
+            }
+        }
+        values[BATTERY_VOLTAGE] = voltageSource.getAsDouble();
+    }
+
+    /**
+     * Reads the values again if they are older than the max age.
+     */
+    private void refresh() {
+        if (!(clock.getAsDouble() - timestamp < maxAge)) {
+            update();
+        }
+    }
+
+    /**
+     * Gets the time the values were last read.
+     *
+     * @return The FPGA timestamp of the values, in seconds
+     */
+    public double getTimestamp() {
+        refresh();
+        return timestamp;
+    }
+
+    /**
+     * Gets the current of a PDP channel.
+     *
+     * @param channel The PDP channel
+     * @return The current, in amps
+     * @throws IllegalStateException If this is the battery voltage snapshot
+     */
+    public double getCurrent(int channel) {
+        if (currentSource == null) {
+            throw new IllegalStateException("The battery voltage snapshot has no PDP");
+        }
+        if (channel < 0 || channel >= CHANNELS) {
+            throw new IndexOutOfBoundsException("Invalid PDP channel: " + channel);
+        }
+        int bit = 1 << channel;
+        if ((channels & bit) == 0) {
+            // Start reading the channel, and read it right away
+            channels |= bit;
+            update();
+        } else {
+            refresh();
+        }
+        return values[channel];
+    }
+
+    /**
+     * Gets the total current of all PDP channels.
+     *
+     * @return The total current, in amps
+     * @throws IllegalStateException If this is the battery voltage snapshot
+     */
+    public double getTotalCurrent() {
+        if (currentSource == null) {
+            throw new IllegalStateException("The battery voltage snapshot has no PDP");
+        }
+        if (!totalCurrent) {
+            totalCurrent = true;
+            update();
+        } else {
+            refresh();
+        }
+        return values[TOTAL_CURRENT];
+    }
+
+    /**
+     * Gets the battery voltage.
+     *
+     * @return The battery voltage, in volts
+     */
+    public double getBatteryVoltage() {
+        refresh();
+        return values[BATTERY_VOLTAGE];
+    }
+}
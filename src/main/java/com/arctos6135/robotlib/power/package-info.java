@@ -0,0 +1,5 @@
+/**
+ * This package contains classes related to power monitoring offered by
+ * RobotLib.
+ */
+package com.arctos6135.robotlib.power;
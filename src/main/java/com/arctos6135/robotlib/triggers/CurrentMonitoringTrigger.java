@@ -1,7 +1,8 @@
 package com.arctos6135.robotlib.triggers;
 
+import com.arctos6135.robotlib.power.PowerSnapshot;
+
 import edu.wpi.first.wpilibj.PowerDistributionPanel;
-import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.buttons.Trigger;
 import edu.wpi.first.wpilibj.command.InstantCommand;
 
@@ -9,11 +10,16 @@ import edu.wpi.first.wpilibj.command.InstantCommand;
  * A {@link Trigger} that monitors current on a PDP channel, activating when the
  * maximum current has been exceeded for a period of time.
  * 
+ * <p>
+ * The current is read from the {@link PowerSnapshot} of the PDP, so all the
+ * triggers on the same PDP share one read per robot loop.
+ * </p>
+ * 
  * @author Tyler Tian
  */
 public class CurrentMonitoringTrigger extends Trigger {
 
-    private PowerDistributionPanel pdp;
+    private PowerSnapshot power;
     private int channel;
     private double currentLimit;
     private double overcurrentTime;
@@ -33,7 +39,7 @@ public class CurrentMonitoringTrigger extends Trigger {
      */
     public CurrentMonitoringTrigger(PowerDistributionPanel pdp, int channel, double currentLimit,
             double overcurrentTime) {
-        this.pdp = pdp;
+        this.power = PowerSnapshot.of(pdp);
         this.channel = channel;
         this.currentLimit = currentLimit;
         this.overcurrentTime = overcurrentTime;
@@ -92,17 +98,18 @@ public class CurrentMonitoringTrigger extends Trigger {
         }
 
         // Grab the current and compare to see if the limit was exceeded
-        double current = pdp.getCurrent(channel);
+        // The current is read once per loop for all triggers on the same PDP
+        double current = power.getCurrent(channel);
         if (current >= currentLimit) {
             // If the limit has not been exceeded before, update the exceeded time and
             // return false
             if (Double.isNaN(exceededAt)) {
-                exceededAt = Timer.getFPGATimestamp();
+                exceededAt = power.getTimestamp();
                 return false;
             }
             // If the limit as been exceeded before, and enough time has elapsed, return
             // true
-            else if (Timer.getFPGATimestamp() - exceededAt >= overcurrentTime) {
+            else if (power.getTimestamp() - exceededAt >= overcurrentTime) {
                 return true;
             } else {
                 return false;
@@ -0,0 +1,79 @@
+package com.arctos6135.robotlib.logging;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.logging.Level;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link AsyncLogBuffer}.
+ * 
+ * @author Tyler Tian
+ */
+public class AsyncLogBufferTest {
+
+    /**
+     * Tests that records come out in the order they were put in.
+     */
+    @Test
+    public void testAsyncLogBufferOrder() {
+        AsyncLogBuffer buffer = new AsyncLogBuffer(8, OverflowPolicy.DROP_AND_COUNT);
+        RobotLogRecord record = new RobotLogRecord(Level.INFO, null, 0);
+
+        // Go around the ring a few times
+        for (int i = 0; i < 20; i++) {
+            assertThat(buffer.offer(Level.FINE.intValue(), i, 1000 + i, "Arctos" + i), is(true));
+            assertThat(buffer.poll(record), is(true));
+            assertThat(record.getMessage(), is(equalTo("Arctos" + i)));
+            assertThat(record.getLevel(), is(equalTo(Level.FINE)));
+            assertThat(record.getFpgaTime(), is((long) i));
+            assertThat(record.getMillis(), is(1000L + i));
+        }
+        assertThat(buffer.poll(record), is(false));
+    }
+
+    /**
+     * Tests {@link OverflowPolicy#DROP_AND_COUNT}.
+     */
+    @Test
+    public void testAsyncLogBufferDropAndCount() {
+        AsyncLogBuffer buffer = new AsyncLogBuffer(8, OverflowPolicy.DROP_AND_COUNT);
+        for (int i = 0; i < 8; i++) {
+            assertThat(buffer.offer(Level.FINEST.intValue(), 0, 0, "6135"), is(true));
+        }
+        // Full; even errors get dropped
+        assertThat(buffer.offer(Level.SEVERE.intValue(), 0, 0, "6135"), is(false));
+        assertThat(buffer.offer(Level.FINEST.intValue(), 0, 0, "6135"), is(false));
+        assertThat(buffer.takeDroppedCount(), is(2L));
+        assertThat(buffer.takeDroppedCount(), is(0L));
+    }
+
+    /**
+     * Tests {@link OverflowPolicy#DROP_FINEST_FIRST}.
+     */
+    @Test
+    public void testAsyncLogBufferDropFinestFirst() {
+        AsyncLogBuffer buffer = new AsyncLogBuffer(8, OverflowPolicy.DROP_FINEST_FIRST);
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer(Level.FINEST.intValue(), 0, 0, "FIRST"), is(true));
+        }
+        // Half full: FINEST is shed, but FINER is still accepted
+        assertThat(buffer.offer(Level.FINEST.intValue(), 0, 0, "FIRST"), is(false));
+        assertThat(buffer.offer(Level.FINER.intValue(), 0, 0, "FIRST"), is(true));
+        // 5/8: FINER is shed
+        assertThat(buffer.offer(Level.FINER.intValue(), 0, 0, "FIRST"), is(false));
+        assertThat(buffer.offer(Level.INFO.intValue(), 0, 0, "FIRST"), is(true));
+        // 6/8: FINE is shed
+        assertThat(buffer.offer(Level.FINE.intValue(), 0, 0, "FIRST"), is(false));
+        assertThat(buffer.offer(Level.INFO.intValue(), 0, 0, "FIRST"), is(true));
+        // 7/8: INFO is shed, warnings are not
+        assertThat(buffer.offer(Level.INFO.intValue(), 0, 0, "FIRST"), is(false));
+        assertThat(buffer.offer(Level.WARNING.intValue(), 0, 0, "FIRST"), is(true));
+        // Full
+        assertThat(buffer.offer(Level.SEVERE.intValue(), 0, 0, "FIRST"), is(false));
+        assertThat(buffer.takeDroppedCount(), is(5L));
+    }
+}
@@ -0,0 +1,176 @@
+package com.arctos6135.robotlib.logging;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Level;
+
+import com.arctos6135.robotlib.TestUtils;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link BinaryLogHandler} and {@link BinaryLogReader}.
+ * 
+ * @author Tyler Tian
+ */
+public class BinaryLogTest {
+
+    private static RobotLogRecord record(Level level, String message, long wallTime, long fpgaTime) {
+        RobotLogRecord record = new RobotLogRecord(level, message, fpgaTime);
+        record.setWallTime(wallTime);
+        return record;
+    }
+
+    /**
+     * Tests writing and reading back a binary log, including messages that are
+     * interned and messages that are written inline.
+     * 
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testBinaryLogRoundTrip() throws IOException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+        File logFile = new File(f, "test.rlog");
+
+        // Only allow 2 interned strings, so the third message is written inline
+        BinaryLogHandler handler = new BinaryLogHandler(logFile, 2);
+        handler.publish(record(Level.SEVERE, "Arctos", 1000, 5000));
+        handler.publish(record(Level.FINEST, "6135", 1003, 6000));
+        handler.publish(record(Level.INFO, "Arctos", 999, 7000));
+        handler.publish(record(Level.WARNING, "FIRST \"Robotics\"", 2000, 8000));
+        handler.close();
+
+        BinaryLogReader reader = new BinaryLogReader(logFile);
+        assertThat(reader.next(), is(true));
+        assertThat(reader.getLevel(), is(equalTo(Level.SEVERE)));
+        assertThat(reader.getMessage(), is(equalTo("Arctos")));
+        assertThat(reader.getWallTime(), is(1000L));
+        assertThat(reader.getFpgaTime(), is(5000L));
+        assertThat(reader.next(), is(true));
+        assertThat(reader.getLevel(), is(equalTo(Level.FINEST)));
+        assertThat(reader.getMessage(), is(equalTo("6135")));
+        // Time going backwards must still work
+        assertThat(reader.next(), is(true));
+        assertThat(reader.getMessage(), is(equalTo("Arctos")));
+        assertThat(reader.getWallTime(), is(999L));
+        assertThat(reader.getFpgaTime(), is(7000L));
+        assertThat(reader.next(), is(true));
+        assertThat(reader.getLevel(), is(equalTo(Level.WARNING)));
+        assertThat(reader.getMessage(), is(equalTo("FIRST \"Robotics\"")));
+        assertThat(reader.next(), is(false));
+        reader.close();
+
+        // Check the CSV output
+        reader = new BinaryLogReader(logFile);
+        StringWriter csv = new StringWriter();
+        reader.writeCsv(csv);
+        reader.close();
+        String[] lines = csv.toString().split("\n");
+        assertThat(lines.length, is(5));
+        assertThat(lines[1].endsWith(",0.005000,SEVERE,\"Arctos\""), is(true));
+        assertThat(lines[4].endsWith(",WARNING,\"FIRST \"\"Robotics\"\"\""), is(true));
+
+        // Cut off the last record and make sure the rest can still be read
+        try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+        reader = new BinaryLogReader(logFile);
+        StringWriter text = new StringWriter();
+        reader.writeText(text);
+        reader.close();
+        lines = text.toString().split("\n");
+        assertThat(lines.length, is(3));
+        assertThat(lines[0].endsWith("[SEVERE]: Arctos"), is(true));
+        assertThat(lines[1].endsWith("[FINEST]: 6135"), is(true));
+    }
+
+    /**
+     * Tests that message templates and channels are interned separately from
+     * the arguments.
+     * 
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testBinaryLogTemplates() throws IOException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+        File logFile = new File(f, "test.rlog");
+
+        // Room for the template and the channel only
+        BinaryLogHandler handler = new BinaryLogHandler(logFile, 2);
+        for (int i = 0; i < 100; i++) {
+            RobotLogRecord record = record(Level.INFO, null, 1000 + i, 5000 + i);
+            record.setTemplate("Arctos {} {}", 2, i, i / 4.0, 0);
+            record.setLoggerName("drive");
+            if (i == 0) {
+                // Formatting the message must not lose the template
+                assertThat(record.getMessage(), is(equalTo("Arctos 0 0")));
+            }
+            handler.publish(record);
+        }
+        // The dictionary is full, so this is written inline
+        RobotLogRecord literal = record(Level.WARNING, null, 2000, 6000);
+        literal.setTemplate("6135 {}", 1, 1.5, 0, 0);
+        literal.setLoggerName("drive");
+        handler.publish(literal);
+        handler.close();
+
+        BinaryLogReader reader = new BinaryLogReader(logFile);
+        for (int i = 0; i < 100; i++) {
+            assertThat(reader.next(), is(true));
+            assertThat(reader.getMessage(),
+                    is(equalTo("[drive] " + RobotLogRecord.formatTemplate("Arctos {} {}", 2, i, i / 4.0, 0))));
+            assertThat(reader.getFpgaTime(), is(5000L + i));
+        }
+        assertThat(reader.next(), is(true));
+        assertThat(reader.getLevel(), is(equalTo(Level.WARNING)));
+        assertThat(reader.getMessage(), is(equalTo("[drive] 6135 1.5")));
+        assertThat(reader.next(), is(false));
+        reader.close();
+    }
+
+    /**
+     * Tests using {@link BinaryLogHandler#factory()} with {@link RobotLogger}.
+     * 
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testBinaryLogRobotLogger() throws IOException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+
+        RobotLogger logger = new RobotLogger();
+        logger.setFileHandlerFactory(BinaryLogHandler.factory());
+        logger.init(getClass(), f);
+        for (int i = 0; i < 100; i++) {
+            logger.logInfo("Arctos 6135");
+        }
+        logger.flush();
+
+        File logFile = f.listFiles((dir, name) -> name.endsWith(BinaryLogHandler.EXTENSION))[0];
+        // The repeated message should only be written once
+        assertThat(logFile.length(), lessThan(100L * 12));
+
+        BinaryLogReader reader = new BinaryLogReader(logFile);
+        int count = 0;
+        while (reader.next()) {
+            assertThat(reader.getMessage(), is(equalTo("Arctos 6135")));
+            count++;
+        }
+        reader.close();
+        assertThat(count, is(100));
+    }
+}
@@ -0,0 +1,109 @@
+package com.arctos6135.robotlib.logging;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import com.arctos6135.robotlib.TestUtils;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link CompressedFileHandler}.
+ * 
+ * @author Tyler Tian
+ */
+public class CompressedFileHandlerTest {
+
+    /**
+     * Tests that a compressed log can be read up to the last flush before it is
+     * closed, that every full flush can be decoded on its own, and that the
+     * closed log is a valid gzip file.
+     * 
+     * @throws IOException         if something goes wrong
+     * @throws DataFormatException if something goes wrong
+     */
+    @Test
+    public void testCompressedFileHandler() throws IOException, DataFormatException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = new File(tempDir.toFile(), "test" + CompressedFileHandler.EXTENSION);
+        TestUtils.deleteDirectoryOnExit(tempDir.toFile());
+
+        CompressedFileHandler handler = new CompressedFileHandler(f, Deflater.BEST_SPEED, 0);
+        handler.setFormatter(new Formatter() {
+            @Override
+            public String format(LogRecord record) {
+                return record.getMessage() + "\n";
+            }
+        });
+        String first = publish(handler, 0, 1000);
+        handler.flush();
+        long firstEnd = handler.getCompressedBytes();
+        assertThat(handler.getUncompressedBytes(), equalTo((long) first.length()));
+        assertThat(handler.getCompressionRatio(), greaterThan(2.0));
+
+        // Everything up to the flush can be read without the end of the file
+        byte[] partial = Files.readAllBytes(f.toPath());
+        assertThat((long) partial.length, equalTo(firstEnd));
+        assertThat(inflate(partial, 10, partial.length), equalTo(first));
+
+        String second = publish(handler, 1000, 2000);
+        handler.flush();
+        // A full flush can be decoded without what comes before it
+        byte[] flushed = Files.readAllBytes(f.toPath());
+        assertThat(inflate(flushed, (int) firstEnd, flushed.length), equalTo(second));
+
+        String third = publish(handler, 2000, 2500);
+        handler.close();
+        assertThat(read(new GZIPInputStream(new FileInputStream(f))), equalTo(first + second + third));
+        assertThat(handler.getCompressedBytes(), equalTo(f.length()));
+    }
+
+    private static String publish(CompressedFileHandler handler, int from, int to) {
+        StringBuilder expected = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            String message = "Arctos 6135 record " + i;
+            handler.publish(new RobotLogRecord(Level.INFO, message, 0));
+            expected.append(message).append('\n');
+        }
+        return expected.toString();
+    }
+
+    private static String inflate(byte[] data, int start, int end) throws DataFormatException {
+        Inflater inflater = new Inflater(true);
+        inflater.setInput(Arrays.copyOfRange(data, start, end));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        int n;
+        while ((n = inflater.inflate(buf)) > 0) {
+            out.write(buf, 0, n);
+        }
+        inflater.end();
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            stream.transferTo(out);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.arctos6135.robotlib.logging;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link DriverStationReporter}.
+ * 
+ * @author Tyler Tian
+ */
+public class DriverStationReporterTest {
+
+    /**
+     * Tests that messages are deduplicated, batched by kind, and that dropped
+     * messages are summarized.
+     */
+    @Test
+    public void testDriverStationReporter() {
+        List<String> errors = new ArrayList<>();
+        List<String> warnings = new ArrayList<>();
+        // Slow enough that the background thread never sends during the test
+        DriverStationReporter reporter = new DriverStationReporter(0.001, 3, (error, message) -> {
+            (error ? errors : warnings).add(message);
+        });
+
+        for (int i = 0; i < 50; i++) {
+            reporter.report(false, "Sensor unplugged");
+        }
+        reporter.report(true, "Arm stalled");
+        reporter.report(true, "Arm limit hit");
+        reporter.report(true, "Dropped 1");
+        reporter.report(false, "Dropped 2");
+        reporter.sendBatch();
+
+        assertThat(errors.size(), is(equalTo(1)));
+        assertThat(errors.get(0), is(equalTo("Arm stalled\nArm limit hit")));
+        assertThat(warnings.size(), is(equalTo(1)));
+        assertThat(warnings.get(0), is(equalTo("Sensor unplugged (repeated 49 more times)\n"
+                + "RobotLogger: 2 Driver Station messages were dropped because too many were reported")));
+
+        // Nothing is sent when nothing is waiting
+        reporter.sendBatch();
+        assertThat(errors.size(), is(equalTo(1)));
+        assertThat(warnings.size(), is(equalTo(1)));
+        reporter.stop();
+    }
+}
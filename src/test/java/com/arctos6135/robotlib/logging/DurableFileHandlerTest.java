@@ -0,0 +1,99 @@
+package com.arctos6135.robotlib.logging;
+
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import com.arctos6135.robotlib.TestUtils;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link DurableFileHandler}.
+ * 
+ * @author Tyler Tian
+ */
+public class DurableFileHandlerTest {
+
+    /**
+     * Tests that a log that was not closed is cut back to its last intact block,
+     * and that a log that was closed is left alone.
+     * 
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testDurableFileHandlerRecover() throws IOException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+        Formatter formatter = new Formatter() {
+            @Override
+            public String format(LogRecord record) {
+                return record.getMessage() + "\n";
+            }
+        };
+
+        // Never synced because of time during the test
+        File crashed = new File(f, "crashed.log");
+        DurableFileHandler handler = new DurableFileHandler(crashed, 60000, 1024 * 1024);
+        handler.setFormatter(formatter);
+        for (int i = 0; i < 10; i++) {
+            handler.publish(new RobotLogRecord(Level.INFO, "Arctos 6135 record " + i, 0));
+        }
+        handler.publish(new RobotLogRecord(Level.SEVERE, "Arctos 6135 severe", 0));
+        long synced = crashed.length();
+        // Flushed but not synced, so it is kept if it is intact
+        handler.publish(new RobotLogRecord(Level.INFO, "Arctos 6135 flushed", 0));
+        handler.flush();
+        long flushed = crashed.length();
+        assertThat(flushed, greaterThan(synced));
+        // A block that did not make it to disk intact
+        handler.publish(new RobotLogRecord(Level.INFO, "Arctos 6135 torn", 0));
+        handler.flush();
+        try (RandomAccessFile out = new RandomAccessFile(crashed, "rw")) {
+            out.seek(out.length() - 2);
+            out.write(new byte[] { 0, 0 });
+        }
+        // A write without a checksum
+        try (OutputStream out = new FileOutputStream(crashed, true)) {
+            out.write(new byte[] { 0, 0, 0, 0 });
+        }
+
+        File closed = new File(f, "closed.log");
+        DurableFileHandler closedHandler = new DurableFileHandler(closed, 60000, 64);
+        closedHandler.setFormatter(formatter);
+        for (int i = 0; i < 10; i++) {
+            closedHandler.publish(new RobotLogRecord(Level.INFO, "Arctos 6135 record " + i, 0));
+        }
+        closedHandler.close();
+        long closedLength = closed.length();
+        // Small blocks, so there should be several checksums
+        assertThat(DurableFileHandler.checksumFileOf(closed).length(),
+                greaterThan((long) DurableFileHandler.HEADER_SIZE + 2 * DurableFileHandler.ENTRY_SIZE));
+
+        assertThat(DurableFileHandler.recoverAll(f), equalTo(1));
+        assertThat(crashed.length(), equalTo(flushed));
+        String text = new String(Files.readAllBytes(crashed.toPath()), StandardCharsets.UTF_8);
+        assertThat(text, endsWith("Arctos 6135 severe\nArctos 6135 flushed\n"));
+        assertThat(closed.length(), equalTo(closedLength));
+
+        // Already recovered
+        assertThat(DurableFileHandler.recover(crashed), equalTo(0L));
+        assertThat(crashed.length(), equalTo(flushed));
+        assertThat(RobotLogger.isLogFileName("test.log" + DurableFileHandler.CHECKSUM_EXTENSION), is(true));
+    }
+}
@@ -0,0 +1,118 @@
+package com.arctos6135.robotlib.logging;
+
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.logging.Level;
+
+import com.arctos6135.robotlib.TestUtils;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link IndexedFileHandler} and {@link IndexedLogReader}.
+ * 
+ * @author Tyler Tian
+ */
+public class IndexedLogTest {
+
+    // A whole second, so the rounding to seconds doesn't matter
+    private static final long START = 1_583_600_000_000L;
+
+    private static RobotLogRecord record(Level level, String message, long wallTime) {
+        RobotLogRecord record = new RobotLogRecord(level, message, 0);
+        record.setWallTime(wallTime);
+        return record;
+    }
+
+    /**
+     * Tests finding records by time and level, both in complete blocks and after
+     * the last complete block.
+     * 
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testIndexedLogRead() throws IOException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+        File logFile = new File(f, "test.log");
+
+        // 100 seconds with 10 records each; every 10th record is a warning
+        IndexedFileHandler handler = new IndexedFileHandler(logFile, 16, 1000);
+        for (int i = 0; i < 1000; i++) {
+            Level level = i % 10 == 0 ? Level.WARNING : Level.INFO;
+            String message = i == 505 ? "Arctos\n6135" : "Record " + i;
+            handler.publish(record(level, message, START + i * 100));
+        }
+        handler.flush();
+
+        try (IndexedLogReader reader = new IndexedLogReader(logFile)) {
+            assertThat(reader.getBlockCount(), greaterThan(50));
+
+            List<String> records = reader.read(START + 40_000, START + 42_999, Level.WARNING);
+            assertThat(records.size(), is(equalTo(3)));
+            assertThat(records.get(0), endsWith("[WARNING]: Record 400"));
+            assertThat(records.get(2), endsWith("[WARNING]: Record 420"));
+
+            // Multi-line messages are kept together
+            records = reader.read(START + 50_000, START + 50_999, Level.INFO);
+            assertThat(records.size(), is(equalTo(10)));
+            assertThat(records.get(5), endsWith("[INFO]: Arctos\n6135"));
+            assertThat(records.get(6), endsWith("[INFO]: Record 506"));
+
+            // The end of the log is not in a complete block yet
+            records = reader.read(START + 99_000, START + 200_000, Level.ALL);
+            assertThat(records.size(), is(equalTo(10)));
+            assertThat(records.get(9), endsWith("[INFO]: Record 999"));
+
+            assertThat(reader.read(START - 10_000, START - 1, Level.ALL).size(), is(equalTo(0)));
+            assertThat(reader.read(START, START + 99_999, Level.SEVERE).size(), is(equalTo(0)));
+        }
+        handler.close();
+
+        try (IndexedLogReader reader = new IndexedLogReader(logFile)) {
+            assertThat(reader.read(START, START + 99_999, Level.ALL).size(), is(equalTo(1000)));
+        }
+    }
+
+    /**
+     * Tests reading a log without an index, with records that are longer than the
+     * read buffer and lines that cross its boundaries.
+     * 
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testUnindexedRead() throws IOException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+        File log = new File(f, "test.log");
+
+        StringBuilder longLine = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            longLine.append((char) ('a' + i % 26));
+        }
+        String text = "(2020/03/07 14:05:00) [INFO]: First\n" + "(2020/03/07 14:05:01) [WARNING]: " + longLine
+                + "\n" + longLine + "\n" + "(2020/03/07 14:05:02) [INFO]: \u00e9t\u00e9";
+        Files.write(log.toPath(), text.getBytes(StandardCharsets.UTF_8));
+
+        try (IndexedLogReader reader = new IndexedLogReader(log)) {
+            assertThat(reader.getBlockCount(), equalTo(0));
+            List<String> records = reader.read(Long.MIN_VALUE / 2, Long.MAX_VALUE / 2, Level.ALL);
+            assertThat(records.size(), equalTo(3));
+            assertThat(records.get(1), equalTo("(2020/03/07 14:05:01) [WARNING]: " + longLine + "\n" + longLine));
+            assertThat(records.get(2), endsWith("[INFO]: \u00e9t\u00e9"));
+            assertThat(reader.read(Long.MIN_VALUE / 2, Long.MAX_VALUE / 2, Level.WARNING).size(), equalTo(1));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.arctos6135.robotlib.logging;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.logging.Level;
+
+import com.arctos6135.robotlib.TestUtils;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link JsonLinesHandler} and {@link LogEvent}.
+ * 
+ * @author Tyler Tian
+ */
+public class JsonLinesHandlerTest {
+
+    /**
+     * Tests that events and regular messages are written as JSON Lines.
+     * 
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testJsonLinesHandler() throws IOException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+
+        RobotLogger logger = new RobotLogger();
+        logger.init(getClass(), f);
+        logger.setLevel(Level.INFO);
+        File jsonFile = new File(f, "test" + JsonLinesHandler.EXTENSION);
+        // Replaced, like every other log
+        Files.write(jsonFile.toPath(), "{\"old\":true}\n".getBytes(StandardCharsets.UTF_8));
+        JsonLinesHandler handler = new JsonLinesHandler(jsonFile);
+        logger.addHandler(handler);
+
+        logger.event(Level.WARNING, "trip").put("channel", 4).put("amps", 61.2).put("tripped", true)
+                .put("note", "Arctos \"6135\"\n").log();
+        assertThat(logger.channel("drive").event(Level.FINE, "ignored").put("x", 1), is(LogEvent.DISABLED));
+        logger.channel("drive").event(Level.INFO, "nan").put("value", Double.NaN).put("time", 3).log();
+        logger.event(Level.INFO, "a \"quoted\" name").log();
+        logger.logInfo("Not an {event}");
+        // Looks like an event, but is not one
+        logger.logInfo("{\"event\":\"fake\"}");
+        logger.flush();
+        logger.removeHandler(handler);
+        handler.close();
+
+        List<String> lines = Files.readAllLines(jsonFile.toPath());
+        assertThat(lines.size(), equalTo(5));
+        assertThat(lines.get(0), startsWith("{\"time\":"));
+        assertThat(lines.get(0), containsString("\"level\":\"WARNING\""));
+        assertThat(lines.get(0), endsWith(",\"event\":\"trip\",\"fields\":{\"channel\":4,\"amps\":61.2,"
+                + "\"tripped\":true,\"note\":\"Arctos \\\"6135\\\"\\n\"}}"));
+        // Fields named like the fields of the record do not clash with them
+        assertThat(lines.get(1), endsWith(",\"logger\":\"drive\",\"event\":\"nan\",\"fields\":{\"value\":null,"
+                + "\"time\":3}}"));
+        assertThat(lines.get(2), endsWith(",\"event\":\"a \\\"quoted\\\" name\",\"fields\":{}}"));
+        assertThat(lines.get(3), endsWith(",\"message\":\"Not an {event}\"}"));
+        assertThat(lines.get(4), endsWith(",\"message\":\"{\\\"event\\\":\\\"fake\\\"}\"}"));
+
+        String text = null;
+        for (File file : f.listFiles()) {
+            if (file.getName().endsWith(".log")) {
+                text = new String(Files.readAllBytes(file.toPath()));
+            }
+        }
+        assertThat(text, containsString("[WARNING]: {\"event\":\"trip\",\"channel\":4"));
+    }
+}
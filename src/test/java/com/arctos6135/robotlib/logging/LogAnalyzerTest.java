@@ -0,0 +1,125 @@
+package com.arctos6135.robotlib.logging;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import com.arctos6135.robotlib.TestUtils;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link LogAnalyzer}.
+ * 
+ * @author Tyler Tian
+ */
+public class LogAnalyzerTest {
+
+    /**
+     * Tests analyzing a directory with text, compressed and binary logs.
+     * 
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testLogAnalyzer() throws IOException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+
+        Files.write(new File(f, "a.log").toPath(), ("(2020/03/07 14:05:00) [INFO]: Battery: 12.0\n"
+                + "(2020/03/07 14:05:01) [WARNING]: [drive] Motor 3 stalled\n" + "    at the gearbox\n"
+                + "(2020/03/07 14:05:02) [SEVERE]: Brownout\n").getBytes(StandardCharsets.UTF_8));
+        File sub = new File(f, "old");
+        sub.mkdir();
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(new File(sub, "b.log.gz")))) {
+            out.write(("(2020/03/06 15:00:00) [fpga 10.000000] [TELEOP] [INFO]: Battery: 6.5\n"
+                    + "(2020/03/06 15:00:02) [fpga 12.500000] [TELEOP] [INFO]: Battery: 7.5\n"
+                    + "(2020/03/06 15:00:03) [fpga 13.000000] [TELEOP] [WARNING]: [drive] Motor 12 stalled\n")
+                            .getBytes(StandardCharsets.UTF_8));
+        }
+        BinaryLogHandler binary = new BinaryLogHandler(new File(f, "c" + BinaryLogHandler.EXTENSION));
+        binary.publish(new RobotLogRecord(Level.SEVERE, "Brownout", 1000));
+        binary.publish(new RobotLogRecord(Level.SEVERE, "Brownout", 2000));
+        binary.close();
+        Files.write(new File(f, "notes.txt").toPath(), "Not a log".getBytes(StandardCharsets.UTF_8));
+
+        List<File> files = LogAnalyzer.findLogs(f);
+        assertThat(files.size(), equalTo(3));
+
+        LogAnalyzer analyzer = new LogAnalyzer(new ForkJoinPool(4));
+        Map<String, Long> errors = analyzer.analyze(f, Collectors.filtering(e -> e.getLevel() == Level.SEVERE,
+                Collectors.groupingBy(e -> e.getFile().getName(), Collectors.counting())));
+        assertThat(errors.get("a.log"), equalTo(1L));
+        assertThat(errors.get("c" + BinaryLogHandler.EXTENSION), equalTo(2L));
+        assertThat(errors.containsKey("b.log.gz"), is(false));
+
+        List<String> warnings = analyzer.analyze(files, Collectors.filtering(e -> e.getLevel() == Level.WARNING,
+                Collectors.mapping(e -> e.getChannel() + ": " + e.getMessage(), Collectors.toList())));
+        assertThat(warnings.size(), equalTo(2));
+        assertThat(warnings.get(0), equalTo("drive: Motor 3 stalled\n    at the gearbox"));
+
+        SortedMap<String, Long> firstSeen = analyzer.analyze(files, LogAnalyzer.firstSeen(Level.WARNING));
+        // The warning in a has a second line, so it is a different message
+        assertThat(firstSeen.size(), equalTo(3));
+        // Seen in b first, even though a is analyzed first
+        assertThat(firstSeen.get("[drive] Motor # stalled") < firstSeen.get("Brownout"), is(true));
+
+        double below = analyzer.analyze(files, LogAnalyzer.timeBelow(Pattern.compile("Battery: ([0-9.]+)"), 7));
+        assertThat(below, closeTo(2.5, 1e-9));
+        assertThat(analyzer.getFailedFiles().isEmpty(), is(true));
+    }
+
+    /**
+     * Tests that entries are reused, and that copies of them can be kept.
+     * 
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testLogAnalyzerEntryCopies() throws IOException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            log.append("(2020/03/07 14:05:0").append(i).append(") [INFO]: Record ").append(i).append('\n');
+        }
+        Files.write(new File(f, "a.log").toPath(), log.toString().getBytes(StandardCharsets.UTF_8));
+        LogAnalyzer analyzer = new LogAnalyzer(new ForkJoinPool(1));
+
+        // Kept as they are, the entries are only a few objects that are reused
+        List<LogEntry> kept = analyzer.analyze(f, Collectors.toList());
+        assertThat(kept.size(), equalTo(10));
+        Map<LogEntry, Boolean> distinct = new IdentityHashMap<>();
+        kept.forEach(e -> distinct.put(e, true));
+        assertThat(distinct.size() < 10, is(true));
+
+        List<LogEntry> copies = analyzer.analyze(f, Collectors.mapping(LogEntry::copy, Collectors.toList()));
+        assertThat(copies.size(), equalTo(10));
+        for (int i = 0; i < 10; i++) {
+            LogEntry entry = copies.get(i);
+            assertThat(entry.getMessage(), equalTo("Record " + i));
+            assertThat(entry.getLevel(), equalTo(Level.INFO));
+            assertThat(entry.getWallTime() % 60000, equalTo(i * 1000L));
+            assertThat(entry.getFile().getName(), equalTo("a.log"));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.arctos6135.robotlib.logging;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+
+import com.arctos6135.robotlib.TestUtils;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link LogCatalog}.
+ * 
+ * @author Tyler Tian
+ */
+public class LogCatalogTest {
+
+    private static File createLog(File dir, String name, int size, long modified) throws IOException {
+        File file = new File(dir, name);
+        Files.write(file.toPath(), new byte[size]);
+        file.setLastModified(modified);
+        return file;
+    }
+
+    /**
+     * Tests building the catalog from an existing directory, reloading it from
+     * the manifest, and enforcing the quota and max age.
+     * 
+     * @throws IOException          if something goes wrong
+     * @throws ExecutionException   if something goes wrong
+     * @throws InterruptedException if something goes wrong
+     */
+    @Test
+    public void testLogCatalog() throws IOException, InterruptedException, ExecutionException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+
+        long now = System.currentTimeMillis();
+        // Oldest first
+        File old1 = createLog(f, "a.log", 100, now - 5 * 3600000);
+        File old2 = createLog(f, "b.log.gz", 100, now - 4 * 3600000);
+        File recent1 = createLog(f, "c.rlog", 100, now - 2 * 3600000);
+        File recent2 = createLog(f, "d.log", 100, now - 1 * 3600000);
+        File other = createLog(f, "notes.txt", 100, now - 10 * 3600000);
+
+        // First catalog scans the directory
+        LogCatalog catalog = new LogCatalog(f);
+        catalog.flush(1000);
+        assertThat(catalog.getFileCount(), is(equalTo(4)));
+        assertThat(catalog.getTotalBytes(), is(equalTo(400L)));
+        catalog.close();
+        assertThat(new File(f, LogCatalog.FILE_NAME).exists(), is(true));
+
+        // Files created after the catalog are not picked up by scanning again
+        createLog(f, "e.log", 100, now);
+        catalog = new LogCatalog(f);
+        File current = new File(f, "f.log");
+        Files.write(current.toPath(), new byte[1000]);
+        catalog.fileOpened(current);
+        catalog.flush(1000);
+        assertThat(catalog.getFileCount(), is(equalTo(5)));
+
+        // Age limit removes the first two files
+        assertThat(catalog.enforce(Long.MAX_VALUE, 3).get(), is(equalTo(2)));
+        assertThat(old1.exists(), is(false));
+        assertThat(old2.exists(), is(false));
+        assertThat(recent1.exists(), is(true));
+
+        // Quota removes everything except the open file
+        assertThat(catalog.enforce(500, 24).get(), is(equalTo(2)));
+        assertThat(recent1.exists(), is(false));
+        assertThat(recent2.exists(), is(false));
+        assertThat(current.exists(), is(true));
+        assertThat(other.exists(), is(true));
+        assertThat(catalog.getTotalBytes(), is(equalTo(1000L)));
+        catalog.close();
+    }
+}
@@ -0,0 +1,144 @@
+package com.arctos6135.robotlib.logging;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import com.arctos6135.robotlib.TestUtils;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link LogDownloadServer}.
+ *
+ * @author Tyler Tian
+ */
+public class LogDownloadServerTest {
+
+    private static HttpURLConnection connect(LogDownloadServer server, String path) throws IOException {
+        URL url = new URL("http", InetAddress.getLoopbackAddress().getHostAddress(), server.getPort(), path);
+        return (HttpURLConnection) url.openConnection();
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, n);
+        }
+        in.close();
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Tests that names with special characters are encoded in the listing, and
+     * the links in it work.
+     *
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testLogDownloadServerListingNames() throws IOException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+        String name = "a b#1?x=2&<i>+.log";
+        Files.write(new File(f, name).toPath(), "Arctos\n".getBytes(StandardCharsets.UTF_8));
+
+        try (LogDownloadServer server = new LogDownloadServer(f,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 10 * 1024 * 1024)) {
+            HttpURLConnection connection = connect(server, "/");
+            String listing = read(connection.getInputStream());
+            String href = "a%20b%231%3Fx%3D2%26%3Ci%3E%2B.log";
+            assertThat(listing, containsString("<a href=\"" + href + "\">a b#1?x=2&amp;&lt;i&gt;+.log</a>"));
+
+            connection = connect(server, "/" + href);
+            assertThat(connection.getResponseCode(), equalTo(200));
+            assertThat(read(connection.getInputStream()), equalTo("Arctos\n"));
+        }
+    }
+
+    /**
+     * Tests listing, downloading, ranges, compression and slicing on loopback.
+     *
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testLogDownloadServer() throws IOException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+        String text = "(2020/03/07 14:05:00) [INFO]: First\n" + "(2020/03/07 14:05:01) [WARNING]: Second\n"
+                + "continued\n" + "(2020/03/07 14:05:02) [INFO]: Third\n";
+        Files.write(new File(f, "test.log").toPath(), text.getBytes(StandardCharsets.UTF_8));
+
+        try (LogDownloadServer server = new LogDownloadServer(f,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 10 * 1024 * 1024)) {
+            HttpURLConnection connection = connect(server, "/");
+            assertThat(connection.getResponseCode(), equalTo(200));
+            assertThat(read(connection.getInputStream()), containsString("<a href=\"test.log\">"));
+
+            connection = connect(server, "/test.log");
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+            assertThat(connection.getResponseCode(), equalTo(200));
+            assertThat(connection.getHeaderField("Content-Encoding"), equalTo("gzip"));
+            assertThat(read(new GZIPInputStream(connection.getInputStream())), equalTo(text));
+
+            connection = connect(server, "/test.log");
+            connection.setRequestProperty("Range", "bytes=30-34");
+            assertThat(connection.getResponseCode(), equalTo(206));
+            assertThat(connection.getHeaderField("Content-Range"), equalTo("bytes 30-34/" + text.length()));
+            assertThat(read(connection.getInputStream()), equalTo("First"));
+
+            connection = connect(server, "/test.log");
+            connection.setRequestProperty("Range", "bytes=" + text.length() + "-");
+            assertThat(connection.getResponseCode(), equalTo(416));
+
+            connection = connect(server, "/test.log?from=2020/03/07%2014:05:01&to=2020/03/07%2014:05:01");
+            assertThat(connection.getResponseCode(), equalTo(200));
+            assertThat(read(connection.getInputStream()), equalTo("(2020/03/07 14:05:01) [WARNING]: Second\n"
+                    + "continued\n"));
+
+            connection = connect(server, "/test.log?level=WARNING");
+            assertThat(read(connection.getInputStream()), containsString("Second"));
+
+            assertThat(connect(server, "/../test.log").getResponseCode(), equalTo(404));
+            assertThat(connect(server, "/missing.log").getResponseCode(), equalTo(404));
+        }
+    }
+
+    /**
+     * Tests that downloads are rate limited.
+     *
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testRateLimit() throws IOException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+        Files.write(new File(f, "test.rlog").toPath(), new byte[30000]);
+
+        try (LogDownloadServer server = new LogDownloadServer(f,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 100000)) {
+            long start = System.nanoTime();
+            HttpURLConnection connection = connect(server, "/test.rlog");
+            assertThat(read(connection.getInputStream()).length(), equalTo(30000));
+            assertThat(System.nanoTime() - start >= 200000000L, is(true));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.arctos6135.robotlib.logging;
+
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link LogStreamServer}.
+ * 
+ * @author Tyler Tian
+ */
+public class LogStreamServerTest {
+
+    private static void waitForClients(LogStreamServer server, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (server.getClientCount() != count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(server.getClientCount(), is(count));
+    }
+
+    private static void publish(LogStreamServer server, Level level, String message) {
+        server.publish(new RobotLogRecord(level, message, 0));
+        server.flush();
+    }
+
+    /**
+     * Tests streaming records to clients with different levels, while another
+     * client never reads anything.
+     * 
+     * @throws IOException          if something goes wrong
+     * @throws InterruptedException if something goes wrong
+     */
+    @Test
+    public void testLogStreamServer() throws IOException, InterruptedException {
+        LogStreamServer server = new LogStreamServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                1 << 20, Level.ALL);
+        try (Socket client = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+                Socket stalled = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            stalled.setReceiveBufferSize(1024);
+            client.setSoTimeout(5000);
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+            waitForClients(server, 2);
+
+            publish(server, Level.FINE, "Arctos");
+            assertThat(in.readLine(), endsWith("[FINE]: Arctos"));
+
+            // Nothing is ever read from the stalled client, which must not hold up
+            // the other one
+            long start = System.nanoTime();
+            for (int i = 0; i < 10000; i++) {
+                publish(server, Level.FINEST, "Record " + i);
+            }
+            assertThat(System.nanoTime() - start, lessThan(5_000_000_000L));
+            for (int i = 0; i < 10000; i++) {
+                assertThat(in.readLine(), endsWith("[FINEST]: Record " + i));
+            }
+
+            OutputStream out = client.getOutputStream();
+            out.write("WARNING\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            // Wait until the level has changed
+            String line;
+            do {
+                publish(server, Level.INFO, "FIRST");
+                publish(server, Level.SEVERE, "6135");
+                line = in.readLine();
+                if (line.endsWith("FIRST")) {
+                    assertThat(in.readLine(), endsWith("[SEVERE]: 6135"));
+                }
+            } while (line.endsWith("FIRST"));
+            assertThat(line, endsWith("[SEVERE]: 6135"));
+
+            publish(server, Level.INFO, "Robotics");
+            publish(server, Level.WARNING, "Competition");
+            line = in.readLine();
+            assertThat(line, startsWith("("));
+            assertThat(line, endsWith("[WARNING]: Competition"));
+        } finally {
+            server.close();
+        }
+        assertThat(server.getClientCount(), is(0));
+    }
+}
@@ -0,0 +1,67 @@
+package com.arctos6135.robotlib.logging;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import com.arctos6135.robotlib.TestUtils;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link MappedFileHandler}.
+ * 
+ * @author Tyler Tian
+ */
+public class MappedFileHandlerTest {
+
+    /**
+     * Tests writing across multiple mapped regions, recovering a log that was not
+     * closed, and closing the handler.
+     * 
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testMappedFileHandler() throws IOException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+        File logFile = new File(f, "test.log");
+
+        // Use a tiny region so that records span multiple regions
+        MappedFileHandler handler = new MappedFileHandler(logFile, 16, 10);
+        handler.setFormatter(new Formatter() {
+            @Override
+            public String format(LogRecord record) {
+                return record.getMessage() + "\n";
+            }
+        });
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            String message = "Arctos \u00e9 " + i;
+            handler.publish(new RobotLogRecord(Level.INFO, message, 0));
+            expected.append(message).append('\n');
+        }
+
+        // Simulate a crash: read the file without closing the handler
+        handler.flush();
+        File copy = new File(f, "copy.log");
+        Files.copy(logFile.toPath(), copy.toPath());
+        MappedFileHandler.recover(copy);
+        assertThat(new String(Files.readAllBytes(copy.toPath()), StandardCharsets.UTF_8),
+                is(equalTo(expected.toString())));
+
+        handler.close();
+        assertThat(new String(Files.readAllBytes(logFile.toPath()), StandardCharsets.UTF_8),
+                is(equalTo(expected.toString())));
+    }
+}
@@ -0,0 +1,76 @@
+package com.arctos6135.robotlib.logging;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.logging.Level;
+
+import com.arctos6135.robotlib.TestUtils;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link MatchSegmentedFileHandler}.
+ * 
+ * @author Tyler Tian
+ */
+public class MatchSegmentedFileHandlerTest {
+
+    /**
+     * Tests that every mode change starts a new segment, and that the index maps
+     * every phase to the right segment and byte range.
+     * 
+     * @throws IOException          if something goes wrong
+     * @throws InterruptedException if something goes wrong
+     */
+    @Test
+    public void testMatchSegmentedFileHandler() throws IOException, InterruptedException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+
+        RobotMode[] modes = { RobotMode.DISABLED, RobotMode.AUTONOMOUS, RobotMode.TELEOP };
+        MatchSegmentedFileHandler handler = new MatchSegmentedFileHandler(f, "test");
+        long start = System.currentTimeMillis();
+        for (RobotMode mode : modes) {
+            // Give the background thread time to open the next segment
+            Thread.sleep(50);
+            for (int i = 0; i < 3; i++) {
+                RobotLogRecord record = new RobotLogRecord(Level.INFO, "Arctos 6135 " + mode.name() + " " + i, 0);
+                record.setRobotMode(mode);
+                handler.publish(record);
+            }
+        }
+        handler.close();
+
+        for (int n = 0; n < modes.length; n++) {
+            File segment = new File(f, n == 0 ? "test.log" : "test." + n + ".log");
+            String text = new String(Files.readAllBytes(segment.toPath()), StandardCharsets.UTF_8);
+            assertThat(text, containsString("Segment " + n + ": " + modes[n].name()));
+            for (RobotMode mode : modes) {
+                assertThat(text.contains("Arctos 6135 " + mode.name()), is(mode == modes[n]));
+            }
+        }
+        assertThat(new File(f, "test.3.log").exists(), is(false));
+
+        List<String> index = Files.readAllLines(MatchSegmentedFileHandler.indexFileOf(f, start).toPath());
+        assertThat(index.size(), equalTo(modes.length + 1));
+        assertThat(index.get(0), equalTo(MatchSegmentedFileHandler.INDEX_HEADER));
+        for (int n = 0; n < modes.length; n++) {
+            String[] fields = index.get(n + 1).split(",", -1);
+            File segment = new File(f, fields[7]);
+            assertThat(fields[6], equalTo(modes[n].name()));
+            assertThat(segment.getName(), equalTo(n == 0 ? "test.log" : "test." + n + ".log"));
+            assertThat(fields[8], equalTo("0"));
+            assertThat(fields[9], equalTo(Long.toString(segment.length())));
+        }
+    }
+}
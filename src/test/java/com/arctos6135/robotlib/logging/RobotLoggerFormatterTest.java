@@ -0,0 +1,87 @@
+package com.arctos6135.robotlib.logging;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import com.arctos6135.robotlib.logging.RobotLoggerFormatter.Column;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link RobotLoggerFormatter}.
+ * 
+ * @author Tyler Tian
+ */
+public class RobotLoggerFormatterTest {
+
+    private static String date(long millis) {
+        return new SimpleDateFormat("(yyyy/MM/dd HH:mm:ss)").format(new Date(millis));
+    }
+
+    /**
+     * Tests the default format and the optional columns.
+     */
+    @Test
+    public void testRobotLoggerFormatterColumns() {
+        RobotLogRecord record = new RobotLogRecord(Level.WARNING, "Arctos", 12_000_345);
+        record.setWallTime(1_500_000_000_123L);
+        record.setMatchTime(135.04);
+        record.setRobotMode(RobotMode.TELEOP);
+
+        assertThat(new RobotLoggerFormatter().format(record),
+                is(equalTo(date(1_500_000_000_123L) + " [WARNING]: Arctos\n")));
+        assertThat(new RobotLoggerFormatter(Column.FPGA_TIME, Column.MATCH_TIME, Column.ROBOT_MODE).format(record),
+                is(equalTo(date(1_500_000_000_123L)
+                        + " [fpga 12.000345] [match 135.0] [TELEOP] [WARNING]: Arctos\n")));
+
+        // Regular LogRecords have none of the extra information
+        LogRecord plain = new LogRecord(Level.INFO, "6135");
+        plain.setInstant(Instant.ofEpochMilli(1_500_000_000_123L));
+        assertThat(new RobotLoggerFormatter(Column.FPGA_TIME, Column.MATCH_TIME, Column.ROBOT_MODE).format(plain),
+                is(equalTo(date(1_500_000_000_123L) + " [fpga -] [match -] [-] [INFO]: 6135\n")));
+    }
+
+    /**
+     * Tests that the cached date is updated when the second changes, and that the
+     * formatter can be used by multiple threads at the same time.
+     * 
+     * @throws InterruptedException if something goes wrong
+     */
+    @Test
+    public void testRobotLoggerFormatterThreads() throws InterruptedException {
+        RobotLoggerFormatter formatter = new RobotLoggerFormatter(Column.FPGA_TIME);
+        AtomicBoolean failed = new AtomicBoolean(false);
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t * 1000;
+            threads[t] = new Thread(() -> {
+                RobotLogRecord record = new RobotLogRecord(Level.FINE, null, 0);
+                for (int i = 0; i < 2000; i++) {
+                    long millis = 1_500_000_000_000L + (offset + i) * 400L;
+                    record.setWallTime(millis);
+                    record.setFpgaTime(i);
+                    record.setTemplate("{}", 1, i, 0, 0);
+                    String expected = date(millis) + " [fpga 0." + String.format("%06d", i) + "] [FINE]: " + i
+                            + "\n";
+                    if (!formatter.format(record).equals(expected)) {
+                        failed.set(true);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(failed.get(), is(false));
+    }
+}
@@ -1,5 +1,6 @@
 package com.arctos6135.robotlib.logging;
 
+import static org.hamcrest.Matchers.endsWith;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.greaterThan;
@@ -12,7 +13,13 @@ import java.io.IOException;
 import java.lang.reflect.Field;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Handler;
 import java.util.logging.Level;
+import java.util.logging.LogRecord;
 
 import com.arctos6135.robotlib.TestUtils;
 
@@ -118,6 +125,149 @@ public class RobotLoggerTest {
         r.close();
     }
 
+    /**
+     * Tests logging in asynchronous mode, including
+     * {@link RobotLogger#setAsyncMode(int, OverflowPolicy)} and
+     * {@link RobotLogger#flush()}.
+     * 
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testRobotLoggerAsync() throws IOException {
+        // Create a temp dir for the logs
+        // Otherwise there will be an exception since /home is owned by root
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+
+        RobotLogger logger = new RobotLogger();
+        logger.setAsyncMode(64, OverflowPolicy.BLOCK);
+
+        logger.init(getClass(), f);
+        logger.setLevel(Level.FINEST);
+        assertThat(logger.isAsync(), is(true));
+
+        File logFile = null;
+        for (File f1 : f.listFiles()) {
+            if (f1.getName().endsWith(".log")) {
+                logFile = f1;
+                break;
+            }
+        }
+        BufferedReader r = new BufferedReader(new FileReader(logFile));
+
+        // Log more records than the buffer can hold to make sure blocking works
+        for (int i = 0; i < 200; i++) {
+            logger.logInfoFine("Arctos " + i);
+        }
+        logger.flush();
+        for (int i = 0; i < 200; i++) {
+            String line = r.readLine();
+            assertThat(line.contains("Arctos " + i) && line.contains("FINE"), is(true));
+        }
+
+        logger.logError("6135");
+        logger.flush();
+        String line = r.readLine();
+        assertThat(line.contains("6135") && line.contains("SEVERE"), is(true));
+        assertThat(logger.getDroppedRecordCount(), is(0L));
+
+        r.close();
+    }
+
+    boolean supplierCalled = false;
+
+    /**
+     * Tests the message template and supplier overloads, including
+     * {@link RobotLogger#logInfoFine(String, double, double)} and
+     * {@link RobotLogger#logInfoFiner(java.util.function.Supplier)}, in both
+     * synchronous and asynchronous mode.
+     * 
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testRobotLoggerTemplates() throws IOException {
+        for (boolean async : new boolean[] { false, true }) {
+            // Create a temp dir for the logs
+            // Otherwise there will be an exception since /home is owned by root
+            Path tempDir = Files.createTempDirectory("robotlib-test-");
+            File f = tempDir.toFile();
+            TestUtils.deleteDirectoryOnExit(f);
+
+            RobotLogger logger = new RobotLogger();
+            if (async) {
+                logger.setAsyncMode(64, OverflowPolicy.BLOCK);
+            }
+            logger.init(getClass(), f);
+            logger.setLevel(Level.FINE);
+
+            File logFile = null;
+            for (File f1 : f.listFiles()) {
+                if (f1.getName().endsWith(".log")) {
+                    logFile = f1;
+                    break;
+                }
+            }
+            BufferedReader r = new BufferedReader(new FileReader(logFile));
+
+            logger.logInfoFine("rpm={} target={}", 3000, 3100.5);
+            logger.logInfo("{} {} {} {}", 6135, -1.25, 0);
+            // FINER is disabled, so the supplier should not be called
+            supplierCalled = false;
+            logger.logInfoFiner(() -> {
+                supplierCalled = true;
+                return "Arctos";
+            });
+            assertThat(supplierCalled, is(false));
+            logger.logInfoFine(() -> "FIRST");
+            logger.flush();
+
+            String line = r.readLine();
+            assertThat(line.endsWith("[FINE]: rpm=3000 target=3100.5"), is(true));
+            line = r.readLine();
+            assertThat(line.endsWith("[INFO]: 6135 -1.25 0 {}"), is(true));
+            line = r.readLine();
+            assertThat(line.endsWith("[FINE]: FIRST"), is(true));
+            assertThat(r.readLine() == null, is(true));
+            r.close();
+        }
+    }
+
+    /**
+     * Tests {@link RobotLogger#setFormatter(java.util.logging.Formatter)} with a
+     * formatter that needs the robot state to be recorded.
+     * 
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testRobotLoggerFormatter() throws IOException {
+        // Create a temp dir for the logs
+        // Otherwise there will be an exception since /home is owned by root
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+
+        RobotLogger logger = new RobotLogger();
+        logger.setFormatter(new RobotLoggerFormatter(RobotLoggerFormatter.Column.ROBOT_MODE));
+        logger.init(getClass(), f);
+
+        File logFile = null;
+        for (File f1 : f.listFiles()) {
+            if (f1.getName().endsWith(".log")) {
+                logFile = f1;
+                break;
+            }
+        }
+        BufferedReader r = new BufferedReader(new FileReader(logFile));
+
+        logger.logInfo("Arctos");
+        logger.flush();
+        // The robot is disabled in simulation
+        String line = r.readLine();
+        assertThat(line.endsWith("[DISABLED] [INFO]: Arctos"), is(true));
+        r.close();
+    }
+
     Level expectedLevel;
     String expectedMessage;
     boolean handlerCalled = false;
@@ -198,6 +348,350 @@ public class RobotLoggerTest {
         assertThat(handlerCalled, is(true));
     }
 
+    /**
+     * Tests {@link RobotLogger#setDuplicateSuppression(double)} and
+     * {@link RobotLogger#createRateLimiter(String, double, int)}.
+     * 
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testRobotLoggerSuppression() throws IOException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+
+        RobotLogger logger = new RobotLogger();
+        logger.init(getClass(), f);
+        List<String> messages = new ArrayList<>();
+        logger.setLogHandler((level, message) -> messages.add(message));
+
+        logger.setDuplicateSuppression(60);
+        for (int i = 0; i < 50; i++) {
+            logger.logWarning("Sensor unplugged");
+            logger.logInfo("rpm={}", 3000);
+        }
+        logger.logInfo("rpm={}", 3100);
+        assertThat(messages.size(), is(equalTo(3)));
+        logger.flush();
+        assertThat(messages.size(), is(equalTo(5)));
+        assertThat(messages.contains("Sensor unplugged (repeated 49 more times)"), is(true));
+        assertThat(messages.contains("rpm=3000 (repeated 49 more times)"), is(true));
+
+        // The same message on another channel is not a duplicate, and its summary goes to its channel
+        messages.clear();
+        LogChannel drive = logger.channel("drive");
+        for (int i = 0; i < 3; i++) {
+            drive.logInfo("Arctos 6135");
+        }
+        assertThat(messages.size(), is(equalTo(1)));
+        logger.logInfo("Arctos 6135");
+        logger.flush();
+        // The summary may come before the root message if they land in the same slot
+        assertThat(messages.size(), is(equalTo(3)));
+        assertThat(messages.indexOf("Arctos 6135 (repeated 2 more times)"), greaterThan(0));
+        File logFile = f.listFiles((dir, name) -> name.endsWith(".log"))[0];
+        assertThat(Files.readAllLines(logFile.toPath()).stream()
+                .anyMatch(line -> line.endsWith("[INFO]: [drive] Arctos 6135 (repeated 2 more times)")), is(true));
+        logger.setDuplicateSuppression(0);
+
+        messages.clear();
+        LogRateLimiter limiter = logger.createRateLimiter("test", 0.001, 3);
+        for (int i = 0; i < 10; i++) {
+            if (limiter.tryAcquire()) {
+                logger.logInfo("Arctos " + i);
+            }
+        }
+        assertThat(messages.size(), is(equalTo(3)));
+        logger.flush();
+        assertThat(messages.size(), is(equalTo(4)));
+        assertThat(messages.get(3), is(equalTo("RobotLogger: 7 messages from test were suppressed by rate limiting")));
+    }
+
+    /**
+     * Tests {@link RobotLogger#setFlightRecorder(int)}.
+     * 
+     * @throws IOException          if something goes wrong
+     * @throws ExecutionException   if something goes wrong
+     * @throws InterruptedException if something goes wrong
+     */
+    @Test
+    public void testRobotLoggerFlightRecorder() throws IOException, InterruptedException, ExecutionException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+
+        RobotLogger logger = new RobotLogger();
+        logger.setFlightRecorder(64 * 1024);
+        logger.init(getClass(), f);
+        logger.setLevel(Level.INFO);
+
+        // Enough to wrap around the buffer several times
+        for (int i = 0; i < 5000; i++) {
+            logger.logInfoFinest("Arctos {}", i);
+        }
+        logger.logInfo("6135");
+        logger.flush();
+
+        File dump = logger.getFlightRecorder().dump("test").get();
+        List<String> lines = Files.readAllLines(dump.toPath());
+        assertThat(lines.get(0), is(equalTo("Flight recorder dump: test")));
+        assertThat(lines.get(lines.size() - 2).endsWith("[FINEST]: Arctos 4999"), is(true));
+        assertThat(lines.get(lines.size() - 1).endsWith("[INFO]: 6135"), is(true));
+        // Only the most recent records are kept, in order
+        int first = Integer.parseInt(lines.get(1).substring(lines.get(1).lastIndexOf(' ') + 1));
+        assertThat(first, greaterThan(0));
+        assertThat(lines.size(), is(equalTo(5000 - first + 2)));
+
+        // FINEST should not have reached the log file
+        for (File f1 : f.listFiles()) {
+            if (f1.getName().endsWith(".log") && !f1.equals(dump)) {
+                List<String> logLines = Files.readAllLines(f1.toPath());
+                assertThat(logLines.size(), is(equalTo(1)));
+            }
+        }
+    }
+
+    /**
+     * Tests that records logged before {@link RobotLogger#init(Class, File)} are
+     * written once the logger is initialized.
+     * 
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testRobotLoggerPreInit() throws IOException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+
+        RobotLogger logger = new RobotLogger();
+        logger.setPreInitBufferSize(2);
+        logger.logInfo("Arctos");
+        logger.logInfoFine("Not enabled");
+        logger.channel("shooter").logWarning("{} RPM");
+        logger.logInfo("Value {}", 6135);
+        logger.init(getClass(), f);
+        logger.logInfo("FIRST");
+        logger.flush();
+
+        List<String> lines = Files.readAllLines(findLog(f).toPath());
+        assertThat(lines.size(), is(equalTo(4)));
+        assertThat(lines.get(0), endsWith("[INFO]: Arctos"));
+        assertThat(lines.get(1), endsWith("[WARNING]: [shooter] {} RPM"));
+        // The buffer only holds 2 records
+        assertThat(lines.get(2), endsWith("1 records logged before the logger was initialized were dropped"));
+        assertThat(lines.get(3), endsWith("[INFO]: FIRST"));
+    }
+
+    /**
+     * Tests converting the provisional file written by
+     * {@link RobotLogger#initWhenDSAttached(Class, File)}.
+     * 
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testRobotLoggerProvisional() throws IOException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+
+        RobotLogger logger = new RobotLogger();
+        logger.initWhenDSAttached(getClass(), f);
+        File provisional = new File(f, "provisional-0" + BinaryLogHandler.EXTENSION);
+        assertThat(provisional.isFile(), is(true));
+        for (int i = 0; i < 1000; i++) {
+            logger.logInfo("Record {}", i);
+        }
+
+        // Initializing directly instead of waiting for the Driver Station works too
+        logger.init(getClass(), f);
+        logger.flush();
+
+        assertThat(provisional.exists(), is(false));
+        List<String> lines = Files.readAllLines(findLog(f).toPath());
+        assertThat(lines.size(), is(equalTo(1000)));
+        assertThat(lines.get(999), endsWith("[INFO]: Record 999"));
+    }
+
+    private static File findLog(File dir) {
+        for (File file : dir.listFiles()) {
+            if (file.getName().endsWith(".log")) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tests {@link RobotLogger#channel(String)} and the level inheritance of
+     * {@link LogChannel}.
+     * 
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testRobotLoggerChannels() throws IOException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+
+        RobotLogger logger = new RobotLogger();
+        LogChannel shooter = logger.channel("shooter");
+        logger.init(getClass(), f);
+        logger.setLevel(Level.INFO);
+        shooter.setLevel(Level.FINEST);
+
+        LogChannel hood = logger.channel("shooter.hood");
+        LogChannel drive = logger.channel("drive");
+        assertThat(hood.getParent(), is(shooter));
+        assertThat(logger.channel("shooter"), is(shooter));
+        assertThat(hood.getEffectiveLevel(), is(Level.FINEST));
+        assertThat(drive.isLoggable(Level.FINE), is(false));
+
+        hood.logInfoFinest("Arctos");
+        drive.logInfoFine("6135");
+        drive.log(Level.WARNING, "Speed {}", 3);
+        shooter.setLevel(null);
+        hood.logInfoFinest("FIRST");
+        logger.logInfoFine("Robotics");
+        logger.flush();
+
+        File logFile = null;
+        for (File f1 : f.listFiles()) {
+            if (f1.getName().endsWith(".log")) {
+                logFile = f1;
+            }
+        }
+        List<String> lines = Files.readAllLines(logFile.toPath());
+        assertThat(lines.size(), is(equalTo(2)));
+        assertThat(lines.get(0), endsWith("[FINEST]: [shooter.hood] Arctos"));
+        assertThat(lines.get(1), endsWith("[WARNING]: [drive] Speed 3"));
+    }
+
+    /**
+     * Tests {@link RobotLogger#subscribe(Handler, Level, int, OverflowPolicy)}
+     * with a slow and a fast subscriber.
+     * 
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testRobotLoggerSubscribe() throws IOException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+
+        RobotLogger logger = new RobotLogger();
+        logger.init(getClass(), f);
+        logger.setLevel(Level.OFF);
+
+        List<String> fast = Collections.synchronizedList(new ArrayList<>());
+        List<String> slow = Collections.synchronizedList(new ArrayList<>());
+        LogSubscription fastSubscription = logger.subscribe(new ListHandler(fast, 0), Level.FINE, 256,
+                OverflowPolicy.BLOCK);
+        LogSubscription slowSubscription = logger.subscribe(new ListHandler(slow, 20), Level.WARNING, 4,
+                OverflowPolicy.DROP_AND_COUNT);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            logger.logInfoFine("Arctos {}", i);
+            logger.logWarning("6135");
+        }
+        // The slow subscriber must not slow down the caller
+        assertThat(System.nanoTime() - start < 1_000_000_000L, is(true));
+        logger.flush();
+
+        assertThat(fast.size(), is(equalTo(200)));
+        assertThat(fast.get(0), is(equalTo("Arctos 0")));
+        assertThat(fastSubscription.getDroppedCount(), is(equalTo(0L)));
+        assertThat(slowSubscription.getDroppedCount(), greaterThan(0L));
+        fastSubscription.cancel();
+        slowSubscription.cancel();
+
+        logger.logWarning("After cancel");
+        logger.flush();
+        assertThat(fast.size(), is(equalTo(200)));
+    }
+
+    /**
+     * Tests that a subscriber can keep the records it is given.
+     * 
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testRobotLoggerSubscriberKeepsRecords() throws IOException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+
+        RobotLogger logger = new RobotLogger();
+        logger.init(getClass(), f);
+        logger.setLevel(Level.OFF);
+
+        List<LogRecord> records = Collections.synchronizedList(new ArrayList<>());
+        LogSubscription subscription = logger.subscribe(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                // Read later, after the record would have been reused
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        }, Level.FINE, 256, OverflowPolicy.BLOCK);
+
+        for (int i = 0; i < 10; i++) {
+            logger.logInfoFine("Arctos {}", i);
+        }
+        logger.logWarning("6135");
+        logger.channel("drive").log(Level.WARNING, "Not reported");
+        logger.flush();
+        subscription.cancel();
+
+        assertThat(records.size(), is(equalTo(12)));
+        for (int i = 0; i < 10; i++) {
+            assertThat(records.get(i).getMessage(), is(equalTo("Arctos " + i)));
+            assertThat(records.get(i).getLevel(), is(Level.FINE));
+        }
+        assertThat(records.get(10).getMessage(), is(equalTo("6135")));
+        assertThat(((RobotLogRecord) records.get(10)).isReportedToDriverStation(), is(true));
+        assertThat(records.get(11).getMessage(), is(equalTo("Not reported")));
+        assertThat(((RobotLogRecord) records.get(11)).isReportedToDriverStation(), is(false));
+    }
+
+    /**
+     * A handler that adds messages to a list, optionally sleeping first.
+     */
+    private static class ListHandler extends Handler {
+        private final List<String> list;
+        private final long delay;
+
+        ListHandler(List<String> list, long delay) {
+            this.list = list;
+            this.delay = delay;
+        }
+
+        @Override
+        public void publish(LogRecord record) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            list.add(record.getMessage());
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
     /**
      * Tests {@link RobotLogger#cleanLogs(double)}.
      * 
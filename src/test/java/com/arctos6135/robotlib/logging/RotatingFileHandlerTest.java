@@ -0,0 +1,90 @@
+package com.arctos6135.robotlib.logging;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.zip.GZIPInputStream;
+
+import com.arctos6135.robotlib.TestUtils;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link RotatingFileHandler}.
+ * 
+ * @author Tyler Tian
+ */
+public class RotatingFileHandlerTest {
+
+    /**
+     * Tests that rotated segments are compressed and together contain every
+     * record in order.
+     * 
+     * @throws IOException          if something goes wrong
+     * @throws InterruptedException if something goes wrong
+     */
+    @Test
+    public void testRotatingFileHandler() throws IOException, InterruptedException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+
+        RotatingFileHandler handler = new RotatingFileHandler(f, "test", 100, 0);
+        handler.setFormatter(new Formatter() {
+            @Override
+            public String format(LogRecord record) {
+                return record.getMessage() + "\n";
+            }
+        });
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            String message = "Arctos 6135 record " + i;
+            handler.publish(new RobotLogRecord(Level.INFO, message, 0));
+            expected.append(message).append('\n');
+            // Give the background thread time to open the next segment
+            Thread.sleep(5);
+        }
+        handler.close();
+
+        StringBuilder actual = new StringBuilder();
+        int compressed = 0;
+        for (int n = 0;; n++) {
+            String name = n == 0 ? "test.log" : "test." + n + ".log";
+            File segment = new File(f, name);
+            File gz = new File(f, name + RotatingFileHandler.COMPRESSED_EXTENSION);
+            if (gz.exists()) {
+                assertThat(segment.exists(), is(false));
+                actual.append(read(new GZIPInputStream(new FileInputStream(gz))));
+                compressed++;
+            } else if (segment.exists()) {
+                actual.append(read(new FileInputStream(segment)));
+            } else {
+                break;
+            }
+        }
+        assertThat(compressed, greaterThan(0));
+        assertThat(actual.toString(), equalTo(expected.toString()));
+        assertThat(RobotLogger.isLogFileName("test.3.log" + RotatingFileHandler.COMPRESSED_EXTENSION), is(true));
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            stream.transferTo(out);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
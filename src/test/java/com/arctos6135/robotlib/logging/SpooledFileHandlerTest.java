@@ -0,0 +1,173 @@
+package com.arctos6135.robotlib.logging;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.ErrorManager;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import com.arctos6135.robotlib.TestUtils;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link SpooledFileHandler}.
+ *
+ * @author Tyler Tian
+ */
+public class SpooledFileHandlerTest {
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Tests that records are moved to the log once they are too old, and when
+     * the handler is closed.
+     *
+     * @throws IOException          if something goes wrong
+     * @throws InterruptedException if something goes wrong
+     */
+    @Test
+    public void testSpooledFileHandler() throws IOException, InterruptedException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+        File spoolDir = new File(f, "spool");
+        File logDir = new File(f, "logs");
+        logDir.mkdirs();
+
+        SpooledFileHandler handler = new SpooledFileHandler(spoolDir, logDir, "test", 0.2);
+        File log = new File(logDir, "test.log");
+        assertThat(log.exists(), is(true));
+
+        handler.publish(new LogRecord(Level.INFO, "First"));
+        handler.flush();
+        assertThat(read(log), equalTo(""));
+        // Wait for the spool to get too old
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!read(log).contains("First") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(read(log), containsString("First"));
+
+        handler.publish(new LogRecord(Level.INFO, "Second"));
+        handler.close();
+        String text = read(log);
+        assertThat(text, containsString("Second"));
+        assertThat(text.indexOf("First") < text.indexOf("Second"), is(true));
+        assertThat(spoolDir.list().length, equalTo(0));
+    }
+
+    /**
+     * Tests that the spool is kept for recovery if it cannot be moved when the
+     * handler is closed.
+     *
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testSpooledFileHandlerCloseFailure() throws IOException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+        File spoolDir = new File(f, "spool");
+        File logDir = new File(f, "logs");
+        logDir.mkdirs();
+
+        SpooledFileHandler handler = new SpooledFileHandler(spoolDir, logDir, "test", 60);
+        handler.setErrorManager(new ErrorManager() {
+            @Override
+            public void error(String msg, Exception ex, int code) {
+            }
+        });
+        File log = new File(logDir, "test.log");
+        handler.publish(new LogRecord(Level.INFO, "Kept"));
+        // Make the log impossible to append to
+        Files.delete(log.toPath());
+        log.mkdir();
+        handler.close();
+
+        File[] spools = spoolDir.listFiles();
+        assertThat(spools.length, equalTo(1));
+        assertThat(read(spools[0]), containsString("Kept"));
+
+        log.delete();
+        assertThat(SpooledFileHandler.recover(spoolDir, logDir), equalTo(1));
+        assertThat(read(log), containsString("Kept"));
+    }
+
+    /**
+     * Tests that the spool is still moved when the handler is closed if the next
+     * spool file cannot be opened.
+     *
+     * @throws IOException          if something goes wrong
+     * @throws InterruptedException if something goes wrong
+     */
+    @Test
+    public void testSpooledFileHandlerNoNextSpool() throws IOException, InterruptedException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+        File spoolDir = new File(f, "spool");
+        File logDir = new File(f, "logs");
+        logDir.mkdirs();
+
+        SpooledFileHandler handler = new SpooledFileHandler(spoolDir, logDir, "test", 0.2);
+        handler.setErrorManager(new ErrorManager() {
+            @Override
+            public void error(String msg, Exception ex, int code) {
+            }
+        });
+        File log = new File(logDir, "test.log");
+        // Make the spool file after the next one impossible to open
+        File blocked = new File(spoolDir, "test.2" + SpooledFileHandler.EXTENSION);
+        blocked.mkdir();
+        handler.publish(new LogRecord(Level.INFO, "First"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!read(log).contains("First") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(read(log), containsString("First"));
+
+        handler.publish(new LogRecord(Level.INFO, "Second"));
+        handler.close();
+        assertThat(read(log), containsString("Second"));
+        blocked.delete();
+        assertThat(spoolDir.list().length, equalTo(0));
+    }
+
+    /**
+     * Tests that spool files left behind are moved to their logs in order.
+     *
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testRecover() throws IOException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+        File spoolDir = new File(f, "spool");
+        File logDir = new File(f, "logs");
+        spoolDir.mkdirs();
+        logDir.mkdirs();
+
+        Files.write(new File(logDir, "old.log").toPath(), "0\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(spoolDir, "old.10" + SpooledFileHandler.EXTENSION).toPath(),
+                "10\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(spoolDir, "old.9" + SpooledFileHandler.EXTENSION).toPath(),
+                "9\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(spoolDir, "old.11" + SpooledFileHandler.EXTENSION).toPath(), new byte[0]);
+
+        assertThat(SpooledFileHandler.recover(spoolDir, logDir), equalTo(2));
+        assertThat(read(new File(logDir, "old.log")), equalTo("0\n9\n10\n"));
+        assertThat(spoolDir.list().length, equalTo(0));
+    }
+}
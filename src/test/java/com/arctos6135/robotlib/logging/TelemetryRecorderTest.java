@@ -0,0 +1,94 @@
+package com.arctos6135.robotlib.logging;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import com.arctos6135.robotlib.TestUtils;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link TelemetryRecorder} and {@link TelemetryReader}.
+ * 
+ * @author Tyler Tian
+ */
+public class TelemetryRecorderTest {
+
+    private int counter;
+
+    private TelemetryRecorder record(File file, TelemetryRecorder.Format format) throws IOException {
+        TelemetryRecorder recorder = new TelemetryRecorder(file, format, 16, 128);
+        counter = 0;
+        recorder.addChannel("counter", () -> counter);
+        recorder.addChannel("half", () -> counter / 2.0);
+        recorder.start();
+        for (counter = 0; counter < 1000; counter++) {
+            recorder.sample();
+            if (counter == 500) {
+                // Flushing writes out a partial block
+                recorder.flush(1000);
+            }
+        }
+        recorder.close();
+        assertThat(recorder.getDroppedSampleCount(), is(equalTo(0L)));
+        return recorder;
+    }
+
+    /**
+     * Tests writing binary telemetry and reading it back.
+     * 
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testTelemetryBinary() throws IOException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+        File file = new File(f, "telemetry" + TelemetryRecorder.EXTENSION);
+
+        record(file, TelemetryRecorder.Format.BINARY);
+
+        try (TelemetryReader reader = new TelemetryReader(file)) {
+            assertThat(reader.getChannelNames(), is(equalTo(Arrays.asList("counter", "half"))));
+            int count = 0;
+            long lastTime = Long.MIN_VALUE;
+            while (reader.next()) {
+                assertThat(reader.getValue(0), is(equalTo((double) count)));
+                assertThat(reader.getValue(1), is(equalTo(count / 2.0)));
+                assertThat(reader.getTime() >= lastTime, is(true));
+                lastTime = reader.getTime();
+                count++;
+            }
+            assertThat(count, is(equalTo(1000)));
+        }
+    }
+
+    /**
+     * Tests writing CSV telemetry.
+     * 
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testTelemetryCsv() throws IOException {
+        Path tempDir = Files.createTempDirectory("robotlib-test-");
+        File f = tempDir.toFile();
+        TestUtils.deleteDirectoryOnExit(f);
+        File file = new File(f, "telemetry.csv");
+
+        record(file, TelemetryRecorder.Format.CSV);
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertThat(lines.size(), is(equalTo(1001)));
+        assertThat(lines.get(0), is(equalTo("fpga_time,counter,half")));
+        assertThat(lines.get(4).endsWith(",3.0,1.5"), is(true));
+    }
+}
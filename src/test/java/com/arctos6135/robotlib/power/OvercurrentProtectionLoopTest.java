@@ -0,0 +1,129 @@
+package com.arctos6135.robotlib.power;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.arctos6135.robotlib.motors.ProtectedMotor;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link OvercurrentProtectionLoop}.
+ *
+ * @author Tyler Tian
+ */
+public class OvercurrentProtectionLoopTest {
+
+    private final double[] currents = new double[PowerSnapshot.CHANNELS];
+    // In microseconds
+    private long time = 0;
+    private int trips = 0;
+
+    private OvercurrentProtectionLoop createLoop() {
+        return new OvercurrentProtectionLoop(null, OvercurrentProtectionLoop.DEFAULT_RATE, c -> currents[c],
+                () -> time);
+    }
+
+    /**
+     * Tests that a channel trips once the current has been over the limit for
+     * the overcurrent time, and only trips again after another full overcurrent
+     * time.
+     */
+    @Test
+    public void testOvercurrentProtectionLoop() {
+        try (OvercurrentProtectionLoop loop = createLoop()) {
+            loop.addChannel(4, 40, 0.5, () -> trips++);
+
+            currents[4] = 50;
+            loop.run();
+            time = 400_000;
+            loop.run();
+            assertThat(trips, is(equalTo(0)));
+            time = 500_000;
+            loop.run();
+            assertThat(trips, is(equalTo(1)));
+
+            // Timing starts again after the trip
+            time = 600_000;
+            loop.run();
+            time = 1_000_000;
+            loop.run();
+            assertThat(trips, is(equalTo(1)));
+            time = 1_100_000;
+            loop.run();
+            assertThat(trips, is(equalTo(2)));
+        }
+    }
+
+    /**
+     * Tests that a channel does not trip when the current stays below the limit,
+     * or drops below it before the overcurrent time is up.
+     */
+    @Test
+    public void testOvercurrentProtectionLoopBelowLimit() {
+        try (OvercurrentProtectionLoop loop = createLoop()) {
+            loop.addChannel(4, 40, 0.5, () -> trips++);
+
+            currents[4] = 39.9;
+            for (time = 0; time <= 2_000_000; time += 5000) {
+                loop.run();
+            }
+            assertThat(trips, is(equalTo(0)));
+
+            // Over the limit for 0.4s, under it briefly, then over it for another 0.4s
+            currents[4] = 50;
+            time = 3_000_000;
+            loop.run();
+            time = 3_400_000;
+            loop.run();
+            currents[4] = 30;
+            time = 3_405_000;
+            loop.run();
+            currents[4] = 50;
+            time = 3_410_000;
+            loop.run();
+            time = 3_810_000;
+            loop.run();
+            assertThat(trips, is(equalTo(0)));
+
+            // A full overcurrent time after the current went over the limit again
+            time = 3_910_000;
+            loop.run();
+            assertThat(trips, is(equalTo(1)));
+        }
+    }
+
+    /**
+     * Tests that a motor monitored by a protection loop is set to 0 and
+     * blacklisted when it trips, and only when protection is on.
+     */
+    @Test
+    public void testProtectedMotor() {
+        try (OvercurrentProtectionLoop loop = createLoop()) {
+            List<Double> values = new ArrayList<>();
+            ProtectedMotor motor = new ProtectedMotor(loop, 4, values::add, 40, 0.5);
+            ProtectedMotor unprotected = new ProtectedMotor(loop, 5, values::add, 40, 0.5);
+            unprotected.setProtectionState(false);
+
+            motor.set(1);
+            currents[4] = 50;
+            currents[5] = 50;
+            loop.run();
+            time = 500_000;
+            loop.run();
+            assertThat(motor.isBlacklisted(), is(true));
+            assertThat(unprotected.isBlacklisted(), is(false));
+            assertThat(values.get(values.size() - 1), is(equalTo(0.0)));
+
+            motor.set(1);
+            assertThat(values.get(values.size() - 1), is(equalTo(0.0)));
+            motor.clearBlacklist();
+            motor.set(1);
+            assertThat(values.get(values.size() - 1), is(equalTo(1.0)));
+        }
+    }
+}
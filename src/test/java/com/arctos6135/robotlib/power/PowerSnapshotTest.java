@@ -0,0 +1,126 @@
+package com.arctos6135.robotlib.power;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link PowerSnapshot}.
+ *
+ * @author Tyler Tian
+ */
+public class PowerSnapshotTest {
+
+    private final double[] currents = new double[PowerSnapshot.CHANNELS];
+    private final int[] currentReads = new int[PowerSnapshot.CHANNELS];
+    private int totalCurrentReads = 0;
+    private double voltage = 12.5;
+    private int voltageReads = 0;
+    // In seconds
+    private double time = 0;
+
+    private PowerSnapshot createBattery() {
+        return new PowerSnapshot(null, null, null, () -> {
+            voltageReads++;
+            return voltage;
+        }, () -> time);
+    }
+
+    private PowerSnapshot createSnapshot(PowerSnapshot battery) {
+        return new PowerSnapshot(null, c -> {
+            currentReads[c]++;
+            return currents[c];
+        }, () -> {
+            totalCurrentReads++;
+            return 0;
+        }, battery::getBatteryVoltage, () -> time);
+    }
+
+    /**
+     * Tests that values are only read again once they are older than the max
+     * age.
+     */
+    @Test
+    public void testPowerSnapshotMaxAge() {
+        PowerSnapshot snapshot = createSnapshot(createBattery());
+        snapshot.setMaxAge(0.02);
+
+        currents[3] = 10;
+        assertThat(snapshot.getCurrent(3), is(equalTo(10.0)));
+        assertThat(currentReads[3], is(equalTo(1)));
+
+        currents[3] = 20;
+        time = 0.019;
+        assertThat(snapshot.getCurrent(3), is(equalTo(10.0)));
+        assertThat(currentReads[3], is(equalTo(1)));
+        assertThat(snapshot.getTimestamp(), is(equalTo(0.0)));
+
+        time = 0.02;
+        assertThat(snapshot.getCurrent(3), is(equalTo(20.0)));
+        assertThat(currentReads[3], is(equalTo(2)));
+        assertThat(snapshot.getTimestamp(), is(equalTo(0.02)));
+
+        // Reads regardless of the age
+        snapshot.update();
+        assertThat(currentReads[3], is(equalTo(3)));
+    }
+
+    /**
+     * Tests that only the channels that have been asked for are read, and that
+     * they are all read together.
+     */
+    @Test
+    public void testPowerSnapshotChannels() {
+        PowerSnapshot snapshot = createSnapshot(createBattery());
+
+        snapshot.getCurrent(3);
+        snapshot.getCurrent(7);
+        assertThat(currentReads[3], is(equalTo(2)));
+        assertThat(currentReads[7], is(equalTo(1)));
+        assertThat(totalCurrentReads, is(equalTo(0)));
+
+        time = 1;
+        snapshot.getBatteryVoltage();
+        for (int i = 0; i < PowerSnapshot.CHANNELS; i++) {
+            assertThat(currentReads[i], is(equalTo(i == 3 ? 3 : i == 7 ? 2 : 0)));
+        }
+        assertThat(totalCurrentReads, is(equalTo(0)));
+
+        snapshot.getTotalCurrent();
+        time = 2;
+        snapshot.getCurrent(7);
+        assertThat(totalCurrentReads, is(equalTo(2)));
+        assertThat(currentReads[3], is(equalTo(5)));
+    }
+
+    /**
+     * Tests that snapshots of different PDPs share the battery voltage, and that
+     * the battery voltage snapshot has no currents.
+     */
+    @Test
+    public void testPowerSnapshotBattery() {
+        PowerSnapshot battery = createBattery();
+        PowerSnapshot snapshot0 = createSnapshot(battery);
+        PowerSnapshot snapshot1 = createSnapshot(battery);
+
+        assertThat(snapshot0.getBatteryVoltage(), is(equalTo(12.5)));
+        assertThat(snapshot1.getBatteryVoltage(), is(equalTo(12.5)));
+        assertThat(voltageReads, is(equalTo(1)));
+
+        voltage = 11;
+        time = 1;
+        assertThat(snapshot0.getBatteryVoltage(), is(equalTo(11.0)));
+        assertThat(snapshot1.getBatteryVoltage(), is(equalTo(11.0)));
+        assertThat(voltageReads, is(equalTo(2)));
+
+        try {
+            battery.getCurrent(0);
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+}